@@ -20,6 +20,16 @@ repositories {
     mavenCentral()
 }
 
+// JMH benchmarks in src/jmh, run with `gradle jmh`
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations["jmhImplementation"].extendsFrom(configurations.implementation.get())
+
 dependencies {
     val calciteVersion = "1.35.0"
     val okhttpVersion = "4.12.0"
@@ -32,6 +42,12 @@ dependencies {
     implementation("org.slf4j:slf4j-api:$slf4jVersion")
 
     testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    // Reference Arrow IPC writer for the decoder tests
+    testImplementation("org.apache.arrow:arrow-vector:15.0.2")
+    testRuntimeOnly("org.apache.arrow:arrow-memory-unsafe:15.0.2")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 spotless {
@@ -43,14 +59,30 @@ spotless {
 
 tasks.test {
     useJUnitPlatform()
+    // Arrow's memory allocator needs reflective access to java.nio
+    jvmArgs("--add-opens=java.base/java.nio=ALL-UNNAMED")
+}
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks with allocation and peak heap profiling; pass JMH options with -PjmhArgs=\"...\""
+    group = "verification"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args("-prof", "gc", "-prof", "com.leaf.jdbc.LeafPeakHeapProfiler")
+    args(((findProperty("jmhArgs") as String?) ?: "").split(" ").filter { it.isNotBlank() })
+}
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs concurrent queries against a local Leaf API stand-in; pass options with -PloadArgs=\"connections=16 rows=20000 ...\""
+    group = "verification"
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("com.leaf.jdbc.LeafLoadDriver")
+    args(((findProperty("loadArgs") as String?) ?: "").split(" ").filter { it.isNotBlank() })
 }
 
-tasks.withType<JavaCompile> {
-    options.compilerArgs.addAll(
-        listOf(
-            "--add-exports", "java.sql.rowset/com.sun.rowset=ALL-UNNAMED"
-        )
-    )
+// Keep the benchmarks compiling with the code they measure
+tasks.check {
+    dependsOn("jmhClasses")
 }
 
 publishing {
@@ -0,0 +1,214 @@
+package com.leaf.jdbc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decode and materialization throughput on synthetic pointlake responses. Run with {@code gradle
+ * jmh}; the task adds {@code -prof gc} (allocation rate) and {@link LeafPeakHeapProfiler} (peak
+ * heap), and extra options such as {@code -PjmhArgs="-p rows=1000 decode"} narrow the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class LeafDecodeBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Payload {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    /** {@code array}: a direct array of row objects; {@code columns}: columns plus row arrays. */
+    @Param({"array", "columns"})
+    public String shape;
+
+    /** {@code geometry}: GeoJSON polygons and WKT points; {@code numeric}: sensor readings. */
+    @Param({"geometry", "numeric"})
+    public String mix;
+
+    byte[] body;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+      body = LeafDecodeBenchmark.generate(rows, shape, mix);
+    }
+  }
+
+  /** The same payload parsed into a tree, for the per-cell {@code jsonToJava} conversion. */
+  @State(Scope.Benchmark)
+  public static class Tree {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"geometry", "numeric"})
+    public String mix;
+
+    JsonNode root;
+
+    @Setup(Level.Trial)
+    public void parse() throws IOException {
+      root = LeafTransport.mapper().readTree(generate(rows, "array", mix));
+    }
+  }
+
+  /** Response body to columnar storage, as a buffered query does. */
+  @Benchmark
+  public LeafColumnarData decode(Payload payload) throws IOException, SQLException {
+    LeafColumnarBuilder builder = new LeafColumnarBuilder();
+    LeafDecoders.JSON.decode(new ByteArrayInputStream(payload.body), builder);
+    return builder.build();
+  }
+
+  /** Decode, then read every cell back through the {@code ResultSet}. */
+  @Benchmark
+  public void decodeAndRead(Payload payload, Blackhole bh) throws IOException, SQLException {
+    try (ResultSet rs = decode(payload).cursor(null)) {
+      readAll(rs, bh);
+    }
+  }
+
+  /** The {@code streaming=true} path: rows decoded as {@code next()} is called. */
+  @Benchmark
+  public void streamingRead(Payload payload, Blackhole bh) throws SQLException {
+    try (ResultSet rs =
+        LeafStreamingResultSet.open(
+            null, LeafTransport.mapper(), new ByteArrayInputStream(payload.body), null, false)) {
+      readAll(rs, bh);
+    }
+  }
+
+  @Benchmark
+  public void jsonToJava(Tree tree, Blackhole bh) {
+    for (JsonNode row : tree.root) {
+      for (Iterator<Map.Entry<String, JsonNode>> it = row.fields(); it.hasNext(); ) {
+        bh.consume(LeafStatement.jsonToJava(it.next().getValue(), false));
+      }
+    }
+  }
+
+  private static void readAll(ResultSet rs, Blackhole bh) throws SQLException {
+    int columns = rs.getMetaData().getColumnCount();
+    while (rs.next()) {
+      for (int i = 1; i <= columns; i++) {
+        bh.consume(rs.getObject(i));
+      }
+    }
+  }
+
+  private static final String[] GEOMETRY_COLUMNS = {
+    "id", "timestamp", "operationType", "geometry", "location"
+  };
+  private static final String[] NUMERIC_COLUMNS = {
+    "id", "timestamp", "yield", "moisture", "speed", "heading", "elevation", "area", "isHarvested"
+  };
+
+  static byte[] generate(int rows, String shape, String mix) throws IOException {
+    boolean geometry = mix.equals("geometry");
+    String[] columns = geometry ? GEOMETRY_COLUMNS : NUMERIC_COLUMNS;
+    boolean objects = shape.equals("array");
+    Random random = new Random(42);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(rows * (geometry ? 360 : 200));
+    StringBuilder sb = new StringBuilder(512);
+    if (objects) {
+      sb.append('[');
+    } else {
+      sb.append("{\"columns\":[");
+      for (int c = 0; c < columns.length; c++) {
+        if (c > 0) sb.append(',');
+        sb.append('"').append(columns[c]).append('"');
+      }
+      sb.append("],\"rows\":[");
+    }
+    for (int r = 0; r < rows; r++) {
+      if (r > 0) sb.append(',');
+      sb.append(objects ? '{' : '[');
+      double lon = -93.0 + random.nextDouble() * 0.5;
+      double lat = 41.5 + random.nextDouble() * 0.5;
+      Object[] values =
+          geometry
+              ? new Object[] {
+                r,
+                "\"2024-09-14 15:02:" + (10 + r % 50) + "\"",
+                "\"harvested\"",
+                polygon(lon, lat),
+                "\"POINT (" + lon + " " + lat + ")\""
+              }
+              : new Object[] {
+                r,
+                1726326130000L + r * 1000L,
+                random.nextDouble() * 250,
+                12 + random.nextDouble() * 10,
+                random.nextDouble() * 4,
+                random.nextDouble() * 360,
+                280 + random.nextDouble() * 20,
+                random.nextDouble() * 0.01,
+                random.nextBoolean()
+              };
+      for (int c = 0; c < columns.length; c++) {
+        if (c > 0) sb.append(',');
+        if (objects) sb.append('"').append(columns[c]).append("\":");
+        sb.append(values[c]);
+      }
+      sb.append(objects ? '}' : ']');
+      if (sb.length() > 8192) {
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        sb.setLength(0);
+      }
+    }
+    sb.append(objects ? "]" : "]}");
+    out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    return out.toByteArray();
+  }
+
+  // A small rectangle the size of a harvester swath segment
+  private static String polygon(double lon, double lat) {
+    double d = 0.00005;
+    return "{\"type\":\"Polygon\",\"coordinates\":[[["
+        + lon
+        + ","
+        + lat
+        + "],["
+        + (lon + d)
+        + ","
+        + lat
+        + "],["
+        + (lon + d)
+        + ","
+        + (lat + d)
+        + "],["
+        + lon
+        + ","
+        + (lat + d)
+        + "],["
+        + lon
+        + ","
+        + lat
+        + "]]]}";
+  }
+}
@@ -0,0 +1,1268 @@
+package com.leaf.jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Read-only, forward-only base for the driver's result sets. Subclasses provide cursor movement and
+ * raw cell values; every typed getter is derived from {@link #value(int)} unless a subclass
+ * overrides it with a cheaper path.
+ */
+abstract class AbstractLeafResultSet implements ResultSet {
+  private final Statement statement;
+  private boolean closed = false;
+  private boolean wasNull = false;
+  private int row = 0;
+  private boolean afterLast = false;
+  private long maxRows = 0;
+  // Last geometry parsed from each column and the cell value it came from
+  private Object[] geometrySources;
+  private LeafGeometry[] geometries;
+
+  AbstractLeafResultSet(Statement statement) {
+    this.statement = statement;
+  }
+
+  /** Caps the rows this cursor returns; rows past the cap are silently dropped. */
+  final void limitRows(long maxRows) {
+    this.maxRows = maxRows;
+  }
+
+  /** Number of rows in the result if it is known without reading them, otherwise -1. */
+  long rowCount() {
+    return -1;
+  }
+
+  /** Advances to the next row, returning false once the data is exhausted. */
+  protected abstract boolean advance() throws SQLException;
+
+  /** Returns the raw value of a 1-based column in the current row. */
+  protected abstract Object value(int columnIndex) throws SQLException;
+
+  /** Releases resources held by the subclass; called once from {@link #close()}. */
+  protected void release() throws SQLException {}
+
+  @Override
+  public abstract LeafResultSetMetaData getMetaData() throws SQLException;
+
+  @Override
+  public final boolean next() throws SQLException {
+    ensureOpen();
+    if (afterLast) return false;
+    if ((maxRows <= 0 || row < maxRows) && advance()) {
+      row++;
+      return true;
+    }
+    afterLast = true;
+    return false;
+  }
+
+  @Override
+  public final void close() throws SQLException {
+    if (closed) return;
+    closed = true;
+    release();
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public int findColumn(String columnLabel) throws SQLException {
+    int index = getMetaData().indexOf(columnLabel);
+    if (index < 0) throw new SQLException("Invalid column name: " + columnLabel);
+    return index + 1;
+  }
+
+  /** Records whether the last read cell was SQL NULL and returns the value unchanged. */
+  protected final Object track(Object value) {
+    wasNull = value == null;
+    return value;
+  }
+
+  protected final void trackNull(boolean isNull) {
+    wasNull = isNull;
+  }
+
+  protected final void ensureOpen() throws SQLException {
+    if (closed) throw new SQLException("ResultSet is closed");
+  }
+
+  protected final void ensureRow() throws SQLException {
+    ensureOpen();
+    if (row == 0 || afterLast) throw new SQLException("No current row");
+  }
+
+  protected final void checkColumn(int columnIndex, int columnCount) throws SQLException {
+    if (columnIndex < 1 || columnIndex > columnCount) {
+      throw new SQLException("Invalid column index: " + columnIndex);
+    }
+  }
+
+  @Override
+  public boolean wasNull() {
+    return wasNull;
+  }
+
+  @Override
+  public Object getObject(int columnIndex) throws SQLException {
+    Object v = cell(columnIndex);
+    // Geometries read back as GeoJSON text, produced on demand from the packed coordinates
+    if (v instanceof LeafGeometry) return ((LeafGeometry) v).toGeoJson();
+    return v;
+  }
+
+  /** The value as stored, without the text conversion {@link #getObject(int)} applies. */
+  private Object cell(int columnIndex) throws SQLException {
+    ensureRow();
+    return track(value(columnIndex));
+  }
+
+  @Override
+  public String getString(int columnIndex) throws SQLException {
+    Object v = cell(columnIndex);
+    if (v == null) return null;
+    if (v instanceof BigDecimal) return ((BigDecimal) v).toPlainString();
+    if (v instanceof byte[]) return new String((byte[]) v, StandardCharsets.UTF_8);
+    if (v instanceof LeafGeometry) return ((LeafGeometry) v).toGeoJson();
+    return v.toString();
+  }
+
+  @Override
+  public boolean getBoolean(int columnIndex) throws SQLException {
+    Object v = getObject(columnIndex);
+    if (v == null) return false;
+    if (v instanceof Boolean) return (Boolean) v;
+    if (v instanceof Number) return ((Number) v).doubleValue() != 0;
+    String s = v.toString().trim();
+    return s.equalsIgnoreCase("true") || s.equals("1");
+  }
+
+  @Override
+  public byte getByte(int columnIndex) throws SQLException {
+    return (byte) getLong(columnIndex);
+  }
+
+  @Override
+  public short getShort(int columnIndex) throws SQLException {
+    return (short) getLong(columnIndex);
+  }
+
+  @Override
+  public int getInt(int columnIndex) throws SQLException {
+    return (int) getLong(columnIndex);
+  }
+
+  @Override
+  public long getLong(int columnIndex) throws SQLException {
+    Object v = getObject(columnIndex);
+    if (v == null) return 0L;
+    if (v instanceof Number) return ((Number) v).longValue();
+    if (v instanceof Boolean) return (Boolean) v ? 1L : 0L;
+    try {
+      return new BigDecimal(v.toString().trim()).longValue();
+    } catch (NumberFormatException e) {
+      throw new SQLException("Cannot convert value to long: " + v, e);
+    }
+  }
+
+  @Override
+  public float getFloat(int columnIndex) throws SQLException {
+    return (float) getDouble(columnIndex);
+  }
+
+  @Override
+  public double getDouble(int columnIndex) throws SQLException {
+    Object v = getObject(columnIndex);
+    if (v == null) return 0d;
+    if (v instanceof Number) return ((Number) v).doubleValue();
+    if (v instanceof Boolean) return (Boolean) v ? 1d : 0d;
+    try {
+      return Double.parseDouble(v.toString().trim());
+    } catch (NumberFormatException e) {
+      throw new SQLException("Cannot convert value to double: " + v, e);
+    }
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+    Object v = getObject(columnIndex);
+    if (v == null) return null;
+    if (v instanceof BigDecimal) return (BigDecimal) v;
+    if (v instanceof BigInteger) return new BigDecimal((BigInteger) v);
+    if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+      return BigDecimal.valueOf(((Number) v).longValue());
+    }
+    if (v instanceof Number) return BigDecimal.valueOf(((Number) v).doubleValue());
+    if (v instanceof Boolean) return (Boolean) v ? BigDecimal.ONE : BigDecimal.ZERO;
+    try {
+      return new BigDecimal(v.toString().trim());
+    } catch (NumberFormatException e) {
+      throw new SQLException("Cannot convert value to BigDecimal: " + v, e);
+    }
+  }
+
+  @Override
+  @Deprecated
+  public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+    BigDecimal v = getBigDecimal(columnIndex);
+    return v == null ? null : v.setScale(scale, java.math.RoundingMode.HALF_UP);
+  }
+
+  @Override
+  public byte[] getBytes(int columnIndex) throws SQLException {
+    Object v = cell(columnIndex);
+    if (v == null) return null;
+    if (v instanceof byte[]) return (byte[]) v;
+    if (v instanceof LeafGeometry) return ((LeafGeometry) v).toWkb();
+    return v.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public Date getDate(int columnIndex) throws SQLException {
+    return getDate(columnIndex, null);
+  }
+
+  @Override
+  public Time getTime(int columnIndex) throws SQLException {
+    return getTime(columnIndex, null);
+  }
+
+  @Override
+  public Timestamp getTimestamp(int columnIndex) throws SQLException {
+    return getTimestamp(columnIndex, null);
+  }
+
+  /** Values without a zone are read in {@code cal}'s time zone, or the JVM's when it is null. */
+  @Override
+  public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+    Object v = getObject(columnIndex);
+    if (v == null) return null;
+    if (v instanceof Date) return (Date) v;
+    if (v instanceof Number) return new Date(((Number) v).longValue());
+    TemporalAccessor t = parseTemporal(v, "Date");
+    if (t instanceof LocalDate) {
+      LocalDate date = (LocalDate) t;
+      if (cal == null) return Date.valueOf(date);
+      return new Date(date.atStartOfDay(zone(cal)).toInstant().toEpochMilli());
+    }
+    return new Date(toTimestamp(t, cal).getTime());
+  }
+
+  /** Values without a zone are read in {@code cal}'s time zone, or the JVM's when it is null. */
+  @Override
+  public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+    Object v = getObject(columnIndex);
+    if (v == null) return null;
+    if (v instanceof Time) return (Time) v;
+    if (v instanceof Number) return new Time(((Number) v).longValue());
+    LocalTime time;
+    try {
+      time = LocalTime.parse(v.toString().trim());
+    } catch (DateTimeParseException e) {
+      throw new SQLException("Cannot convert value to Time: " + v, e);
+    }
+    if (cal == null) return Time.valueOf(time);
+    return new Time(time.atDate(LocalDate.EPOCH).atZone(zone(cal)).toInstant().toEpochMilli());
+  }
+
+  /**
+   * Values with an offset or {@code Z} are instants; values without a zone are read in {@code
+   * cal}'s time zone, or the JVM's when it is null.
+   */
+  @Override
+  public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+    Object v = getObject(columnIndex);
+    if (v == null) return null;
+    if (v instanceof Timestamp) return (Timestamp) v;
+    if (v instanceof Number) return new Timestamp(((Number) v).longValue());
+    return toTimestamp(parseTemporal(v, "Timestamp"), cal);
+  }
+
+  private static Timestamp toTimestamp(TemporalAccessor t, Calendar cal) {
+    if (t instanceof OffsetDateTime) return Timestamp.from(((OffsetDateTime) t).toInstant());
+    LocalDateTime local =
+        t instanceof LocalDate ? ((LocalDate) t).atStartOfDay() : (LocalDateTime) t;
+    if (cal == null) return Timestamp.valueOf(local);
+    return Timestamp.from(local.atZone(zone(cal)).toInstant());
+  }
+
+  private static ZoneId zone(Calendar cal) {
+    return cal.getTimeZone().toZoneId();
+  }
+
+  // ISO date, optionally followed by a time after 'T' or a space, optionally followed by an offset
+  private static final DateTimeFormatter TEMPORAL =
+      new DateTimeFormatterBuilder()
+          .parseCaseInsensitive()
+          .append(DateTimeFormatter.ISO_LOCAL_DATE)
+          .optionalStart()
+          .appendLiteral('T')
+          .append(DateTimeFormatter.ISO_LOCAL_TIME)
+          .optionalStart()
+          .appendOffsetId()
+          .toFormatter(Locale.ROOT);
+
+  /**
+   * Parses date-time text to an {@link OffsetDateTime}, {@link LocalDateTime} or {@link LocalDate}.
+   */
+  private static TemporalAccessor parseTemporal(Object v, String type) throws SQLException {
+    String s = v.toString().trim();
+    if (s.length() > 10 && s.charAt(10) == ' ') s = s.substring(0, 10) + 'T' + s.substring(11);
+    try {
+      return TEMPORAL.parseBest(s, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+    } catch (DateTimeParseException e) {
+      throw new SQLException("Cannot convert value to " + type + ": " + v, e);
+    }
+  }
+
+  @Override
+  public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+    if (type == null) throw new SQLException("Type must not be null");
+    Object v;
+    if (type == String.class) v = getString(columnIndex);
+    else if (type == Integer.class) v = getInt(columnIndex);
+    else if (type == Long.class) v = getLong(columnIndex);
+    else if (type == Double.class) v = getDouble(columnIndex);
+    else if (type == Float.class) v = getFloat(columnIndex);
+    else if (type == Short.class) v = getShort(columnIndex);
+    else if (type == Byte.class) v = getByte(columnIndex);
+    else if (type == Boolean.class) v = getBoolean(columnIndex);
+    else if (type == BigDecimal.class) v = getBigDecimal(columnIndex);
+    else if (type == byte[].class) v = getBytes(columnIndex);
+    else if (type == Date.class) v = getDate(columnIndex);
+    else if (type == Time.class) v = getTime(columnIndex);
+    else if (type == Timestamp.class) v = getTimestamp(columnIndex);
+    else if (type == LeafGeometry.class) v = getGeometry(columnIndex);
+    else v = getObject(columnIndex);
+    if (wasNull()) return null;
+    if (!type.isInstance(v)) {
+      throw new SQLException("Cannot convert value to " + type.getName() + ": " + v);
+    }
+    return type.cast(v);
+  }
+
+  /**
+   * Returns the value as a geometry. Geometries decoded from GeoJSON are returned as stored; WKT,
+   * WKB or GeoJSON text and WKB bytes are parsed on access, and reading the same cell again returns
+   * the geometry parsed the first time.
+   */
+  private LeafGeometry getGeometry(int columnIndex) throws SQLException {
+    Object v = cell(columnIndex);
+    if (v == null || v instanceof LeafGeometry) return (LeafGeometry) v;
+    if (geometries == null) {
+      int columns = getMetaData().getColumnCount();
+      geometrySources = new Object[columns];
+      geometries = new LeafGeometry[columns];
+    }
+    int i = columnIndex - 1;
+    if (v == geometrySources[i] || v.equals(geometrySources[i])) return geometries[i];
+    LeafGeometry geometry;
+    try {
+      if (v instanceof byte[]) geometry = LeafGeometry.fromWkb((byte[]) v);
+      else geometry = LeafGeometry.parse(v.toString());
+    } catch (IllegalArgumentException e) {
+      throw new SQLException("Cannot convert value to LeafGeometry: " + v, e);
+    }
+    geometrySources[i] = v;
+    geometries[i] = geometry;
+    return geometry;
+  }
+
+  @Override
+  public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+    return getObject(columnIndex);
+  }
+
+  @Override
+  public String getNString(int columnIndex) throws SQLException {
+    return getString(columnIndex);
+  }
+
+  @Override
+  public InputStream getAsciiStream(int columnIndex) throws SQLException {
+    byte[] b = getBytes(columnIndex);
+    return b == null ? null : new java.io.ByteArrayInputStream(b);
+  }
+
+  @Override
+  @Deprecated
+  public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+    return getAsciiStream(columnIndex);
+  }
+
+  @Override
+  public InputStream getBinaryStream(int columnIndex) throws SQLException {
+    return getAsciiStream(columnIndex);
+  }
+
+  @Override
+  public Reader getCharacterStream(int columnIndex) throws SQLException {
+    String s = getString(columnIndex);
+    return s == null ? null : new java.io.StringReader(s);
+  }
+
+  @Override
+  public Reader getNCharacterStream(int columnIndex) throws SQLException {
+    return getCharacterStream(columnIndex);
+  }
+
+  @Override
+  public URL getURL(int columnIndex) throws SQLException {
+    String s = getString(columnIndex);
+    if (s == null) return null;
+    try {
+      return new URL(s);
+    } catch (java.net.MalformedURLException e) {
+      throw new SQLException("Cannot convert value to URL: " + s, e);
+    }
+  }
+
+  @Override
+  public Ref getRef(int columnIndex) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public Blob getBlob(int columnIndex) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public Clob getClob(int columnIndex) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public Array getArray(int columnIndex) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public RowId getRowId(int columnIndex) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public NClob getNClob(int columnIndex) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public SQLXML getSQLXML(int columnIndex) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  // Label-based getters
+
+  @Override
+  public String getString(String columnLabel) throws SQLException {
+    return getString(findColumn(columnLabel));
+  }
+
+  @Override
+  public boolean getBoolean(String columnLabel) throws SQLException {
+    return getBoolean(findColumn(columnLabel));
+  }
+
+  @Override
+  public byte getByte(String columnLabel) throws SQLException {
+    return getByte(findColumn(columnLabel));
+  }
+
+  @Override
+  public short getShort(String columnLabel) throws SQLException {
+    return getShort(findColumn(columnLabel));
+  }
+
+  @Override
+  public int getInt(String columnLabel) throws SQLException {
+    return getInt(findColumn(columnLabel));
+  }
+
+  @Override
+  public long getLong(String columnLabel) throws SQLException {
+    return getLong(findColumn(columnLabel));
+  }
+
+  @Override
+  public float getFloat(String columnLabel) throws SQLException {
+    return getFloat(findColumn(columnLabel));
+  }
+
+  @Override
+  public double getDouble(String columnLabel) throws SQLException {
+    return getDouble(findColumn(columnLabel));
+  }
+
+  @Override
+  @Deprecated
+  public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+    return getBigDecimal(findColumn(columnLabel), scale);
+  }
+
+  @Override
+  public byte[] getBytes(String columnLabel) throws SQLException {
+    return getBytes(findColumn(columnLabel));
+  }
+
+  @Override
+  public Date getDate(String columnLabel) throws SQLException {
+    return getDate(findColumn(columnLabel));
+  }
+
+  @Override
+  public Time getTime(String columnLabel) throws SQLException {
+    return getTime(findColumn(columnLabel));
+  }
+
+  @Override
+  public Timestamp getTimestamp(String columnLabel) throws SQLException {
+    return getTimestamp(findColumn(columnLabel));
+  }
+
+  @Override
+  public InputStream getAsciiStream(String columnLabel) throws SQLException {
+    return getAsciiStream(findColumn(columnLabel));
+  }
+
+  @Override
+  @Deprecated
+  public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+    return getUnicodeStream(findColumn(columnLabel));
+  }
+
+  @Override
+  public InputStream getBinaryStream(String columnLabel) throws SQLException {
+    return getBinaryStream(findColumn(columnLabel));
+  }
+
+  @Override
+  public Object getObject(String columnLabel) throws SQLException {
+    return getObject(findColumn(columnLabel));
+  }
+
+  @Override
+  public Reader getCharacterStream(String columnLabel) throws SQLException {
+    return getCharacterStream(findColumn(columnLabel));
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+    return getBigDecimal(findColumn(columnLabel));
+  }
+
+  @Override
+  public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+    return getObject(findColumn(columnLabel), map);
+  }
+
+  @Override
+  public Ref getRef(String columnLabel) throws SQLException {
+    return getRef(findColumn(columnLabel));
+  }
+
+  @Override
+  public Blob getBlob(String columnLabel) throws SQLException {
+    return getBlob(findColumn(columnLabel));
+  }
+
+  @Override
+  public Clob getClob(String columnLabel) throws SQLException {
+    return getClob(findColumn(columnLabel));
+  }
+
+  @Override
+  public Array getArray(String columnLabel) throws SQLException {
+    return getArray(findColumn(columnLabel));
+  }
+
+  @Override
+  public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+    return getDate(findColumn(columnLabel), cal);
+  }
+
+  @Override
+  public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+    return getTime(findColumn(columnLabel), cal);
+  }
+
+  @Override
+  public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+    return getTimestamp(findColumn(columnLabel), cal);
+  }
+
+  @Override
+  public URL getURL(String columnLabel) throws SQLException {
+    return getURL(findColumn(columnLabel));
+  }
+
+  @Override
+  public RowId getRowId(String columnLabel) throws SQLException {
+    return getRowId(findColumn(columnLabel));
+  }
+
+  @Override
+  public NClob getNClob(String columnLabel) throws SQLException {
+    return getNClob(findColumn(columnLabel));
+  }
+
+  @Override
+  public SQLXML getSQLXML(String columnLabel) throws SQLException {
+    return getSQLXML(findColumn(columnLabel));
+  }
+
+  @Override
+  public String getNString(String columnLabel) throws SQLException {
+    return getNString(findColumn(columnLabel));
+  }
+
+  @Override
+  public Reader getNCharacterStream(String columnLabel) throws SQLException {
+    return getNCharacterStream(findColumn(columnLabel));
+  }
+
+  @Override
+  public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+    return getObject(findColumn(columnLabel), type);
+  }
+
+  // Cursor state
+
+  @Override
+  public SQLWarning getWarnings() {
+    return null;
+  }
+
+  @Override
+  public void clearWarnings() {}
+
+  @Override
+  public String getCursorName() throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public boolean isBeforeFirst() throws SQLException {
+    ensureOpen();
+    return row == 0 && !afterLast;
+  }
+
+  @Override
+  public boolean isAfterLast() throws SQLException {
+    ensureOpen();
+    return afterLast && row > 0;
+  }
+
+  @Override
+  public boolean isFirst() throws SQLException {
+    ensureOpen();
+    return row == 1 && !afterLast;
+  }
+
+  @Override
+  public boolean isLast() throws SQLException {
+    throw new SQLFeatureNotSupportedException("isLast is not supported on forward-only results");
+  }
+
+  @Override
+  public void beforeFirst() throws SQLException {
+    throw forwardOnly();
+  }
+
+  @Override
+  public void afterLast() throws SQLException {
+    throw forwardOnly();
+  }
+
+  @Override
+  public boolean first() throws SQLException {
+    throw forwardOnly();
+  }
+
+  @Override
+  public boolean last() throws SQLException {
+    throw forwardOnly();
+  }
+
+  @Override
+  public int getRow() throws SQLException {
+    ensureOpen();
+    return afterLast ? 0 : row;
+  }
+
+  @Override
+  public boolean absolute(int row) throws SQLException {
+    throw forwardOnly();
+  }
+
+  @Override
+  public boolean relative(int rows) throws SQLException {
+    throw forwardOnly();
+  }
+
+  @Override
+  public boolean previous() throws SQLException {
+    throw forwardOnly();
+  }
+
+  private static SQLException forwardOnly() {
+    return new SQLException("ResultSet is TYPE_FORWARD_ONLY");
+  }
+
+  @Override
+  public void setFetchDirection(int direction) throws SQLException {
+    if (direction != FETCH_FORWARD) throw forwardOnly();
+  }
+
+  @Override
+  public int getFetchDirection() {
+    return FETCH_FORWARD;
+  }
+
+  @Override
+  public void setFetchSize(int rows) {}
+
+  @Override
+  public int getFetchSize() {
+    return 0;
+  }
+
+  @Override
+  public int getType() {
+    return TYPE_FORWARD_ONLY;
+  }
+
+  @Override
+  public int getConcurrency() {
+    return CONCUR_READ_ONLY;
+  }
+
+  @Override
+  public int getHoldability() {
+    return CLOSE_CURSORS_AT_COMMIT;
+  }
+
+  @Override
+  public Statement getStatement() {
+    return statement;
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) return iface.cast(this);
+    throw new SQLException("Not a wrapper for " + iface.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+
+  // Updates are not supported: results are read-only
+
+  @Override
+  public boolean rowUpdated() throws SQLException {
+    return false;
+  }
+
+  @Override
+  public boolean rowInserted() throws SQLException {
+    return false;
+  }
+
+  @Override
+  public boolean rowDeleted() throws SQLException {
+    return false;
+  }
+
+  @Override
+  public void updateNull(int columnIndex) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateByte(int columnIndex, byte x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateShort(int columnIndex, short x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateInt(int columnIndex, int x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateLong(int columnIndex, long x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateFloat(int columnIndex, float x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateDouble(int columnIndex, double x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateString(int columnIndex, String x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateDate(int columnIndex, Date x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateTime(int columnIndex, Time x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateObject(int columnIndex, Object x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNull(String columnLabel) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateByte(String columnLabel, byte x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateShort(String columnLabel, short x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateInt(String columnLabel, int x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateLong(String columnLabel, long x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateFloat(String columnLabel, float x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateDouble(String columnLabel, double x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateString(String columnLabel, String x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateDate(String columnLabel, Date x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateTime(String columnLabel, Time x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x, int length)
+      throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader reader, int length)
+      throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateObject(String columnLabel, Object x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void insertRow() throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateRow() throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void deleteRow() throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void refreshRow() throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void cancelRowUpdates() throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void moveToInsertRow() throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void moveToCurrentRow() throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateRef(int columnIndex, Ref x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateRef(String columnLabel, Ref x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBlob(int columnIndex, Blob x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBlob(String columnLabel, Blob x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateClob(int columnIndex, Clob x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateClob(String columnLabel, Clob x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateArray(int columnIndex, Array x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateArray(String columnLabel, Array x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateRowId(int columnIndex, RowId x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateRowId(String columnLabel, RowId x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNString(int columnIndex, String nString) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNString(String columnLabel, String nString) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNClob(int columnIndex, NClob nClob) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNClob(String columnLabel, NClob nClob) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateSQLXML(int columnIndex, SQLXML xmlObject) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateSQLXML(String columnLabel, SQLXML xmlObject) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNCharacterStream(String columnLabel, Reader reader, long length)
+      throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x, long length)
+      throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x, long length)
+      throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader reader, long length)
+      throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBlob(int columnIndex, InputStream inputStream, long length)
+      throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBlob(String columnLabel, InputStream inputStream, long length)
+      throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateClob(int columnIndex, Reader reader, long length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateClob(String columnLabel, Reader reader, long length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNClob(int columnIndex, Reader reader, long length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNClob(String columnLabel, Reader reader, long length) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNCharacterStream(String columnLabel, Reader reader) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader reader) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBlob(int columnIndex, InputStream inputStream) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateBlob(String columnLabel, InputStream inputStream) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateClob(int columnIndex, Reader reader) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateClob(String columnLabel, Reader reader) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNClob(int columnIndex, Reader reader) throws SQLException {
+    throw readOnly();
+  }
+
+  @Override
+  public void updateNClob(String columnLabel, Reader reader) throws SQLException {
+    throw readOnly();
+  }
+
+  private static SQLException readOnly() {
+    return new SQLFeatureNotSupportedException("ResultSet is read-only");
+  }
+}
@@ -0,0 +1,380 @@
+package com.leaf.jdbc;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decoder for the Apache Arrow IPC stream format (and the file format, whose stream section it
+ * reads). Flat columns of the common primitive, string, binary, decimal and temporal types are
+ * supported; nested, dictionary-encoded and compressed data are rejected.
+ *
+ * <p>Message metadata is FlatBuffers, read in place with the minimal accessors below rather than
+ * through generated classes.
+ */
+final class LeafArrowDecoder implements LeafDecoder {
+  private static final byte[] FILE_MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+
+  // MessageHeader union
+  private static final int SCHEMA = 1;
+  private static final int DICTIONARY_BATCH = 2;
+  private static final int RECORD_BATCH = 3;
+
+  // Type union
+  private static final int NULL = 1;
+  private static final int INT = 2;
+  private static final int FLOATING_POINT = 3;
+  private static final int BINARY = 4;
+  private static final int UTF8 = 5;
+  private static final int BOOL = 6;
+  private static final int DECIMAL = 7;
+  private static final int DATE = 8;
+  private static final int TIME = 9;
+  private static final int TIMESTAMP = 10;
+  private static final int LARGE_BINARY = 19;
+  private static final int LARGE_UTF8 = 20;
+
+  /** A top-level field of the schema and the parameters of its type. */
+  private record Field(int type, int bitWidth, boolean signed, int unit, int scale, boolean zoned) {
+    int bufferCount() {
+      switch (type) {
+        case NULL:
+          return 0;
+        case BINARY:
+        case UTF8:
+        case LARGE_BINARY:
+        case LARGE_UTF8:
+          return 3;
+        default:
+          return 2;
+      }
+    }
+  }
+
+  @Override
+  public List<String> mediaTypes() {
+    return List.of("application/vnd.apache.arrow.stream", "application/vnd.apache.arrow.file");
+  }
+
+  @Override
+  public void decode(InputStream body, Rows rows) throws IOException, SQLException {
+    // Batches are copied straight into the driver's column vectors
+    LeafColumnarBuilder builder = (LeafColumnarBuilder) rows;
+    InputStream in = new BufferedInputStream(body, 1 << 16);
+    skipFileMagic(in);
+    Field[] fields = null;
+    while (true) {
+      int length = readInt32(in, true);
+      if (length == -1) length = readInt32(in, false); // continuation marker
+      if (length <= 0) return; // end of stream
+      ByteBuffer meta = ByteBuffer.wrap(readFully(in, length)).order(ByteOrder.LITTLE_ENDIAN);
+      int message = meta.getInt(0);
+      int headerType = Byte.toUnsignedInt(byteField(meta, message, 1, (byte) 0));
+      int header = table(meta, message, 2);
+      long bodyLength = longField(meta, message, 3, 0);
+      if (bodyLength > Integer.MAX_VALUE - 8) {
+        throw new SQLException("Arrow record batch too large: " + bodyLength + " bytes");
+      }
+      ByteBuffer data =
+          ByteBuffer.wrap(readFully(in, (int) bodyLength)).order(ByteOrder.LITTLE_ENDIAN);
+      switch (headerType) {
+        case SCHEMA:
+          fields = readSchema(meta, header, builder);
+          break;
+        case RECORD_BATCH:
+          if (fields == null) throw new SQLException("Arrow record batch before schema");
+          readBatch(meta, header, data, fields, builder);
+          break;
+        case DICTIONARY_BATCH:
+          throw new SQLFeatureNotSupportedException("Dictionary-encoded Arrow data");
+        default:
+          // Tensors and unknown messages carry no rows
+      }
+    }
+  }
+
+  private static void skipFileMagic(InputStream in) throws IOException {
+    in.mark(8);
+    byte[] head = in.readNBytes(FILE_MAGIC.length);
+    if (Arrays.equals(head, FILE_MAGIC)) {
+      in.readNBytes(2); // padding to 8 bytes
+    } else {
+      in.reset();
+    }
+  }
+
+  private static Field[] readSchema(ByteBuffer b, int schema, LeafColumnarBuilder builder)
+      throws SQLException {
+    int fieldsVector = table(b, schema, 1);
+    int count = fieldsVector == 0 ? 0 : b.getInt(fieldsVector);
+    Field[] fields = new Field[count];
+    for (int i = 0; i < count; i++) {
+      int field = indirect(b, fieldsVector + 4 + 4 * i);
+      String name = string(b, field, 0);
+      if (table(b, field, 4) != 0) {
+        throw new SQLFeatureNotSupportedException("Dictionary-encoded Arrow column: " + name);
+      }
+      int typeType = Byte.toUnsignedInt(byteField(b, field, 2, (byte) 0));
+      int type = table(b, field, 3);
+      fields[i] = field(name, typeType, b, type);
+      builder.addColumn(name == null ? "column" + (i + 1) : name);
+    }
+    return fields;
+  }
+
+  private static Field field(String name, int typeType, ByteBuffer b, int type)
+      throws SQLException {
+    switch (typeType) {
+      case NULL:
+      case BINARY:
+      case UTF8:
+      case BOOL:
+      case LARGE_BINARY:
+      case LARGE_UTF8:
+        return new Field(typeType, 0, true, 0, 0, false);
+      case INT:
+        return new Field(
+            INT, intField(b, type, 0, 0), byteField(b, type, 1, (byte) 0) != 0, 0, 0, false);
+      case FLOATING_POINT:
+        int precision = shortField(b, type, 0, 0);
+        if (precision == 0) {
+          throw new SQLFeatureNotSupportedException("Half-precision Arrow column: " + name);
+        }
+        return new Field(FLOATING_POINT, precision == 1 ? 32 : 64, true, 0, 0, false);
+      case DECIMAL:
+        return new Field(
+            DECIMAL, intField(b, type, 2, 128), true, 0, intField(b, type, 1, 0), false);
+      case DATE:
+        return new Field(DATE, 0, true, shortField(b, type, 0, 1), 0, false);
+      case TIME:
+        return new Field(TIME, intField(b, type, 1, 32), true, shortField(b, type, 0, 1), 0, false);
+      case TIMESTAMP:
+        return new Field(TIMESTAMP, 64, true, shortField(b, type, 0, 0), 0, table(b, type, 1) != 0);
+      default:
+        throw new SQLFeatureNotSupportedException(
+            "Unsupported Arrow type " + typeType + " for column " + name);
+    }
+  }
+
+  private static void readBatch(
+      ByteBuffer b, int batch, ByteBuffer data, Field[] fields, LeafColumnarBuilder builder)
+      throws SQLException {
+    if (table(b, batch, 3) != 0) {
+      throw new SQLFeatureNotSupportedException("Compressed Arrow record batches");
+    }
+    long length = longField(b, batch, 0, 0);
+    int nodes = table(b, batch, 1);
+    int buffers = table(b, batch, 2);
+    // Per column, {offset, length} of each buffer: validity, values (or offsets), variable data
+    long[][] layout = new long[fields.length][];
+    int buffer = 0;
+    for (int c = 0; c < fields.length; c++) {
+      long nullCount = b.getLong(nodes + 4 + 16 * c + 8);
+      long[] l = new long[6];
+      int n = fields[c].bufferCount();
+      for (int k = 0; k < n; k++) {
+        int entry = buffers + 4 + 16 * (buffer + k);
+        l[2 * k] = b.getLong(entry);
+        l[2 * k + 1] = b.getLong(entry + 8);
+      }
+      if (nullCount == 0) l[1] = 0; // validity may be omitted when nothing is null
+      buffer += n;
+      layout[c] = l;
+    }
+    for (long row = 0; row < length; row++) {
+      int r = (int) row;
+      for (int c = 0; c < fields.length; c++) {
+        long[] l = layout[c];
+        Field f = fields[c];
+        if (f.type() == NULL) continue;
+        if (l[1] > 0 && (data.get((int) l[0] + (r >>> 3)) & (1 << (r & 7))) == 0) continue;
+        readCell(data, f, l, r, builder.column(c), builder.row());
+      }
+      builder.endRow();
+    }
+  }
+
+  private static void readCell(
+      ByteBuffer data, Field f, long[] l, int r, LeafColumnVector column, int row) {
+    int values = (int) l[2];
+    switch (f.type()) {
+      case BOOL:
+        column.setBoolean(row, (data.get(values + (r >>> 3)) & (1 << (r & 7))) != 0);
+        return;
+      case INT:
+        readInt(data, f, values, r, column, row);
+        return;
+      case FLOATING_POINT:
+        double d =
+            f.bitWidth() == 32 ? data.getFloat(values + 4 * r) : data.getDouble(values + 8 * r);
+        column.setDouble(row, d);
+        return;
+      case UTF8:
+      case LARGE_UTF8:
+      case BINARY:
+      case LARGE_BINARY:
+        boolean large = f.type() == LARGE_UTF8 || f.type() == LARGE_BINARY;
+        long start = large ? data.getLong(values + 8 * r) : data.getInt(values + 4 * r);
+        long end = large ? data.getLong(values + 8 * (r + 1)) : data.getInt(values + 4 * (r + 1));
+        byte[] bytes = new byte[(int) (end - start)];
+        data.get((int) (l[4] + start), bytes);
+        boolean text = f.type() == UTF8 || f.type() == LARGE_UTF8;
+        column.setObject(row, text ? new String(bytes, StandardCharsets.UTF_8) : bytes);
+        return;
+      case DECIMAL:
+        int width = f.bitWidth() / 8;
+        byte[] unscaled = new byte[width];
+        for (int i = 0; i < width; i++) {
+          unscaled[width - 1 - i] = data.get(values + width * r + i); // little-endian to big
+        }
+        column.setObject(row, new BigDecimal(new BigInteger(unscaled), f.scale()));
+        return;
+      case DATE:
+        LocalDate date =
+            f.unit() == 0
+                ? LocalDate.ofEpochDay(data.getInt(values + 4 * r))
+                : LocalDate.ofInstant(
+                    Instant.ofEpochMilli(data.getLong(values + 8 * r)), ZoneOffset.UTC);
+        column.setObject(row, Date.valueOf(date));
+        return;
+      case TIME:
+        long t = f.bitWidth() == 32 ? data.getInt(values + 4 * r) : data.getLong(values + 8 * r);
+        column.setObject(row, Time.valueOf(LocalTime.ofNanoOfDay(t * nanosPer(f.unit()))));
+        return;
+      case TIMESTAMP:
+        long ts = data.getLong(values + 8 * r);
+        long perSecond = 1_000_000_000L / nanosPer(f.unit());
+        Instant instant =
+            Instant.ofEpochSecond(
+                Math.floorDiv(ts, perSecond), Math.floorMod(ts, perSecond) * nanosPer(f.unit()));
+        // Zoned timestamps are instants; zone-less ones are wall-clock values
+        column.setObject(
+            row,
+            f.zoned()
+                ? Timestamp.from(instant)
+                : Timestamp.valueOf(LocalDateTime.ofInstant(instant, ZoneOffset.UTC)));
+        return;
+      default:
+    }
+  }
+
+  private static void readInt(
+      ByteBuffer data, Field f, int values, int r, LeafColumnVector column, int row) {
+    long v;
+    switch (f.bitWidth()) {
+      case 8:
+        v = f.signed() ? data.get(values + r) : Byte.toUnsignedLong(data.get(values + r));
+        break;
+      case 16:
+        short s = data.getShort(values + 2 * r);
+        v = f.signed() ? s : Short.toUnsignedLong(s);
+        break;
+      case 32:
+        int i = data.getInt(values + 4 * r);
+        v = f.signed() ? i : Integer.toUnsignedLong(i);
+        break;
+      default:
+        v = data.getLong(values + 8 * r);
+        if (!f.signed() && v < 0) {
+          column.setObject(row, new BigDecimal(Long.toUnsignedString(v)));
+          return;
+        }
+    }
+    column.setLong(row, v, f.bitWidth() < 32 || (f.bitWidth() == 32 && f.signed()));
+  }
+
+  // TimeUnit enum: SECOND, MILLISECOND, MICROSECOND, NANOSECOND
+  private static long nanosPer(int unit) {
+    switch (unit) {
+      case 0:
+        return 1_000_000_000L;
+      case 1:
+        return 1_000_000L;
+      case 2:
+        return 1_000L;
+      default:
+        return 1L;
+    }
+  }
+
+  /** Reads a little-endian int32, returning 0 at a clean end of stream if {@code eofOk}. */
+  private static int readInt32(InputStream in, boolean eofOk) throws IOException {
+    byte[] b = in.readNBytes(4);
+    if (b.length == 0 && eofOk) return 0;
+    if (b.length < 4) throw new EOFException("Truncated Arrow stream");
+    return (b[0] & 0xFF) | (b[1] & 0xFF) << 8 | (b[2] & 0xFF) << 16 | (b[3] & 0xFF) << 24;
+  }
+
+  private static byte[] readFully(InputStream in, int length) throws IOException {
+    byte[] bytes = in.readNBytes(length);
+    if (bytes.length < length) throw new EOFException("Truncated Arrow stream");
+    return bytes;
+  }
+
+  // FlatBuffers accessors. A table starts with the signed offset back to its vtable; the vtable
+  // holds its own size, the table size, then one uint16 offset per field (0 = absent).
+
+  private static int fieldPosition(ByteBuffer b, int table, int index) {
+    int vtable = table - b.getInt(table);
+    int entry = 4 + 2 * index;
+    if (entry >= Short.toUnsignedInt(b.getShort(vtable))) return 0;
+    int offset = Short.toUnsignedInt(b.getShort(vtable + entry));
+    return offset == 0 ? 0 : table + offset;
+  }
+
+  private static int indirect(ByteBuffer b, int position) {
+    return position + b.getInt(position);
+  }
+
+  /** Position of a referenced table, vector or string, or 0 if the field is absent. */
+  private static int table(ByteBuffer b, int table, int index) {
+    int p = fieldPosition(b, table, index);
+    return p == 0 ? 0 : indirect(b, p);
+  }
+
+  private static String string(ByteBuffer b, int table, int index) {
+    int s = table(b, table, index);
+    if (s == 0) return null;
+    byte[] bytes = new byte[b.getInt(s)];
+    b.get(s + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte byteField(ByteBuffer b, int table, int index, byte defaultValue) {
+    int p = fieldPosition(b, table, index);
+    return p == 0 ? defaultValue : b.get(p);
+  }
+
+  private static int shortField(ByteBuffer b, int table, int index, int defaultValue) {
+    int p = fieldPosition(b, table, index);
+    return p == 0 ? defaultValue : b.getShort(p);
+  }
+
+  private static int intField(ByteBuffer b, int table, int index, int defaultValue) {
+    int p = fieldPosition(b, table, index);
+    return p == 0 ? defaultValue : b.getInt(p);
+  }
+
+  private static long longField(ByteBuffer b, int table, int index, long defaultValue) {
+    int p = fieldPosition(b, table, index);
+    return p == 0 ? defaultValue : b.getLong(p);
+  }
+}
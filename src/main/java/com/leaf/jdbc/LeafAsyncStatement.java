@@ -0,0 +1,33 @@
+package com.leaf.jdbc;
+
+import java.sql.ResultSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking query execution, obtained with {@code statement.unwrap(LeafAsyncStatement.class)}.
+ *
+ * <p>Queries are sent without parking a thread per request, so many can be in flight at once.
+ * Result sets returned this way belong to the caller, who must close them; they are not closed by
+ * later executions on the same statement. Cancelling the returned future aborts the HTTP call.
+ */
+public interface LeafAsyncStatement {
+  /**
+   * Sends {@code sql} and decodes the response on the HTTP client's callback thread.
+   *
+   * @param sql Spark SQL query
+   * @return future completed with the decoded result, or with the {@code SQLException} that failed
+   *     the query
+   */
+  CompletableFuture<ResultSet> executeQueryAsync(String sql);
+
+  /**
+   * Sends {@code sql} and decodes the response on {@code executor}.
+   *
+   * @param sql Spark SQL query
+   * @param executor runs response decoding; {@code null} means the HTTP client's callback thread
+   * @return future completed with the decoded result, or with the {@code SQLException} that failed
+   *     the query
+   */
+  CompletableFuture<ResultSet> executeQueryAsync(String sql, Executor executor);
+}
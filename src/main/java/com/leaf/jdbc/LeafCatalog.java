@@ -0,0 +1,332 @@
+package com.leaf.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Snapshot of the Leaf catalog: the tables of each schema and their columns. Snapshots are shared
+ * JVM-wide per identity and discovered once; after {@code metadataTtlSeconds} the next lookup
+ * returns the current snapshot at once and starts a background refresh, so metadata calls only wait
+ * on the network for the very first discovery.
+ *
+ * <p>Discovery starts from the tables named in {@code metadataTables}. Each of their schemas is
+ * listed with {@code SHOW TABLES IN}, and every table is described with {@code DESCRIBE TABLE},
+ * falling back to the column metadata of a one-row {@code SELECT} when that is not allowed.
+ */
+final class LeafCatalog {
+  private static final Logger LOG = Logger.getLogger(LeafCatalog.class.getName());
+  static final String DEFAULT_TABLES = "leaf.pointlake.points";
+  static final long DEFAULT_TTL_SECONDS = 600;
+
+  private static final Map<Key, Holder> CATALOGS = new ConcurrentHashMap<>();
+
+  record Column(String name, String typeName, int sqlType) {}
+
+  record Table(String catalog, String schema, String name, List<Column> columns) {}
+
+  private record Key(String identity, String tables) {}
+
+  private final List<Table> tables;
+  private final Map<String, Table> byName = new HashMap<>();
+  private final long loadedAtNanos = System.nanoTime();
+
+  LeafCatalog(List<Table> tables) {
+    this.tables = Collections.unmodifiableList(tables);
+    for (Table t : tables) {
+      byName.putIfAbsent(key(t.schema(), t.name()), t);
+    }
+  }
+
+  List<Table> tables() {
+    return tables;
+  }
+
+  /** Looks a table up by exact (case-insensitive) schema and name. */
+  Table table(String schema, String name) {
+    return byName.get(key(schema, name));
+  }
+
+  private static String key(String schema, String name) {
+    return (schema + "." + name).toLowerCase(Locale.ROOT);
+  }
+
+  /** Returns the catalog for {@code connection}'s identity, discovering it on first use. */
+  static LeafCatalog forConnection(LeafConnection connection) throws SQLException {
+    LeafJdbcUrl url = connection.jdbcUrl();
+    String seeds = url.property("metadataTables");
+    if (seeds == null) seeds = DEFAULT_TABLES;
+    long ttlSeconds = url.longProperty("metadataTtlSeconds", DEFAULT_TTL_SECONDS);
+    Holder holder =
+        CATALOGS.computeIfAbsent(new Key(connection.identity(), seeds), k -> new Holder());
+    LeafCatalog current = holder.current;
+    if (current == null) {
+      return await(holder.load(connection, seeds));
+    }
+    if (System.nanoTime() - current.loadedAtNanos >= TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+      holder.load(connection, seeds);
+    }
+    return current;
+  }
+
+  private static LeafCatalog await(CompletableFuture<LeafCatalog> load) throws SQLException {
+    try {
+      return load.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while loading catalog metadata", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+      throw new SQLException("Failed to load catalog metadata", e.getCause());
+    }
+  }
+
+  /** The cached snapshot for one identity and at most one discovery in flight. */
+  private static final class Holder {
+    private volatile LeafCatalog current;
+    private CompletableFuture<LeafCatalog> loading;
+
+    synchronized CompletableFuture<LeafCatalog> load(LeafConnection connection, String seeds) {
+      if (loading != null && !loading.isDone()) return loading;
+      loading =
+          discover(connection, seeds)
+              .whenComplete(
+                  (catalog, error) -> {
+                    if (catalog != null) {
+                      current = catalog;
+                    } else if (current != null) {
+                      LOG.log(Level.WARNING, "Catalog refresh failed, keeping previous", error);
+                    }
+                  });
+      return loading;
+    }
+  }
+
+  private static CompletableFuture<LeafCatalog> discover(LeafConnection connection, String seeds) {
+    LeafStatement statement;
+    try {
+      statement = (LeafStatement) connection.createStatement();
+    } catch (SQLException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    // Seed tables first, then tables discovered in their schemas, each listed once
+    Map<String, String[]> names = new LinkedHashMap<>();
+    Map<String, String[]> schemas = new LinkedHashMap<>();
+    for (String seed : seeds.split(",")) {
+      String[] parts = seed.trim().split("\\.");
+      if (parts.length != 3) continue;
+      names.putIfAbsent(String.join(".", parts).toLowerCase(Locale.ROOT), parts);
+      schemas.putIfAbsent((parts[0] + "." + parts[1]).toLowerCase(Locale.ROOT), parts);
+    }
+    List<CompletableFuture<List<String[]>>> listings = new ArrayList<>();
+    for (String[] schema : schemas.values()) {
+      listings.add(listTables(statement, schema[0], schema[1]));
+    }
+    CompletableFuture<LeafCatalog> result =
+        CompletableFuture.allOf(listings.toArray(new CompletableFuture<?>[0]))
+            .thenCompose(
+                done -> {
+                  for (CompletableFuture<List<String[]>> listing : listings) {
+                    for (String[] table : listing.join()) {
+                      names.putIfAbsent(String.join(".", table).toLowerCase(Locale.ROOT), table);
+                    }
+                  }
+                  List<CompletableFuture<Table>> described = new ArrayList<>();
+                  for (String[] table : names.values()) {
+                    described.add(describe(statement, table));
+                  }
+                  return CompletableFuture.allOf(described.toArray(new CompletableFuture<?>[0]))
+                      .thenApply(
+                          all -> {
+                            List<Table> tables = new ArrayList<>();
+                            boolean anyColumns = false;
+                            for (CompletableFuture<Table> table : described) {
+                              tables.add(table.join());
+                              anyColumns |= !table.join().columns().isEmpty();
+                            }
+                            // Nothing could be described: most likely the API is unreachable
+                            if (!anyColumns) {
+                              throw new CompletionException(
+                                  new SQLException("Could not describe any of: " + seeds));
+                            }
+                            return new LeafCatalog(tables);
+                          });
+                });
+    return result.whenComplete((catalog, error) -> statement.close());
+  }
+
+  /** Lists a schema's tables; a schema that cannot be listed contributes no extra tables. */
+  private static CompletableFuture<List<String[]>> listTables(
+      LeafStatement statement, String catalog, String schema) {
+    String sql = "SHOW TABLES IN " + catalog + "." + schema;
+    return statement
+        .executeQueryAsync(sql)
+        .thenApply(
+            rs ->
+                read(
+                    rs,
+                    () -> {
+                      List<String[]> tables = new ArrayList<>();
+                      int column = columnIndex(rs.getMetaData(), "tableName", 2);
+                      while (rs.next()) {
+                        String name = rs.getString(column);
+                        if (name != null && !name.isEmpty()) {
+                          tables.add(new String[] {catalog, schema, name});
+                        }
+                      }
+                      return tables;
+                    }))
+        .exceptionally(
+            error -> {
+              LOG.log(Level.FINE, sql + " failed; using configured tables only", error);
+              return List.of();
+            });
+  }
+
+  /** Describes a table's columns, falling back to the metadata of a one-row query. */
+  private static CompletableFuture<Table> describe(LeafStatement statement, String[] table) {
+    String qualified = String.join(".", table);
+    return statement
+        .executeQueryAsync("DESCRIBE TABLE " + qualified)
+        .thenApply(
+            rs ->
+                read(
+                    rs,
+                    () -> {
+                      List<Column> columns = new ArrayList<>();
+                      ResultSetMetaData md = rs.getMetaData();
+                      int nameColumn = columnIndex(md, "col_name", 1);
+                      int typeColumn = columnIndex(md, "data_type", 2);
+                      while (rs.next()) {
+                        String name = rs.getString(nameColumn);
+                        // Partitioning and detail sections follow a blank or '#' row
+                        if (name == null || name.isEmpty() || name.startsWith("#")) break;
+                        String type = rs.getString(typeColumn);
+                        columns.add(new Column(name, typeName(type), sqlType(type)));
+                      }
+                      return columns;
+                    }))
+        .exceptionallyCompose(
+            error ->
+                statement
+                    .executeQueryAsync("SELECT * FROM " + qualified + " LIMIT 1")
+                    .thenApply(
+                        rs ->
+                            read(
+                                rs,
+                                () -> {
+                                  List<Column> columns = new ArrayList<>();
+                                  ResultSetMetaData md = rs.getMetaData();
+                                  for (int i = 1; i <= md.getColumnCount(); i++) {
+                                    columns.add(
+                                        new Column(
+                                            md.getColumnName(i),
+                                            md.getColumnTypeName(i),
+                                            md.getColumnType(i)));
+                                  }
+                                  return columns;
+                                })))
+        .handle(
+            (columns, error) -> {
+              if (error != null) {
+                LOG.log(Level.FINE, "Could not describe " + qualified, error);
+                columns = List.of();
+              }
+              return new Table(table[0], table[1], table[2], List.copyOf(columns));
+            });
+  }
+
+  private interface Reader<T> {
+    T read() throws SQLException;
+  }
+
+  // Reads and closes a result set inside a future callback
+  private static <T> T read(ResultSet rs, Reader<T> reader) {
+    try (rs) {
+      return reader.read();
+    } catch (SQLException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private static int columnIndex(ResultSetMetaData md, String name, int fallback)
+      throws SQLException {
+    for (int i = 1; i <= md.getColumnCount(); i++) {
+      if (md.getColumnName(i).equalsIgnoreCase(name)) return i;
+    }
+    return Math.min(fallback, md.getColumnCount());
+  }
+
+  /** Upper-case Spark type name without parameters, e.g. {@code DECIMAL} for decimal(10,2). */
+  static String typeName(String sparkType) {
+    if (sparkType == null) return "STRING";
+    String t = sparkType.trim();
+    int cut = t.length();
+    for (int i = 0; i < t.length(); i++) {
+      char c = t.charAt(i);
+      if (c == '(' || c == '<') {
+        cut = i;
+        break;
+      }
+    }
+    return t.substring(0, cut).trim().toUpperCase(Locale.ROOT);
+  }
+
+  /** The JDBC type the driver's result sets report for a Spark column type. */
+  static int sqlType(String sparkType) {
+    switch (typeName(sparkType)) {
+      case "BOOLEAN":
+        return Types.BOOLEAN;
+      case "TINYINT":
+      case "BYTE":
+        return Types.TINYINT;
+      case "SMALLINT":
+      case "SHORT":
+        return Types.SMALLINT;
+      case "INT":
+      case "INTEGER":
+        return Types.INTEGER;
+      case "BIGINT":
+      case "LONG":
+        return Types.BIGINT;
+      case "FLOAT":
+      case "REAL":
+        return Types.REAL;
+      case "DOUBLE":
+        return Types.DOUBLE;
+      case "DECIMAL":
+      case "DEC":
+      case "NUMERIC":
+        return Types.DECIMAL;
+      case "DATE":
+        return Types.DATE;
+      case "TIMESTAMP":
+      case "TIMESTAMP_NTZ":
+      case "TIMESTAMP_LTZ":
+        return Types.TIMESTAMP;
+      case "BINARY":
+        return Types.VARBINARY;
+      case "GEOMETRY":
+      case "GEOGRAPHY":
+        return Types.OTHER;
+      default:
+        // Strings, and complex types which are returned as JSON text
+        return Types.VARCHAR;
+    }
+  }
+}
@@ -0,0 +1,299 @@
+package com.leaf.jdbc;
+
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Growable, typed storage for one result column. Values live in a primitive array matching the
+ * column's kind; a separate bitmap records which rows hold a value, so unset cells read as NULL.
+ *
+ * <p>The kind is chosen by the first non-null value. Integral and floating values widen to DOUBLE
+ * while every integer is exactly representable as a double (at most 2^53 in magnitude); beyond
+ * that, and for any other mix, the column falls back to boxed OBJECT storage so every cell keeps
+ * its original value. The SQL type widens with the storage: INTEGER to BIGINT once a value needs a
+ * long, to DOUBLE with the doubles, to DECIMAL when large integers are mixed with doubles, and to
+ * VARCHAR for a mix of unrelated types.
+ */
+final class LeafColumnVector {
+  static final int EMPTY = 0;
+  static final int BOOLEAN = 1;
+  static final int LONG = 2;
+  static final int DOUBLE = 3;
+  static final int OBJECT = 4;
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+  private int kind = EMPTY;
+  private int sqlType = Types.VARCHAR;
+  private int capacity = 0;
+  private long[] present = new long[0];
+  private long[] longs;
+  private double[] doubles;
+  private boolean[] booleans;
+  private Object[] objects;
+  private long objectBytes = 0;
+
+  int kind() {
+    return kind;
+  }
+
+  int sqlType() {
+    return sqlType;
+  }
+
+  boolean isNull(int row) {
+    int word = row >>> 6;
+    return word >= present.length || (present[word] & (1L << row)) == 0;
+  }
+
+  long getLong(int row) {
+    return longs[row];
+  }
+
+  double getDouble(int row) {
+    return doubles[row];
+  }
+
+  boolean getBoolean(int row) {
+    return booleans[row];
+  }
+
+  Object getObject(int row) {
+    if (isNull(row)) return null;
+    switch (kind) {
+      case BOOLEAN:
+        return booleans[row];
+      case LONG:
+        long v = longs[row];
+        if (sqlType == Types.INTEGER && v == (int) v) return (int) v;
+        return v;
+      case DOUBLE:
+        return doubles[row];
+      default:
+        return objects[row];
+    }
+  }
+
+  void setLong(int row, long value, boolean intValued) {
+    if (kind == EMPTY) {
+      init(LONG, intValued ? Types.INTEGER : Types.BIGINT);
+    } else if (kind == DOUBLE) {
+      if (isExactDouble(value)) {
+        setDouble(row, value);
+      } else {
+        boxAsDecimal();
+        setObject(row, value);
+      }
+      return;
+    } else if (kind != LONG) {
+      setObject(row, intValued && value == (int) value ? (Object) (int) value : (Object) value);
+      return;
+    }
+    if (sqlType == Types.INTEGER && (!intValued || value != (int) value)) sqlType = Types.BIGINT;
+    ensureCapacity(row);
+    longs[row] = value;
+    markPresent(row);
+  }
+
+  void setDouble(int row, double value) {
+    if (kind == EMPTY) {
+      init(DOUBLE, Types.DOUBLE);
+    } else if (kind == LONG) {
+      if (!widenToDouble()) {
+        setObject(row, value);
+        return;
+      }
+    } else if (kind != DOUBLE) {
+      setObject(row, value);
+      return;
+    }
+    ensureCapacity(row);
+    doubles[row] = value;
+    markPresent(row);
+  }
+
+  void setBoolean(int row, boolean value) {
+    if (kind == EMPTY) {
+      init(BOOLEAN, Types.BOOLEAN);
+    } else if (kind != BOOLEAN) {
+      setObject(row, value);
+      return;
+    }
+    ensureCapacity(row);
+    booleans[row] = value;
+    markPresent(row);
+  }
+
+  void setObject(int row, Object value) {
+    if (value == null) {
+      return;
+    }
+    int type = LeafStatement.inferSqlType(value);
+    if (kind == EMPTY) {
+      init(OBJECT, type);
+    } else {
+      if (kind != OBJECT) box();
+      sqlType = widen(sqlType, type);
+    }
+    ensureCapacity(row);
+    objects[row] = value;
+    objectBytes += estimateObject(value);
+    markPresent(row);
+  }
+
+  /** Stores any decoded JSON value, routing primitives to their unboxed arrays. */
+  void set(int row, Object value) {
+    if (value == null) return;
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      setLong(row, ((Number) value).longValue(), true);
+    } else if (value instanceof Long) {
+      setLong(row, (Long) value, false);
+    } else if (value instanceof Double || value instanceof Float) {
+      setDouble(row, ((Number) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      setBoolean(row, (Boolean) value);
+    } else {
+      setObject(row, value);
+    }
+  }
+
+  private void init(int newKind, int newSqlType) {
+    kind = newKind;
+    sqlType = newSqlType;
+    capacity = Math.max(capacity, INITIAL_CAPACITY);
+    allocate(newKind, capacity);
+  }
+
+  private void allocate(int forKind, int size) {
+    switch (forKind) {
+      case BOOLEAN:
+        booleans = booleans == null ? new boolean[size] : Arrays.copyOf(booleans, size);
+        break;
+      case LONG:
+        longs = longs == null ? new long[size] : Arrays.copyOf(longs, size);
+        break;
+      case DOUBLE:
+        doubles = doubles == null ? new double[size] : Arrays.copyOf(doubles, size);
+        break;
+      default:
+        objects = objects == null ? new Object[size] : Arrays.copyOf(objects, size);
+    }
+  }
+
+  /**
+   * Converts LONG storage to DOUBLE, or to boxed DECIMAL storage when a stored value would lose
+   * precision as a double; false in the latter case.
+   */
+  private boolean widenToDouble() {
+    for (int i = 0; i < capacity; i++) {
+      if (!isExactDouble(longs[i])) {
+        boxAsDecimal();
+        return false;
+      }
+    }
+    doubles = new double[capacity];
+    for (int i = 0; i < capacity; i++) {
+      doubles[i] = longs[i];
+    }
+    longs = null;
+    kind = DOUBLE;
+    sqlType = Types.DOUBLE;
+    return true;
+  }
+
+  private static boolean isExactDouble(long value) {
+    return value >= -MAX_EXACT_DOUBLE && value <= MAX_EXACT_DOUBLE;
+  }
+
+  /** Boxes a numeric column that mixes doubles with integers a double cannot hold exactly. */
+  private void boxAsDecimal() {
+    box();
+    sqlType = Types.DECIMAL;
+  }
+
+  /** The narrowest SQL type that can report values of both types. */
+  static int widen(int a, int b) {
+    if (a == b) return a;
+    boolean integralA = a == Types.INTEGER || a == Types.BIGINT;
+    boolean integralB = b == Types.INTEGER || b == Types.BIGINT;
+    if (integralA && integralB) return Types.BIGINT;
+    boolean numericA = integralA || a == Types.DOUBLE || a == Types.DECIMAL;
+    boolean numericB = integralB || b == Types.DOUBLE || b == Types.DECIMAL;
+    if (numericA && numericB) {
+      return a == Types.DECIMAL || b == Types.DECIMAL ? Types.DECIMAL : Types.DOUBLE;
+    }
+    return Types.VARCHAR;
+  }
+
+  private void box() {
+    Object[] boxed = new Object[capacity];
+    for (int i = 0; i < capacity; i++) {
+      boxed[i] = getObject(i);
+      objectBytes += estimateObject(boxed[i]);
+    }
+    longs = null;
+    doubles = null;
+    booleans = null;
+    objects = boxed;
+    kind = OBJECT;
+  }
+
+  private void ensureCapacity(int row) {
+    if (row >= capacity) {
+      int newCapacity = Math.max(row + 1, capacity + (capacity >> 1));
+      allocate(kind, newCapacity);
+      capacity = newCapacity;
+    }
+    int words = (row >>> 6) + 1;
+    if (words > present.length) {
+      present = Arrays.copyOf(present, Math.max(words, present.length * 2));
+    }
+  }
+
+  private void markPresent(int row) {
+    present[row >>> 6] |= 1L << row;
+  }
+
+  /** Approximate heap footprint of the stored values, used for cache and spill budgets. */
+  long estimatedBytes() {
+    long bytes = 16L + present.length * 8L;
+    switch (kind) {
+      case BOOLEAN:
+        return bytes + capacity;
+      case LONG:
+      case DOUBLE:
+        return bytes + capacity * 8L;
+      case OBJECT:
+        return bytes + capacity * 4L + objectBytes;
+      default:
+        return bytes;
+    }
+  }
+
+  private static long estimateObject(Object value) {
+    if (value == null) return 0;
+    if (value instanceof String) return 40L + ((String) value).length();
+    if (value instanceof byte[]) return 16L + ((byte[]) value).length;
+    if (value instanceof LeafGeometry) return ((LeafGeometry) value).estimatedBytes();
+    return 32L;
+  }
+
+  /**
+   * Clears all values but keeps the column's kind, SQL type and allocated arrays, so the vector can
+   * buffer the next chunk of rows after the previous chunk was spilled.
+   */
+  void reset() {
+    Arrays.fill(present, 0L);
+    if (objects != null) Arrays.fill(objects, null);
+    objectBytes = 0;
+  }
+
+  /** Drops spare capacity once the column is complete. */
+  void trim(int rowCount) {
+    if (rowCount < capacity && kind != EMPTY) {
+      allocate(kind, rowCount);
+      capacity = rowCount;
+    }
+  }
+}
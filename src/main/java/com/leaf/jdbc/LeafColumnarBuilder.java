@@ -0,0 +1,158 @@
+package com.leaf.jdbc;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulates decoded rows column by column. Cells are written into the current row through the
+ * {@link LeafDecoder.Rows} setters or straight into {@link #column(int)}; cells left unset when
+ * {@link #endRow()} is called read as NULL, and columns added part-way through are NULL for every
+ * earlier row.
+ *
+ * <p>With a spill threshold, the buffered rows are written to a {@link LeafSpillFile} whenever
+ * their estimated size exceeds it, and the column vectors are reused for the next chunk.
+ */
+final class LeafColumnarBuilder implements LeafDecoder.Rows {
+  private static final int SPILL_CHECK_INTERVAL = 1024;
+
+  private final List<String> names = new ArrayList<>();
+  private final List<LeafColumnVector> columns = new ArrayList<>();
+  private final long spillThresholdBytes;
+  private final Path spillDirectory;
+  private final long spillSegmentBytes;
+  private LeafSpillFile spill;
+  private int chunkRows = 0;
+  private long rowCount = 0;
+
+  LeafColumnarBuilder() {
+    this(0, null, LeafSpillFile.DEFAULT_SEGMENT_BYTES);
+  }
+
+  LeafColumnarBuilder(long spillThresholdBytes, Path spillDirectory, long spillSegmentBytes) {
+    this.spillThresholdBytes = spillThresholdBytes;
+    this.spillDirectory = spillDirectory;
+    this.spillSegmentBytes = spillSegmentBytes;
+  }
+
+  @Override
+  public int addColumn(String name) {
+    names.add(name);
+    columns.add(new LeafColumnVector());
+    return columns.size() - 1;
+  }
+
+  @Override
+  public int columnCount() {
+    return columns.size();
+  }
+
+  LeafColumnVector column(int ordinal) {
+    return columns.get(ordinal);
+  }
+
+  /** Index of the row currently being written, relative to the buffered chunk. */
+  int row() {
+    return chunkRows;
+  }
+
+  long rowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public void set(int ordinal, Object value) {
+    columns.get(ordinal).set(chunkRows, value);
+  }
+
+  @Override
+  public void setInt(int ordinal, int value) {
+    columns.get(ordinal).setLong(chunkRows, value, true);
+  }
+
+  @Override
+  public void setLong(int ordinal, long value) {
+    columns.get(ordinal).setLong(chunkRows, value, false);
+  }
+
+  @Override
+  public void setDouble(int ordinal, double value) {
+    columns.get(ordinal).setDouble(chunkRows, value);
+  }
+
+  @Override
+  public void setBoolean(int ordinal, boolean value) {
+    columns.get(ordinal).setBoolean(chunkRows, value);
+  }
+
+  @Override
+  public void endRow() throws SQLException {
+    chunkRows++;
+    rowCount++;
+    if (spillThresholdBytes > 0
+        && chunkRows % SPILL_CHECK_INTERVAL == 0
+        && estimatedBytes() > spillThresholdBytes) {
+      spillChunk();
+    }
+  }
+
+  long estimatedBytes() {
+    long bytes = 0;
+    for (LeafColumnVector column : columns) {
+      bytes += column.estimatedBytes();
+    }
+    return bytes;
+  }
+
+  private void spillChunk() throws SQLException {
+    if (spill == null) {
+      spill = new LeafSpillFile(spillDirectory, spillSegmentBytes);
+    }
+    spill.writeRows(columns, chunkRows);
+    for (LeafColumnVector column : columns) {
+      column.reset();
+    }
+    chunkRows = 0;
+  }
+
+  /** Returns the in-memory result, or the spill file if rows were spilled to disk. */
+  LeafResultData finish() throws SQLException {
+    if (spill == null) {
+      return build();
+    }
+    if (columns.isEmpty()) {
+      addColumn("result");
+    }
+    spillChunk();
+    int[] types = new int[columns.size()];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = columns.get(i).sqlType();
+    }
+    spill.finish(names.toArray(new String[0]), types);
+    return spill;
+  }
+
+  /** Returns the in-memory result; only valid when nothing was spilled. */
+  LeafColumnarData build() {
+    if (spill != null) {
+      throw new IllegalStateException("Result was spilled to disk; use finish()");
+    }
+    // DBeaver doesn't accept ResultSet without columns. If empty, create a generic column.
+    if (columns.isEmpty()) {
+      addColumn("result");
+    }
+    LeafColumnVector[] vectors = columns.toArray(new LeafColumnVector[0]);
+    for (LeafColumnVector vector : vectors) {
+      vector.trim(chunkRows);
+    }
+    return new LeafColumnarData(names.toArray(new String[0]), vectors, chunkRows);
+  }
+
+  /** Deletes any spill file if decoding is abandoned part-way. */
+  void abort() {
+    if (spill != null) {
+      spill.discard();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.leaf.jdbc;
+
+import java.sql.Statement;
+
+/** Immutable, fully decoded result held in typed column vectors. */
+final class LeafColumnarData implements LeafResultData {
+  private final LeafColumnVector[] columns;
+  private final int rowCount;
+  private final LeafResultSetMetaData metaData;
+
+  LeafColumnarData(String[] names, LeafColumnVector[] columns, int rowCount) {
+    this.columns = columns;
+    this.rowCount = rowCount;
+    int[] types = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      types[i] = columns[i].sqlType();
+    }
+    this.metaData = new LeafResultSetMetaData(names, types);
+  }
+
+  static LeafColumnarData empty(String... columnNames) {
+    LeafColumnarBuilder builder = new LeafColumnarBuilder();
+    for (String name : columnNames) {
+      builder.addColumn(name);
+    }
+    return builder.build();
+  }
+
+  LeafColumnVector column(int ordinal) {
+    return columns[ordinal];
+  }
+
+  int columnCount() {
+    return columns.length;
+  }
+
+  int rowCount() {
+    return rowCount;
+  }
+
+  long estimatedBytes() {
+    long bytes = 64L;
+    for (LeafColumnVector column : columns) {
+      bytes += column.estimatedBytes();
+    }
+    return bytes;
+  }
+
+  LeafResultSetMetaData metaData() {
+    return metaData;
+  }
+
+  /** Opens a new independent cursor over this data. */
+  LeafColumnarResultSet cursor(Statement statement) {
+    return new LeafColumnarResultSet(statement, this);
+  }
+
+  @Override
+  public LeafColumnarResultSet open(Statement statement) {
+    return cursor(statement);
+  }
+}
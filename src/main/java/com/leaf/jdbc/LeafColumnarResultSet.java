@@ -0,0 +1,90 @@
+package com.leaf.jdbc;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Read-only cursor over {@link LeafColumnarData}. Primitive getters read straight from the typed
+ * column arrays without boxing.
+ */
+final class LeafColumnarResultSet extends AbstractLeafResultSet {
+  private final LeafColumnarData data;
+  private int row = -1;
+
+  LeafColumnarResultSet(Statement statement, LeafColumnarData data) {
+    super(statement);
+    this.data = data;
+  }
+
+  @Override
+  long rowCount() {
+    return data.rowCount();
+  }
+
+  @Override
+  protected boolean advance() {
+    if (row + 1 < data.rowCount()) {
+      row++;
+      return true;
+    }
+    row = data.rowCount();
+    return false;
+  }
+
+  private LeafColumnVector vector(int columnIndex) throws SQLException {
+    ensureRow();
+    checkColumn(columnIndex, data.columnCount());
+    return data.column(columnIndex - 1);
+  }
+
+  @Override
+  protected Object value(int columnIndex) throws SQLException {
+    return vector(columnIndex).getObject(row);
+  }
+
+  @Override
+  public long getLong(int columnIndex) throws SQLException {
+    LeafColumnVector v = vector(columnIndex);
+    boolean isNull = v.isNull(row);
+    trackNull(isNull);
+    if (isNull) return 0L;
+    if (v.kind() == LeafColumnVector.LONG) return v.getLong(row);
+    if (v.kind() == LeafColumnVector.DOUBLE) return (long) v.getDouble(row);
+    return super.getLong(columnIndex);
+  }
+
+  @Override
+  public int getInt(int columnIndex) throws SQLException {
+    return (int) getLong(columnIndex);
+  }
+
+  @Override
+  public double getDouble(int columnIndex) throws SQLException {
+    LeafColumnVector v = vector(columnIndex);
+    boolean isNull = v.isNull(row);
+    trackNull(isNull);
+    if (isNull) return 0d;
+    if (v.kind() == LeafColumnVector.DOUBLE) return v.getDouble(row);
+    if (v.kind() == LeafColumnVector.LONG) return v.getLong(row);
+    return super.getDouble(columnIndex);
+  }
+
+  @Override
+  public boolean getBoolean(int columnIndex) throws SQLException {
+    LeafColumnVector v = vector(columnIndex);
+    boolean isNull = v.isNull(row);
+    trackNull(isNull);
+    if (isNull) return false;
+    if (v.kind() == LeafColumnVector.BOOLEAN) return v.getBoolean(row);
+    return super.getBoolean(columnIndex);
+  }
+
+  @Override
+  public LeafResultSetMetaData getMetaData() {
+    return data.metaData();
+  }
+
+  LeafColumnarData data() {
+    return data;
+  }
+}
@@ -1,11 +1,5 @@
 package com.leaf.jdbc;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.IOException;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -14,7 +8,6 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.NClob;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLClientInfoException;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
@@ -24,95 +17,157 @@ import java.sql.Savepoint;
 import java.sql.ShardingKey;
 import java.sql.Statement;
 import java.sql.Struct;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import javax.sql.rowset.CachedRowSet;
-import javax.sql.rowset.RowSetMetaDataImpl;
-import javax.sql.rowset.RowSetProvider;
-import okhttp3.MediaType;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
 
 final class LeafConnection implements Connection {
-  private static final String API_BASE =
-      System.getProperty("leaf.api.base", "https://api.withleaf.io");
-  private final String token;
-  private boolean closed = false;
+  private static final Logger LOG = Logger.getLogger(LeafConnection.class.getName());
+
+  private final LeafJdbcUrl jdbcUrl;
+  private final OkHttpClient baseClient;
+  private volatile OkHttpClient client;
+  private volatile int networkTimeoutMillis = 0;
+  private final Set<LeafStatement> statements = ConcurrentHashMap.newKeySet();
+  private final LeafResultCache resultCache;
+  private final Map<String, LeafSqlTemplate> templates;
+  private final List<LeafStatementListener> statementListeners;
+  private final LeafRetryPolicy retryPolicy;
+  private final LeafSession session;
+  private boolean released;
+  private volatile boolean closed = false;
   private boolean autoCommit = true;
 
   LeafConnection(LeafJdbcUrl parsed) throws SQLException {
-    this.token = authenticate(parsed.username(), parsed.password());
+    this(parsed, null);
+  }
+
+  /**
+   * Opens a connection that shares {@code session}, which another connection of the same user
+   * opened, instead of authenticating again; a null, ended or expired session is ignored.
+   */
+  LeafConnection(LeafJdbcUrl parsed, LeafSession session) throws SQLException {
+    this.jdbcUrl = parsed;
+    this.baseClient = LeafTransport.client(parsed);
+    this.client = baseClient;
+    this.resultCache = LeafResultCache.forUrl(parsed);
+    this.templates = templateCache(parsed.intProperty("preparedStatementCacheSize", 256));
+    this.statementListeners = LeafQueryTrace.listeners(parsed);
+    this.retryPolicy = LeafRetryPolicy.forUrl(parsed);
+    this.session =
+        session != null && session.retain() ? session : LeafSession.open(parsed, baseClient);
+  }
+
+  /**
+   * Replaces the token if it is still {@code staleToken} and returns the current one. Callers that
+   * saw a 401 pass the token they used, so concurrent failures re-authenticate only once.
+   */
+  String refreshToken(String staleToken) throws SQLException {
+    ensureOpen();
+    return session.refresh(staleToken);
   }
 
-  private String authenticate(String username, String password) throws SQLException {
-    try {
-      OkHttpClient client =
-          new OkHttpClient.Builder()
-              .connectTimeout(30, TimeUnit.MINUTES)
-              .readTimeout(30, TimeUnit.MINUTES)
-              .writeTimeout(30, TimeUnit.MINUTES)
-              .build();
-      ObjectMapper mapper = new ObjectMapper();
-
-      Map<String, String> authData = new HashMap<>();
-      authData.put("username", username);
-      authData.put("password", password);
-      authData.put("rememberMe", "true");
-
-      String jsonBody = mapper.writeValueAsString(authData);
-
-      MediaType mediaType = MediaType.parse("application/json; charset=utf-8");
-      RequestBody body = RequestBody.create(jsonBody, mediaType);
-
-      Request request =
-          new Request.Builder()
-              .url(API_BASE + "/api/authenticate")
-              .addHeader("Content-Type", "application/json")
-              .post(body)
-              .build();
-
-      try (Response response = client.newCall(request).execute()) {
-        if (!response.isSuccessful()) {
-          throw new SQLException(
-              "Authentication failed: HTTP "
-                  + response.code()
-                  + ": "
-                  + (response.body() != null ? response.body().string() : ""));
-        }
-        String responseBody = response.body() != null ? response.body().string() : "";
-        JsonNode root = mapper.readTree(responseBody);
-        if (root.has("id_token")) {
-          return root.get("id_token").asText();
-        }
-        throw new SQLException("Invalid authentication response: missing id_token");
-      }
-    } catch (IOException e) {
-      throw new SQLException("Failed to authenticate with Leaf API", e);
-    }
+  // Read on each use so tests can point the driver at a local server
+  static String apiBase() {
+    return System.getProperty("leaf.api.base", "https://api.withleaf.io");
   }
 
   String apiPrefix() {
-    return API_BASE + "/api/v1";
+    return apiBase() + "/api/v1";
   }
 
   String token() {
-    return token;
+    return session.token().value();
+  }
+
+  LeafSession session() {
+    return session;
+  }
+
+  /** Returns a pooled connection to its initial state: statements closed, settings reset. */
+  void resetForReuse() {
+    for (LeafStatement statement : statements) {
+      statement.close();
+    }
+    networkTimeoutMillis = 0;
+    client = baseClient;
+    autoCommit = true;
+  }
+
+  OkHttpClient httpClient() {
+    return client;
+  }
+
+  /** Identity the API authorizes queries as; results are only shared under the same identity. */
+  String identity() {
+    return jdbcUrl.username() + "@" + apiBase();
+  }
+
+  /** The shared result cache, or null when caching is not enabled for this connection. */
+  LeafResultCache resultCache() {
+    return resultCache;
+  }
+
+  LeafRetryPolicy retryPolicy() {
+    return retryPolicy;
+  }
+
+  List<LeafStatementListener> statementListeners() {
+    return statementListeners;
+  }
+
+  LeafJdbcUrl jdbcUrl() {
+    return jdbcUrl;
   }
 
   @Override
   public Statement createStatement() throws SQLException {
     ensureOpen();
-    return new LeafStatement(this);
+    LeafStatement statement = new LeafStatement(this);
+    statements.add(statement);
+    return statement;
+  }
+
+  void unregister(LeafStatement statement) {
+    statements.remove(statement);
   }
 
   @Override
   public PreparedStatement prepareStatement(String sql) throws SQLException {
-    throw new SQLFeatureNotSupportedException("PreparedStatement not supported");
+    ensureOpen();
+    LeafPreparedStatement statement = new LeafPreparedStatement(this, template(sql));
+    statements.add(statement);
+    return statement;
+  }
+
+  private static Map<String, LeafSqlTemplate> templateCache(int capacity) {
+    if (capacity <= 0) return null;
+    return new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, LeafSqlTemplate> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /** Parsed form of {@code sql}, shared by every statement this connection prepares for it. */
+  LeafSqlTemplate template(String sql) {
+    if (templates == null) return LeafSqlTemplate.parse(sql);
+    synchronized (templates) {
+      return templates.computeIfAbsent(sql, LeafSqlTemplate::parse);
+    }
   }
 
   @Override
@@ -143,7 +198,16 @@ final class LeafConnection implements Connection {
 
   @Override
   public void close() {
-    this.closed = true;
+    closed = true;
+    synchronized (this) {
+      if (!released) {
+        released = true;
+        session.release();
+      }
+    }
+    for (LeafStatement statement : statements) {
+      statement.close();
+    }
   }
 
   @Override
@@ -153,7 +217,8 @@ final class LeafConnection implements Connection {
 
   @Override
   public DatabaseMetaData getMetaData() throws SQLException {
-    return createDatabaseMetaDataProxy();
+    ensureOpen();
+    return new LeafDatabaseMetaData(this);
   }
 
   @Override
@@ -240,17 +305,17 @@ final class LeafConnection implements Connection {
 
   @Override
   public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    return prepareStatement(sql);
   }
 
   @Override
   public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    return prepareStatement(sql);
   }
 
   @Override
   public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    return prepareStatement(sql);
   }
 
   @Override
@@ -273,9 +338,41 @@ final class LeafConnection implements Connection {
     throw new SQLFeatureNotSupportedException();
   }
 
-  @Override
-  public boolean isValid(int timeout) {
-    return !closed;
+  /**
+   * Checks the session without a query. An open connection whose token has not expired is valid
+   * without a request to the API, so this does not detect an unreachable server; an expired token
+   * is renewed, and the connection is valid if that login succeeds within {@code timeout} seconds
+   * (0 waits as long as the login takes).
+   */
+  @Override
+  public boolean isValid(int timeout) throws SQLException {
+    if (timeout < 0) throw new SQLException("Timeout must be >= 0");
+    if (closed) return false;
+    LeafToken token = session.token();
+    if (!token.isExpired(System.currentTimeMillis())) return true;
+    // The background refresh kept failing; one more login decides whether the session is usable
+    CompletableFuture<String> renewal =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return session.refresh(token.value());
+              } catch (SQLException e) {
+                throw new CompletionException(e);
+              }
+            },
+            LeafTransport.background());
+    try {
+      if (timeout == 0) renewal.get();
+      else renewal.get(timeout, TimeUnit.SECONDS);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException | TimeoutException e) {
+      // A login that outlives the timeout keeps going and serves the next caller
+      LOG.log(Level.FINE, "Connection is not valid", e);
+      return false;
+    }
   }
 
   @Override
@@ -312,40 +409,68 @@ final class LeafConnection implements Connection {
     return null;
   }
 
+  /** Marks the connection closed at once, then cancels running queries on {@code executor}. */
   @Override
-  public void abort(Executor executor) {
-    close();
+  public void abort(Executor executor) throws SQLException {
+    if (executor == null) throw new SQLException("Executor must not be null");
+    if (closed) return;
+    this.closed = true;
+    executor.execute(
+        () -> {
+          for (LeafStatement statement : statements) {
+            statement.cancel();
+          }
+          close();
+        });
   }
 
+  /**
+   * Bounds how long any single socket read or write may block. Applies to statements' subsequent
+   * HTTP calls; the connection pool and dispatcher stay shared.
+   */
   @Override
-  public void setNetworkTimeout(Executor executor, int milliseconds) {}
+  public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+    ensureOpen();
+    if (milliseconds < 0) throw new SQLException("Network timeout must be >= 0");
+    this.networkTimeoutMillis = milliseconds;
+    this.client =
+        milliseconds == 0
+            ? baseClient
+            : baseClient
+                .newBuilder()
+                .readTimeout(milliseconds, TimeUnit.MILLISECONDS)
+                .writeTimeout(milliseconds, TimeUnit.MILLISECONDS)
+                .build();
+  }
 
   @Override
   public int getNetworkTimeout() {
-    return 0;
+    return networkTimeoutMillis;
   }
 
   @Override
   public <T> T unwrap(Class<T> iface) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    if (iface.isInstance(this)) return iface.cast(this);
+    if (iface.isInstance(LeafMetrics.driver())) return iface.cast(LeafMetrics.driver());
+    throw new SQLException("Not a wrapper for " + iface.getName());
   }
 
   @Override
   public boolean isWrapperFor(Class<?> iface) {
-    return false;
+    return iface.isInstance(this) || iface.isInstance(LeafMetrics.driver());
   }
 
   @Override
   public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
       throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    return prepareStatement(sql);
   }
 
   @Override
   public PreparedStatement prepareStatement(
       String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
       throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    return prepareStatement(sql);
   }
 
   @Override
@@ -386,81 +511,4 @@ final class LeafConnection implements Connection {
   private void ensureOpen() throws SQLException {
     if (closed) throw new SQLException("Connection is closed");
   }
-
-  private DatabaseMetaData createDatabaseMetaDataProxy() throws SQLException {
-    ClassLoader cl = DatabaseMetaData.class.getClassLoader();
-    InvocationHandler handler =
-        new InvocationHandler() {
-          @Override
-          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            String name = method.getName();
-            Class<?> rt = method.getReturnType();
-
-            if (name.equals("getURL")) return LeafDriver.JDBC_URL_PREFIX;
-            if (name.equals("getUserName")) return null;
-            if (name.equals("getDriverName")) return "Leaf JDBC Driver";
-            if (name.equals("getDriverVersion")) return "0.3.10";
-            if (name.equals("getDriverMajorVersion")) return 0;
-            if (name.equals("getDriverMinorVersion")) return 3;
-            if (name.equals("getDatabaseProductName")) return "Leaf API";
-            if (name.equals("getDatabaseProductVersion")) return "unknown";
-            if (name.equals("getIdentifierQuoteString")) return "\"";
-            if (name.equals("getCatalogSeparator")) return ".";
-            if (name.equals("getCatalogTerm")) return "catalog";
-            if (name.equals("getSchemaTerm")) return "schema";
-            if (name.equals("getSearchStringEscape")) return "\\";
-            if (name.equals("getDatabaseMajorVersion")) return 1;
-            if (name.equals("getDatabaseMinorVersion")) return 0;
-
-            if (name.equals("getSchemas")) {
-              return emptyResultSetWithColumns("TABLE_SCHEM", "TABLE_CATALOG");
-            }
-            if (name.equals("getTables")) {
-              return emptyResultSetWithColumns(
-                  "TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "TABLE_TYPE", "REMARKS");
-            }
-            if (name.equals("getColumns")) {
-              return emptyResultSetWithColumns(
-                  "TABLE_CAT",
-                  "TABLE_SCHEM",
-                  "TABLE_NAME",
-                  "COLUMN_NAME",
-                  "DATA_TYPE",
-                  "TYPE_NAME",
-                  "COLUMN_SIZE",
-                  "NULLABLE");
-            }
-
-            // Provide generic defaults to avoid failures in tools
-            if (rt == boolean.class) return false;
-            if (rt == int.class) return 0;
-            if (rt == long.class) return 0L;
-            if (rt == String.class) return "";
-            if (ResultSet.class.isAssignableFrom(rt)) return emptyResultSetWithColumns("COLUMN");
-            return null;
-          }
-        };
-    return (DatabaseMetaData)
-        Proxy.newProxyInstance(cl, new Class<?>[] {DatabaseMetaData.class}, handler);
-  }
-
-  private ResultSet emptyResultSetWithColumns(String... columnNames) throws SQLException {
-    CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet();
-    RowSetMetaDataImpl md = new RowSetMetaDataImpl();
-    md.setColumnCount(columnNames.length);
-    for (int i = 0; i < columnNames.length; i++) {
-      md.setColumnName(i + 1, columnNames[i]);
-      md.setColumnType(i + 1, java.sql.Types.VARCHAR);
-      md.setNullable(i + 1, java.sql.ResultSetMetaData.columnNullable);
-    }
-    crs.setMetaData(md);
-    crs.beforeFirst();
-    return crs;
-  }
-
-  // Backward-compat: some paths may call this zero-column helper; ensure it returns 1+ columns
-  @SuppressWarnings("unused")
-  private ResultSet emptyResultSet() throws SQLException {
-    return emptyResultSetWithColumns("COLUMN");
-  }
 }
@@ -0,0 +1,211 @@
+package com.leaf.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+
+/**
+ * Bounded pool of authenticated connections for one URL and user. Idle connections are reused most
+ * recently returned first, so a lightly loaded pool keeps a few warm connections and lets the rest
+ * age out.
+ *
+ * <p>A connection is retired once it has been idle for {@code idleTimeoutMillis}, is older than
+ * {@code maxLifetimeMillis}, or holds a token that has expired because its background refresh kept
+ * failing. New connections share the session of the most recently used one, so growing the pool
+ * does not log in again and the pool's token is refreshed once for all its connections.
+ */
+final class LeafConnectionPool implements ConnectionEventListener {
+  private static final Logger LOG = Logger.getLogger(LeafConnectionPool.class.getName());
+  private static final long MAX_EVICTION_INTERVAL_MILLIS = 30_000;
+
+  private final LeafJdbcUrl url;
+  private final int maxSize;
+  private final long idleTimeoutMillis;
+  private final long maxLifetimeMillis;
+  private final long borrowTimeoutMillis;
+  private final ArrayDeque<LeafPooledConnection> idle = new ArrayDeque<>();
+  private final ScheduledFuture<?> evictionTask;
+  private volatile LeafSession session;
+  private int size;
+  private boolean closed;
+
+  LeafConnectionPool(
+      LeafJdbcUrl url,
+      int maxSize,
+      long idleTimeoutMillis,
+      long maxLifetimeMillis,
+      long borrowTimeoutMillis) {
+    this.url = url;
+    this.maxSize = maxSize;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.maxLifetimeMillis = maxLifetimeMillis;
+    this.borrowTimeoutMillis = borrowTimeoutMillis;
+    long interval = Math.max(1_000, Math.min(idleTimeoutMillis / 2, MAX_EVICTION_INTERVAL_MILLIS));
+    this.evictionTask =
+        LeafTransport.scheduler()
+            .scheduleWithFixedDelay(this::evict, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /** Borrows a connection, opening one if the pool has room, or waits for one to be returned. */
+  Connection borrow() throws SQLException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+    while (true) {
+      LeafPooledConnection pooled;
+      synchronized (this) {
+        while (true) {
+          if (closed) throw new SQLException("Connection pool is closed");
+          pooled = idle.pollFirst();
+          if (pooled != null || size < maxSize) break;
+          long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (waitMillis <= 0) {
+            throw new SQLTimeoutException(
+                "Timed out after " + borrowTimeoutMillis + " ms waiting for a pooled connection");
+          }
+          try {
+            wait(waitMillis);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+          }
+        }
+        if (pooled == null) size++;
+      }
+      if (pooled == null) return open().getConnection();
+      if (usable(pooled, System.currentTimeMillis())) return pooled.getConnection();
+      discard(pooled);
+    }
+  }
+
+  private LeafPooledConnection open() throws SQLException {
+    try {
+      LeafConnection connection = new LeafConnection(url, session);
+      adopt(connection.session());
+      LeafPooledConnection pooled = new LeafPooledConnection(connection);
+      pooled.addConnectionEventListener(this);
+      return pooled;
+    } catch (SQLException | RuntimeException e) {
+      synchronized (this) {
+        size--;
+        notifyAll();
+      }
+      throw e;
+    }
+  }
+
+  private boolean usable(LeafPooledConnection pooled, long nowMillis) throws SQLException {
+    LeafConnection connection = pooled.physical();
+    if (nowMillis - pooled.createdAtMillis() >= maxLifetimeMillis) return false;
+    return connection.isValid(0);
+  }
+
+  // The pool holds its own reference so the session outlives the connections that use it. The
+  // session's lock is never taken while holding the pool's.
+  private void adopt(LeafSession opened) {
+    if (opened == session || !opened.retain()) return;
+    LeafSession dropped;
+    synchronized (this) {
+      if (opened == session || closed) {
+        dropped = opened;
+      } else {
+        dropped = session;
+        session = opened;
+      }
+    }
+    if (dropped != null) dropped.release();
+  }
+
+  private boolean expired(LeafPooledConnection pooled, long nowMillis) {
+    return nowMillis - pooled.lastUsedMillis() >= idleTimeoutMillis
+        || nowMillis - pooled.createdAtMillis() >= maxLifetimeMillis
+        || pooled.physical().session().token().isExpired(nowMillis)
+        || pooled.physical().isClosed();
+  }
+
+  @Override
+  public void connectionClosed(ConnectionEvent event) {
+    LeafPooledConnection pooled = (LeafPooledConnection) event.getSource();
+    synchronized (this) {
+      if (!closed && !pooled.physical().isClosed()) {
+        idle.addFirst(pooled);
+        notifyAll();
+        return;
+      }
+    }
+    discard(pooled);
+  }
+
+  @Override
+  public void connectionErrorOccurred(ConnectionEvent event) {
+    discard((LeafPooledConnection) event.getSource());
+  }
+
+  private void discard(LeafPooledConnection pooled) {
+    if (!pooled.retire()) return;
+    synchronized (this) {
+      idle.remove(pooled);
+      size--;
+      notifyAll();
+    }
+    pooled.close();
+  }
+
+  // Retires idle connections past their idle timeout, lifetime or token expiry
+  private void evict() {
+    long now = System.currentTimeMillis();
+    List<LeafPooledConnection> retired = new ArrayList<>();
+    synchronized (this) {
+      for (Iterator<LeafPooledConnection> it = idle.iterator(); it.hasNext(); ) {
+        LeafPooledConnection pooled = it.next();
+        if (expired(pooled, now)) {
+          it.remove();
+          retired.add(pooled);
+        }
+      }
+    }
+    for (LeafPooledConnection pooled : retired) {
+      try {
+        discard(pooled);
+      } catch (RuntimeException e) {
+        LOG.log(Level.FINE, "Failed to close an evicted connection", e);
+      }
+    }
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  synchronized int idleCount() {
+    return idle.size();
+  }
+
+  /** Closes the idle connections; borrowed ones are closed when they are returned. */
+  void close() {
+    List<LeafPooledConnection> retired;
+    synchronized (this) {
+      if (closed) return;
+      closed = true;
+      retired = new ArrayList<>(idle);
+      idle.clear();
+      notifyAll();
+    }
+    evictionTask.cancel(false);
+    retired.forEach(this::discard);
+    LeafSession dropped;
+    synchronized (this) {
+      dropped = session;
+      session = null;
+    }
+    if (dropped != null) dropped.release();
+  }
+}
@@ -0,0 +1,284 @@
+package com.leaf.jdbc;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.DataSource;
+import javax.sql.PooledConnection;
+
+/**
+ * Data source backed by a pool of authenticated connections, so borrowing a connection does not log
+ * in to the Leaf API. Configure it with the setters, then call {@link #getConnection()}; the pool
+ * starts on the first borrow and {@link #close()} shuts it down.
+ *
+ * <pre>
+ * LeafDataSource ds = new LeafDataSource();
+ * ds.setUser("me@example.com");
+ * ds.setPassword(secret);
+ * ds.setMaxPoolSize(16);
+ * try (Connection c = ds.getConnection()) { ... }
+ * </pre>
+ *
+ * <p>As a {@link ConnectionPoolDataSource} it also gives application-server pools unpooled physical
+ * connections through {@link #getPooledConnection()}.
+ */
+public final class LeafDataSource implements DataSource, ConnectionPoolDataSource, AutoCloseable {
+  private String url = LeafDriver.JDBC_URL_PREFIX;
+  private final Properties properties = new Properties();
+  private int maxPoolSize = 10;
+  private long idleTimeoutSeconds = 600;
+  private long maxLifetimeSeconds = 1800;
+  private long connectionTimeoutMillis = 30_000;
+  private int loginTimeoutSeconds;
+  private PrintWriter logWriter;
+  private LeafConnectionPool pool;
+
+  /**
+   * Borrows a pooled connection. Closing it returns it to the pool.
+   *
+   * @return a ready, authenticated connection
+   * @throws SQLException if the pool is closed, a new connection cannot log in, or none is returned
+   *     within the connection timeout
+   */
+  @Override
+  public Connection getConnection() throws SQLException {
+    return pool().borrow();
+  }
+
+  /** Opens an unpooled connection for other credentials. */
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return new LeafConnection(parse(username, password));
+  }
+
+  @Override
+  public PooledConnection getPooledConnection() throws SQLException {
+    return new LeafPooledConnection(new LeafConnection(parse(null, null)));
+  }
+
+  @Override
+  public PooledConnection getPooledConnection(String username, String password)
+      throws SQLException {
+    return new LeafPooledConnection(new LeafConnection(parse(username, password)));
+  }
+
+  private synchronized LeafConnectionPool pool() throws SQLException {
+    if (pool == null) {
+      if (maxPoolSize < 1) {
+        throw new SQLException("Invalid value for property 'maxPoolSize': " + maxPoolSize);
+      }
+      pool =
+          new LeafConnectionPool(
+              parse(null, null),
+              maxPoolSize,
+              idleTimeoutSeconds * 1000,
+              maxLifetimeSeconds * 1000,
+              connectionTimeoutMillis);
+    }
+    return pool;
+  }
+
+  private synchronized LeafJdbcUrl parse(String username, String password) throws SQLException {
+    Properties info = new Properties();
+    info.putAll(properties);
+    if (username != null) info.setProperty("user", username);
+    if (password != null) info.setProperty("password", password);
+    if (loginTimeoutSeconds > 0) {
+      info.putIfAbsent("loginTimeoutSeconds", String.valueOf(loginTimeoutSeconds));
+    }
+    return LeafJdbcUrl.parse(url, info);
+  }
+
+  /** Closes idle pooled connections and stops lending; borrowed ones close when returned. */
+  @Override
+  public synchronized void close() {
+    if (pool != null) pool.close();
+    pool = null;
+  }
+
+  /**
+   * Connections open in the pool, idle or borrowed.
+   *
+   * @return the pool size, 0 before the first borrow
+   */
+  public synchronized int getPoolSize() {
+    return pool == null ? 0 : pool.size();
+  }
+
+  /**
+   * Connections waiting in the pool to be borrowed.
+   *
+   * @return the idle count, 0 before the first borrow
+   */
+  public synchronized int getIdleConnections() {
+    return pool == null ? 0 : pool.idleCount();
+  }
+
+  // ---- Configuration ----
+
+  /**
+   * The JDBC URL connections are opened with.
+   *
+   * @return the URL, or null if not set
+   */
+  public synchronized String getUrl() {
+    return url;
+  }
+
+  /**
+   * Sets the JDBC URL, which may carry credentials and connection properties.
+   *
+   * @param url a {@code jdbc:leaf:} URL
+   */
+  public synchronized void setUrl(String url) {
+    this.url = url;
+  }
+
+  /**
+   * Sets the user to log in as, overriding one in the URL.
+   *
+   * @param user the Leaf user name
+   */
+  public synchronized void setUser(String user) {
+    properties.setProperty("user", user);
+  }
+
+  /**
+   * Sets the password to log in with, overriding one in the URL.
+   *
+   * @param password the Leaf password
+   */
+  public synchronized void setPassword(String password) {
+    properties.setProperty("password", password);
+  }
+
+  /**
+   * Sets a connection property, as accepted by the driver (e.g. {@code streaming}).
+   *
+   * @param name property name
+   * @param value property value
+   */
+  public synchronized void setProperty(String name, String value) {
+    properties.setProperty(name, value);
+  }
+
+  /**
+   * The most connections the pool opens.
+   *
+   * @return the pool size cap
+   */
+  public synchronized int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  /**
+   * Caps the connections the pool opens; borrowers wait when all are in use.
+   *
+   * @param maxPoolSize at least 1; default 10
+   */
+  public synchronized void setMaxPoolSize(int maxPoolSize) {
+    this.maxPoolSize = maxPoolSize;
+  }
+
+  /**
+   * How long a pooled connection may sit unused before it is closed.
+   *
+   * @return the idle timeout in seconds
+   */
+  public synchronized long getIdleTimeoutSeconds() {
+    return idleTimeoutSeconds;
+  }
+
+  /**
+   * Closes pooled connections left unused this long.
+   *
+   * @param idleTimeoutSeconds default 600
+   */
+  public synchronized void setIdleTimeoutSeconds(long idleTimeoutSeconds) {
+    this.idleTimeoutSeconds = idleTimeoutSeconds;
+  }
+
+  /**
+   * Age at which pooled connections are retired.
+   *
+   * @return the lifetime in seconds
+   */
+  public synchronized long getMaxLifetimeSeconds() {
+    return maxLifetimeSeconds;
+  }
+
+  /**
+   * Retires pooled connections this old, and any whose token has lapsed, when they are next idle.
+   *
+   * @param maxLifetimeSeconds default 1800
+   */
+  public synchronized void setMaxLifetimeSeconds(long maxLifetimeSeconds) {
+    this.maxLifetimeSeconds = maxLifetimeSeconds;
+  }
+
+  /**
+   * How long {@link #getConnection()} waits when the pool is exhausted.
+   *
+   * @return the wait in milliseconds
+   */
+  public synchronized long getConnectionTimeoutMillis() {
+    return connectionTimeoutMillis;
+  }
+
+  /**
+   * Bounds how long {@link #getConnection()} waits for a connection when the pool is exhausted.
+   *
+   * @param connectionTimeoutMillis default 30000
+   */
+  public synchronized void setConnectionTimeoutMillis(long connectionTimeoutMillis) {
+    this.connectionTimeoutMillis = connectionTimeoutMillis;
+  }
+
+  // ---- CommonDataSource ----
+
+  @Override
+  public synchronized PrintWriter getLogWriter() {
+    return logWriter;
+  }
+
+  @Override
+  public synchronized void setLogWriter(PrintWriter out) {
+    this.logWriter = out;
+  }
+
+  /**
+   * Bounds the login of each new connection, like the {@code loginTimeoutSeconds} property.
+   *
+   * @param seconds the timeout; 0, the default, falls back to {@link
+   *     java.sql.DriverManager#getLoginTimeout()}
+   */
+  @Override
+  public synchronized void setLoginTimeout(int seconds) {
+    this.loginTimeoutSeconds = seconds;
+  }
+
+  @Override
+  public synchronized int getLoginTimeout() {
+    return loginTimeoutSeconds;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return Logger.getLogger("com.leaf.jdbc");
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) return iface.cast(this);
+    throw new SQLException("Not a wrapper for " + iface.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+}
@@ -0,0 +1,1372 @@
+package com.leaf.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.RowIdLifetime;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Database metadata for the Leaf API. Schema, table and column lookups are answered from the
+ * JVM-wide {@link LeafCatalog} snapshot, so after the first discovery for a user they never wait on
+ * the network. Everything else describes the Spark SQL dialect and the driver's read-only,
+ * forward-only feature set.
+ */
+final class LeafDatabaseMetaData implements DatabaseMetaData {
+  private static final String[] SCHEMA_COLUMNS = {"TABLE_SCHEM", "TABLE_CATALOG"};
+  private static final String[] TABLE_COLUMNS = {
+    "TABLE_CAT",
+    "TABLE_SCHEM",
+    "TABLE_NAME",
+    "TABLE_TYPE",
+    "REMARKS",
+    "TYPE_CAT",
+    "TYPE_SCHEM",
+    "TYPE_NAME",
+    "SELF_REFERENCING_COL_NAME",
+    "REF_GENERATION"
+  };
+  private static final String[] COLUMN_COLUMNS = {
+    "TABLE_CAT",
+    "TABLE_SCHEM",
+    "TABLE_NAME",
+    "COLUMN_NAME",
+    "DATA_TYPE",
+    "TYPE_NAME",
+    "COLUMN_SIZE",
+    "BUFFER_LENGTH",
+    "DECIMAL_DIGITS",
+    "NUM_PREC_RADIX",
+    "NULLABLE",
+    "REMARKS",
+    "COLUMN_DEF",
+    "SQL_DATA_TYPE",
+    "SQL_DATETIME_SUB",
+    "CHAR_OCTET_LENGTH",
+    "ORDINAL_POSITION",
+    "IS_NULLABLE",
+    "SCOPE_CATALOG",
+    "SCOPE_SCHEMA",
+    "SCOPE_TABLE",
+    "SOURCE_DATA_TYPE",
+    "IS_AUTOINCREMENT",
+    "IS_GENERATEDCOLUMN"
+  };
+  private static final String[] TYPE_INFO_COLUMNS = {
+    "TYPE_NAME",
+    "DATA_TYPE",
+    "PRECISION",
+    "LITERAL_PREFIX",
+    "LITERAL_SUFFIX",
+    "CREATE_PARAMS",
+    "NULLABLE",
+    "CASE_SENSITIVE",
+    "SEARCHABLE",
+    "UNSIGNED_ATTRIBUTE",
+    "FIXED_PREC_SCALE",
+    "AUTO_INCREMENT",
+    "LOCAL_TYPE_NAME",
+    "MINIMUM_SCALE",
+    "MAXIMUM_SCALE",
+    "SQL_DATA_TYPE",
+    "SQL_DATETIME_SUB",
+    "NUM_PREC_RADIX"
+  };
+  private static final String[] SPARK_TYPES = {
+    "BOOLEAN",
+    "TINYINT",
+    "SMALLINT",
+    "INT",
+    "BIGINT",
+    "FLOAT",
+    "DOUBLE",
+    "DECIMAL",
+    "STRING",
+    "BINARY",
+    "DATE",
+    "TIMESTAMP"
+  };
+
+  private final LeafConnection connection;
+
+  LeafDatabaseMetaData(LeafConnection connection) {
+    this.connection = connection;
+  }
+
+  private LeafCatalog catalog() throws SQLException {
+    return LeafCatalog.forConnection(connection);
+  }
+
+  // ---- Catalog lookups ----
+
+  @Override
+  public ResultSet getCatalogs() throws SQLException {
+    TreeSet<String> catalogs = new TreeSet<>();
+    for (LeafCatalog.Table t : catalog().tables()) {
+      catalogs.add(t.catalog());
+    }
+    List<Object[]> rows = new ArrayList<>();
+    for (String c : catalogs) {
+      rows.add(new Object[] {c});
+    }
+    return rows(new String[] {"TABLE_CAT"}, rows);
+  }
+
+  @Override
+  public ResultSet getSchemas() throws SQLException {
+    return getSchemas(null, null);
+  }
+
+  @Override
+  public ResultSet getSchemas(String catalog, String schemaPattern) throws SQLException {
+    TreeSet<String> seen = new TreeSet<>();
+    List<Object[]> rows = new ArrayList<>();
+    for (LeafCatalog.Table t : catalog().tables()) {
+      if (!inCatalog(catalog, t) || !matches(schemaPattern, t.schema())) continue;
+      if (seen.add(t.catalog() + "." + t.schema())) {
+        rows.add(new Object[] {t.schema(), t.catalog()});
+      }
+    }
+    rows.sort(
+        Comparator.comparing((Object[] r) -> (String) r[1]).thenComparing(r -> (String) r[0]));
+    return rows(SCHEMA_COLUMNS, rows);
+  }
+
+  @Override
+  public ResultSet getTableTypes() throws SQLException {
+    return rows(new String[] {"TABLE_TYPE"}, List.<Object[]>of(new Object[] {"TABLE"}));
+  }
+
+  @Override
+  public ResultSet getTables(
+      String catalog, String schemaPattern, String tableNamePattern, String[] types)
+      throws SQLException {
+    List<Object[]> rows = new ArrayList<>();
+    if (types == null || Arrays.asList(types).contains("TABLE")) {
+      for (LeafCatalog.Table t : tables(catalog, schemaPattern, tableNamePattern)) {
+        rows.add(
+            new Object[] {
+              t.catalog(), t.schema(), t.name(), "TABLE", "", null, null, null, null, null
+            });
+      }
+    }
+    return rows(TABLE_COLUMNS, rows);
+  }
+
+  @Override
+  public ResultSet getColumns(
+      String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern)
+      throws SQLException {
+    List<Object[]> rows = new ArrayList<>();
+    for (LeafCatalog.Table t : tables(catalog, schemaPattern, tableNamePattern)) {
+      List<LeafCatalog.Column> columns = t.columns();
+      for (int i = 0; i < columns.size(); i++) {
+        LeafCatalog.Column c = columns.get(i);
+        if (!matches(columnNamePattern, c.name())) continue;
+        rows.add(
+            new Object[] {
+              t.catalog(),
+              t.schema(),
+              t.name(),
+              c.name(),
+              c.sqlType(),
+              c.typeName(),
+              columnSize(c.sqlType()),
+              null,
+              null,
+              10,
+              columnNullableUnknown,
+              "",
+              null,
+              null,
+              null,
+              null,
+              i + 1,
+              "",
+              null,
+              null,
+              null,
+              null,
+              "NO",
+              "NO"
+            });
+      }
+    }
+    return rows(COLUMN_COLUMNS, rows);
+  }
+
+  /** Tables matching the arguments, with an O(1) lookup when both names are literal. */
+  private List<LeafCatalog.Table> tables(String catalog, String schemaPattern, String tablePattern)
+      throws SQLException {
+    LeafCatalog snapshot = catalog();
+    if (isLiteral(schemaPattern) && isLiteral(tablePattern)) {
+      LeafCatalog.Table t = snapshot.table(schemaPattern, tablePattern);
+      return t != null && inCatalog(catalog, t) ? List.of(t) : List.of();
+    }
+    List<LeafCatalog.Table> out = new ArrayList<>();
+    for (LeafCatalog.Table t : snapshot.tables()) {
+      if (inCatalog(catalog, t)
+          && matches(schemaPattern, t.schema())
+          && matches(tablePattern, t.name())) {
+        out.add(t);
+      }
+    }
+    out.sort(
+        Comparator.comparing(LeafCatalog.Table::catalog)
+            .thenComparing(LeafCatalog.Table::schema)
+            .thenComparing(LeafCatalog.Table::name));
+    return out;
+  }
+
+  private static boolean inCatalog(String catalog, LeafCatalog.Table t) {
+    return catalog == null || catalog.equalsIgnoreCase(t.catalog());
+  }
+
+  private static boolean isLiteral(String pattern) {
+    return pattern != null && pattern.indexOf('%') < 0 && pattern.indexOf('_') < 0;
+  }
+
+  /** JDBC LIKE pattern match ({@code %}, {@code _}, backslash escape); identifiers ignore case. */
+  static boolean matches(String pattern, String value) {
+    if (pattern == null || pattern.equals("%")) return true;
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '\\' && i + 1 < pattern.length()) {
+        regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+      } else if (c == '%') {
+        regex.append(".*");
+      } else if (c == '_') {
+        regex.append('.');
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL)
+        .matcher(value)
+        .matches();
+  }
+
+  private static Integer columnSize(int sqlType) {
+    switch (sqlType) {
+      case Types.BOOLEAN:
+        return 1;
+      case Types.TINYINT:
+        return 3;
+      case Types.SMALLINT:
+        return 5;
+      case Types.INTEGER:
+        return 10;
+      case Types.BIGINT:
+        return 19;
+      case Types.REAL:
+        return 7;
+      case Types.DOUBLE:
+        return 15;
+      case Types.DECIMAL:
+        return 38;
+      case Types.DATE:
+        return 10;
+      case Types.TIMESTAMP:
+        return 29;
+      case Types.VARCHAR:
+      case Types.VARBINARY:
+        return Integer.MAX_VALUE;
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public ResultSet getTypeInfo() throws SQLException {
+    List<Object[]> rows = new ArrayList<>();
+    for (String type : SPARK_TYPES) {
+      int sqlType = LeafCatalog.sqlType(type);
+      boolean text = sqlType == Types.VARCHAR;
+      boolean numeric = columnSize(sqlType) != null && !text && sqlType != Types.VARBINARY;
+      rows.add(
+          new Object[] {
+            type,
+            sqlType,
+            columnSize(sqlType),
+            text ? "'" : sqlType == Types.VARBINARY ? "X'" : null,
+            text || sqlType == Types.VARBINARY ? "'" : null,
+            sqlType == Types.DECIMAL ? "precision,scale" : null,
+            (int) typeNullable,
+            text,
+            (int) typeSearchable,
+            !numeric,
+            false,
+            false,
+            type,
+            0,
+            sqlType == Types.DECIMAL ? 38 : 0,
+            null,
+            null,
+            numeric ? 10 : null
+          });
+    }
+    return rows(TYPE_INFO_COLUMNS, rows);
+  }
+
+  private static ResultSet rows(String[] columns, List<Object[]> rows) throws SQLException {
+    LeafColumnarBuilder builder = new LeafColumnarBuilder();
+    for (String column : columns) {
+      builder.addColumn(column);
+    }
+    for (Object[] row : rows) {
+      for (int i = 0; i < row.length; i++) {
+        builder.set(i, row[i]);
+      }
+      builder.endRow();
+    }
+    return builder.build().cursor(null);
+  }
+
+  private static ResultSet empty(String... columns) {
+    return LeafColumnarData.empty(columns).cursor(null);
+  }
+
+  // ---- Objects the API does not have ----
+
+  @Override
+  public ResultSet getProcedures(
+      String catalog, String schemaPattern, String procedureNamePattern) {
+    return empty(
+        "PROCEDURE_CAT",
+        "PROCEDURE_SCHEM",
+        "PROCEDURE_NAME",
+        "RESERVED1",
+        "RESERVED2",
+        "RESERVED3",
+        "REMARKS",
+        "PROCEDURE_TYPE",
+        "SPECIFIC_NAME");
+  }
+
+  @Override
+  public ResultSet getProcedureColumns(
+      String catalog, String schemaPattern, String procedureNamePattern, String columnNamePattern) {
+    return empty(
+        "PROCEDURE_CAT",
+        "PROCEDURE_SCHEM",
+        "PROCEDURE_NAME",
+        "COLUMN_NAME",
+        "COLUMN_TYPE",
+        "DATA_TYPE",
+        "TYPE_NAME",
+        "PRECISION",
+        "LENGTH",
+        "SCALE",
+        "RADIX",
+        "NULLABLE",
+        "REMARKS");
+  }
+
+  @Override
+  public ResultSet getColumnPrivileges(
+      String catalog, String schema, String table, String columnNamePattern) {
+    return empty(
+        "TABLE_CAT",
+        "TABLE_SCHEM",
+        "TABLE_NAME",
+        "COLUMN_NAME",
+        "GRANTOR",
+        "GRANTEE",
+        "PRIVILEGE",
+        "IS_GRANTABLE");
+  }
+
+  @Override
+  public ResultSet getTablePrivileges(
+      String catalog, String schemaPattern, String tableNamePattern) {
+    return empty(
+        "TABLE_CAT",
+        "TABLE_SCHEM",
+        "TABLE_NAME",
+        "GRANTOR",
+        "GRANTEE",
+        "PRIVILEGE",
+        "IS_GRANTABLE");
+  }
+
+  @Override
+  public ResultSet getBestRowIdentifier(
+      String catalog, String schema, String table, int scope, boolean nullable) {
+    return empty(
+        "SCOPE",
+        "COLUMN_NAME",
+        "DATA_TYPE",
+        "TYPE_NAME",
+        "COLUMN_SIZE",
+        "BUFFER_LENGTH",
+        "DECIMAL_DIGITS",
+        "PSEUDO_COLUMN");
+  }
+
+  @Override
+  public ResultSet getVersionColumns(String catalog, String schema, String table) {
+    return empty(
+        "SCOPE",
+        "COLUMN_NAME",
+        "DATA_TYPE",
+        "TYPE_NAME",
+        "COLUMN_SIZE",
+        "BUFFER_LENGTH",
+        "DECIMAL_DIGITS",
+        "PSEUDO_COLUMN");
+  }
+
+  @Override
+  public ResultSet getPrimaryKeys(String catalog, String schema, String table) {
+    return empty("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "KEY_SEQ", "PK_NAME");
+  }
+
+  @Override
+  public ResultSet getImportedKeys(String catalog, String schema, String table) {
+    return emptyKeys();
+  }
+
+  @Override
+  public ResultSet getExportedKeys(String catalog, String schema, String table) {
+    return emptyKeys();
+  }
+
+  @Override
+  public ResultSet getCrossReference(
+      String parentCatalog,
+      String parentSchema,
+      String parentTable,
+      String foreignCatalog,
+      String foreignSchema,
+      String foreignTable) {
+    return emptyKeys();
+  }
+
+  private static ResultSet emptyKeys() {
+    return empty(
+        "PKTABLE_CAT",
+        "PKTABLE_SCHEM",
+        "PKTABLE_NAME",
+        "PKCOLUMN_NAME",
+        "FKTABLE_CAT",
+        "FKTABLE_SCHEM",
+        "FKTABLE_NAME",
+        "FKCOLUMN_NAME",
+        "KEY_SEQ",
+        "UPDATE_RULE",
+        "DELETE_RULE",
+        "FK_NAME",
+        "PK_NAME",
+        "DEFERRABILITY");
+  }
+
+  @Override
+  public ResultSet getIndexInfo(
+      String catalog, String schema, String table, boolean unique, boolean approximate) {
+    return empty(
+        "TABLE_CAT",
+        "TABLE_SCHEM",
+        "TABLE_NAME",
+        "NON_UNIQUE",
+        "INDEX_QUALIFIER",
+        "INDEX_NAME",
+        "TYPE",
+        "ORDINAL_POSITION",
+        "COLUMN_NAME",
+        "ASC_OR_DESC",
+        "CARDINALITY",
+        "PAGES",
+        "FILTER_CONDITION");
+  }
+
+  @Override
+  public ResultSet getUDTs(
+      String catalog, String schemaPattern, String typeNamePattern, int[] types) {
+    return empty(
+        "TYPE_CAT", "TYPE_SCHEM", "TYPE_NAME", "CLASS_NAME", "DATA_TYPE", "REMARKS", "BASE_TYPE");
+  }
+
+  @Override
+  public ResultSet getSuperTypes(String catalog, String schemaPattern, String typeNamePattern) {
+    return empty(
+        "TYPE_CAT",
+        "TYPE_SCHEM",
+        "TYPE_NAME",
+        "SUPERTYPE_CAT",
+        "SUPERTYPE_SCHEM",
+        "SUPERTYPE_NAME");
+  }
+
+  @Override
+  public ResultSet getSuperTables(String catalog, String schemaPattern, String tableNamePattern) {
+    return empty("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "SUPERTABLE_NAME");
+  }
+
+  @Override
+  public ResultSet getAttributes(
+      String catalog, String schemaPattern, String typeNamePattern, String attributeNamePattern) {
+    return empty(
+        "TYPE_CAT",
+        "TYPE_SCHEM",
+        "TYPE_NAME",
+        "ATTR_NAME",
+        "DATA_TYPE",
+        "ATTR_TYPE_NAME",
+        "ATTR_SIZE",
+        "DECIMAL_DIGITS",
+        "NUM_PREC_RADIX",
+        "NULLABLE",
+        "REMARKS",
+        "ATTR_DEF",
+        "SQL_DATA_TYPE",
+        "SQL_DATETIME_SUB",
+        "CHAR_OCTET_LENGTH",
+        "ORDINAL_POSITION",
+        "IS_NULLABLE",
+        "SCOPE_CATALOG",
+        "SCOPE_SCHEMA",
+        "SCOPE_TABLE",
+        "SOURCE_DATA_TYPE");
+  }
+
+  @Override
+  public ResultSet getClientInfoProperties() {
+    return empty("NAME", "MAX_LEN", "DEFAULT_VALUE", "DESCRIPTION");
+  }
+
+  @Override
+  public ResultSet getFunctions(String catalog, String schemaPattern, String functionNamePattern) {
+    return empty(
+        "FUNCTION_CAT",
+        "FUNCTION_SCHEM",
+        "FUNCTION_NAME",
+        "REMARKS",
+        "FUNCTION_TYPE",
+        "SPECIFIC_NAME");
+  }
+
+  @Override
+  public ResultSet getFunctionColumns(
+      String catalog, String schemaPattern, String functionNamePattern, String columnNamePattern) {
+    return empty(
+        "FUNCTION_CAT",
+        "FUNCTION_SCHEM",
+        "FUNCTION_NAME",
+        "COLUMN_NAME",
+        "COLUMN_TYPE",
+        "DATA_TYPE",
+        "TYPE_NAME",
+        "PRECISION",
+        "LENGTH",
+        "SCALE",
+        "RADIX",
+        "NULLABLE",
+        "REMARKS",
+        "CHAR_OCTET_LENGTH",
+        "ORDINAL_POSITION",
+        "IS_NULLABLE",
+        "SPECIFIC_NAME");
+  }
+
+  @Override
+  public ResultSet getPseudoColumns(
+      String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) {
+    return empty(
+        "TABLE_CAT",
+        "TABLE_SCHEM",
+        "TABLE_NAME",
+        "COLUMN_NAME",
+        "DATA_TYPE",
+        "COLUMN_SIZE",
+        "DECIMAL_DIGITS",
+        "NUM_PREC_RADIX",
+        "COLUMN_USAGE",
+        "REMARKS",
+        "CHAR_OCTET_LENGTH",
+        "IS_NULLABLE");
+  }
+
+  // ---- Driver and product ----
+
+  @Override
+  public Connection getConnection() {
+    return connection;
+  }
+
+  @Override
+  public String getURL() {
+    return LeafDriver.JDBC_URL_PREFIX;
+  }
+
+  @Override
+  public String getUserName() {
+    return connection.jdbcUrl().username();
+  }
+
+  @Override
+  public String getDatabaseProductName() {
+    return "Leaf API";
+  }
+
+  @Override
+  public String getDatabaseProductVersion() {
+    return "unknown";
+  }
+
+  @Override
+  public int getDatabaseMajorVersion() {
+    return 1;
+  }
+
+  @Override
+  public int getDatabaseMinorVersion() {
+    return 0;
+  }
+
+  @Override
+  public String getDriverName() {
+    return "Leaf JDBC Driver";
+  }
+
+  @Override
+  public String getDriverVersion() {
+    return "0.3.10";
+  }
+
+  @Override
+  public int getDriverMajorVersion() {
+    return 0;
+  }
+
+  @Override
+  public int getDriverMinorVersion() {
+    return 3;
+  }
+
+  @Override
+  public int getJDBCMajorVersion() {
+    return 4;
+  }
+
+  @Override
+  public int getJDBCMinorVersion() {
+    return 2;
+  }
+
+  @Override
+  public int getSQLStateType() {
+    return sqlStateSQL;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
+  @Override
+  public boolean usesLocalFiles() {
+    return false;
+  }
+
+  @Override
+  public boolean usesLocalFilePerTable() {
+    return false;
+  }
+
+  // ---- Spark SQL dialect ----
+
+  @Override
+  public String getIdentifierQuoteString() {
+    return "`";
+  }
+
+  @Override
+  public String getSQLKeywords() {
+    return "CLUSTER,DISTRIBUTE,LATERAL,PIVOT,QUALIFY,RLIKE,SORT,TABLESAMPLE,UNPIVOT";
+  }
+
+  @Override
+  public String getNumericFunctions() {
+    return "abs,acos,asin,atan,atan2,ceil,cos,degrees,exp,floor,ln,log,log10,mod,pi,pow,radians,"
+        + "rand,round,sign,sin,sqrt,tan";
+  }
+
+  @Override
+  public String getStringFunctions() {
+    return "ascii,concat,instr,lcase,length,lower,lpad,ltrim,repeat,replace,rpad,rtrim,substring,"
+        + "trim,ucase,upper";
+  }
+
+  @Override
+  public String getSystemFunctions() {
+    return "coalesce,ifnull,nullif,nvl";
+  }
+
+  @Override
+  public String getTimeDateFunctions() {
+    return "current_date,current_timestamp,date_add,date_sub,datediff,dayofmonth,dayofweek,"
+        + "dayofyear,hour,minute,month,quarter,second,weekofyear,year";
+  }
+
+  @Override
+  public String getSearchStringEscape() {
+    return "\\";
+  }
+
+  @Override
+  public String getExtraNameCharacters() {
+    return "";
+  }
+
+  @Override
+  public String getSchemaTerm() {
+    return "schema";
+  }
+
+  @Override
+  public String getProcedureTerm() {
+    return "procedure";
+  }
+
+  @Override
+  public String getCatalogTerm() {
+    return "catalog";
+  }
+
+  @Override
+  public boolean isCatalogAtStart() {
+    return true;
+  }
+
+  @Override
+  public String getCatalogSeparator() {
+    return ".";
+  }
+
+  @Override
+  public boolean nullsAreSortedHigh() {
+    return false;
+  }
+
+  // Spark sorts NULLs first in ascending order
+  @Override
+  public boolean nullsAreSortedLow() {
+    return true;
+  }
+
+  @Override
+  public boolean nullsAreSortedAtStart() {
+    return false;
+  }
+
+  @Override
+  public boolean nullsAreSortedAtEnd() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsMixedCaseIdentifiers() {
+    return false;
+  }
+
+  @Override
+  public boolean storesUpperCaseIdentifiers() {
+    return false;
+  }
+
+  @Override
+  public boolean storesLowerCaseIdentifiers() {
+    return true;
+  }
+
+  @Override
+  public boolean storesMixedCaseIdentifiers() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsMixedCaseQuotedIdentifiers() {
+    return false;
+  }
+
+  @Override
+  public boolean storesUpperCaseQuotedIdentifiers() {
+    return false;
+  }
+
+  @Override
+  public boolean storesLowerCaseQuotedIdentifiers() {
+    return true;
+  }
+
+  @Override
+  public boolean storesMixedCaseQuotedIdentifiers() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsAlterTableWithAddColumn() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsAlterTableWithDropColumn() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsColumnAliasing() {
+    return true;
+  }
+
+  @Override
+  public boolean nullPlusNonNullIsNull() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsConvert() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsConvert(int fromType, int toType) {
+    return false;
+  }
+
+  @Override
+  public boolean supportsTableCorrelationNames() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsDifferentTableCorrelationNames() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsExpressionsInOrderBy() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsOrderByUnrelated() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsGroupBy() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsGroupByUnrelated() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsGroupByBeyondSelect() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsLikeEscapeClause() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsNonNullableColumns() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsMinimumSQLGrammar() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsCoreSQLGrammar() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsExtendedSQLGrammar() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsANSI92EntryLevelSQL() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsANSI92IntermediateSQL() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsANSI92FullSQL() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsIntegrityEnhancementFacility() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsOuterJoins() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsFullOuterJoins() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsLimitedOuterJoins() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsSchemasInDataManipulation() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsSchemasInProcedureCalls() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsSchemasInTableDefinitions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsSchemasInIndexDefinitions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsSchemasInPrivilegeDefinitions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsCatalogsInDataManipulation() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsCatalogsInProcedureCalls() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsCatalogsInTableDefinitions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsCatalogsInIndexDefinitions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsCatalogsInPrivilegeDefinitions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsSubqueriesInComparisons() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsSubqueriesInExists() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsSubqueriesInIns() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsSubqueriesInQuantifieds() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsCorrelatedSubqueries() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsUnion() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsUnionAll() {
+    return true;
+  }
+
+  // ---- Driver capabilities ----
+
+  @Override
+  public boolean allProceduresAreCallable() {
+    return false;
+  }
+
+  @Override
+  public boolean allTablesAreSelectable() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsMultipleResultSets() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsMultipleTransactions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsPositionedDelete() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsPositionedUpdate() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsSelectForUpdate() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsStoredProcedures() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsOpenCursorsAcrossCommit() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsOpenCursorsAcrossRollback() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsOpenStatementsAcrossCommit() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsOpenStatementsAcrossRollback() {
+    return false;
+  }
+
+  @Override
+  public int getMaxBinaryLiteralLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxCharLiteralLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxColumnNameLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxColumnsInGroupBy() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxColumnsInIndex() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxColumnsInOrderBy() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxColumnsInSelect() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxColumnsInTable() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxConnections() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxCursorNameLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxIndexLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxSchemaNameLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxProcedureNameLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxCatalogNameLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxRowSize() {
+    return 0;
+  }
+
+  @Override
+  public boolean doesMaxRowSizeIncludeBlobs() {
+    return false;
+  }
+
+  @Override
+  public int getMaxStatementLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxStatements() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxTableNameLength() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxTablesInSelect() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxUserNameLength() {
+    return 0;
+  }
+
+  @Override
+  public long getMaxLogicalLobSize() {
+    return 0;
+  }
+
+  @Override
+  public int getDefaultTransactionIsolation() {
+    return Connection.TRANSACTION_NONE;
+  }
+
+  @Override
+  public boolean supportsTransactions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsTransactionIsolationLevel(int level) {
+    return level == Connection.TRANSACTION_NONE;
+  }
+
+  @Override
+  public boolean supportsDataDefinitionAndDataManipulationTransactions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsDataManipulationTransactionsOnly() {
+    return false;
+  }
+
+  @Override
+  public boolean dataDefinitionCausesTransactionCommit() {
+    return false;
+  }
+
+  @Override
+  public boolean dataDefinitionIgnoredInTransactions() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsResultSetType(int type) {
+    return type == ResultSet.TYPE_FORWARD_ONLY;
+  }
+
+  @Override
+  public boolean supportsResultSetConcurrency(int type, int concurrency) {
+    return type == ResultSet.TYPE_FORWARD_ONLY && concurrency == ResultSet.CONCUR_READ_ONLY;
+  }
+
+  @Override
+  public boolean ownUpdatesAreVisible(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean ownDeletesAreVisible(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean ownInsertsAreVisible(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean othersUpdatesAreVisible(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean othersDeletesAreVisible(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean othersInsertsAreVisible(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean updatesAreDetected(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean deletesAreDetected(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean insertsAreDetected(int type) {
+    return false;
+  }
+
+  @Override
+  public boolean supportsBatchUpdates() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsSavepoints() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsNamedParameters() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsMultipleOpenResults() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsGetGeneratedKeys() {
+    return false;
+  }
+
+  @Override
+  public boolean generatedKeyAlwaysReturned() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsResultSetHoldability(int holdability) {
+    return holdability == ResultSet.HOLD_CURSORS_OVER_COMMIT;
+  }
+
+  @Override
+  public int getResultSetHoldability() {
+    return ResultSet.HOLD_CURSORS_OVER_COMMIT;
+  }
+
+  @Override
+  public boolean locatorsUpdateCopy() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsStatementPooling() {
+    return false;
+  }
+
+  @Override
+  public RowIdLifetime getRowIdLifetime() {
+    return RowIdLifetime.ROWID_UNSUPPORTED;
+  }
+
+  @Override
+  public boolean supportsStoredFunctionsUsingCallSyntax() {
+    return false;
+  }
+
+  @Override
+  public boolean autoCommitFailureClosesAllResultSets() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsRefCursors() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsSharding() {
+    return false;
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) return iface.cast(this);
+    throw new SQLException("Not a wrapper for " + iface.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+}
@@ -0,0 +1,104 @@
+package com.leaf.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Decodes a query response body into rows. The decoder for a response is chosen by its {@code
+ * Content-Type}; see {@link LeafDecoders}.
+ *
+ * <p>Extra decoders are found with {@link java.util.ServiceLoader}. They are consulted ahead of the
+ * built-in Arrow, NDJSON and JSON decoders, and their media types are advertised first in the
+ * {@code Accept} header. Implementations need a public no-argument constructor and must be
+ * thread-safe, since one instance decodes every response of its media types.
+ */
+public interface LeafDecoder {
+  /**
+   * Media types this decoder handles.
+   *
+   * @return lower-case media types without parameters, e.g. {@code application/json}
+   */
+  List<String> mediaTypes();
+
+  /**
+   * Reads every row of {@code body} into {@code rows}.
+   *
+   * @param body the response body; the driver closes it
+   * @param rows receives the columns and rows
+   * @throws IOException if the body cannot be read
+   * @throws SQLException if the body is malformed or the rows cannot be stored
+   */
+  void decode(InputStream body, Rows rows) throws IOException, SQLException;
+
+  /**
+   * Receives a decoded result column by column. Cells are written into the current row; cells left
+   * unset when {@link #endRow()} is called read as NULL, and columns added part-way through are
+   * NULL for every earlier row. Column types are inferred from the values written.
+   */
+  interface Rows {
+    /**
+     * Adds a column after the existing ones.
+     *
+     * @param name the column label
+     * @return the column's 0-based ordinal
+     */
+    int addColumn(String name);
+
+    /**
+     * Columns added so far.
+     *
+     * @return the column count
+     */
+    int columnCount();
+
+    /**
+     * Writes a cell of the current row.
+     *
+     * @param column 0-based ordinal
+     * @param value a {@code String}, boxed primitive, {@code BigDecimal}, {@code byte[]}, {@code
+     *     java.sql} date/time value or {@link LeafGeometry}; null leaves the cell NULL
+     */
+    void set(int column, Object value);
+
+    /**
+     * Writes an {@code INTEGER} cell of the current row without boxing.
+     *
+     * @param column 0-based ordinal
+     * @param value the value
+     */
+    void setInt(int column, int value);
+
+    /**
+     * Writes a {@code BIGINT} cell of the current row without boxing.
+     *
+     * @param column 0-based ordinal
+     * @param value the value
+     */
+    void setLong(int column, long value);
+
+    /**
+     * Writes a {@code DOUBLE} cell of the current row without boxing.
+     *
+     * @param column 0-based ordinal
+     * @param value the value
+     */
+    void setDouble(int column, double value);
+
+    /**
+     * Writes a {@code BOOLEAN} cell of the current row without boxing.
+     *
+     * @param column 0-based ordinal
+     * @param value the value
+     */
+    void setBoolean(int column, boolean value);
+
+    /**
+     * Ends the current row and starts the next.
+     *
+     * @throws SQLException if buffered rows could not be spilled to disk
+     */
+    void endRow() throws SQLException;
+  }
+}
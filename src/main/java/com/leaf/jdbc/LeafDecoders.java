@@ -0,0 +1,82 @@
+package com.leaf.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of {@link LeafDecoder}s, in order of preference: those registered with {@link
+ * ServiceLoader} first, then the built-in ones. Each built-in text format has a default variant
+ * decoding fractional numbers to {@code double} and an exact one decoding them to {@code
+ * BigDecimal}.
+ */
+final class LeafDecoders {
+  private static final Logger LOG = Logger.getLogger(LeafDecoders.class.getName());
+  private static final List<LeafDecoder> SERVICES = loadServices();
+  static final LeafDecoder JSON = new LeafJsonDecoder(LeafTransport.mapper(), false);
+  private static final LeafDecoder ARROW = new LeafArrowDecoder();
+  private static final List<LeafDecoder> BUILT_IN =
+      List.of(ARROW, new LeafNdjsonDecoder(LeafTransport.mapper(), false), JSON);
+  private static final List<LeafDecoder> EXACT =
+      List.of(
+          ARROW,
+          new LeafNdjsonDecoder(LeafTransport.mapper(), true),
+          new LeafJsonDecoder(LeafTransport.mapper(), true));
+
+  /** {@code Accept} header value advertising every format by preference. */
+  static final String ACCEPT = accept();
+
+  private LeafDecoders() {}
+
+  /** Returns the decoder for a {@code Content-Type} header value, falling back to JSON. */
+  static LeafDecoder forContentType(String contentType, boolean exactDecimals) {
+    List<LeafDecoder> decoders = exactDecimals ? EXACT : BUILT_IN;
+    LeafDecoder json = decoders.get(decoders.size() - 1);
+    if (contentType == null) return json;
+    int semicolon = contentType.indexOf(';');
+    String mediaType =
+        (semicolon < 0 ? contentType : contentType.substring(0, semicolon))
+            .trim()
+            .toLowerCase(Locale.ROOT);
+    for (LeafDecoder decoder : SERVICES) {
+      if (decoder.mediaTypes().contains(mediaType)) return decoder;
+    }
+    for (LeafDecoder decoder : decoders) {
+      if (decoder.mediaTypes().contains(mediaType)) return decoder;
+    }
+    return json;
+  }
+
+  private static List<LeafDecoder> loadServices() {
+    List<LeafDecoder> services = new ArrayList<>();
+    try {
+      for (LeafDecoder decoder :
+          ServiceLoader.load(LeafDecoder.class, LeafDecoder.class.getClassLoader())) {
+        services.add(decoder);
+      }
+    } catch (ServiceConfigurationError e) {
+      LOG.log(Level.WARNING, "Could not load result decoders", e);
+    }
+    return List.copyOf(services);
+  }
+
+  private static String accept() {
+    List<LeafDecoder> decoders = new ArrayList<>(SERVICES);
+    decoders.addAll(BUILT_IN);
+    StringBuilder out = new StringBuilder();
+    int quality = 10;
+    for (LeafDecoder decoder : decoders) {
+      for (String mediaType : decoder.mediaTypes()) {
+        if (out.length() > 0) out.append(", ");
+        out.append(mediaType);
+        if (quality < 10) out.append(";q=0.").append(quality);
+      }
+      quality = Math.max(1, quality - 1);
+    }
+    return out.toString();
+  }
+}
@@ -8,7 +8,9 @@ import java.sql.SQLException;
 import java.util.Properties;
 import java.util.logging.Logger;
 
+/** JDBC driver for the Leaf API, registered with {@link DriverManager} when the class loads. */
 public final class LeafDriver implements Driver {
+  /** Prefix of the URLs this driver accepts. */
   public static final String JDBC_URL_PREFIX = "jdbc:leaf:";
 
   static {
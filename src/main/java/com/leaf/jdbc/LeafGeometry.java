@@ -0,0 +1,775 @@
+package com.leaf.jdbc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * An immutable 2D or 3D geometry whose coordinates are kept as one packed {@code double[]} ({@code
+ * x, y[, z]} per position) instead of text. Obtained with {@code resultSet.getObject(column,
+ * LeafGeometry.class)}, which accepts GeoJSON geometries, WKT or EWKT text, and WKB or EWKB (as
+ * bytes or hex text).
+ *
+ * <p>GeoJSON geometry objects in a response are decoded straight into this form; {@code getString}
+ * and {@code getObject} return their GeoJSON text and {@code getBytes} their WKB, produced on
+ * demand. WKT and WKB values keep the text or bytes they arrived as and are parsed only when
+ * requested, once per cell.
+ *
+ * <p>Only the six simple feature types are supported; SRIDs and M ordinates are dropped.
+ */
+public final class LeafGeometry {
+  /** Simple feature geometry types, with their GeoJSON names and WKB codes. */
+  public enum Type {
+    /** A single position. */
+    POINT("Point", 1),
+    /** A sequence of positions. */
+    LINESTRING("LineString", 2),
+    /** An exterior ring followed by any interior rings. */
+    POLYGON("Polygon", 3),
+    /** A collection of points. */
+    MULTIPOINT("MultiPoint", 4),
+    /** A collection of line strings. */
+    MULTILINESTRING("MultiLineString", 5),
+    /** A collection of polygons. */
+    MULTIPOLYGON("MultiPolygon", 6);
+
+    private final String geoJsonName;
+    private final int wkbCode;
+
+    Type(String geoJsonName, int wkbCode) {
+      this.geoJsonName = geoJsonName;
+      this.wkbCode = wkbCode;
+    }
+
+    /** Nesting depth of the GeoJSON {@code coordinates} array. */
+    private int depth() {
+      switch (this) {
+        case POINT:
+          return 1;
+        case LINESTRING:
+        case MULTIPOINT:
+          return 2;
+        case POLYGON:
+        case MULTILINESTRING:
+          return 3;
+        default:
+          return 4;
+      }
+    }
+
+    static Type forGeoJson(String name) {
+      for (Type t : values()) {
+        if (t.geoJsonName.equals(name)) return t;
+      }
+      return null;
+    }
+
+    static Type forWkt(String name) {
+      for (Type t : values()) {
+        if (t.name().equalsIgnoreCase(name)) return t;
+      }
+      return null;
+    }
+
+    static Type forWkb(int code) {
+      for (Type t : values()) {
+        if (t.wkbCode == code) return t;
+      }
+      return null;
+    }
+  }
+
+  private static final int[] NONE = new int[0];
+
+  private final Type type;
+  private final int dimension;
+  private final double[] coordinates;
+  // End position of each ring or line (POLYGON, MULTILINESTRING, MULTIPOLYGON)
+  private final int[] ringEnds;
+  // End ring of each polygon (MULTIPOLYGON)
+  private final int[] polygonEnds;
+
+  private LeafGeometry(
+      Type type, int dimension, double[] coordinates, int[] ringEnds, int[] polygonEnds) {
+    this.type = type;
+    this.dimension = dimension;
+    this.coordinates = coordinates;
+    this.ringEnds = ringEnds;
+    this.polygonEnds = polygonEnds;
+  }
+
+  /**
+   * The geometry type.
+   *
+   * @return the type
+   */
+  public Type type() {
+    return type;
+  }
+
+  /**
+   * Ordinates per position.
+   *
+   * @return 2, or 3 when positions carry a Z ordinate
+   */
+  public int dimension() {
+    return dimension;
+  }
+
+  /**
+   * Whether the geometry has no positions, as in {@code POINT EMPTY}.
+   *
+   * @return true if there are no coordinates
+   */
+  public boolean isEmpty() {
+    return coordinates.length == 0;
+  }
+
+  /**
+   * Total number of positions across all parts.
+   *
+   * @return the position count
+   */
+  public int numPoints() {
+    return coordinates.length / dimension;
+  }
+
+  /**
+   * X, or longitude, of a position.
+   *
+   * @param point 0-based position index across all parts
+   * @return the ordinate
+   */
+  public double x(int point) {
+    return coordinates[point * dimension];
+  }
+
+  /**
+   * Y, or latitude, of a position.
+   *
+   * @param point 0-based position index across all parts
+   * @return the ordinate
+   */
+  public double y(int point) {
+    return coordinates[point * dimension + 1];
+  }
+
+  /**
+   * Z of a position.
+   *
+   * @param point 0-based position index across all parts
+   * @return the ordinate, or NaN for 2D geometries
+   */
+  public double z(int point) {
+    return dimension == 3 ? coordinates[point * dimension + 2] : Double.NaN;
+  }
+
+  /**
+   * Copy of the packed coordinates, {@link #dimension()} values per position.
+   *
+   * @return the coordinates
+   */
+  public double[] coordinates() {
+    return coordinates.clone();
+  }
+
+  /** Approximate heap footprint, used for cache and spill budgets. */
+  long estimatedBytes() {
+    return 48L + coordinates.length * 8L + (ringEnds.length + polygonEnds.length) * 4L;
+  }
+
+  // ---- Decoding ----
+
+  /**
+   * Parses GeoJSON geometry text, WKT or EWKT, or hex-encoded WKB or EWKB.
+   *
+   * @param text geometry in any of the supported text forms
+   * @return the decoded geometry
+   * @throws IllegalArgumentException if the text is not a supported geometry
+   */
+  public static LeafGeometry parse(String text) {
+    String s = text.trim();
+    if (s.startsWith("{")) {
+      try (JsonParser parser = LeafTransport.mapper().createParser(s)) {
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+          LeafGeometry geometry = readGeoJson(parser, false);
+          if (geometry != null) return geometry;
+        }
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Invalid GeoJSON geometry", e);
+      }
+      throw new IllegalArgumentException("Not a GeoJSON geometry: " + s);
+    }
+    if (isHex(s)) {
+      byte[] bytes = new byte[s.length() / 2];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
+      }
+      return fromWkb(bytes);
+    }
+    return new WktReader(s).read();
+  }
+
+  private static boolean isHex(String s) {
+    if (s.isEmpty() || s.length() % 2 != 0) return false;
+    for (int i = 0; i < s.length(); i++) {
+      if (Character.digit(s.charAt(i), 16) < 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Decodes ISO WKB or PostGIS EWKB.
+   *
+   * @param wkb geometry in either byte order
+   * @return the decoded geometry
+   * @throws IllegalArgumentException if the bytes are not a supported geometry
+   */
+  public static LeafGeometry fromWkb(byte[] wkb) {
+    try {
+      ByteBuffer in = ByteBuffer.wrap(wkb);
+      Builder b = new Builder();
+      Type type = readWkb(in, b, 0);
+      return b.build(type);
+    } catch (java.nio.BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated WKB", e);
+    }
+  }
+
+  /**
+   * Reads a GeoJSON geometry object whose opening brace is the current token, consuming tokens up
+   * to and including its closing brace. Members may come in any order; coordinates seen ahead of
+   * {@code type} are buffered until the type is known.
+   *
+   * @param exact if true, also return null when {@link #toGeoJson()} would not give back the same
+   *     geometry: other members such as {@code bbox}, or positions that are not all 2D or all 3D
+   * @return the geometry, or null if the object is not a supported geometry
+   */
+  static LeafGeometry readGeoJson(JsonParser parser, boolean exact) throws IOException {
+    Builder b = new Builder();
+    Type type = null;
+    TokenBuffer coordinates = null;
+    boolean complete = true;
+    boolean hasCoordinates = false;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken token = parser.nextToken();
+      if (field.equals("type") && token == JsonToken.VALUE_STRING) {
+        type = Type.forGeoJson(parser.getText());
+      } else if (field.equals("coordinates") && token == JsonToken.START_ARRAY) {
+        hasCoordinates = true;
+        if (type != null) {
+          complete &= readGeoJsonCoordinates(parser, b, type.depth());
+          continue;
+        }
+        coordinates = new TokenBuffer(parser);
+        coordinates.copyCurrentStructure(parser);
+      } else {
+        complete = false;
+        parser.skipChildren();
+      }
+    }
+    if (type == null) return null;
+    if (coordinates != null) {
+      try (JsonParser buffered = coordinates.asParser()) {
+        buffered.nextToken();
+        complete &= readGeoJsonCoordinates(buffered, b, type.depth());
+      }
+    }
+    if (exact && !(complete && hasCoordinates)) return null;
+    return b.build(type);
+  }
+
+  // depth 1 is a position; deeper arrays close a ring at depth 3 and a polygon at depth 4.
+  // Returns false if any ordinate was dropped, padded or not a number.
+  private static boolean readGeoJsonCoordinates(JsonParser parser, Builder b, int depth)
+      throws IOException {
+    boolean complete = true;
+    if (depth == 1) {
+      double[] position = new double[3];
+      int n = 0;
+      JsonToken token;
+      while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+        complete &= token.isNumeric() && n < 3;
+        if (n < 3) position[n] = token.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+        parser.skipChildren();
+        n++;
+      }
+      if (n > 0) b.add(position, Math.min(n, 3));
+      return complete && n >= 2 && n == b.dimension;
+    }
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+      if (token != JsonToken.START_ARRAY) {
+        complete = false;
+        parser.skipChildren();
+        continue;
+      }
+      complete &= readGeoJsonCoordinates(parser, b, depth - 1);
+      if (depth == 3) b.endRing();
+      if (depth == 4) b.endPolygon();
+    }
+    return complete;
+  }
+
+  private static Type readWkb(ByteBuffer in, Builder b, int nested) {
+    in.order(in.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    int code = in.getInt();
+    boolean z = (code & 0x80000000) != 0;
+    boolean m = (code & 0x40000000) != 0;
+    if ((code & 0x20000000) != 0) in.getInt(); // EWKB SRID
+    code &= 0x0FFFFFFF;
+    int iso = code / 1000;
+    z |= iso == 1 || iso == 3;
+    m |= iso == 2 || iso == 3;
+    Type type = Type.forWkb(code % 1000);
+    if (type == null) throw new IllegalArgumentException("Unsupported WKB geometry type " + code);
+    int dims = 2 + (z ? 1 : 0) + (m ? 1 : 0);
+    int keep = z ? 3 : 2;
+    double[] position = new double[dims];
+    switch (type) {
+      case POINT:
+        for (int i = 0; i < dims; i++) position[i] = in.getDouble();
+        // Empty points are encoded with NaN coordinates
+        if (!Double.isNaN(position[0]) || !Double.isNaN(position[1])) b.add(position, keep);
+        else b.dimension(keep);
+        break;
+      case LINESTRING:
+        readWkbPositions(in, b, position, keep);
+        if (nested == Type.MULTILINESTRING.wkbCode) b.endRing();
+        break;
+      case POLYGON:
+        for (int rings = in.getInt(); rings > 0; rings--) {
+          readWkbPositions(in, b, position, keep);
+          b.endRing();
+        }
+        if (nested == Type.MULTIPOLYGON.wkbCode) b.endPolygon();
+        break;
+      default:
+        for (int parts = in.getInt(); parts > 0; parts--) {
+          ByteOrder order = in.order();
+          readWkb(in, b, type.wkbCode);
+          in.order(order);
+        }
+        b.dimension(keep);
+    }
+    return type;
+  }
+
+  private static void readWkbPositions(ByteBuffer in, Builder b, double[] position, int keep) {
+    for (int n = in.getInt(); n > 0; n--) {
+      for (int i = 0; i < position.length; i++) position[i] = in.getDouble();
+      b.add(position, keep);
+    }
+  }
+
+  // ---- Encoding ----
+
+  /**
+   * Encodes the geometry as ISO WKB in little-endian byte order; Z geometries use the 1000-offset
+   * type codes.
+   *
+   * @return the WKB bytes
+   */
+  public byte[] toWkb() {
+    int size = wkbSize();
+    ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    int code = type.wkbCode + (dimension == 3 ? 1000 : 0);
+    header(out, code);
+    switch (type) {
+      case POINT:
+        if (isEmpty()) {
+          for (int i = 0; i < dimension; i++) out.putDouble(Double.NaN);
+        } else {
+          putPositions(out, 0, 1);
+        }
+        break;
+      case LINESTRING:
+        out.putInt(numPoints());
+        putPositions(out, 0, numPoints());
+        break;
+      case POLYGON:
+        putRings(out, 0, ringEnds.length);
+        break;
+      case MULTIPOINT:
+        out.putInt(numPoints());
+        for (int p = 0; p < numPoints(); p++) {
+          header(out, code - type.wkbCode + Type.POINT.wkbCode);
+          putPositions(out, p, p + 1);
+        }
+        break;
+      case MULTILINESTRING:
+        out.putInt(ringEnds.length);
+        for (int r = 0; r < ringEnds.length; r++) {
+          header(out, code - type.wkbCode + Type.LINESTRING.wkbCode);
+          int start = ringStart(r);
+          out.putInt(ringEnds[r] - start);
+          putPositions(out, start, ringEnds[r]);
+        }
+        break;
+      default:
+        out.putInt(polygonEnds.length);
+        for (int p = 0; p < polygonEnds.length; p++) {
+          header(out, code - type.wkbCode + Type.POLYGON.wkbCode);
+          putRings(out, p == 0 ? 0 : polygonEnds[p - 1], polygonEnds[p]);
+        }
+    }
+    return out.array();
+  }
+
+  private int wkbSize() {
+    int header = 5;
+    int points = coordinates.length * 8;
+    switch (type) {
+      case POINT:
+        return header + dimension * 8;
+      case LINESTRING:
+        return header + 4 + points;
+      case POLYGON:
+        return header + 4 + ringEnds.length * 4 + points;
+      case MULTIPOINT:
+        return header + 4 + numPoints() * header + points;
+      case MULTILINESTRING:
+        return header + 4 + ringEnds.length * (header + 4) + points;
+      default:
+        return header + 4 + polygonEnds.length * (header + 4) + ringEnds.length * 4 + points;
+    }
+  }
+
+  private static void header(ByteBuffer out, int code) {
+    out.put((byte) 1);
+    out.putInt(code);
+  }
+
+  private void putRings(ByteBuffer out, int fromRing, int toRing) {
+    out.putInt(toRing - fromRing);
+    for (int r = fromRing; r < toRing; r++) {
+      int start = ringStart(r);
+      out.putInt(ringEnds[r] - start);
+      putPositions(out, start, ringEnds[r]);
+    }
+  }
+
+  private void putPositions(ByteBuffer out, int from, int to) {
+    for (int i = from * dimension; i < to * dimension; i++) {
+      out.putDouble(coordinates[i]);
+    }
+  }
+
+  private int ringStart(int ring) {
+    return ring == 0 ? 0 : ringEnds[ring - 1];
+  }
+
+  /**
+   * Encodes the geometry as WKT such as {@code POINT (1 2)} or {@code LINESTRING Z (0 0 1, 1 1 2)}.
+   *
+   * @return the WKT text
+   */
+  public String toWkt() {
+    StringBuilder sb = new StringBuilder(16 + coordinates.length * 12);
+    sb.append(type.name());
+    if (dimension == 3) sb.append(" Z");
+    if (isEmpty()) return sb.append(" EMPTY").toString();
+    sb.append(' ');
+    switch (type) {
+      case POINT:
+      case LINESTRING:
+        appendWktPositions(sb, 0, numPoints(), false);
+        break;
+      case MULTIPOINT:
+        appendWktPositions(sb, 0, numPoints(), true);
+        break;
+      case POLYGON:
+      case MULTILINESTRING:
+        appendWktRings(sb, 0, ringEnds.length);
+        break;
+      default:
+        sb.append('(');
+        for (int p = 0; p < polygonEnds.length; p++) {
+          if (p > 0) sb.append(", ");
+          appendWktRings(sb, p == 0 ? 0 : polygonEnds[p - 1], polygonEnds[p]);
+        }
+        sb.append(')');
+    }
+    return sb.toString();
+  }
+
+  private void appendWktRings(StringBuilder sb, int fromRing, int toRing) {
+    sb.append('(');
+    for (int r = fromRing; r < toRing; r++) {
+      if (r > fromRing) sb.append(", ");
+      appendWktPositions(sb, ringStart(r), ringEnds[r], false);
+    }
+    sb.append(')');
+  }
+
+  private void appendWktPositions(StringBuilder sb, int from, int to, boolean wrapEach) {
+    sb.append('(');
+    for (int p = from; p < to; p++) {
+      if (p > from) sb.append(", ");
+      if (wrapEach) sb.append('(');
+      for (int i = 0; i < dimension; i++) {
+        if (i > 0) sb.append(' ');
+        appendNumber(sb, coordinates[p * dimension + i]);
+      }
+      if (wrapEach) sb.append(')');
+    }
+    sb.append(')');
+  }
+
+  /**
+   * Encodes the geometry as a compact GeoJSON geometry object, e.g. {@code
+   * {"type":"Point","coordinates":[1,2]}}.
+   *
+   * @return the GeoJSON text
+   */
+  public String toGeoJson() {
+    StringBuilder sb = new StringBuilder(40 + coordinates.length * 12);
+    sb.append("{\"type\":\"").append(type.geoJsonName).append("\",\"coordinates\":");
+    switch (type) {
+      case POINT:
+        if (isEmpty()) sb.append("[]");
+        else appendJsonPosition(sb, 0);
+        break;
+      case LINESTRING:
+      case MULTIPOINT:
+        appendJsonPositions(sb, 0, numPoints());
+        break;
+      case POLYGON:
+      case MULTILINESTRING:
+        appendJsonRings(sb, 0, ringEnds.length);
+        break;
+      default:
+        sb.append('[');
+        for (int p = 0; p < polygonEnds.length; p++) {
+          if (p > 0) sb.append(',');
+          appendJsonRings(sb, p == 0 ? 0 : polygonEnds[p - 1], polygonEnds[p]);
+        }
+        sb.append(']');
+    }
+    return sb.append('}').toString();
+  }
+
+  private void appendJsonRings(StringBuilder sb, int fromRing, int toRing) {
+    sb.append('[');
+    for (int r = fromRing; r < toRing; r++) {
+      if (r > fromRing) sb.append(',');
+      appendJsonPositions(sb, ringStart(r), ringEnds[r]);
+    }
+    sb.append(']');
+  }
+
+  private void appendJsonPositions(StringBuilder sb, int from, int to) {
+    sb.append('[');
+    for (int p = from; p < to; p++) {
+      if (p > from) sb.append(',');
+      appendJsonPosition(sb, p);
+    }
+    sb.append(']');
+  }
+
+  private void appendJsonPosition(StringBuilder sb, int p) {
+    sb.append('[');
+    for (int i = 0; i < dimension; i++) {
+      if (i > 0) sb.append(',');
+      appendNumber(sb, coordinates[p * dimension + i]);
+    }
+    sb.append(']');
+  }
+
+  private static void appendNumber(StringBuilder sb, double v) {
+    if (v == Math.rint(v) && Math.abs(v) < 1e15) {
+      sb.append((long) v);
+    } else {
+      sb.append(v);
+    }
+  }
+
+  /** Returns the WKT form. */
+  @Override
+  public String toString() {
+    return toWkt();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof LeafGeometry)) return false;
+    LeafGeometry g = (LeafGeometry) o;
+    return type == g.type
+        && dimension == g.dimension
+        && Arrays.equals(coordinates, g.coordinates)
+        && Arrays.equals(ringEnds, g.ringEnds)
+        && Arrays.equals(polygonEnds, g.polygonEnds);
+  }
+
+  @Override
+  public int hashCode() {
+    return (type.hashCode() * 31 + dimension) * 31 + Arrays.hashCode(coordinates);
+  }
+
+  /** Collects packed positions and part boundaries while decoding. */
+  private static final class Builder {
+    private double[] coordinates = new double[8];
+    private int size;
+    private int dimension;
+    private int[] ringEnds = NONE;
+    private int rings;
+    private int[] polygonEnds = NONE;
+    private int polygons;
+
+    void dimension(int dims) {
+      if (dimension == 0) dimension = dims;
+    }
+
+    void add(double[] position, int dims) {
+      dimension(dims);
+      if (size + dimension > coordinates.length) {
+        coordinates = Arrays.copyOf(coordinates, Math.max(size + dimension, size * 2));
+      }
+      for (int i = 0; i < dimension; i++) {
+        // Positions with fewer ordinates than the first one get a NaN Z
+        coordinates[size++] = i < dims ? position[i] : Double.NaN;
+      }
+    }
+
+    void endRing() {
+      if (rings == ringEnds.length) ringEnds = Arrays.copyOf(ringEnds, Math.max(4, rings * 2));
+      ringEnds[rings++] = dimension == 0 ? 0 : size / dimension;
+    }
+
+    void endPolygon() {
+      if (polygons == polygonEnds.length) {
+        polygonEnds = Arrays.copyOf(polygonEnds, Math.max(4, polygons * 2));
+      }
+      polygonEnds[polygons++] = rings;
+    }
+
+    LeafGeometry build(Type type) {
+      return new LeafGeometry(
+          type,
+          dimension == 0 ? 2 : dimension,
+          Arrays.copyOf(coordinates, size),
+          Arrays.copyOf(ringEnds, rings),
+          Arrays.copyOf(polygonEnds, polygons));
+    }
+  }
+
+  /** Recursive-descent reader for WKT and EWKT. */
+  private static final class WktReader {
+    private final String text;
+    private int pos;
+    private final Builder builder = new Builder();
+    private int dims = 2;
+    private int keep = 2;
+
+    WktReader(String text) {
+      this.text = text;
+    }
+
+    LeafGeometry read() {
+      if (text.regionMatches(true, 0, "SRID=", 0, 5)) {
+        int semicolon = text.indexOf(';');
+        if (semicolon < 0) throw error();
+        pos = semicolon + 1;
+      }
+      Type type = Type.forWkt(word());
+      if (type == null) throw error();
+      String modifier = peekWord();
+      if (modifier.equalsIgnoreCase("Z") || modifier.equalsIgnoreCase("ZM")) {
+        dims = modifier.length() + 2;
+        keep = 3;
+        word();
+      } else if (modifier.equalsIgnoreCase("M")) {
+        dims = 3;
+        word();
+      }
+      if (peekWord().equalsIgnoreCase("EMPTY")) {
+        word();
+        builder.dimension(keep);
+      } else {
+        body(type.depth(), type == Type.MULTIPOINT);
+      }
+      skipSpace();
+      if (pos != text.length()) throw error();
+      return builder.build(type);
+    }
+
+    // Same depth scheme as GeoJSON; a WKT depth-1 list holds several bare positions
+    private void body(int depth, boolean multiPoint) {
+      expect('(');
+      do {
+        if (depth <= 2 && !(multiPoint && peek() == '(')) {
+          position();
+        } else if (multiPoint) {
+          expect('(');
+          position();
+          expect(')');
+        } else {
+          body(depth - 1, false);
+          if (depth == 3) builder.endRing();
+          if (depth == 4) builder.endPolygon();
+        }
+      } while (accept(','));
+      expect(')');
+    }
+
+    private void position() {
+      double[] position = new double[dims];
+      for (int i = 0; i < dims; i++) {
+        skipSpace();
+        int start = pos;
+        while (pos < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos)) >= 0) pos++;
+        try {
+          position[i] = Double.parseDouble(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+          throw error();
+        }
+      }
+      // Ordinates past Z are measures, which are dropped
+      builder.add(position, keep);
+    }
+
+    private String word() {
+      skipSpace();
+      int start = pos;
+      while (pos < text.length() && Character.isLetter(text.charAt(pos))) pos++;
+      return text.substring(start, pos).toUpperCase(Locale.ROOT);
+    }
+
+    private String peekWord() {
+      int saved = pos;
+      String w = word();
+      pos = saved;
+      return w;
+    }
+
+    private char peek() {
+      skipSpace();
+      return pos < text.length() ? text.charAt(pos) : 0;
+    }
+
+    private boolean accept(char c) {
+      if (peek() != c) return false;
+      pos++;
+      return true;
+    }
+
+    private void expect(char c) {
+      if (!accept(c)) throw error();
+    }
+
+    private void skipSpace() {
+      while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error() {
+      return new IllegalArgumentException("Invalid WKT at offset " + pos + ": " + text);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.leaf.jdbc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of nanosecond durations. Each power of two is split into four buckets, so a
+ * quantile is reported within about 12% of the true value; recording is a few atomic adds.
+ */
+final class LeafHistogram {
+  private static final int SUB_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    buckets.incrementAndGet(index(nanos));
+    count.increment();
+    sum.add(nanos);
+    max.accumulate(nanos);
+  }
+
+  long count() {
+    return count.sum();
+  }
+
+  long sum() {
+    return sum.sum();
+  }
+
+  long max() {
+    return max.get();
+  }
+
+  /** The value at quantile {@code q} (0..1), or 0 if nothing was recorded. */
+  long quantile(double q) {
+    long[] counts = new long[buckets.length()];
+    long total = 0;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) return 0;
+    long target = Math.max(1, (long) Math.ceil(q * total));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        // Middle of the bucket, never above the largest value recorded
+        long low = lowerBound(i);
+        long high = i + 1 < counts.length ? lowerBound(i + 1) : Long.MAX_VALUE;
+        // The top buckets' bounds overflow
+        if (high < low) high = Long.MAX_VALUE;
+        return Math.min(low + (high - low) / 2, max());
+      }
+    }
+    return max();
+  }
+
+  void reset() {
+    for (int i = 0; i < buckets.length(); i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.reset();
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+  }
+
+  static long lowerBound(int index) {
+    if (index < SUB_BUCKETS) return index;
+    int exponent = (index >> SUB_BITS) + SUB_BITS - 1;
+    long sub = index & (SUB_BUCKETS - 1);
+    return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+  }
+}
@@ -10,10 +10,12 @@ import java.util.Properties;
 final class LeafJdbcUrl {
   private final String username;
   private final String password;
+  private final Map<String, String> properties;
 
-  private LeafJdbcUrl(String username, String password) {
+  private LeafJdbcUrl(String username, String password, Map<String, String> properties) {
     this.username = username;
     this.password = password;
+    this.properties = properties;
   }
 
   static LeafJdbcUrl parse(String url, Properties info) throws SQLException {
@@ -68,7 +70,13 @@ final class LeafJdbcUrl {
       throw new SQLException("Missing required property 'password'");
     }
 
-    return new LeafJdbcUrl(username, password);
+    // Connection properties override URL parameters, same precedence as the credentials above
+    Map<String, String> properties = new HashMap<>(params);
+    for (String name : info.stringPropertyNames()) {
+      properties.put(name, info.getProperty(name));
+    }
+
+    return new LeafJdbcUrl(username, password, properties);
   }
 
   private static String firstNonEmpty(String a, String b) {
@@ -84,4 +92,34 @@ final class LeafJdbcUrl {
   String password() {
     return password;
   }
+
+  String property(String name) {
+    String value = properties.get(name);
+    return value == null || value.isBlank() ? null : value.trim();
+  }
+
+  boolean booleanProperty(String name, boolean defaultValue) {
+    String value = property(name);
+    return value == null ? defaultValue : Boolean.parseBoolean(value);
+  }
+
+  int intProperty(String name, int defaultValue) throws SQLException {
+    String value = property(name);
+    if (value == null) return defaultValue;
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new SQLException("Invalid value for property '" + name + "': " + value, e);
+    }
+  }
+
+  long longProperty(String name, long defaultValue) throws SQLException {
+    String value = property(name);
+    if (value == null) return defaultValue;
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new SQLException("Invalid value for property '" + name + "': " + value, e);
+    }
+  }
 }
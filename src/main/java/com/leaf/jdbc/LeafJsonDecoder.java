@@ -0,0 +1,290 @@
+package com.leaf.jdbc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming decoder for the API's JSON shapes: an array of objects, the same array wrapped in
+ * {@code {"data": ...}}, or {@code {"columns": [...], "rows": [[...], ...]}}. Rows go straight from
+ * the parser into the result; only {@code rows} sent ahead of {@code columns} are buffered.
+ *
+ * <p>For object rows, columns are the union of all keys in order of first appearance.
+ *
+ * <p>Fractional numbers decode to {@code double} and are written to primitive column storage
+ * without boxing. With {@code exactDecimals} they decode to {@link BigDecimal} instead, keeping the
+ * digits and scale sent by the server.
+ */
+final class LeafJsonDecoder implements LeafDecoder {
+  private static final ObjectReader EXACT_TREES =
+      LeafTransport.mapper()
+          .reader()
+          .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+          .without(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES);
+
+  private final ObjectMapper mapper;
+  private final boolean exactDecimals;
+
+  LeafJsonDecoder(ObjectMapper mapper, boolean exactDecimals) {
+    this.mapper = mapper;
+    this.exactDecimals = exactDecimals;
+  }
+
+  @Override
+  public List<String> mediaTypes() {
+    return List.of("application/json");
+  }
+
+  @Override
+  public void decode(InputStream body, Rows rows) throws IOException, SQLException {
+    try (JsonParser parser = mapper.createParser(body)) {
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY) {
+        readObjectRows(parser, rows);
+      } else if (token == JsonToken.START_OBJECT) {
+        readWrapped(parser, rows);
+      }
+      // Empty body or scalar root: no rows
+    }
+  }
+
+  /** Reads array elements up to the closing bracket; each element is one row. */
+  private void readObjectRows(JsonParser parser, Rows rows) throws IOException, SQLException {
+    KeyLayout layout = new KeyLayout();
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+      if (token == JsonToken.START_OBJECT) {
+        readObject(parser, rows, layout, exactDecimals);
+      } else {
+        // Non-object elements carry no columns and decode as an all-NULL row
+        parser.skipChildren();
+      }
+      rows.endRow();
+    }
+  }
+
+  /** Reads the fields of the object at the current token into the rows's current row. */
+  static void readObject(JsonParser parser, Rows rows, KeyLayout layout, boolean exactDecimals)
+      throws IOException {
+    int position = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      int ordinal = layout.ordinal(position, name);
+      if (ordinal < 0) {
+        ordinal = rows.addColumn(name);
+        layout.add(position, name, ordinal);
+      }
+      position++;
+      parser.nextToken();
+      readCell(parser, rows, ordinal, exactDecimals);
+    }
+  }
+
+  /** Writes the value at the current token to a cell, keeping numbers and booleans unboxed. */
+  static void readCell(JsonParser parser, Rows rows, int ordinal, boolean exactDecimals)
+      throws IOException {
+    switch (parser.currentToken()) {
+      case VALUE_NULL:
+        return;
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        rows.setBoolean(ordinal, parser.getBooleanValue());
+        return;
+      case VALUE_NUMBER_FLOAT:
+        if (!exactDecimals) {
+          rows.setDouble(ordinal, parser.getDoubleValue());
+          return;
+        }
+        break;
+      case VALUE_NUMBER_INT:
+        JsonParser.NumberType type = parser.getNumberType();
+        if (type == JsonParser.NumberType.INT) {
+          rows.setInt(ordinal, parser.getIntValue());
+          return;
+        }
+        if (type == JsonParser.NumberType.LONG) {
+          rows.setLong(ordinal, parser.getLongValue());
+          return;
+        }
+        break;
+      default:
+    }
+    rows.set(ordinal, readValue(parser, exactDecimals));
+  }
+
+  private void readWrapped(JsonParser parser, Rows rows) throws IOException, SQLException {
+    boolean haveColumns = false;
+    JsonNode rowsBeforeColumns = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if (field.equals("data") && value == JsonToken.START_ARRAY && !haveColumns) {
+        readObjectRows(parser, rows);
+        return;
+      }
+      if (field.equals("columns") && value == JsonToken.START_ARRAY) {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          rows.addColumn(parser.getValueAsString());
+        }
+        haveColumns = true;
+        if (rowsBeforeColumns != null) {
+          // Rows arrived before their column names and had to be buffered
+          int width = rows.columnCount();
+          for (JsonNode row : rowsBeforeColumns) {
+            for (int i = 0; i < width; i++) {
+              rows.set(i, LeafStatement.jsonToJava(row.get(i), exactDecimals));
+            }
+            rows.endRow();
+          }
+          rowsBeforeColumns = null;
+        }
+        continue;
+      }
+      if (field.equals("rows") && value == JsonToken.START_ARRAY) {
+        if (!haveColumns) {
+          rowsBeforeColumns = readTree(parser, exactDecimals);
+          continue;
+        }
+        readArrayRows(parser, rows);
+        continue;
+      }
+      parser.skipChildren();
+    }
+  }
+
+  private void readArrayRows(JsonParser parser, Rows rows) throws IOException, SQLException {
+    int width = rows.columnCount();
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+      if (token == JsonToken.START_ARRAY) {
+        int i = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          if (i < width) {
+            readCell(parser, rows, i, exactDecimals);
+          } else {
+            parser.skipChildren();
+          }
+          i++;
+        }
+      } else {
+        parser.skipChildren();
+      }
+      rows.endRow();
+    }
+  }
+
+  /**
+   * Key to column ordinal table for object rows. The key order of the previous object is
+   * remembered, so objects repeating it resolve each key with a reference comparison (the parser
+   * canonicalizes field names) rather than a hash lookup.
+   */
+  static final class KeyLayout {
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private String[] keys = new String[16];
+    private int[] keyOrdinals = new int[16];
+
+    /** Ordinal of {@code key}, found at {@code position} in the current object, or -1 if new. */
+    int ordinal(int position, String key) {
+      if (position < keys.length) {
+        String previous = keys[position];
+        if (previous == key || key.equals(previous)) return keyOrdinals[position];
+      }
+      Integer ordinal = ordinals.get(key);
+      if (ordinal == null) return -1;
+      remember(position, key, ordinal);
+      return ordinal;
+    }
+
+    /** Registers a new key; keys already known keep their first ordinal. */
+    void add(int position, String key, int ordinal) {
+      ordinals.putIfAbsent(key, ordinal);
+      remember(position, key, ordinals.get(key));
+    }
+
+    private void remember(int position, String key, int ordinal) {
+      if (position >= keys.length) {
+        int size = Math.max(position + 1, keys.length * 2);
+        keys = Arrays.copyOf(keys, size);
+        keyOrdinals = Arrays.copyOf(keyOrdinals, size);
+      }
+      keys[position] = key;
+      keyOrdinals[position] = ordinal;
+    }
+  }
+
+  /** Buffers the value at the current token as a tree, keeping decimals exact if asked to. */
+  static JsonNode readTree(JsonParser parser, boolean exactDecimals) throws IOException {
+    return exactDecimals ? EXACT_TREES.readTree(parser) : parser.readValueAsTree();
+  }
+
+  /** Decodes the value at the current token with the same mapping as {@code jsonToJava}. */
+  static Object readValue(JsonParser parser, boolean exactDecimals) throws IOException {
+    switch (parser.currentToken()) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NUMBER_INT:
+        switch (parser.getNumberType()) {
+          case INT:
+            return parser.getIntValue();
+          case LONG:
+            return parser.getLongValue();
+          default:
+            return new BigDecimal(parser.getBigIntegerValue());
+        }
+      case VALUE_NUMBER_FLOAT:
+        return exactDecimals ? parser.getDecimalValue() : parser.getDoubleValue();
+      case VALUE_STRING:
+        return parser.getText();
+      case START_OBJECT:
+        return readObjectValue(parser);
+      case START_ARRAY:
+        StringWriter text = new StringWriter();
+        try (JsonGenerator out = parser.getCodec().getFactory().createGenerator(text)) {
+          out.copyCurrentStructure(parser);
+        }
+        return text.toString();
+      default:
+        return parser.getText();
+    }
+  }
+
+  /**
+   * Decodes a GeoJSON geometry object to a {@link LeafGeometry}; any other object, or a geometry
+   * that its GeoJSON text could not be rebuilt from, is returned as compact JSON text.
+   */
+  private static Object readObjectValue(JsonParser parser) throws IOException {
+    TokenBuffer buffer = new TokenBuffer(parser);
+    buffer.copyCurrentStructure(parser);
+    try (JsonParser buffered = buffer.asParser()) {
+      buffered.nextToken();
+      LeafGeometry geometry = LeafGeometry.readGeoJson(buffered, true);
+      if (geometry != null) return geometry;
+    }
+    StringWriter text = new StringWriter();
+    try (JsonParser buffered = buffer.asParser();
+        JsonGenerator out = parser.getCodec().getFactory().createGenerator(text)) {
+      buffered.nextToken();
+      out.copyCurrentStructure(buffered);
+    }
+    return text.toString();
+  }
+}
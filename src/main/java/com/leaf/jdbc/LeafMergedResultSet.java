@@ -0,0 +1,171 @@
+package com.leaf.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Concatenates the results of concurrently running partition queries, reading each partition as
+ * soon as it arrives rather than in submission order. A failed partition cancels the rest.
+ *
+ * <p>Column names and types come from the first partition that returns rows, or failing that from
+ * an empty one. Partitions decode their own columns, so each partition's columns are matched to
+ * these by label; a column a partition lacks reads as NULL, and one only it has is not exposed.
+ */
+final class LeafMergedResultSet extends AbstractLeafResultSet {
+  private final List<CompletableFuture<ResultSet>> parts;
+  private final BlockingQueue<CompletableFuture<ResultSet>> arrived;
+  private final LeafResultSetMetaData metaData;
+  private int pending;
+  private ResultSet current;
+  // 1-based column of current for each merged column, 0 where current lacks it
+  private int[] columns;
+  // The first partition's first row was read to find out whether it is empty
+  private boolean primed;
+
+  private LeafMergedResultSet(
+      Statement statement,
+      List<CompletableFuture<ResultSet>> parts,
+      BlockingQueue<CompletableFuture<ResultSet>> arrived,
+      int pending,
+      ResultSet first,
+      boolean primed)
+      throws SQLException {
+    super(statement);
+    this.parts = parts;
+    this.arrived = arrived;
+    this.pending = pending;
+    this.current = first;
+    this.metaData =
+        first != null
+            ? (LeafResultSetMetaData) first.getMetaData()
+            : new LeafResultSetMetaData(new String[0], new int[0]);
+    this.primed = primed;
+    if (first != null) columns = columnsOf(first);
+  }
+
+  /**
+   * Waits for the first partition with rows and returns a cursor over all partitions, positioned
+   * before its first row.
+   */
+  static LeafMergedResultSet open(Statement statement, List<CompletableFuture<ResultSet>> parts)
+      throws SQLException {
+    BlockingQueue<CompletableFuture<ResultSet>> arrived = new LinkedBlockingQueue<>();
+    for (CompletableFuture<ResultSet> part : parts) {
+      part.whenComplete((rs, error) -> arrived.add(part));
+    }
+    int pending = parts.size();
+    ResultSet empty = null;
+    try {
+      while (pending > 0) {
+        ResultSet rs = take(arrived);
+        pending--;
+        // Empty partitions may decode without the query's columns; prefer one that has rows. A
+        // streamed partition's size is unknown until its first row is read.
+        if (rs.next()) {
+          if (empty != null) empty.close();
+          return new LeafMergedResultSet(statement, parts, arrived, pending, rs, true);
+        }
+        if (empty == null && rs.getMetaData().getColumnCount() > 0) {
+          empty = rs;
+        } else {
+          rs.close();
+        }
+      }
+      return new LeafMergedResultSet(statement, parts, arrived, 0, empty, false);
+    } catch (SQLException | RuntimeException e) {
+      if (empty != null) empty.close();
+      cancel(parts);
+      throw e;
+    }
+  }
+
+  private int[] columnsOf(ResultSet rs) throws SQLException {
+    LeafResultSetMetaData own = (LeafResultSetMetaData) rs.getMetaData();
+    String[] names = metaData.names();
+    int[] mapped = new int[names.length];
+    boolean sameLayout = Arrays.equals(names, own.names());
+    for (int i = 0; i < names.length; i++) {
+      mapped[i] = sameLayout ? i + 1 : own.indexOf(names[i]) + 1;
+    }
+    return mapped;
+  }
+
+  private static ResultSet take(BlockingQueue<CompletableFuture<ResultSet>> arrived)
+      throws SQLException {
+    try {
+      return arrived.take().join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for partition", e);
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+      throw new SQLException("Partition query failed", e.getCause());
+    } catch (CancellationException e) {
+      throw new SQLException("Query was cancelled", "57014", e);
+    }
+  }
+
+  @Override
+  protected boolean advance() throws SQLException {
+    if (primed) {
+      primed = false;
+      return true;
+    }
+    while (current != null) {
+      if (current.next()) return true;
+      current.close();
+      current = null;
+      if (pending == 0) return false;
+      try {
+        current = take(arrived);
+        columns = columnsOf(current);
+      } catch (SQLException e) {
+        cancel(parts);
+        throw e;
+      }
+      pending--;
+    }
+    return false;
+  }
+
+  @Override
+  protected Object value(int columnIndex) throws SQLException {
+    checkColumn(columnIndex, columns.length);
+    int own = columns[columnIndex - 1];
+    return own == 0 ? null : current.getObject(own);
+  }
+
+  @Override
+  public LeafResultSetMetaData getMetaData() {
+    return metaData;
+  }
+
+  @Override
+  protected void release() throws SQLException {
+    cancel(parts);
+    if (current != null) current.close();
+  }
+
+  // Cancels partitions still running and closes results that arrived but were never read
+  private static void cancel(List<CompletableFuture<ResultSet>> parts) {
+    for (CompletableFuture<ResultSet> part : parts) {
+      part.cancel(true);
+      part.thenAccept(LeafMergedResultSet::closeQuietly);
+    }
+  }
+
+  private static void closeQuietly(ResultSet rs) {
+    try {
+      rs.close();
+    } catch (SQLException ignore) {
+    }
+  }
+}
@@ -0,0 +1,380 @@
+package com.leaf.jdbc;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Per-phase query timings and traffic counters for all connections of the driver. Obtain it with
+ * {@code connection.unwrap(LeafMetrics.class)} or read it over JMX as {@code
+ * com.leaf.jdbc:type=LeafMetrics}.
+ *
+ * <p>Streaming result sets count their body toward {@link #getDownload()} when they are closed;
+ * their decoding happens as rows are read and is not timed separately.
+ */
+public final class LeafMetrics implements LeafMetricsMXBean {
+  private static final Logger LOG = Logger.getLogger(LeafMetrics.class.getName());
+  static final String OBJECT_NAME = "com.leaf.jdbc:type=LeafMetrics";
+  private static final LeafMetrics DRIVER = register(new LeafMetrics());
+
+  private final LeafHistogram authentication = new LeafHistogram();
+  private final LeafHistogram timeToFirstByte = new LeafHistogram();
+  private final LeafHistogram download = new LeafHistogram();
+  private final LeafHistogram decode = new LeafHistogram();
+  private final LeafHistogram materialization = new LeafHistogram();
+  private final LeafHistogram query = new LeafHistogram();
+  private final LongAdder failedQueries = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder bytesReceived = new LongAdder();
+  private final LongAdder resultBytes = new LongAdder();
+  private final LongAccumulator largestResult = new LongAccumulator(Math::max, 0);
+
+  private LeafMetrics() {}
+
+  /**
+   * The driver-wide metrics.
+   *
+   * @return the metrics shared by all connections
+   */
+  public static LeafMetrics driver() {
+    return DRIVER;
+  }
+
+  private static LeafMetrics register(LeafMetrics metrics) {
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(metrics, new ObjectName(OBJECT_NAME));
+    } catch (Exception | LinkageError e) {
+      // Typically a second copy of the driver in another class loader
+      LOG.log(Level.FINE, "Could not register " + OBJECT_NAME, e);
+    }
+    return metrics;
+  }
+
+  // ---- Recording ----
+
+  void authenticated(long nanos) {
+    authentication.record(nanos);
+  }
+
+  /** Counts a query as in flight; returns its start time for {@link #queryFinished}. */
+  long queryStarted() {
+    inFlight.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  void queryFinished(long startNanos, boolean failed) {
+    inFlight.decrementAndGet();
+    query.record(System.nanoTime() - startNanos);
+    if (failed) failedQueries.increment();
+  }
+
+  void firstByte(long nanos) {
+    timeToFirstByte.record(nanos);
+  }
+
+  void retried() {
+    retries.increment();
+  }
+
+  void hedged() {
+    hedges.increment();
+  }
+
+  void coalesced() {
+    coalesced.increment();
+  }
+
+  long timeToFirstByteCount() {
+    return timeToFirstByte.count();
+  }
+
+  long timeToFirstByteQuantile(double q) {
+    return timeToFirstByte.quantile(q);
+  }
+
+  void decoded(long nanos) {
+    decode.record(nanos);
+  }
+
+  void materialized(long nanos, long estimatedBytes) {
+    materialization.record(nanos);
+    resultBytes.add(estimatedBytes);
+    largestResult.accumulate(estimatedBytes);
+  }
+
+  /** Wraps a response body so the bytes read and the time blocked reading them are recorded. */
+  CountingStream count(InputStream body) {
+    return new CountingStream(body);
+  }
+
+  /** Response body that records its download once, when closed. */
+  final class CountingStream extends FilterInputStream {
+    private long bytes;
+    private long nanos;
+    private boolean recorded;
+
+    private CountingStream(InputStream in) {
+      super(in);
+    }
+
+    long readNanos() {
+      return nanos;
+    }
+
+    long bytes() {
+      return bytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      long started = System.nanoTime();
+      int b = super.read();
+      nanos += System.nanoTime() - started;
+      if (b >= 0) bytes++;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) throws IOException {
+      long started = System.nanoTime();
+      int n = super.read(buffer, off, len);
+      nanos += System.nanoTime() - started;
+      if (n > 0) bytes += n;
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long started = System.nanoTime();
+      long skipped = super.skip(n);
+      nanos += System.nanoTime() - started;
+      bytes += skipped;
+      return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!recorded) {
+        recorded = true;
+        download.record(nanos);
+        bytesReceived.add(bytes);
+      }
+      super.close();
+    }
+  }
+
+  // ---- Reading ----
+
+  @Override
+  public Phase getAuthentication() {
+    return Phase.of(authentication);
+  }
+
+  @Override
+  public Phase getTimeToFirstByte() {
+    return Phase.of(timeToFirstByte);
+  }
+
+  @Override
+  public Phase getDownload() {
+    return Phase.of(download);
+  }
+
+  @Override
+  public Phase getDecode() {
+    return Phase.of(decode);
+  }
+
+  @Override
+  public Phase getMaterialization() {
+    return Phase.of(materialization);
+  }
+
+  @Override
+  public Phase getQuery() {
+    return Phase.of(query);
+  }
+
+  @Override
+  public long getQueryCount() {
+    return query.count();
+  }
+
+  @Override
+  public long getFailedQueryCount() {
+    return failedQueries.sum();
+  }
+
+  @Override
+  public long getRetryCount() {
+    return retries.sum();
+  }
+
+  @Override
+  public long getHedgedRequestCount() {
+    return hedges.sum();
+  }
+
+  @Override
+  public long getCoalescedQueryCount() {
+    return coalesced.sum();
+  }
+
+  @Override
+  public int getInFlightQueries() {
+    return inFlight.get();
+  }
+
+  @Override
+  public long getBytesReceived() {
+    return bytesReceived.sum();
+  }
+
+  @Override
+  public long getResultBytesEstimated() {
+    return resultBytes.sum();
+  }
+
+  @Override
+  public long getLargestResultBytesEstimated() {
+    return largestResult.get();
+  }
+
+  /** Clears the histograms and counters; in-flight queries are still tracked. */
+  @Override
+  public void reset() {
+    for (LeafHistogram h :
+        new LeafHistogram[] {
+          authentication, timeToFirstByte, download, decode, materialization, query
+        }) {
+      h.reset();
+    }
+    failedQueries.reset();
+    retries.reset();
+    hedges.reset();
+    coalesced.reset();
+    bytesReceived.reset();
+    resultBytes.reset();
+    largestResult.reset();
+  }
+
+  /** Latency summary of one phase, in milliseconds. */
+  public static final class Phase {
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    /**
+     * Creates a summary.
+     *
+     * @param count number of recorded durations
+     * @param meanMillis mean duration
+     * @param p50Millis median duration
+     * @param p99Millis 99th percentile duration
+     * @param maxMillis longest duration
+     */
+    public Phase(
+        long count, double meanMillis, double p50Millis, double p99Millis, double maxMillis) {
+      this.count = count;
+      this.meanMillis = meanMillis;
+      this.p50Millis = p50Millis;
+      this.p99Millis = p99Millis;
+      this.maxMillis = maxMillis;
+    }
+
+    static Phase of(LeafHistogram h) {
+      long count = h.count();
+      return new Phase(
+          count,
+          count == 0 ? 0 : millis(h.sum()) / count,
+          millis(h.quantile(0.50)),
+          millis(h.quantile(0.99)),
+          millis(h.max()));
+    }
+
+    private static double millis(long nanos) {
+      return nanos / 1e6;
+    }
+
+    /**
+     * Reconstructs a summary read over JMX.
+     *
+     * @param data the open data form of a {@code Phase}
+     * @return the summary
+     */
+    public static Phase from(CompositeData data) {
+      return new Phase(
+          (Long) data.get("count"),
+          (Double) data.get("meanMillis"),
+          (Double) data.get("p50Millis"),
+          (Double) data.get("p99Millis"),
+          (Double) data.get("maxMillis"));
+    }
+
+    /**
+     * Timed operations.
+     *
+     * @return the sample count
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Mean duration.
+     *
+     * @return milliseconds, 0 when nothing was timed
+     */
+    public double getMeanMillis() {
+      return meanMillis;
+    }
+
+    /**
+     * Median duration.
+     *
+     * @return milliseconds
+     */
+    public double getP50Millis() {
+      return p50Millis;
+    }
+
+    /**
+     * 99th percentile duration.
+     *
+     * @return milliseconds
+     */
+    public double getP99Millis() {
+      return p99Millis;
+    }
+
+    /**
+     * Longest duration.
+     *
+     * @return milliseconds
+     */
+    public double getMaxMillis() {
+      return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "count=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+          count, meanMillis, p50Millis, p99Millis, maxMillis);
+    }
+  }
+}
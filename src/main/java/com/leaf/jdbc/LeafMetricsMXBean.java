@@ -0,0 +1,116 @@
+package com.leaf.jdbc;
+
+/**
+ * Driver-wide query metrics, registered as {@code com.leaf.jdbc:type=LeafMetrics} on the platform
+ * MBean server. Each getter returns a fresh snapshot.
+ */
+public interface LeafMetricsMXBean {
+
+  /**
+   * Logins to the Leaf API.
+   *
+   * @return the login latency summary
+   */
+  LeafMetrics.Phase getAuthentication();
+
+  /**
+   * From sending a query until the response headers arrive.
+   *
+   * @return the time-to-first-byte summary
+   */
+  LeafMetrics.Phase getTimeToFirstByte();
+
+  /**
+   * Time spent waiting for response body bytes.
+   *
+   * @return the download summary
+   */
+  LeafMetrics.Phase getDownload();
+
+  /**
+   * Time spent parsing the response body into columns, excluding the download.
+   *
+   * @return the decode summary
+   */
+  LeafMetrics.Phase getDecode();
+
+  /**
+   * Time spent sealing decoded columns (or spill files) into a result.
+   *
+   * @return the materialization summary
+   */
+  LeafMetrics.Phase getMaterialization();
+
+  /**
+   * From sending a query until its {@code ResultSet} is returned.
+   *
+   * @return the end-to-end query summary
+   */
+  LeafMetrics.Phase getQuery();
+
+  /**
+   * Queries finished, including failed ones.
+   *
+   * @return the query count
+   */
+  long getQueryCount();
+
+  /**
+   * Queries that ended in an error.
+   *
+   * @return the failed query count
+   */
+  long getFailedQueryCount();
+
+  /**
+   * Requests sent again after a transient failure.
+   *
+   * @return the retry count
+   */
+  long getRetryCount();
+
+  /**
+   * Duplicate requests sent because the first was slow to respond.
+   *
+   * @return the hedged request count
+   */
+  long getHedgedRequestCount();
+
+  /**
+   * Queries answered by waiting for an identical one already in flight.
+   *
+   * @return the coalesced query count
+   */
+  long getCoalescedQueryCount();
+
+  /**
+   * Queries sent whose result has not been returned yet.
+   *
+   * @return the in-flight query count
+   */
+  int getInFlightQueries();
+
+  /**
+   * Response body bytes read.
+   *
+   * @return the byte count
+   */
+  long getBytesReceived();
+
+  /**
+   * Sum of the estimated heap size of the buffered results decoded so far.
+   *
+   * @return the estimated bytes
+   */
+  long getResultBytesEstimated();
+
+  /**
+   * Estimated heap size of the largest buffered result decoded so far.
+   *
+   * @return the estimated bytes
+   */
+  long getLargestResultBytesEstimated();
+
+  /** Clears the histograms and counters; in-flight queries are still tracked. */
+  void reset();
+}
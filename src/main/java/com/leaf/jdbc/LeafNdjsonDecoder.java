@@ -0,0 +1,42 @@
+package com.leaf.jdbc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.List;
+
+/** Decoder for newline-delimited JSON: one object per line, each object one row. */
+final class LeafNdjsonDecoder implements LeafDecoder {
+  private final ObjectMapper mapper;
+  private final boolean exactDecimals;
+
+  LeafNdjsonDecoder(ObjectMapper mapper, boolean exactDecimals) {
+    this.mapper = mapper;
+    this.exactDecimals = exactDecimals;
+  }
+
+  @Override
+  public List<String> mediaTypes() {
+    return List.of("application/x-ndjson", "application/jsonl");
+  }
+
+  @Override
+  public void decode(InputStream body, Rows rows) throws IOException, SQLException {
+    LeafJsonDecoder.KeyLayout layout = new LeafJsonDecoder.KeyLayout();
+    // Jackson reads whitespace-separated root values in sequence, which covers line breaks
+    try (JsonParser parser = mapper.createParser(body)) {
+      JsonToken token;
+      while ((token = parser.nextToken()) != null) {
+        if (token != JsonToken.START_OBJECT) {
+          parser.skipChildren();
+          continue;
+        }
+        LeafJsonDecoder.readObject(parser, rows, layout, exactDecimals);
+        rows.endRow();
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.leaf.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Cursor that fetches a query one page at a time with {@code LIMIT}/{@code OFFSET} rewrites. The
+ * next page is requested in the background as soon as the current one is opened, unless the current
+ * page is already known to be the last.
+ *
+ * <p>Column names and types come from the first page.
+ */
+final class LeafPagedResultSet extends AbstractLeafResultSet {
+  private final String sql;
+  private final int pageSize;
+  private final long maxRows;
+  private final Function<String, CompletableFuture<ResultSet>> fetch;
+  private final LeafResultSetMetaData metaData;
+  private ResultSet page;
+  private long pageRequested;
+  private long pageRowsRead;
+  private long nextOffset;
+  private CompletableFuture<ResultSet> ahead;
+
+  private LeafPagedResultSet(
+      Statement statement,
+      String sql,
+      int pageSize,
+      long maxRows,
+      Function<String, CompletableFuture<ResultSet>> fetch,
+      ResultSet first,
+      long firstRequested)
+      throws SQLException {
+    super(statement);
+    this.sql = sql;
+    this.pageSize = pageSize;
+    this.maxRows = maxRows;
+    this.fetch = fetch;
+    this.metaData = (LeafResultSetMetaData) first.getMetaData();
+    openPage(first, firstRequested);
+  }
+
+  /**
+   * Fetches the first page of {@code sql} and returns a cursor over all of its rows. {@code
+   * maxRows} caps the total across pages; zero means no cap.
+   */
+  static LeafPagedResultSet open(
+      Statement statement,
+      String sql,
+      int pageSize,
+      long maxRows,
+      Function<String, CompletableFuture<ResultSet>> fetch)
+      throws SQLException {
+    long limit = maxRows > 0 ? Math.min(pageSize, maxRows) : pageSize;
+    ResultSet first = await(fetch.apply(LeafSql.page(sql, limit, 0)));
+    try {
+      return new LeafPagedResultSet(statement, sql, pageSize, maxRows, fetch, first, limit);
+    } catch (SQLException | RuntimeException e) {
+      first.close();
+      throw e;
+    }
+  }
+
+  private void openPage(ResultSet next, long requested) {
+    page = next;
+    pageRequested = requested;
+    pageRowsRead = 0;
+    nextOffset += requested;
+    long known =
+        next instanceof AbstractLeafResultSet ? ((AbstractLeafResultSet) next).rowCount() : -1;
+    boolean lastPage = (known >= 0 && known < requested) || remaining() <= 0;
+    ahead = lastPage ? null : fetch.apply(LeafSql.page(sql, nextLimit(), nextOffset));
+  }
+
+  private long remaining() {
+    return maxRows > 0 ? maxRows - nextOffset : Long.MAX_VALUE;
+  }
+
+  private long nextLimit() {
+    return Math.min(pageSize, remaining());
+  }
+
+  @Override
+  protected boolean advance() throws SQLException {
+    while (true) {
+      if (page.next()) {
+        pageRowsRead++;
+        return true;
+      }
+      // A short page is the last one; so is any page once nothing was requested ahead
+      if (ahead == null || pageRowsRead < pageRequested) return false;
+      CompletableFuture<ResultSet> pending = ahead;
+      ahead = null;
+      long requested = nextLimit();
+      page.close();
+      openPage(await(pending), requested);
+    }
+  }
+
+  private static ResultSet await(CompletableFuture<ResultSet> future) throws SQLException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+      throw new SQLException("Failed to fetch page", e.getCause());
+    } catch (CancellationException e) {
+      throw new SQLException("Query was cancelled", "57014", e);
+    }
+  }
+
+  @Override
+  protected Object value(int columnIndex) throws SQLException {
+    return page.getObject(columnIndex);
+  }
+
+  @Override
+  public LeafResultSetMetaData getMetaData() {
+    return metaData;
+  }
+
+  @Override
+  protected void release() throws SQLException {
+    if (ahead != null) {
+      ahead.cancel(true);
+      ahead.thenAccept(LeafPagedResultSet::closeQuietly);
+      ahead = null;
+    }
+    page.close();
+  }
+
+  private static void closeQuietly(ResultSet rs) {
+    try {
+      rs.close();
+    } catch (SQLException ignore) {
+    }
+  }
+}
@@ -0,0 +1,452 @@
+package com.leaf.jdbc;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a range scan into disjoint sub-range queries on a partition column. A query qualifies when
+ * its top-level WHERE clause bounds the column from both sides with literals, has no top-level OR,
+ * and the query has no clause whose result would change when computed per partition (GROUP BY,
+ * ORDER BY, LIMIT, DISTINCT, window functions, set operations). Without a {@code LEAF_PARTITION}
+ * hint, every top-level select item must also be a column, {@code *}, a literal or a call to a
+ * known scalar function: an aggregate or unknown function may combine rows across partitions.
+ *
+ * <p>Each sub-query is the original with {@code AND (<sub-range>)} appended. The first range is
+ * open below and the last open above, so together they cover exactly the rows of the original query
+ * whatever the column's comparison semantics.
+ */
+final class LeafPartitioner {
+  private static final Pattern HINT =
+      Pattern.compile(
+          "/\\*\\+\\s*LEAF_PARTITION\\s*\\(\\s*([^,\\s)]+)\\s*,\\s*(\\d+)\\s*\\)\\s*\\*/",
+          Pattern.CASE_INSENSITIVE);
+  private static final Set<String> BLOCKERS =
+      Set.of(
+          "limit",
+          "offset",
+          "group",
+          "order",
+          "sort",
+          "cluster",
+          "distribute",
+          "having",
+          "distinct",
+          "union",
+          "intersect",
+          "except",
+          "minus",
+          "window",
+          "over",
+          "qualify");
+
+  /** Functions that compute each row on its own, so a projection using only these can be split. */
+  private static final Set<String> SCALARS =
+      Set.of(
+          "abs",
+          "add_months",
+          "array",
+          "bround",
+          "cast",
+          "cbrt",
+          "ceil",
+          "ceiling",
+          "char_length",
+          "coalesce",
+          "concat",
+          "concat_ws",
+          "date",
+          "date_add",
+          "date_format",
+          "date_sub",
+          "date_trunc",
+          "datediff",
+          "day",
+          "dayofmonth",
+          "dayofweek",
+          "dayofyear",
+          "element_at",
+          "exp",
+          "floor",
+          "from_json",
+          "from_unixtime",
+          "from_utc_timestamp",
+          "get_json_object",
+          "greatest",
+          "h3_longlatash3",
+          "hour",
+          "if",
+          "ifnull",
+          "initcap",
+          "instr",
+          "isnan",
+          "isnotnull",
+          "isnull",
+          "lcase",
+          "least",
+          "left",
+          "length",
+          "ln",
+          "locate",
+          "log",
+          "log10",
+          "log2",
+          "lower",
+          "lpad",
+          "ltrim",
+          "make_date",
+          "make_timestamp",
+          "map",
+          "minute",
+          "mod",
+          "month",
+          "months_between",
+          "named_struct",
+          "nanvl",
+          "nullif",
+          "nvl",
+          "nvl2",
+          "pmod",
+          "pow",
+          "power",
+          "quarter",
+          "regexp_extract",
+          "regexp_replace",
+          "replace",
+          "reverse",
+          "right",
+          "round",
+          "rpad",
+          "rtrim",
+          "second",
+          "sign",
+          "signum",
+          "size",
+          "split",
+          "sqrt",
+          "st_area",
+          "st_asbinary",
+          "st_asgeojson",
+          "st_astext",
+          "st_centroid",
+          "st_contains",
+          "st_distance",
+          "st_geomfromgeojson",
+          "st_geomfromtext",
+          "st_geomfromwkb",
+          "st_intersects",
+          "st_length",
+          "st_within",
+          "st_x",
+          "st_y",
+          "struct",
+          "substr",
+          "substring",
+          "to_date",
+          "to_json",
+          "to_timestamp",
+          "to_utc_timestamp",
+          "translate",
+          "trim",
+          "trunc",
+          "try_cast",
+          "ucase",
+          "unix_timestamp",
+          "upper",
+          "weekofyear",
+          "year");
+
+  private static final DateTimeFormatter BOUNDARY =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS", Locale.ROOT);
+
+  private static final int WORD = 0;
+  private static final int NUMBER = 1;
+  private static final int STRING = 2;
+  private static final int IDENTIFIER = 3;
+  private static final int SYMBOL = 4;
+  private static final int GROUP = 5;
+
+  private LeafPartitioner() {}
+
+  /** A top-level token of the query; parenthesized regions are a single GROUP token. */
+  private record Token(int kind, int start, int end, String text) {
+    boolean isWord(String word) {
+      return kind == WORD && text.equalsIgnoreCase(word);
+    }
+  }
+
+  /** A bound's value: a number, or a timestamp as epoch microseconds. */
+  private record Bound(BigDecimal value, boolean temporal, boolean typed, int next) {}
+
+  /** Removes a {@code LEAF_PARTITION} hint so it is never sent to Spark. */
+  static String stripHint(String sql) {
+    return HINT.matcher(sql).replaceAll("");
+  }
+
+  /**
+   * Returns the sub-queries for {@code sql}, or null if it should run as a single query. A {@code
+   * /*+ LEAF_PARTITION(column, count) *&#47;} hint in the query overrides {@code column} and {@code
+   * count}, and vouches that the select list is safe to compute per partition.
+   */
+  static List<String> split(String sql, String column, int count) throws SQLException {
+    Matcher hint = HINT.matcher(sql);
+    boolean hinted = hint.find();
+    if (hinted) {
+      column = hint.group(1);
+      try {
+        count = Integer.parseInt(hint.group(2));
+      } catch (NumberFormatException e) {
+        throw new SQLException("Invalid LEAF_PARTITION count: " + hint.group(2), e);
+      }
+      sql = stripHint(sql);
+    }
+    if (column == null || count < 2) return null;
+
+    List<Token> tokens = new ArrayList<>();
+    int end = tokenize(sql, tokens);
+    int where = -1;
+    int select = -1;
+    int from = -1;
+    for (int i = 0; i < tokens.size(); i++) {
+      Token t = tokens.get(i);
+      if (t.kind() != WORD) continue;
+      String word = t.text().toLowerCase(Locale.ROOT);
+      if (BLOCKERS.contains(word)) return null;
+      if (word.equals("select") && select < 0) select = i;
+      if (word.equals("from") && select >= 0 && from < 0) from = i;
+      if (word.equals("where")) {
+        if (where >= 0) return null;
+        where = i;
+      }
+      if (where >= 0 && word.equals("or")) return null;
+    }
+    if (select < 0 || where < 0) return null;
+    if (!hinted && !isRowWise(tokens.subList(select + 1, from < 0 ? where : from))) return null;
+
+    Bound lower = null;
+    Bound upper = null;
+    String columnText = null;
+    for (int i = where + 1; i + 2 < tokens.size(); i++) {
+      Token t = tokens.get(i);
+      if (!isColumn(t, column)) continue;
+      Token before = tokens.get(i - 1);
+      if (!before.isWord("where") && !before.isWord("and")) continue;
+      Token op = tokens.get(i + 1);
+      Bound b = bound(tokens, i + 2);
+      if (b == null) continue;
+      if (op.isWord("between")) {
+        if (b.next() + 1 >= tokens.size() || !tokens.get(b.next()).isWord("and")) continue;
+        Bound hi = bound(tokens, b.next() + 1);
+        if (hi == null) continue;
+        lower = b;
+        upper = hi;
+      } else if (op.kind() == SYMBOL && op.text().startsWith(">")) {
+        lower = b;
+      } else if (op.kind() == SYMBOL && op.text().startsWith("<") && !op.text().equals("<>")) {
+        upper = b;
+      } else {
+        continue;
+      }
+      if (columnText == null) columnText = t.text();
+    }
+    if (lower == null || upper == null || lower.temporal() != upper.temporal()) return null;
+    if (lower.value().compareTo(upper.value()) >= 0) return null;
+
+    List<String> boundaries = boundaries(lower, upper, count);
+    if (boundaries.isEmpty()) return null;
+    String head = sql.substring(0, end);
+    List<String> parts = new ArrayList<>(boundaries.size() + 1);
+    for (int i = 0; i <= boundaries.size(); i++) {
+      String range;
+      if (i == 0) {
+        range = columnText + " < " + boundaries.get(0);
+      } else if (i == boundaries.size()) {
+        range = columnText + " >= " + boundaries.get(i - 1);
+      } else {
+        range =
+            columnText
+                + " >= "
+                + boundaries.get(i - 1)
+                + " AND "
+                + columnText
+                + " < "
+                + boundaries.get(i);
+      }
+      parts.add(head + " AND (" + range + ")");
+    }
+    return parts;
+  }
+
+  /** True if every call in {@code tokens}, at any depth, is a known scalar function. */
+  private static boolean isRowWise(List<Token> tokens) {
+    for (int i = 0; i < tokens.size(); i++) {
+      Token t = tokens.get(i);
+      if (t.kind() == WORD) {
+        String word = t.text().toLowerCase(Locale.ROOT);
+        if (word.equals("select")) return false;
+        boolean call = i + 1 < tokens.size() && tokens.get(i + 1).kind() == GROUP;
+        if (call && !SCALARS.contains(word)) return false;
+      } else if (t.kind() == GROUP) {
+        List<Token> inner = new ArrayList<>();
+        tokenize(t.text().substring(1, t.text().length() - 1), inner);
+        if (!isRowWise(inner)) return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isColumn(Token t, String column) {
+    if (t.kind() == WORD) return t.text().equalsIgnoreCase(column);
+    if (t.kind() == IDENTIFIER) {
+      return t.text().substring(1, t.text().length() - 1).equalsIgnoreCase(column);
+    }
+    return false;
+  }
+
+  /** Interior split points, rendered as literals; duplicates from narrow ranges are dropped. */
+  private static List<String> boundaries(Bound lower, Bound upper, int count) {
+    BigDecimal lo = lower.value();
+    BigDecimal span = upper.value().subtract(lo);
+    boolean integral = lower.temporal() || (lo.scale() <= 0 && upper.value().scale() <= 0);
+    int scale = integral ? 0 : Math.max(lo.scale(), upper.value().scale()) + 3;
+    BigDecimal n = BigDecimal.valueOf(count);
+    List<String> out = new ArrayList<>(count - 1);
+    BigDecimal previous = lo;
+    for (int i = 1; i < count; i++) {
+      BigDecimal b =
+          lo.add(span.multiply(BigDecimal.valueOf(i)).divide(n, scale, RoundingMode.FLOOR));
+      if (b.compareTo(previous) <= 0) continue;
+      previous = b;
+      out.add(lower.temporal() ? timestamp(b, lower.typed() || upper.typed()) : b.toPlainString());
+    }
+    return out;
+  }
+
+  private static String timestamp(BigDecimal micros, boolean typed) {
+    long m = micros.longValueExact();
+    LocalDateTime t =
+        LocalDateTime.ofEpochSecond(
+            Math.floorDiv(m, 1_000_000L),
+            (int) Math.floorMod(m, 1_000_000L) * 1000,
+            ZoneOffset.UTC);
+    String quoted = "'" + BOUNDARY.format(t) + "'";
+    return typed ? "TIMESTAMP " + quoted : quoted;
+  }
+
+  /** Parses a literal starting at token {@code i}: a number, a string, or TIMESTAMP/DATE '...'. */
+  private static Bound bound(List<Token> tokens, int i) {
+    if (i >= tokens.size()) return null;
+    Token t = tokens.get(i);
+    boolean negative = false;
+    if (t.kind() == SYMBOL && t.text().equals("-") && i + 1 < tokens.size()) {
+      negative = true;
+      t = tokens.get(++i);
+    }
+    if (t.kind() == NUMBER) {
+      try {
+        BigDecimal v = new BigDecimal(t.text());
+        return new Bound(negative ? v.negate() : v, false, false, i + 1);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    if (negative) return null;
+    boolean typed = false;
+    if ((t.isWord("timestamp") || t.isWord("date")) && i + 1 < tokens.size()) {
+      typed = true;
+      t = tokens.get(++i);
+    }
+    if (t.kind() != STRING || t.text().charAt(0) != '\'') return null;
+    Long micros = epochMicros(t.text().substring(1, t.text().length() - 1));
+    return micros == null ? null : new Bound(BigDecimal.valueOf(micros), true, typed, i + 1);
+  }
+
+  private static Long epochMicros(String text) {
+    try {
+      LocalDateTime t =
+          text.length() == 10
+              ? LocalDate.parse(text).atStartOfDay()
+              : LocalDateTime.parse(text.replace(' ', 'T'));
+      return Math.addExact(
+          Math.multiplyExact(t.toEpochSecond(ZoneOffset.UTC), 1_000_000L), t.getNano() / 1000L);
+    } catch (DateTimeParseException | ArithmeticException e) {
+      // Zoned or non-ISO timestamps are not split
+      return null;
+    }
+  }
+
+  /** Collects top-level tokens and returns the end of the last one (trailing comments dropped). */
+  private static int tokenize(String sql, List<Token> tokens) {
+    int n = sql.length();
+    int end = 0;
+    int i = 0;
+    while (i < n) {
+      char c = sql.charAt(i);
+      int start = i;
+      int kind;
+      if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+        int eol = sql.indexOf('\n', i);
+        i = eol < 0 ? n : eol + 1;
+        continue;
+      } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+        int close = sql.indexOf("*/", i + 2);
+        i = close < 0 ? n : close + 2;
+        continue;
+      } else if (Character.isWhitespace(c) || c == ';') {
+        i++;
+        continue;
+      } else if (c == '\'' || c == '"') {
+        i = LeafSql.skipQuoted(sql, i);
+        kind = STRING;
+      } else if (c == '`') {
+        i = LeafSql.skipQuoted(sql, i);
+        kind = IDENTIFIER;
+      } else if (Character.isDigit(c)) {
+        while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+          char d = sql.charAt(i++);
+          if ((d == 'e' || d == 'E') && i < n && "+-".indexOf(sql.charAt(i)) >= 0) i++;
+        }
+        kind = NUMBER;
+      } else if (Character.isLetter(c) || c == '_') {
+        while (i < n
+            && (Character.isLetterOrDigit(sql.charAt(i))
+                || sql.charAt(i) == '_'
+                || sql.charAt(i) == '.')) {
+          i++;
+        }
+        kind = WORD;
+      } else if (c == '(') {
+        int depth = 0;
+        while (i < n) {
+          char d = sql.charAt(i);
+          if (d == '\'' || d == '"' || d == '`') {
+            i = LeafSql.skipQuoted(sql, i);
+            continue;
+          }
+          i++;
+          if (d == '(') depth++;
+          if (d == ')' && --depth == 0) break;
+        }
+        kind = GROUP;
+      } else {
+        i++;
+        if (i < n && "<>!=".indexOf(c) >= 0 && "=>".indexOf(sql.charAt(i)) >= 0) i++;
+        kind = SYMBOL;
+      }
+      tokens.add(new Token(kind, start, i, sql.substring(start, i)));
+      end = i;
+    }
+    return end;
+  }
+}
@@ -0,0 +1,243 @@
+package com.leaf.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+import javax.sql.StatementEventListener;
+
+/**
+ * An authenticated {@link LeafConnection} that hands out one logical connection at a time. Closing
+ * the logical connection resets the physical one and tells the listeners it can be reused.
+ *
+ * <p>The logical connection never exposes the physical one as a {@link Connection}: it unwraps to
+ * itself and refuses to unwrap to {@link LeafConnection}, and its statements, their result sets and
+ * its metadata report it as their connection.
+ */
+final class LeafPooledConnection implements PooledConnection {
+  private final LeafConnection physical;
+  private final long createdAtMillis;
+  private final List<ConnectionEventListener> listeners = new CopyOnWriteArrayList<>();
+  private Handle handle;
+  private long lastUsedMillis;
+  private boolean retired;
+
+  LeafPooledConnection(LeafConnection physical) {
+    this.physical = physical;
+    this.createdAtMillis = System.currentTimeMillis();
+    this.lastUsedMillis = createdAtMillis;
+  }
+
+  LeafConnection physical() {
+    return physical;
+  }
+
+  /**
+   * The Leaf connection behind {@code connection}, which is either one or a logical connection of a
+   * pool; for the driver's own use, such as reading its catalog.
+   */
+  static LeafConnection physical(Connection connection) throws SQLException {
+    if (connection instanceof LeafConnection) return (LeafConnection) connection;
+    if (Proxy.isProxyClass(connection.getClass())
+        && Proxy.getInvocationHandler(connection) instanceof Handle) {
+      Handle handle = (Handle) Proxy.getInvocationHandler(connection);
+      if (handle.closed) throw new SQLException("Connection is closed");
+      return handle.physical();
+    }
+    throw new SQLException("Not a Leaf connection: " + connection);
+  }
+
+  long createdAtMillis() {
+    return createdAtMillis;
+  }
+
+  synchronized long lastUsedMillis() {
+    return lastUsedMillis;
+  }
+
+  /** Marks the connection as leaving its pool; true only the first time. */
+  synchronized boolean retire() {
+    if (retired) return false;
+    retired = true;
+    return true;
+  }
+
+  /** Returns a new logical connection; one still open is closed first, as JDBC requires. */
+  @Override
+  public synchronized Connection getConnection() throws SQLException {
+    if (physical.isClosed()) throw new SQLException("Pooled connection is closed");
+    if (handle != null) handle.close(false);
+    handle = new Handle();
+    return (Connection)
+        Proxy.newProxyInstance(
+            LeafPooledConnection.class.getClassLoader(), new Class<?>[] {Connection.class}, handle);
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (handle != null) handle.close(false);
+      handle = null;
+    }
+    physical.close();
+  }
+
+  @Override
+  public void addConnectionEventListener(ConnectionEventListener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeConnectionEventListener(ConnectionEventListener listener) {
+    listeners.remove(listener);
+  }
+
+  // Leaf statements are not pooled, so there are no statement events to report
+  @Override
+  public void addStatementEventListener(StatementEventListener listener) {}
+
+  @Override
+  public void removeStatementEventListener(StatementEventListener listener) {}
+
+  private void closed(Handle closing) {
+    synchronized (this) {
+      if (handle != closing) return;
+      handle = null;
+      lastUsedMillis = System.currentTimeMillis();
+    }
+    physical.resetForReuse();
+    ConnectionEvent event = new ConnectionEvent(this);
+    for (ConnectionEventListener listener : listeners) {
+      listener.connectionClosed(event);
+    }
+  }
+
+  private void failed(SQLException error) {
+    ConnectionEvent event = new ConnectionEvent(this, error);
+    for (ConnectionEventListener listener : listeners) {
+      listener.connectionErrorOccurred(event);
+    }
+  }
+
+  /** The logical connection: delegates to the physical one until it is closed. */
+  private final class Handle implements InvocationHandler {
+    private volatile boolean closed;
+
+    LeafConnection physical() {
+      return physical;
+    }
+
+    void close(boolean notify) {
+      if (closed) return;
+      closed = true;
+      if (notify) LeafPooledConnection.this.closed(this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          close(true);
+          return null;
+        case "isClosed":
+          return closed || physical.isClosed();
+        case "isValid":
+          if (closed) return false;
+          break;
+        case "unwrap":
+        case "isWrapperFor":
+          if (closed) throw new SQLException("Connection is closed");
+          Class<?> iface = (Class<?>) args[0];
+          if (iface.isInstance(proxy)) {
+            return method.getName().equals("unwrap") ? proxy : Boolean.TRUE;
+          }
+          // Anything else the physical connection is, such as LeafConnection, stays hidden
+          if (iface.isInstance(physical)) {
+            if (method.getName().equals("isWrapperFor")) return Boolean.FALSE;
+            throw new SQLException("Not a wrapper for " + iface.getName());
+          }
+          break;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled " + physical;
+        default:
+          if (closed) throw new SQLException("Connection is closed");
+      }
+      Object result;
+      try {
+        result = method.invoke(physical, args);
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        // Once the physical connection is gone the pool must not hand it out again
+        if (cause instanceof SQLException && physical.isClosed()) failed((SQLException) cause);
+        throw cause;
+      }
+      if (result instanceof Statement || result instanceof DatabaseMetaData) {
+        return Child.wrap(proxy, method.getReturnType(), result);
+      }
+      return result;
+    }
+  }
+
+  /** A statement or metadata object of a logical connection; reports that as its connection. */
+  private static final class Child implements InvocationHandler {
+    private final Object connection;
+    private final Object target;
+
+    private Child(Object connection, Object target) {
+      this.connection = connection;
+      this.target = target;
+    }
+
+    static Object wrap(Object connection, Class<?> type, Object target) {
+      // Result sets reach their statement through getStatement(), which is not wrapped
+      if (target instanceof LeafStatement) {
+        ((LeafStatement) target).reportConnectionAs((Connection) connection);
+      }
+      Class<?>[] types =
+          target instanceof LeafAsyncStatement
+              ? new Class<?>[] {type, LeafAsyncStatement.class}
+              : new Class<?>[] {type};
+      return Proxy.newProxyInstance(
+          LeafPooledConnection.class.getClassLoader(), types, new Child(connection, target));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "getConnection":
+          if (args == null) return connection;
+          break;
+        case "unwrap":
+          if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+          break;
+        case "isWrapperFor":
+          if (((Class<?>) args[0]).isInstance(proxy)) return true;
+          break;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          break;
+      }
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
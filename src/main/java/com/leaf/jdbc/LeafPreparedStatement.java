@@ -0,0 +1,407 @@
+package com.leaf.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Prepared statement with client-side parameter binding. The SQL is tokenized once into a {@link
+ * LeafSqlTemplate}; each setter renders its value to a Spark SQL literal straight away, so an
+ * execute only splices the bound literals into the template.
+ */
+final class LeafPreparedStatement extends LeafStatement implements PreparedStatement {
+  private final LeafSqlTemplate template;
+  private final String[] literals;
+
+  LeafPreparedStatement(LeafConnection connection, LeafSqlTemplate template) {
+    super(connection);
+    this.template = template;
+    this.literals = new String[template.parameterCount()];
+  }
+
+  private void bind(int parameterIndex, Object value) throws SQLException {
+    if (parameterIndex < 1 || parameterIndex > literals.length) {
+      throw new SQLException("Invalid parameter index: " + parameterIndex, "07009");
+    }
+    literals[parameterIndex - 1] = LeafSql.literal(value);
+  }
+
+  /** The SQL that the next execute would send with the current bindings. */
+  String boundSql() throws SQLException {
+    return template.render(literals);
+  }
+
+  @Override
+  public ResultSet executeQuery() throws SQLException {
+    return super.executeQuery(boundSql());
+  }
+
+  @Override
+  public boolean execute() throws SQLException {
+    executeQuery();
+    return true;
+  }
+
+  @Override
+  public ResultSet executeQuery(String sql) throws SQLException {
+    throw notOnPrepared();
+  }
+
+  @Override
+  public boolean execute(String sql) throws SQLException {
+    throw notOnPrepared();
+  }
+
+  private static SQLException notOnPrepared() {
+    return new SQLException(
+        "Method not supported on a PreparedStatement; use the no-argument form");
+  }
+
+  @Override
+  public int executeUpdate() throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void clearParameters() {
+    Arrays.fill(literals, null);
+  }
+
+  @Override
+  public void setNull(int parameterIndex, int sqlType) throws SQLException {
+    bind(parameterIndex, null);
+  }
+
+  @Override
+  public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+    bind(parameterIndex, null);
+  }
+
+  @Override
+  public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setByte(int parameterIndex, byte x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setShort(int parameterIndex, short x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setInt(int parameterIndex, int x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setLong(int parameterIndex, long x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setFloat(int parameterIndex, float x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setDouble(int parameterIndex, double x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setString(int parameterIndex, String x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setNString(int parameterIndex, String value) throws SQLException {
+    bind(parameterIndex, value);
+  }
+
+  @Override
+  public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setDate(int parameterIndex, Date x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+    if (x == null || cal == null) {
+      bind(parameterIndex, x);
+      return;
+    }
+    bind(parameterIndex, LocalDate.ofInstant(Instant.ofEpochMilli(x.getTime()), zone(cal)));
+  }
+
+  @Override
+  public void setTime(int parameterIndex, Time x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+    if (x == null || cal == null) {
+      bind(parameterIndex, x);
+      return;
+    }
+    bind(
+        parameterIndex,
+        Time.valueOf(LocalTime.ofInstant(Instant.ofEpochMilli(x.getTime()), zone(cal))));
+  }
+
+  @Override
+  public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+    if (x == null || cal == null) {
+      bind(parameterIndex, x);
+      return;
+    }
+    bind(parameterIndex, LocalDateTime.ofInstant(x.toInstant(), zone(cal)));
+  }
+
+  // Date and time values are bound as the wall-clock reading of their instant in the calendar's
+  // zone
+  private static ZoneId zone(Calendar cal) {
+    return cal.getTimeZone().toZoneId();
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength)
+      throws SQLException {
+    bind(parameterIndex, x);
+  }
+
+  @Override
+  public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+    setAsciiStream(parameterIndex, x);
+  }
+
+  @Override
+  public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+    setAsciiStream(parameterIndex, x);
+  }
+
+  @Override
+  public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+    byte[] bytes = readAll(x);
+    bind(parameterIndex, bytes == null ? null : new String(bytes, StandardCharsets.US_ASCII));
+  }
+
+  @Override
+  @Deprecated
+  public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+    setBinaryStream(parameterIndex, x);
+  }
+
+  @Override
+  public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+    setBinaryStream(parameterIndex, x);
+  }
+
+  @Override
+  public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+    bind(parameterIndex, readAll(x));
+  }
+
+  @Override
+  public void setCharacterStream(int parameterIndex, Reader reader, int length)
+      throws SQLException {
+    setCharacterStream(parameterIndex, reader);
+  }
+
+  @Override
+  public void setCharacterStream(int parameterIndex, Reader reader, long length)
+      throws SQLException {
+    setCharacterStream(parameterIndex, reader);
+  }
+
+  @Override
+  public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+    bind(parameterIndex, readAll(reader));
+  }
+
+  @Override
+  public void setNCharacterStream(int parameterIndex, Reader value, long length)
+      throws SQLException {
+    setCharacterStream(parameterIndex, value);
+  }
+
+  @Override
+  public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+    setCharacterStream(parameterIndex, value);
+  }
+
+  private static byte[] readAll(InputStream in) throws SQLException {
+    if (in == null) return null;
+    try {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new SQLException("Failed to read parameter stream", e);
+    }
+  }
+
+  private static String readAll(Reader reader) throws SQLException {
+    if (reader == null) return null;
+    try {
+      StringBuilder out = new StringBuilder();
+      char[] buffer = new char[8192];
+      int n;
+      while ((n = reader.read(buffer)) >= 0) {
+        out.append(buffer, 0, n);
+      }
+      return out.toString();
+    } catch (IOException e) {
+      throw new SQLException("Failed to read parameter stream", e);
+    }
+  }
+
+  @Override
+  public void addBatch() throws SQLException {
+    super.addBatch(boundSql());
+  }
+
+  @Override
+  public void addBatch(String sql) throws SQLException {
+    throw notOnPrepared();
+  }
+
+  @Override
+  public ResultSetMetaData getMetaData() {
+    // Column types are only known once the API has answered
+    return null;
+  }
+
+  @Override
+  public ParameterMetaData getParameterMetaData() throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setRef(int parameterIndex, Ref x) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setBlob(int parameterIndex, Blob x) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setBlob(int parameterIndex, InputStream inputStream, long length)
+      throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setClob(int parameterIndex, Clob x) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setClob(int parameterIndex, Reader reader) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setNClob(int parameterIndex, NClob value) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setArray(int parameterIndex, Array x) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setURL(int parameterIndex, URL x) throws SQLException {
+    bind(parameterIndex, x == null ? null : x.toString());
+  }
+
+  @Override
+  public void setRowId(int parameterIndex, RowId x) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+}
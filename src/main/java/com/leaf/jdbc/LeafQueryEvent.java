@@ -0,0 +1,41 @@
+package com.leaf.jdbc;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning one query, from sending it until its result set is returned. Its
+ * fields are only filled in when a recording has the event enabled.
+ */
+@Name("com.leaf.jdbc.Query")
+@Label("Leaf Query")
+@Category({"Leaf", "JDBC"})
+@Description("A query sent to the Leaf API")
+@StackTrace(false)
+final class LeafQueryEvent extends jdk.jfr.Event {
+  @Label("Fingerprint")
+  String fingerprint;
+
+  @Label("Rows")
+  long rows;
+
+  @Label("Bytes Received")
+  @DataAmount
+  long bytes;
+
+  @Label("Time to First Byte")
+  @Timespan
+  long timeToFirstByte;
+
+  @Label("Decode Time")
+  @Timespan
+  long decodeTime;
+
+  @Label("Error")
+  String error;
+}
@@ -0,0 +1,207 @@
+package com.leaf.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One query's progress through the driver: feeds {@link LeafMetrics}, the {@link
+ * LeafStatementListener}s and the {@link LeafQueryEvent}. Created when the query is sent and
+ * finished when its result set is returned or it fails.
+ */
+final class LeafQueryTrace implements LeafStatementListener.Query {
+  private static final Logger LOG = Logger.getLogger(LeafQueryTrace.class.getName());
+  private static final List<LeafStatementListener> SERVICES = loadServices();
+
+  private final String sql;
+  private final List<LeafStatementListener> listeners;
+  private final LeafMetrics metrics = LeafMetrics.driver();
+  private final LeafQueryEvent event = new LeafQueryEvent();
+  private final long started;
+  private long elapsed = -1;
+  private String fingerprint;
+  private long timeToFirstByte = -1;
+  private long decode = -1;
+  private long rows = -1;
+  private long bytes = -1;
+
+  private LeafQueryTrace(String sql, List<LeafStatementListener> listeners) {
+    this.sql = sql;
+    this.listeners = listeners;
+    this.started = metrics.queryStarted();
+  }
+
+  /** Starts tracing {@code sql} for the connection's listeners. */
+  static LeafQueryTrace start(LeafConnection connection, String sql) {
+    LeafQueryTrace trace = new LeafQueryTrace(sql, connection.statementListeners());
+    trace.event.begin();
+    for (LeafStatementListener listener : trace.listeners) {
+      try {
+        listener.beforeExecute(trace);
+      } catch (RuntimeException e) {
+        trace.listenerFailed(listener, e);
+      }
+    }
+    return trace;
+  }
+
+  /**
+   * The listeners for a connection: those registered as services, then the classes named in the
+   * {@code statementListeners} property.
+   */
+  static List<LeafStatementListener> listeners(LeafJdbcUrl url) throws SQLException {
+    String names = url.property("statementListeners");
+    if (names == null || names.isBlank()) return SERVICES;
+    List<LeafStatementListener> listeners = new ArrayList<>(SERVICES);
+    for (String name : names.split(",")) {
+      name = name.trim();
+      if (name.isEmpty()) continue;
+      try {
+        listeners.add(
+            loadClass(name).asSubclass(LeafStatementListener.class).getConstructor().newInstance());
+      } catch (ReflectiveOperationException | ClassCastException e) {
+        throw new SQLException("Cannot create statement listener " + name, e);
+      }
+    }
+    return List.copyOf(listeners);
+  }
+
+  private static Class<?> loadClass(String name) throws ClassNotFoundException {
+    ClassLoader context = Thread.currentThread().getContextClassLoader();
+    if (context != null) {
+      try {
+        return Class.forName(name, true, context);
+      } catch (ClassNotFoundException ignored) {
+        // Fall back to the driver's own loader
+      }
+    }
+    return Class.forName(name, true, LeafQueryTrace.class.getClassLoader());
+  }
+
+  private static List<LeafStatementListener> loadServices() {
+    List<LeafStatementListener> services = new ArrayList<>();
+    try {
+      for (LeafStatementListener listener :
+          ServiceLoader.load(
+              LeafStatementListener.class, LeafStatementListener.class.getClassLoader())) {
+        services.add(listener);
+      }
+    } catch (ServiceConfigurationError e) {
+      LOG.log(Level.WARNING, "Could not load statement listeners", e);
+    }
+    return List.copyOf(services);
+  }
+
+  // ---- Recording ----
+
+  void firstByte(long nanos) {
+    timeToFirstByte = nanos;
+    metrics.firstByte(nanos);
+    for (LeafStatementListener listener : listeners) {
+      try {
+        listener.onFirstByte(this);
+      } catch (RuntimeException e) {
+        listenerFailed(listener, e);
+      }
+    }
+  }
+
+  /** The response was decoded; counts are -1 for a streaming cursor that has not read them yet. */
+  void decoded(long decodeNanos, long rowCount, long byteCount) {
+    decode = decodeNanos;
+    rows = rowCount;
+    bytes = byteCount;
+    for (LeafStatementListener listener : listeners) {
+      try {
+        listener.afterDecode(this);
+      } catch (RuntimeException e) {
+        listenerFailed(listener, e);
+      }
+    }
+  }
+
+  /** Ends the query; {@code failure} is null on success. */
+  void finish(Throwable failure) {
+    elapsed = System.nanoTime() - started;
+    metrics.queryFinished(started, failure != null);
+    SQLException error = failure == null ? null : asSqlException(failure);
+    if (error != null) {
+      for (LeafStatementListener listener : listeners) {
+        try {
+          listener.onError(this, error);
+        } catch (RuntimeException e) {
+          listenerFailed(listener, e);
+        }
+      }
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.fingerprint = fingerprint();
+      event.rows = rows;
+      event.bytes = bytes;
+      event.timeToFirstByte = timeToFirstByte;
+      event.decodeTime = decode;
+      event.error = error == null ? null : error.getMessage();
+      event.commit();
+    }
+  }
+
+  private static SQLException asSqlException(Throwable failure) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    if (failure instanceof SQLException) return (SQLException) failure;
+    if (failure instanceof CancellationException) {
+      return new SQLException("Query was cancelled", "57014", failure);
+    }
+    return new SQLException(failure);
+  }
+
+  private void listenerFailed(LeafStatementListener listener, RuntimeException e) {
+    LOG.log(Level.WARNING, "Statement listener " + listener.getClass().getName() + " failed", e);
+  }
+
+  // ---- LeafStatementListener.Query ----
+
+  @Override
+  public String sql() {
+    return sql;
+  }
+
+  @Override
+  public String fingerprint() {
+    if (fingerprint == null) fingerprint = LeafSql.fingerprint(sql);
+    return fingerprint;
+  }
+
+  @Override
+  public long elapsedNanos() {
+    return elapsed >= 0 ? elapsed : System.nanoTime() - started;
+  }
+
+  @Override
+  public long timeToFirstByteNanos() {
+    return timeToFirstByte;
+  }
+
+  @Override
+  public long decodeNanos() {
+    return decode;
+  }
+
+  @Override
+  public long rowCount() {
+    return rows;
+  }
+
+  @Override
+  public long bytes() {
+    return bytes;
+  }
+}
@@ -0,0 +1,131 @@
+package com.leaf.jdbc;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Driver-wide cache of decoded query results, keyed by the authenticated identity, the normalized
+ * SQL text and the decoding settings the result was built with. Entries expire after a per-entry
+ * TTL and are evicted least-recently-used first once the total estimated size exceeds the byte
+ * budget. Cached data is immutable, so every hit gets its own cursor over the same columns.
+ */
+final class LeafResultCache {
+  static final long DEFAULT_TTL_SECONDS = 60;
+  static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  private static final Map<Long, LeafResultCache> CACHES = new ConcurrentHashMap<>();
+
+  private final long maxBytes;
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes = 0;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private record Key(String identity, String sql, boolean exactDecimals) {}
+
+  private record Entry(LeafColumnarData data, long bytes, long expiresAtNanos) {}
+
+  LeafResultCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the shared cache for the byte budget configured on {@code url}, or null when the {@code
+   * resultCache} property is not enabled.
+   */
+  static LeafResultCache forUrl(LeafJdbcUrl url) throws SQLException {
+    if (!url.booleanProperty("resultCache", false)) return null;
+    long maxBytes = url.longProperty("resultCacheMaxBytes", DEFAULT_MAX_BYTES);
+    if (maxBytes <= 0) {
+      throw new SQLException("Invalid value for property 'resultCacheMaxBytes': " + maxBytes);
+    }
+    return CACHES.computeIfAbsent(maxBytes, LeafResultCache::new);
+  }
+
+  LeafColumnarData get(String identity, String sql, boolean exactDecimals) {
+    Key key = new Key(identity, LeafSql.normalize(sql), exactDecimals);
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.expiresAtNanos() - System.nanoTime() > 0) {
+        hits.increment();
+        return entry.data();
+      }
+      if (entry != null) {
+        remove(key, entry);
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  void put(
+      String identity, String sql, boolean exactDecimals, LeafColumnarData data, long ttlSeconds) {
+    long bytes = data.estimatedBytes();
+    if (bytes > maxBytes || ttlSeconds <= 0) return;
+    Key key = new Key(identity, LeafSql.normalize(sql), exactDecimals);
+    Entry entry = new Entry(data, bytes, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds));
+    synchronized (this) {
+      Entry previous = entries.put(key, entry);
+      if (previous != null) totalBytes -= previous.bytes();
+      totalBytes += bytes;
+      evictToBudget();
+    }
+  }
+
+  private void evictToBudget() {
+    long now = System.nanoTime();
+    // Expired entries go first, then least recently used ones
+    Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+    while (it.hasNext() && totalBytes > maxBytes) {
+      Entry e = it.next().getValue();
+      if (e.expiresAtNanos() - now <= 0) {
+        it.remove();
+        totalBytes -= e.bytes();
+        evictions.increment();
+      }
+    }
+    it = entries.entrySet().iterator();
+    while (it.hasNext() && totalBytes > maxBytes) {
+      Entry e = it.next().getValue();
+      it.remove();
+      totalBytes -= e.bytes();
+      evictions.increment();
+    }
+  }
+
+  private void remove(Key key, Entry entry) {
+    entries.remove(key);
+    totalBytes -= entry.bytes();
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    totalBytes = 0;
+  }
+
+  long hitCount() {
+    return hits.sum();
+  }
+
+  long missCount() {
+    return misses.sum();
+  }
+
+  long evictionCount() {
+    return evictions.sum();
+  }
+
+  synchronized long sizeBytes() {
+    return totalBytes;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,11 @@
+package com.leaf.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** A fully decoded query result, held in memory or spilled to disk. */
+interface LeafResultData {
+  /** Opens a cursor over the result; the cursor owns any resources it needs until closed. */
+  ResultSet open(Statement statement) throws SQLException;
+}
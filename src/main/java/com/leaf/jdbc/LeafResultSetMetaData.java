@@ -0,0 +1,220 @@
+package com.leaf.jdbc;
+
+import java.sql.JDBCType;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+final class LeafResultSetMetaData implements ResultSetMetaData {
+  private final String[] names;
+  private final int[] types;
+  private final Map<String, Integer> index;
+
+  LeafResultSetMetaData(String[] names, int[] types) {
+    this.names = names;
+    this.types = types;
+    this.index = new HashMap<>(names.length * 2);
+    // First occurrence wins for duplicate labels; exact match is tried before case-insensitive
+    for (int i = names.length - 1; i >= 0; i--) {
+      index.put(names[i].toLowerCase(Locale.ROOT), i);
+    }
+    for (int i = names.length - 1; i >= 0; i--) {
+      index.put(names[i], i);
+    }
+  }
+
+  /** Returns the 0-based ordinal of a column label, or -1 if it is unknown. */
+  int indexOf(String label) {
+    if (label == null) return -1;
+    Integer i = index.get(label);
+    if (i == null) i = index.get(label.toLowerCase(Locale.ROOT));
+    return i == null ? -1 : i;
+  }
+
+  String[] names() {
+    return names;
+  }
+
+  int[] types() {
+    return types;
+  }
+
+  private int check(int column) throws SQLException {
+    if (column < 1 || column > names.length) {
+      throw new SQLException("Invalid column index: " + column);
+    }
+    return column - 1;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return names.length;
+  }
+
+  @Override
+  public boolean isAutoIncrement(int column) {
+    return false;
+  }
+
+  @Override
+  public boolean isCaseSensitive(int column) throws SQLException {
+    return types[check(column)] == Types.VARCHAR;
+  }
+
+  @Override
+  public boolean isSearchable(int column) {
+    return true;
+  }
+
+  @Override
+  public boolean isCurrency(int column) {
+    return false;
+  }
+
+  @Override
+  public int isNullable(int column) {
+    return columnNullable;
+  }
+
+  @Override
+  public boolean isSigned(int column) throws SQLException {
+    switch (types[check(column)]) {
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.DOUBLE:
+      case Types.DECIMAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public int getColumnDisplaySize(int column) throws SQLException {
+    switch (types[check(column)]) {
+      case Types.BOOLEAN:
+        return 5;
+      case Types.INTEGER:
+        return 11;
+      case Types.BIGINT:
+        return 20;
+      case Types.DOUBLE:
+        return 24;
+      default:
+        return Integer.MAX_VALUE;
+    }
+  }
+
+  @Override
+  public String getColumnLabel(int column) throws SQLException {
+    return names[check(column)];
+  }
+
+  @Override
+  public String getColumnName(int column) throws SQLException {
+    return names[check(column)];
+  }
+
+  @Override
+  public String getSchemaName(int column) {
+    return "";
+  }
+
+  @Override
+  public int getPrecision(int column) throws SQLException {
+    switch (types[check(column)]) {
+      case Types.INTEGER:
+        return 10;
+      case Types.BIGINT:
+        return 19;
+      case Types.DOUBLE:
+        return 17;
+      default:
+        return 0;
+    }
+  }
+
+  @Override
+  public int getScale(int column) {
+    return 0;
+  }
+
+  @Override
+  public String getTableName(int column) {
+    return "";
+  }
+
+  @Override
+  public String getCatalogName(int column) {
+    return "";
+  }
+
+  @Override
+  public int getColumnType(int column) throws SQLException {
+    return types[check(column)];
+  }
+
+  @Override
+  public String getColumnTypeName(int column) throws SQLException {
+    int type = types[check(column)];
+    return type == Types.OTHER ? "GEOMETRY" : JDBCType.valueOf(type).getName();
+  }
+
+  @Override
+  public boolean isReadOnly(int column) {
+    return true;
+  }
+
+  @Override
+  public boolean isWritable(int column) {
+    return false;
+  }
+
+  @Override
+  public boolean isDefinitelyWritable(int column) {
+    return false;
+  }
+
+  @Override
+  public String getColumnClassName(int column) throws SQLException {
+    switch (types[check(column)]) {
+      case Types.BOOLEAN:
+        return Boolean.class.getName();
+      case Types.INTEGER:
+        return Integer.class.getName();
+      case Types.BIGINT:
+        return Long.class.getName();
+      case Types.DOUBLE:
+        return Double.class.getName();
+      case Types.DECIMAL:
+        return java.math.BigDecimal.class.getName();
+      case Types.TIMESTAMP:
+        return java.sql.Timestamp.class.getName();
+      case Types.DATE:
+        return java.sql.Date.class.getName();
+      case Types.TIME:
+        return java.sql.Time.class.getName();
+      case Types.VARBINARY:
+        return byte[].class.getName();
+      case Types.OTHER:
+        // getObject returns a geometry's GeoJSON text; getObject(col, LeafGeometry.class) the value
+        return String.class.getName();
+      default:
+        return String.class.getName();
+    }
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) return iface.cast(this);
+    throw new SQLException("Not a wrapper for " + iface.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+}
@@ -0,0 +1,127 @@
+package com.leaf.jdbc;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When a read-only query that failed transiently is sent again, and when a slow one is hedged with
+ * a duplicate request.
+ *
+ * <p>Connection resets and HTTP 429, 502, 503 and 504 are retried up to {@code maxRetries} times
+ * with full-jitter exponential backoff, starting at {@code retryBackoffMillis}. A {@code
+ * Retry-After} header replaces the backoff; when it asks for more than {@code retryMaxDelayMillis}
+ * the error is returned instead.
+ *
+ * <p>With {@code hedging=true} a duplicate request is sent once the first has gone {@code
+ * hedgeDelayMillis} without a response, or by default the driver's 95th percentile time to first
+ * byte once enough queries have been measured.
+ */
+final class LeafRetryPolicy {
+  static final int DEFAULT_MAX_RETRIES = 2;
+  static final long DEFAULT_BACKOFF_MILLIS = 100;
+  static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+  // Below this many samples the p95 is too noisy to hedge on
+  static final long MIN_HEDGE_SAMPLES = 20;
+  static final long MIN_HEDGE_DELAY_MILLIS = 10;
+
+  private final int maxRetries;
+  private final long backoffMillis;
+  private final long maxDelayMillis;
+  private final boolean hedging;
+  private final long hedgeDelayMillis;
+
+  LeafRetryPolicy(
+      int maxRetries,
+      long backoffMillis,
+      long maxDelayMillis,
+      boolean hedging,
+      long hedgeDelayMillis) {
+    this.maxRetries = maxRetries;
+    this.backoffMillis = backoffMillis;
+    this.maxDelayMillis = maxDelayMillis;
+    this.hedging = hedging;
+    this.hedgeDelayMillis = hedgeDelayMillis;
+  }
+
+  static LeafRetryPolicy forUrl(LeafJdbcUrl url) throws SQLException {
+    LeafRetryPolicy policy =
+        new LeafRetryPolicy(
+            url.intProperty("maxRetries", DEFAULT_MAX_RETRIES),
+            url.longProperty("retryBackoffMillis", DEFAULT_BACKOFF_MILLIS),
+            url.longProperty("retryMaxDelayMillis", DEFAULT_MAX_DELAY_MILLIS),
+            url.booleanProperty("hedging", false),
+            url.longProperty("hedgeDelayMillis", 0));
+    if (policy.maxRetries < 0
+        || policy.backoffMillis < 0
+        || policy.maxDelayMillis < 0
+        || policy.hedgeDelayMillis < 0) {
+      throw new SQLException("Invalid retry settings: " + policy);
+    }
+    return policy;
+  }
+
+  /** Whether a response with this status is worth sending the query again for. */
+  static boolean isRetryable(int status) {
+    return status == 429 || status == 502 || status == 503 || status == 504;
+  }
+
+  /**
+   * How long to wait before retry number {@code attempt + 1}, or -1 to give up.
+   *
+   * @param attempt retries already made
+   * @param retryAfter the response's {@code Retry-After} header, or null
+   */
+  long delayMillis(int attempt, String retryAfter) {
+    if (attempt >= maxRetries) return -1;
+    long requested = retryAfterMillis(retryAfter);
+    if (requested >= 0) return requested <= maxDelayMillis ? requested : -1;
+    int doublings = Math.min(attempt, 30);
+    long cap =
+        backoffMillis > (maxDelayMillis >> doublings) ? maxDelayMillis : backoffMillis << doublings;
+    return ThreadLocalRandom.current().nextLong(cap + 1);
+  }
+
+  /** Parses delta-seconds or an HTTP date; -1 when absent or malformed. */
+  static long retryAfterMillis(String retryAfter) {
+    if (retryAfter == null || retryAfter.isBlank()) return -1;
+    String value = retryAfter.trim();
+    try {
+      long seconds = Math.max(0, Long.parseLong(value));
+      return seconds > Long.MAX_VALUE / 1000 ? Long.MAX_VALUE : seconds * 1000;
+    } catch (NumberFormatException notSeconds) {
+      try {
+        ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+        return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+      } catch (DateTimeParseException notDate) {
+        return -1;
+      }
+    }
+  }
+
+  /** Delay before hedging a request, or -1 when hedging is off or there is no estimate yet. */
+  long hedgeDelayMillis(LeafMetrics metrics) {
+    if (!hedging) return -1;
+    if (hedgeDelayMillis > 0) return hedgeDelayMillis;
+    if (metrics.timeToFirstByteCount() < MIN_HEDGE_SAMPLES) return -1;
+    long p95 = metrics.timeToFirstByteQuantile(0.95) / 1_000_000;
+    return Math.max(MIN_HEDGE_DELAY_MILLIS, p95);
+  }
+
+  @Override
+  public String toString() {
+    return "maxRetries="
+        + maxRetries
+        + " retryBackoffMillis="
+        + backoffMillis
+        + " retryMaxDelayMillis="
+        + maxDelayMillis
+        + " hedging="
+        + hedging
+        + " hedgeDelayMillis="
+        + hedgeDelayMillis;
+  }
+}
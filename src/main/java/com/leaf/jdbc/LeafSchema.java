@@ -0,0 +1,71 @@
+package com.leaf.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.calcite.schema.Table;
+import org.apache.calcite.schema.impl.AbstractSchema;
+
+/**
+ * Calcite schema exposing the tables of one Leaf schema, so Leaf data can be joined and aggregated
+ * with other Calcite schemas in the same query. Projections and filters are pushed into the Spark
+ * SQL sent to the Leaf API; everything else runs in Calcite's enumerable engine.
+ *
+ * <pre>{@code
+ * Connection leaf = DriverManager.getConnection("jdbc:leaf:", props);
+ * Connection calcite = DriverManager.getConnection("jdbc:calcite:");
+ * SchemaPlus root = calcite.unwrap(CalciteConnection.class).getRootSchema();
+ * root.add("pointlake", LeafSchema.create(leaf, "leaf", "pointlake"));
+ * }</pre>
+ *
+ * <p>Tables and columns come from the connection's cached catalog (see the {@code metadataTables}
+ * property); the Leaf connection must stay open while the schema is in use.
+ */
+public final class LeafSchema extends AbstractSchema {
+  private final Connection connection;
+  private final LeafConnection leaf;
+  private final String catalog;
+  private final String schema;
+
+  private LeafSchema(Connection connection, String catalog, String schema) throws SQLException {
+    this.connection = connection;
+    this.leaf = LeafPooledConnection.physical(connection);
+    this.catalog = catalog;
+    this.schema = schema;
+  }
+
+  /**
+   * Creates a schema for {@code catalog.schema} of the Leaf API.
+   *
+   * @param connection an open connection of the Leaf driver, or a logical one from {@link
+   *     LeafDataSource}; scans run as statements of this connection
+   * @param catalog the Leaf catalog, e.g. {@code leaf}
+   * @param schema the schema within the catalog, e.g. {@code pointlake}
+   * @return the Calcite schema
+   * @throws SQLException if the connection does not belong to the Leaf driver
+   */
+  public static LeafSchema create(Connection connection, String catalog, String schema)
+      throws SQLException {
+    return new LeafSchema(connection, catalog, schema);
+  }
+
+  @Override
+  protected Map<String, Table> getTableMap() {
+    LeafCatalog snapshot;
+    try {
+      snapshot = LeafCatalog.forConnection(leaf);
+    } catch (SQLException e) {
+      throw new RuntimeException("Could not load Leaf catalog", e);
+    }
+    Map<String, Table> tables = new LinkedHashMap<>();
+    for (LeafCatalog.Table t : snapshot.tables()) {
+      if (t.catalog().equalsIgnoreCase(catalog)
+          && t.schema().equalsIgnoreCase(schema)
+          && !t.columns().isEmpty()) {
+        tables.put(t.name(), new LeafTable(connection, t));
+      }
+    }
+    return tables;
+  }
+}
@@ -0,0 +1,222 @@
+package com.leaf.jdbc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * An authenticated API session: the current token, renewed ahead of its expiry. Connections opened
+ * by a pool share one session, so its token is refreshed once for all of them rather than once per
+ * connection.
+ *
+ * <p>The refresh timer runs on the shared {@link LeafTransport#scheduler() scheduler}, but the
+ * login itself is handed to {@link LeafTransport#background()} so a slow authentication never
+ * delays retries, hedges or pool eviction. A login never runs while the session's lock is held:
+ * concurrent refreshes wait on the one login in flight, and only the token swap is locked.
+ */
+final class LeafSession {
+  private static final Logger LOG = Logger.getLogger(LeafSession.class.getName());
+  private static final long REFRESH_RETRY_SECONDS = 30;
+
+  private final LeafJdbcUrl url;
+  private final OkHttpClient client;
+  private volatile LeafToken token;
+  private ScheduledFuture<?> refreshTask;
+  private CompletableFuture<LeafToken> login;
+  private int users = 1;
+
+  private LeafSession(LeafJdbcUrl url, OkHttpClient client) {
+    this.url = url;
+    this.client = client;
+  }
+
+  /** Logs in and returns a session with one user, the caller. */
+  static LeafSession open(LeafJdbcUrl url, OkHttpClient client) throws SQLException {
+    LeafSession session = new LeafSession(url, client);
+    session.install(LeafToken.of(session.authenticate(), now()));
+    return session;
+  }
+
+  private static long now() {
+    return System.currentTimeMillis();
+  }
+
+  LeafToken token() {
+    return token;
+  }
+
+  /**
+   * Adds a user to the session; false if every earlier user has released it or its token has
+   * already lapsed, in which case the caller should open its own.
+   */
+  synchronized boolean retain() {
+    if (users == 0 || token.isExpired(now())) return false;
+    users++;
+    return true;
+  }
+
+  /** Removes a user; the background refresh stops with the last one. */
+  synchronized void release() {
+    if (users == 0) return;
+    if (--users == 0 && refreshTask != null) {
+      refreshTask.cancel(false);
+      refreshTask = null;
+    }
+  }
+
+  /**
+   * Replaces the token if it is still {@code staleToken} and returns the current one. Callers that
+   * saw a 401 pass the token they used, so concurrent failures re-authenticate only once.
+   */
+  String refresh(String staleToken) throws SQLException {
+    CompletableFuture<LeafToken> pending;
+    boolean leader = false;
+    synchronized (this) {
+      if (!token.value().equals(staleToken)) return token.value();
+      if (login == null) {
+        login = new CompletableFuture<>();
+        leader = true;
+      }
+      pending = login;
+    }
+    if (leader) renew(pending);
+    return await(pending).value();
+  }
+
+  // Logs in outside the lock and completes the shared login with the new token or the failure
+  private void renew(CompletableFuture<LeafToken> pending) {
+    try {
+      LeafToken fresh = LeafToken.of(authenticate(), now());
+      synchronized (this) {
+        login = null;
+        install(fresh);
+      }
+      pending.complete(fresh);
+    } catch (SQLException | RuntimeException e) {
+      synchronized (this) {
+        login = null;
+      }
+      pending.completeExceptionally(e);
+    }
+  }
+
+  private static LeafToken await(CompletableFuture<LeafToken> pending) throws SQLException {
+    try {
+      return pending.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for authentication", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+      throw new SQLException("Failed to authenticate with Leaf API", e.getCause());
+    }
+  }
+
+  private synchronized void install(LeafToken fresh) {
+    token = fresh;
+    scheduleRefresh();
+  }
+
+  private synchronized void scheduleRefresh() {
+    if (refreshTask != null) {
+      refreshTask.cancel(false);
+      refreshTask = null;
+    }
+    if (users == 0 || !token.hasExpiry()) return;
+    long delay = Math.max(0, token.refreshAtMillis() - now());
+    refreshTask = schedule(delay);
+  }
+
+  private ScheduledFuture<?> schedule(long delayMillis) {
+    return LeafTransport.scheduler()
+        .schedule(
+            () -> LeafTransport.background().execute(this::backgroundRefresh),
+            delayMillis,
+            TimeUnit.MILLISECONDS);
+  }
+
+  private void backgroundRefresh() {
+    LeafToken current;
+    synchronized (this) {
+      if (users == 0) return;
+      current = token;
+    }
+    try {
+      refresh(current.value());
+    } catch (SQLException e) {
+      LOG.log(Level.WARNING, "Background token refresh failed, retrying", e);
+      synchronized (this) {
+        if (users > 0 && !token.isExpired(now())) {
+          refreshTask = schedule(TimeUnit.SECONDS.toMillis(REFRESH_RETRY_SECONDS));
+        }
+      }
+    }
+  }
+
+  private String authenticate() throws SQLException {
+    long started = System.nanoTime();
+    try {
+      ObjectMapper mapper = LeafTransport.mapper();
+
+      Map<String, String> authData = new HashMap<>();
+      authData.put("username", url.username());
+      authData.put("password", url.password());
+      authData.put("rememberMe", "true");
+
+      String jsonBody = mapper.writeValueAsString(authData);
+
+      MediaType mediaType = MediaType.parse("application/json; charset=utf-8");
+      RequestBody body = RequestBody.create(jsonBody, mediaType);
+
+      Request request =
+          new Request.Builder()
+              .url(LeafConnection.apiBase() + "/api/authenticate")
+              .addHeader("Content-Type", "application/json")
+              .post(body)
+              .build();
+
+      Call call = client.newCall(request);
+      long loginTimeout = url.longProperty("loginTimeoutSeconds", DriverManager.getLoginTimeout());
+      if (loginTimeout > 0) call.timeout().timeout(loginTimeout, TimeUnit.SECONDS);
+      try (Response response = call.execute()) {
+        if (!response.isSuccessful()) {
+          throw new SQLException(
+              "Authentication failed: HTTP "
+                  + response.code()
+                  + ": "
+                  + (response.body() != null ? response.body().string() : ""));
+        }
+        String responseBody = response.body() != null ? response.body().string() : "";
+        JsonNode root = mapper.readTree(responseBody);
+        if (root.has("id_token")) {
+          return root.get("id_token").asText();
+        }
+        throw new SQLException("Invalid authentication response: missing id_token");
+      }
+    } catch (InterruptedIOException e) {
+      throw new SQLTimeoutException("Timed out authenticating with Leaf API", e);
+    } catch (IOException e) {
+      throw new SQLException("Failed to authenticate with Leaf API", e);
+    } finally {
+      LeafMetrics.driver().authenticated(System.nanoTime() - started);
+    }
+  }
+}
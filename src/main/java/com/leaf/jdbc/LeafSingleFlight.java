@@ -0,0 +1,83 @@
+package com.leaf.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Driver-wide registry of queries in flight, keyed by the authenticated identity, the normalized
+ * SQL text and the decoding settings the result is built with. The first caller of a query leads it
+ * and sends the request; identical queries started before it finishes follow it, waiting for its
+ * decoded result and opening their own cursor over it. Nothing is kept once the leader finishes.
+ *
+ * <p>Only buffered, in-memory results can be shared. When the leader's result is streamed or
+ * spilled to disk, or the leader was cancelled or timed out, its followers send their own request.
+ * Any other error of the leader is the followers' error too.
+ */
+final class LeafSingleFlight {
+  private static final Map<Key, CompletableFuture<LeafColumnarData>> IN_FLIGHT =
+      new ConcurrentHashMap<>();
+
+  private record Key(String identity, String sql, boolean exactDecimals) {}
+
+  private LeafSingleFlight() {}
+
+  /** Leads {@code sql} if no identical query is in flight, or follows the one that is. */
+  static Flight join(String identity, String sql, boolean exactDecimals) {
+    Key key = new Key(identity, LeafSql.normalize(sql), exactDecimals);
+    CompletableFuture<LeafColumnarData> mine = new CompletableFuture<>();
+    CompletableFuture<LeafColumnarData> leading = IN_FLIGHT.putIfAbsent(key, mine);
+    if (leading != null) {
+      LeafMetrics.driver().coalesced();
+      return new Flight(leading, false);
+    }
+    mine.whenComplete((data, error) -> IN_FLIGHT.remove(key, mine));
+    return new Flight(mine, true);
+  }
+
+  /** One caller's place in a flight. */
+  static final class Flight {
+    private final CompletableFuture<LeafColumnarData> result;
+    private final boolean leader;
+
+    private Flight(CompletableFuture<LeafColumnarData> result, boolean leader) {
+      this.result = result;
+      this.leader = leader;
+    }
+
+    boolean leader() {
+      return leader;
+    }
+
+    /** A follower's own view of the leader's result; cancelling it leaves the leader alone. */
+    CompletableFuture<LeafColumnarData> follow() {
+      return result.copy();
+    }
+
+    /** Ends the flight with the leader's result set, or its failure when that is non-null. */
+    void finish(ResultSet resultSet, Throwable failure) {
+      if (failure != null) {
+        result.completeExceptionally(failure);
+      } else if (resultSet instanceof LeafColumnarResultSet) {
+        result.complete(((LeafColumnarResultSet) resultSet).data());
+      } else {
+        result.complete(null);
+      }
+    }
+
+    /** True if the leader failed only because it was cancelled or timed out. */
+    boolean leaderAborted() {
+      if (!result.isCompletedExceptionally()) return false;
+      Throwable error = result.handle((data, e) -> e).join();
+      if (error instanceof CompletionException) error = error.getCause();
+      return error instanceof SQLTimeoutException
+          || (error instanceof SQLException && "57014".equals(((SQLException) error).getSQLState()))
+          || error instanceof CancellationException;
+    }
+  }
+}
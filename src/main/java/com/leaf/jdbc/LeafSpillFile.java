@@ -0,0 +1,293 @@
+package com.leaf.jdbc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Temporary file holding result rows that did not fit the in-memory budget. Rows are written in a
+ * compact tagged binary layout and read back through memory-mapped segments; a row never crosses a
+ * segment boundary, so each segment can be mapped on its own. The file is deleted when the cursor
+ * reading it is closed.
+ *
+ * <p>Row layout: varint cell count, then per cell a tag byte followed by its payload (4-byte int,
+ * 8-byte long or double, or varint length plus bytes: UTF-8 for text and decimals, WKB for
+ * geometries).
+ */
+final class LeafSpillFile implements LeafResultData {
+  static final byte NULL = 0;
+  static final byte FALSE = 1;
+  static final byte TRUE = 2;
+  static final byte INT = 3;
+  static final byte LONG = 4;
+  static final byte DOUBLE = 5;
+  static final byte STRING = 6;
+  static final byte DECIMAL = 7;
+  static final byte BYTES = 8;
+  static final byte GEOMETRY = 9;
+
+  static final long DEFAULT_SEGMENT_BYTES = 256L * 1024 * 1024;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final long segmentLimit;
+  private final List<long[]> segments = new ArrayList<>(); // {start, length, rows}
+  private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(1 << 16);
+  private byte[] row = new byte[256];
+  private int rowLength;
+  private long position;
+  private long segmentStart;
+  private long segmentRows;
+  private String[] names;
+  private int[] types;
+  private boolean opened;
+
+  LeafSpillFile(Path directory, long segmentLimit) throws SQLException {
+    this.segmentLimit = segmentLimit;
+    try {
+      Files.createDirectories(directory);
+      this.path = Files.createTempFile(directory, "leaf-jdbc-", ".spill");
+      this.channel =
+          FileChannel.open(
+              path,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.DELETE_ON_CLOSE);
+    } catch (IOException e) {
+      throw new SQLException("Failed to create spill file in " + directory, e);
+    }
+  }
+
+  Path path() {
+    return path;
+  }
+
+  /** Appends rows [0, rowCount) of the buffered column chunk. */
+  void writeRows(List<LeafColumnVector> columns, int rowCount) throws SQLException {
+    try {
+      for (int r = 0; r < rowCount; r++) {
+        rowLength = 0;
+        putVarint(columns.size());
+        for (LeafColumnVector column : columns) {
+          putCell(column, r);
+        }
+        if (segmentRows > 0 && position - segmentStart + rowLength > segmentLimit) {
+          closeSegment();
+        }
+        write(row, rowLength);
+        segmentRows++;
+      }
+    } catch (IOException e) {
+      discard();
+      throw new SQLException("Failed to write spill file " + path, e);
+    }
+  }
+
+  private void putCell(LeafColumnVector column, int r) {
+    if (column.isNull(r)) {
+      putByte(NULL);
+      return;
+    }
+    switch (column.kind()) {
+      case LeafColumnVector.BOOLEAN:
+        putByte(column.getBoolean(r) ? TRUE : FALSE);
+        return;
+      case LeafColumnVector.LONG:
+        long v = column.getLong(r);
+        if (v == (int) v) {
+          putByte(INT);
+          putInt((int) v);
+        } else {
+          putByte(LONG);
+          putLong(v);
+        }
+        return;
+      case LeafColumnVector.DOUBLE:
+        putByte(DOUBLE);
+        putLong(Double.doubleToRawLongBits(column.getDouble(r)));
+        return;
+      default:
+        putObject(column.getObject(r));
+    }
+  }
+
+  private void putObject(Object value) {
+    if (value instanceof Boolean) {
+      putByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof Integer) {
+      putByte(INT);
+      putInt((Integer) value);
+    } else if (value instanceof Long) {
+      putByte(LONG);
+      putLong((Long) value);
+    } else if (value instanceof Double || value instanceof Float) {
+      putByte(DOUBLE);
+      putLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+    } else if (value instanceof BigDecimal) {
+      putByte(DECIMAL);
+      putText(value.toString());
+    } else if (value instanceof byte[]) {
+      putByte(BYTES);
+      putBytes((byte[]) value);
+    } else if (value instanceof LeafGeometry) {
+      putByte(GEOMETRY);
+      putBytes(((LeafGeometry) value).toWkb());
+    } else {
+      putByte(STRING);
+      putText(value.toString());
+    }
+  }
+
+  private void putText(String text) {
+    putBytes(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void putBytes(byte[] bytes) {
+    putVarint(bytes.length);
+    ensureRow(bytes.length);
+    System.arraycopy(bytes, 0, row, rowLength, bytes.length);
+    rowLength += bytes.length;
+  }
+
+  private void putByte(byte b) {
+    ensureRow(1);
+    row[rowLength++] = b;
+  }
+
+  private void putInt(int v) {
+    ensureRow(4);
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      row[rowLength++] = (byte) (v >>> shift);
+    }
+  }
+
+  private void putLong(long v) {
+    ensureRow(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      row[rowLength++] = (byte) (v >>> shift);
+    }
+  }
+
+  private void putVarint(int v) {
+    ensureRow(5);
+    while ((v & ~0x7F) != 0) {
+      row[rowLength++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    row[rowLength++] = (byte) v;
+  }
+
+  private void ensureRow(int extra) {
+    if (rowLength + extra > row.length) {
+      row = Arrays.copyOf(row, Math.max(rowLength + extra, row.length * 2));
+    }
+  }
+
+  private void write(byte[] bytes, int length) throws IOException {
+    int offset = 0;
+    while (offset < length) {
+      if (!writeBuffer.hasRemaining()) flush();
+      int n = Math.min(writeBuffer.remaining(), length - offset);
+      writeBuffer.put(bytes, offset, n);
+      offset += n;
+    }
+    position += length;
+  }
+
+  private void flush() throws IOException {
+    writeBuffer.flip();
+    while (writeBuffer.hasRemaining()) {
+      channel.write(writeBuffer);
+    }
+    writeBuffer.clear();
+  }
+
+  private void closeSegment() {
+    segments.add(new long[] {segmentStart, position - segmentStart, segmentRows});
+    segmentStart = position;
+    segmentRows = 0;
+  }
+
+  /** Completes the file; no rows may be written afterwards. */
+  void finish(String[] names, int[] types) throws SQLException {
+    this.names = names;
+    this.types = types;
+    try {
+      if (segmentRows > 0) closeSegment();
+      flush();
+    } catch (IOException e) {
+      discard();
+      throw new SQLException("Failed to write spill file " + path, e);
+    }
+  }
+
+  /** Opens the single cursor over this file. Closing it deletes the file. */
+  @Override
+  public LeafSpilledResultSet open(Statement statement) throws SQLException {
+    if (opened) throw new SQLException("Spilled result can only be read once");
+    opened = true;
+    return new LeafSpilledResultSet(statement, this, new LeafResultSetMetaData(names, types));
+  }
+
+  int segmentCount() {
+    return segments.size();
+  }
+
+  long segmentRows(int segment) {
+    return segments.get(segment)[2];
+  }
+
+  MappedByteBuffer map(int segment) throws IOException {
+    long[] s = segments.get(segment);
+    return channel.map(FileChannel.MapMode.READ_ONLY, s[0], s[1]);
+  }
+
+  /**
+   * Closes the channel, which deletes the file. Existing mappings stay readable until collected.
+   */
+  void discard() {
+    try {
+      channel.close();
+    } catch (IOException ignore) {
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException ignore) {
+    }
+  }
+
+  /** Maps a decoded cell to the Java type its column reports, as the in-memory vectors do. */
+  static Object coerce(Object value, int sqlType) {
+    if (sqlType == Types.DOUBLE && (value instanceof Integer || value instanceof Long)) {
+      return ((Number) value).doubleValue();
+    }
+    if (sqlType == Types.BIGINT && value instanceof Integer) {
+      return ((Integer) value).longValue();
+    }
+    // Temporal values are spilled as their JDBC escape-format text
+    if (value instanceof String) {
+      switch (sqlType) {
+        case Types.TIMESTAMP:
+          return java.sql.Timestamp.valueOf((String) value);
+        case Types.DATE:
+          return java.sql.Date.valueOf((String) value);
+        case Types.TIME:
+          return java.sql.Time.valueOf((String) value);
+        default:
+      }
+    }
+    return value;
+  }
+}
@@ -0,0 +1,198 @@
+package com.leaf.jdbc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Forward-only cursor over a {@link LeafSpillFile}. Each segment is memory-mapped in turn; cells of
+ * the current row are located once per row and decoded only when read, so primitive getters do not
+ * allocate.
+ */
+final class LeafSpilledResultSet extends AbstractLeafResultSet {
+  private final LeafSpillFile file;
+  private final LeafResultSetMetaData metaData;
+  private final int[] types;
+  private final int[] offsets;
+  private int cells;
+  private int segment = -1;
+  private long rowsLeftInSegment = 0;
+  private MappedByteBuffer buffer;
+
+  LeafSpilledResultSet(Statement statement, LeafSpillFile file, LeafResultSetMetaData metaData) {
+    super(statement);
+    this.file = file;
+    this.metaData = metaData;
+    this.types = metaData.types();
+    this.offsets = new int[types.length];
+  }
+
+  @Override
+  protected boolean advance() throws SQLException {
+    try {
+      while (rowsLeftInSegment == 0) {
+        if (segment + 1 >= file.segmentCount()) {
+          buffer = null;
+          return false;
+        }
+        segment++;
+        buffer = file.map(segment);
+        rowsLeftInSegment = file.segmentRows(segment);
+      }
+    } catch (IOException e) {
+      throw new SQLException("Failed to map spill file " + file.path(), e);
+    }
+    rowsLeftInSegment--;
+    int count = readVarint();
+    cells = Math.min(count, offsets.length);
+    for (int i = 0; i < count; i++) {
+      if (i < offsets.length) offsets[i] = buffer.position();
+      skipCell();
+    }
+    return true;
+  }
+
+  private int readVarint() {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private void skipCell() {
+    byte tag = buffer.get();
+    switch (tag) {
+      case LeafSpillFile.INT:
+        buffer.position(buffer.position() + 4);
+        break;
+      case LeafSpillFile.LONG:
+      case LeafSpillFile.DOUBLE:
+        buffer.position(buffer.position() + 8);
+        break;
+      case LeafSpillFile.STRING:
+      case LeafSpillFile.DECIMAL:
+      case LeafSpillFile.BYTES:
+      case LeafSpillFile.GEOMETRY:
+        int length = readVarint();
+        buffer.position(buffer.position() + length);
+        break;
+      default:
+    }
+  }
+
+  private int cell(int columnIndex) throws SQLException {
+    ensureRow();
+    checkColumn(columnIndex, types.length);
+    int i = columnIndex - 1;
+    if (i >= cells) return -1;
+    return offsets[i];
+  }
+
+  private byte tag(int offset) {
+    return offset < 0 ? LeafSpillFile.NULL : buffer.get(offset);
+  }
+
+  @Override
+  protected Object value(int columnIndex) throws SQLException {
+    int offset = cell(columnIndex);
+    byte tag = tag(offset);
+    Object v;
+    switch (tag) {
+      case LeafSpillFile.NULL:
+        return null;
+      case LeafSpillFile.FALSE:
+        return Boolean.FALSE;
+      case LeafSpillFile.TRUE:
+        return Boolean.TRUE;
+      case LeafSpillFile.INT:
+        v = buffer.getInt(offset + 1);
+        break;
+      case LeafSpillFile.LONG:
+        v = buffer.getLong(offset + 1);
+        break;
+      case LeafSpillFile.DOUBLE:
+        v = Double.longBitsToDouble(buffer.getLong(offset + 1));
+        break;
+      case LeafSpillFile.BYTES:
+        return readBytes(offset + 1);
+      case LeafSpillFile.GEOMETRY:
+        return LeafGeometry.fromWkb(readBytes(offset + 1));
+      default:
+        String text = new String(readBytes(offset + 1), StandardCharsets.UTF_8);
+        v = tag == LeafSpillFile.DECIMAL ? new BigDecimal(text) : text;
+    }
+    return LeafSpillFile.coerce(v, types[columnIndex - 1]);
+  }
+
+  private byte[] readBytes(int offset) {
+    int saved = buffer.position();
+    buffer.position(offset);
+    int length = readVarint();
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    buffer.position(saved);
+    return bytes;
+  }
+
+  @Override
+  public long getLong(int columnIndex) throws SQLException {
+    int offset = cell(columnIndex);
+    byte tag = tag(offset);
+    trackNull(tag == LeafSpillFile.NULL);
+    switch (tag) {
+      case LeafSpillFile.NULL:
+        return 0L;
+      case LeafSpillFile.INT:
+        return buffer.getInt(offset + 1);
+      case LeafSpillFile.LONG:
+        return buffer.getLong(offset + 1);
+      case LeafSpillFile.DOUBLE:
+        return (long) Double.longBitsToDouble(buffer.getLong(offset + 1));
+      default:
+        return super.getLong(columnIndex);
+    }
+  }
+
+  @Override
+  public int getInt(int columnIndex) throws SQLException {
+    return (int) getLong(columnIndex);
+  }
+
+  @Override
+  public double getDouble(int columnIndex) throws SQLException {
+    int offset = cell(columnIndex);
+    byte tag = tag(offset);
+    trackNull(tag == LeafSpillFile.NULL);
+    switch (tag) {
+      case LeafSpillFile.NULL:
+        return 0d;
+      case LeafSpillFile.INT:
+        return buffer.getInt(offset + 1);
+      case LeafSpillFile.LONG:
+        return buffer.getLong(offset + 1);
+      case LeafSpillFile.DOUBLE:
+        return Double.longBitsToDouble(buffer.getLong(offset + 1));
+      default:
+        return super.getDouble(columnIndex);
+    }
+  }
+
+  @Override
+  public LeafResultSetMetaData getMetaData() {
+    return metaData;
+  }
+
+  @Override
+  protected void release() {
+    buffer = null;
+    file.discard();
+  }
+}
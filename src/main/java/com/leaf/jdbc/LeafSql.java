@@ -0,0 +1,333 @@
+package com.leaf.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/** Lexical helpers for the Spark SQL text sent to the Leaf API. */
+final class LeafSql {
+  private LeafSql() {}
+
+  /**
+   * Canonical form of a query for keying caches: comments dropped, whitespace runs collapsed and
+   * text outside string literals and backtick identifiers lower-cased (Spark SQL identifiers and
+   * keywords are case-insensitive). A trailing semicolon is ignored.
+   */
+  static String normalize(String sql) {
+    StringBuilder out = new StringBuilder(sql.length());
+    int n = sql.length();
+    boolean pendingSpace = false;
+    for (int i = 0; i < n; i++) {
+      char c = sql.charAt(i);
+      if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+        while (i < n && sql.charAt(i) != '\n') i++;
+        pendingSpace = true;
+        continue;
+      }
+      if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*' && !isHint(sql, i)) {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? n : end + 1;
+        pendingSpace = true;
+        continue;
+      }
+      if (Character.isWhitespace(c)) {
+        pendingSpace = true;
+        continue;
+      }
+      if (pendingSpace && out.length() > 0) out.append(' ');
+      pendingSpace = false;
+      if (c == '\'' || c == '"' || c == '`') {
+        int end = skipQuoted(sql, i);
+        out.append(sql, i, end);
+        i = end - 1;
+        continue;
+      }
+      out.append(Character.toLowerCase(c));
+    }
+    int len = out.length();
+    while (len > 0 && (out.charAt(len - 1) == ';' || out.charAt(len - 1) == ' ')) len--;
+    out.setLength(len);
+    return out.toString();
+  }
+
+  /**
+   * The {@link #normalize normalized} query with string and numeric literals replaced by {@code ?}
+   * and lists of them collapsed, so {@code WHERE id IN (1, 2, 3)} and {@code WHERE id IN (4)} share
+   * a fingerprint.
+   */
+  static String fingerprint(String sql) {
+    String normalized = normalize(sql);
+    StringBuilder out = new StringBuilder(normalized.length());
+    int n = normalized.length();
+    for (int i = 0; i < n; i++) {
+      char c = normalized.charAt(i);
+      if (c == '\'' || c == '"') {
+        i = skipQuoted(normalized, i) - 1;
+        appendPlaceholder(out);
+      } else if (c == '`') {
+        int end = skipQuoted(normalized, i);
+        out.append(normalized, i, end);
+        i = end - 1;
+      } else if (Character.isDigit(c) && !isIdentifierPart(out)) {
+        while (i + 1 < n
+            && (Character.isLetterOrDigit(normalized.charAt(i + 1))
+                || normalized.charAt(i + 1) == '.')) {
+          i++;
+        }
+        appendPlaceholder(out);
+      } else {
+        out.append(c);
+      }
+    }
+    return out.toString();
+  }
+
+  // Writes "?" unless it continues a "?, ?" list, which stays a single "?"
+  private static void appendPlaceholder(StringBuilder out) {
+    int len = out.length();
+    if (len >= 3 && out.charAt(len - 1) == ' ' && out.charAt(len - 2) == ',') {
+      if (out.charAt(len - 3) == '?') {
+        out.setLength(len - 2);
+        return;
+      }
+    } else if (len >= 2 && out.charAt(len - 1) == ',' && out.charAt(len - 2) == '?') {
+      out.setLength(len - 1);
+      return;
+    }
+    out.append('?');
+  }
+
+  private static boolean isIdentifierPart(StringBuilder out) {
+    if (out.length() == 0) return false;
+    char last = out.charAt(out.length() - 1);
+    return Character.isLetterOrDigit(last) || last == '_';
+  }
+
+  /**
+   * Pushes a row cap into a query: a top-level {@code LIMIT n} larger than {@code maxRows} is
+   * tightened, and a query without one gets {@code LIMIT maxRows} appended, or inserted before a
+   * top-level OFFSET. Statements that are not read-only queries, or whose LIMIT is not a plain
+   * number, are returned unchanged.
+   */
+  static String limit(String sql, long maxRows) {
+    TopLevel top = scan(sql);
+    if (!top.isReadQuery()) return sql;
+    int limit = top.lastIndexOf("limit");
+    if (limit < 0) {
+      int offset = top.lastIndexOf("offset");
+      if (offset < 0) return sql.substring(0, top.end) + " LIMIT " + maxRows;
+      int at = top.words.get(offset)[0];
+      return sql.substring(0, at) + "LIMIT " + maxRows + " " + sql.substring(at, top.end);
+    }
+    if (limit + 1 >= top.words.size()) return sql;
+    int[] count = top.words.get(limit + 1);
+    String digits = sql.substring(count[0], count[1]);
+    if (!digits.chars().allMatch(Character::isDigit)) return sql;
+    if (digits.length() < 19 && Long.parseLong(digits) <= maxRows) return sql;
+    return sql.substring(0, count[0]) + maxRows + sql.substring(count[1]);
+  }
+
+  /**
+   * True if {@code sql} is a read-only query with a top-level ORDER BY and no LIMIT or OFFSET, so
+   * it can be paged. Without an ORDER BY, Spark may return rows in a different order for each page,
+   * so pages could overlap or skip rows.
+   */
+  static boolean isPageable(String sql) {
+    TopLevel top = scan(sql);
+    return top.isReadQuery()
+        && top.hasOrderBy()
+        && top.lastIndexOf("limit") < 0
+        && top.lastIndexOf("offset") < 0;
+  }
+
+  /** True if {@code sql} only reads, so sending it twice is harmless. */
+  static boolean isReadOnly(String sql) {
+    TopLevel top = scan(sql);
+    if (top.words.isEmpty()) return false;
+    String first = top.word(0);
+    if (top.isQuery()) return top.isReadQuery();
+    return first.equals("show")
+        || first.equals("describe")
+        || first.equals("desc")
+        || first.equals("explain");
+  }
+
+  /** Rewrites a {@link #isPageable pageable} query to return one page of rows. */
+  static String page(String sql, long limit, long offset) {
+    String head = sql.substring(0, scan(sql).end) + " LIMIT " + limit;
+    return offset > 0 ? head + " OFFSET " + offset : head;
+  }
+
+  /** Word tokens outside parentheses, literals and comments, and the end of the last token. */
+  private static final class TopLevel {
+    final String sql;
+    final List<int[]> words = new ArrayList<>();
+    int end;
+
+    TopLevel(String sql) {
+      this.sql = sql;
+    }
+
+    String word(int i) {
+      int[] w = words.get(i);
+      return sql.substring(w[0], w[1]).toLowerCase(Locale.ROOT);
+    }
+
+    int lastIndexOf(String word) {
+      for (int i = words.size() - 1; i >= 0; i--) {
+        if (word(i).equals(word)) return i;
+      }
+      return -1;
+    }
+
+    boolean isQuery() {
+      if (words.isEmpty()) return false;
+      String first = word(0);
+      return first.equals("select") || first.equals("with") || first.equals("from");
+    }
+
+    // A WITH clause may lead into an INSERT or MERGE
+    boolean isReadQuery() {
+      return isQuery() && lastIndexOf("insert") < 0 && lastIndexOf("merge") < 0;
+    }
+
+    boolean hasOrderBy() {
+      int order = lastIndexOf("order");
+      return order >= 0 && order + 1 < words.size() && word(order + 1).equals("by");
+    }
+  }
+
+  private static TopLevel scan(String sql) {
+    TopLevel top = new TopLevel(sql);
+    int n = sql.length();
+    int depth = 0;
+    int i = 0;
+    while (i < n) {
+      char c = sql.charAt(i);
+      if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? n : end + 1;
+        continue;
+      }
+      if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? n : end + 2;
+        continue;
+      }
+      if (Character.isWhitespace(c) || c == ';') {
+        i++;
+        continue;
+      }
+      int start = i;
+      if (c == '\'' || c == '"' || c == '`') {
+        i = skipQuoted(sql, i);
+      } else if (Character.isLetterOrDigit(c) || c == '_') {
+        while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_')) i++;
+        if (depth == 0) top.words.add(new int[] {start, i});
+      } else {
+        if (c == '(') depth++;
+        if (c == ')') depth--;
+        i++;
+      }
+      top.end = i;
+    }
+    return top;
+  }
+
+  private static boolean isHint(String sql, int i) {
+    return i + 2 < sql.length() && sql.charAt(i + 2) == '+';
+  }
+
+  /** Returns the index just past the quoted token starting at {@code start}. */
+  static int skipQuoted(String sql, int start) {
+    char quote = sql.charAt(start);
+    int i = start + 1;
+    while (i < sql.length()) {
+      char c = sql.charAt(i);
+      if (c == '\\' && quote != '`') {
+        i += 2;
+        continue;
+      }
+      if (c == quote) {
+        if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i++;
+    }
+    return sql.length();
+  }
+
+  /**
+   * Renders a bound parameter as a Spark SQL literal. Numeric literals carry their type suffix so
+   * Spark types them like the Java value, and negative numbers are parenthesized so they cannot
+   * merge with a preceding {@code -} into a comment.
+   */
+  static String literal(Object value) throws SQLException {
+    if (value == null) return "NULL";
+    if (value instanceof String || value instanceof Character || value instanceof UUID) {
+      return quote(value.toString());
+    }
+    if (value instanceof Boolean) return (Boolean) value ? "TRUE" : "FALSE";
+    if (value instanceof Integer) return signed(value.toString());
+    if (value instanceof Long) return signed(value + "L");
+    if (value instanceof Short) return signed(value + "S");
+    if (value instanceof Byte) return signed(value + "Y");
+    if (value instanceof Double || value instanceof Float) {
+      double d = ((Number) value).doubleValue();
+      String type = value instanceof Double ? "DOUBLE" : "FLOAT";
+      if (Double.isNaN(d) || Double.isInfinite(d)) {
+        return "CAST('" + d + "' AS " + type + ")";
+      }
+      return signed(value + (value instanceof Double ? "D" : "F"));
+    }
+    if (value instanceof BigDecimal) return signed(((BigDecimal) value).toPlainString() + "BD");
+    if (value instanceof java.math.BigInteger) return signed(value + "BD");
+    if (value instanceof java.sql.Date || value instanceof LocalDate) {
+      return "DATE '" + value + "'";
+    }
+    if (value instanceof java.sql.Timestamp || value instanceof LocalDateTime) {
+      return "TIMESTAMP '" + value.toString().replace('T', ' ') + "'";
+    }
+    if (value instanceof java.time.Instant) {
+      return "TIMESTAMP '" + value + "'";
+    }
+    if (value instanceof java.sql.Time) return quote(value.toString());
+    if (value instanceof byte[]) return hex((byte[]) value);
+    throw new SQLFeatureNotSupportedException(
+        "Unsupported parameter type: " + value.getClass().getName());
+  }
+
+  private static String signed(String number) {
+    return number.charAt(0) == '-' ? "(" + number + ")" : number;
+  }
+
+  // Spark processes backslash escapes in string literals, so both quotes and backslashes are
+  // escaped
+  private static String quote(String s) {
+    StringBuilder out = new StringBuilder(s.length() + 2).append('\'');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\'' || c == '\\') out.append('\\');
+      out.append(c);
+    }
+    return out.append('\'').toString();
+  }
+
+  private static String hex(byte[] bytes) {
+    char[] digits = "0123456789ABCDEF".toCharArray();
+    StringBuilder out = new StringBuilder(bytes.length * 2 + 3).append("X'");
+    for (byte b : bytes) {
+      out.append(digits[(b >> 4) & 0xF]).append(digits[b & 0xF]);
+    }
+    return out.append('\'').toString();
+  }
+}
@@ -0,0 +1,78 @@
+package com.leaf.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prepared SQL text split once around its {@code ?} placeholders. Placeholders inside string
+ * literals, backtick identifiers and comments are left alone. Immutable, so connections share
+ * instances between statements preparing the same SQL.
+ */
+final class LeafSqlTemplate {
+  private final String sql;
+  private final String[] fragments;
+  private final int fragmentLength;
+
+  private LeafSqlTemplate(String sql, String[] fragments) {
+    this.sql = sql;
+    this.fragments = fragments;
+    int length = 0;
+    for (String fragment : fragments) {
+      length += fragment.length();
+    }
+    this.fragmentLength = length;
+  }
+
+  static LeafSqlTemplate parse(String sql) {
+    List<String> fragments = new ArrayList<>();
+    int n = sql.length();
+    int start = 0;
+    int i = 0;
+    while (i < n) {
+      char c = sql.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        i = LeafSql.skipQuoted(sql, i);
+      } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? n : end + 1;
+      } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? n : end + 2;
+      } else if (c == '?') {
+        fragments.add(sql.substring(start, i));
+        start = ++i;
+      } else {
+        i++;
+      }
+    }
+    fragments.add(sql.substring(start));
+    return new LeafSqlTemplate(sql, fragments.toArray(new String[0]));
+  }
+
+  String sql() {
+    return sql;
+  }
+
+  int parameterCount() {
+    return fragments.length - 1;
+  }
+
+  /** Splices already-rendered literals into the placeholders. Every slot must be bound. */
+  String render(String[] literals) throws SQLException {
+    if (literals.length == 0) return sql;
+    int length = fragmentLength;
+    for (int i = 0; i < literals.length; i++) {
+      if (literals[i] == null) {
+        throw new SQLException("No value specified for parameter " + (i + 1), "07001");
+      }
+      length += literals[i].length();
+    }
+    StringBuilder out = new StringBuilder(length);
+    out.append(fragments[0]);
+    for (int i = 0; i < literals.length; i++) {
+      out.append(literals[i]).append(fragments[i + 1]);
+    }
+    return out.toString();
+  }
+}
@@ -1,45 +1,72 @@
 package com.leaf.jdbc;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import javax.sql.rowset.CachedRowSet;
-import javax.sql.rowset.RowSetMetaDataImpl;
-import javax.sql.rowset.RowSetProvider;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
-final class LeafStatement implements Statement {
+class LeafStatement implements Statement, LeafAsyncStatement {
   private final LeafConnection connection;
-  private final OkHttpClient client =
-      new OkHttpClient.Builder()
-          .connectTimeout(30, TimeUnit.MINUTES)
-          .readTimeout(30, TimeUnit.MINUTES)
-          .writeTimeout(30, TimeUnit.MINUTES)
-          .build();
-  private final ObjectMapper mapper = new ObjectMapper();
-  private boolean closed = false;
+  // The connection callers see: a pooled connection's statements report its logical connection
+  private volatile Connection reportedConnection;
+  private final Set<Call> asyncCalls = ConcurrentHashMap.newKeySet();
+  private final Set<CompletableFuture<?>> waits = ConcurrentHashMap.newKeySet();
+  private volatile Call currentCall;
+  // Bumped by cancel(); an execution that began before the bump must not start new calls or waits
+  private final AtomicLong cancels = new AtomicLong();
+  private int queryTimeoutSeconds = 0;
+  private final ObjectMapper mapper = LeafTransport.mapper();
+  private volatile boolean closed = false;
   private int fetchSize = 0;
+  private long maxRows = 0;
   private ResultSet lastResultSet = null;
+  private final List<String> batch = new ArrayList<>();
+  private final ArrayDeque<ResultSet> batchResults = new ArrayDeque<>();
+  private final List<ResultSet> keptResults = new ArrayList<>();
 
   LeafStatement(LeafConnection connection) {
     this.connection = connection;
@@ -48,165 +75,723 @@ final class LeafStatement implements Statement {
   @Override
   public ResultSet executeQuery(String sql) throws SQLException {
     ensureOpen();
+    closeLastResultSet();
     // Skip Calcite validation - it doesn't support all Spark SQL syntaxes
     // The Leaf API will perform final validation anyway
 
-    try {
-      // Use system property for testing, otherwise use production endpoint
-      String queryBase =
-          System.getProperty(
-              "leaf.query.base", "https://api.withleaf.io/services/pointlake/api/v2/query");
-      HttpUrl base = Objects.requireNonNull(HttpUrl.parse(queryBase));
-      HttpUrl url = base.newBuilder().addQueryParameter("sqlEngine", "SPARK_SQL").build();
-
-      // Create request body with SQL query as plain text
-      MediaType mediaType = MediaType.parse("text/plain; charset=utf-8");
-      RequestBody body = RequestBody.create(sql, mediaType);
-
-      Request request =
-          new Request.Builder()
-              .url(url)
-              .addHeader("Authorization", "Bearer " + connection.token())
-              .addHeader("Content-Type", "text/plain; charset=utf-8")
-              .post(body)
-              .build();
-
-      try (Response response = client.newCall(request).execute()) {
-        if (!response.isSuccessful()) {
-          throw new SQLException(
-              "HTTP "
-                  + response.code()
-                  + ": "
-                  + (response.body() != null ? response.body().string() : ""));
+    LeafJdbcUrl url = connection.jdbcUrl();
+    List<String> partitions =
+        LeafPartitioner.split(
+            sql, url.property("partitionColumn"), url.intProperty("partitionCount", 4));
+    sql = LeafPartitioner.stripHint(sql);
+
+    ResultSet rs;
+    if (partitions != null) {
+      List<CompletableFuture<ResultSet>> parts = new ArrayList<>(partitions.size());
+      for (String part : partitions) {
+        parts.add(submit(pushDown(part), null));
+      }
+      rs = capped(LeafMergedResultSet.open(this, parts));
+    } else if (fetchSize > 0
+        && url.booleanProperty("pagedFetch", false)
+        && LeafSql.isPageable(sql)) {
+      rs = LeafPagedResultSet.open(this, sql, fetchSize, maxRows, page -> submit(page, null));
+    } else {
+      long generation = cancels.get();
+      String pushed = pushDown(sql);
+      rs = fromCache(pushed);
+      LeafSingleFlight.Flight flight = rs == null ? joinFlight(pushed) : null;
+      if (flight != null && !flight.leader()) rs = follow(flight, generation);
+      if (rs == null) {
+        LeafQueryTrace trace = LeafQueryTrace.start(connection, pushed);
+        Throwable failure = null;
+        try {
+          rs = toResultSet(pushed, send(pushed, trace, generation), trace);
+        } catch (IOException e) {
+          SQLException error = ioError(e, currentCall);
+          failure = error;
+          throw error;
+        } catch (SQLException | RuntimeException e) {
+          failure = e;
+          throw e;
+        } finally {
+          currentCall = null;
+          trace.finish(failure);
+          if (flight != null && flight.leader()) flight.finish(rs, failure);
         }
-        String responseBody = response.body() != null ? response.body().string() : "";
-        ResultSet rs = parseJsonToResultSet(responseBody);
-        this.lastResultSet = rs;
-        return rs;
       }
-    } catch (IOException e) {
-      throw new SQLException("I/O error on HTTP call", e);
+      rs = capped(rs);
     }
+    this.lastResultSet = rs;
+    return rs;
   }
 
-  private ResultSet parseJsonToResultSet(String body) throws SQLException {
-    try {
-      JsonNode root = mapper.readTree(body);
+  /** Adds or tightens a LIMIT so the API never returns more than {@code maxRows} rows. */
+  private String pushDown(String sql) {
+    return maxRows > 0 ? LeafSql.limit(sql, maxRows) : sql;
+  }
 
-      List<String> columns = new ArrayList<>();
-      List<List<Object>> rows = new ArrayList<>();
+  // Statements the LIMIT rewrite cannot touch are still capped on the client
+  private ResultSet capped(ResultSet rs) {
+    if (maxRows > 0 && rs instanceof AbstractLeafResultSet) {
+      ((AbstractLeafResultSet) rs).limitRows(maxRows);
+    }
+    return rs;
+  }
 
-      if (root == null || root.isNull()) {
-        return buildRowSet(columns, rows);
-      }
+  @Override
+  public CompletableFuture<ResultSet> executeQueryAsync(String sql) {
+    return executeQueryAsync(sql, null);
+  }
 
-      if (root.isObject() && root.has("columns") && root.has("rows")) {
-        for (JsonNode c : root.get("columns")) {
-          columns.add(c.asText());
-        }
-        for (JsonNode r : root.get("rows")) {
-          List<Object> row = new ArrayList<>();
-          for (int i = 0; i < columns.size(); i++) {
-            JsonNode cell = r.get(i);
-            row.add(jsonToJava(cell));
-          }
-          rows.add(row);
-        }
-        return buildRowSet(columns, rows);
+  @Override
+  public CompletableFuture<ResultSet> executeQueryAsync(String sql, Executor executor) {
+    return submit(pushDown(sql), executor);
+  }
+
+  private CompletableFuture<ResultSet> submit(String sql, Executor executor) {
+    long generation = cancels.get();
+    CompletableFuture<ResultSet> result = new CompletableFuture<>();
+    try {
+      ensureOpen();
+      ResultSet cached = fromCache(sql);
+      if (cached != null) {
+        result.complete(capped(cached));
+        return result;
       }
+    } catch (SQLException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    LeafSingleFlight.Flight flight = joinFlight(sql);
+    if (flight == null || flight.leader()) {
+      if (flight != null) result.whenComplete(flight::finish);
+      sendTraced(sql, executor, result, generation);
+      return result;
+    }
+    CompletableFuture<LeafColumnarData> wait = waitFor(flight.follow(), generation);
+    result.whenComplete((rs, error) -> wait.cancel(false));
+    wait.whenComplete(
+        (data, error) -> {
+          if (error == null && data != null) {
+            result.complete(capped(data.cursor(this)));
+          } else if (error == null || (!wait.isCancelled() && flight.leaderAborted())) {
+            sendTraced(sql, executor, result, generation);
+          } else {
+            result.completeExceptionally(asSqlException(error));
+          }
+        });
+    return result;
+  }
 
-      JsonNode dataNode = root.isArray() ? root : root.get("data");
-      if (dataNode != null && dataNode.isArray()) {
-        Set<String> cols = new LinkedHashSet<>();
-        for (JsonNode obj : dataNode) {
-          if (obj.isObject()) {
-            Iterator<String> names = obj.fieldNames();
-            while (names.hasNext()) cols.add(names.next());
+  private void sendTraced(
+      String sql, Executor executor, CompletableFuture<ResultSet> result, long generation) {
+    LeafQueryTrace trace = LeafQueryTrace.start(connection, sql);
+    // Listeners hear the outcome before the caller's future completes
+    CompletableFuture<ResultSet> traced = new CompletableFuture<>();
+    traced.whenComplete(
+        (rs, error) -> {
+          trace.finish(error);
+          if (error == null) result.complete(rs);
+          else result.completeExceptionally(error);
+        });
+    result.whenComplete((rs, error) -> traced.cancel(false));
+    sendAsync(sql, connection.token(), true, 0, executor, trace, traced, generation);
+  }
+
+  /**
+   * Joins the flight of an identical query when {@code coalesceQueries} is on; null when it is off
+   * or the result would be streamed, which cannot be shared.
+   */
+  private LeafSingleFlight.Flight joinFlight(String sql) {
+    LeafJdbcUrl url = connection.jdbcUrl();
+    if (!url.booleanProperty("coalesceQueries", false) || url.booleanProperty("streaming", false)) {
+      return null;
+    }
+    return LeafSingleFlight.join(
+        connection.identity(), sql, url.booleanProperty("exactDecimals", false));
+  }
+
+  /**
+   * Waits for the leader of {@code flight} and opens a cursor over its result, or returns null when
+   * this query must be sent after all.
+   */
+  private ResultSet follow(LeafSingleFlight.Flight flight, long generation) throws SQLException {
+    CompletableFuture<LeafColumnarData> wait = waitFor(flight.follow(), generation);
+    LeafColumnarData data;
+    try {
+      data = await(wait);
+    } catch (IOException e) {
+      throw ioError(e, null);
+    } catch (SQLException e) {
+      // The leader's own cancellation or timeout is no reason to fail this query
+      if (!wait.isCancelled() && flight.leaderAborted()) return null;
+      throw e;
+    }
+    return data == null ? null : data.cursor(this);
+  }
+
+  /** Registers {@code wait} so {@link #cancel()} aborts it, bounded by the query timeout if set. */
+  private <T> CompletableFuture<T> waitFor(CompletableFuture<T> wait, long generation) {
+    waits.add(wait);
+    wait.whenComplete((value, error) -> waits.remove(wait));
+    if (queryTimeoutSeconds > 0) wait.orTimeout(queryTimeoutSeconds, TimeUnit.SECONDS);
+    // cancel() may have run before the wait was published
+    if (cancelledSince(generation)) wait.cancel(false);
+    return wait;
+  }
+
+  private static SQLException asSqlException(Throwable error) {
+    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+    if (cause instanceof SQLException) return (SQLException) cause;
+    if (cause instanceof CancellationException) {
+      return new SQLException("Query was cancelled", "57014", cause);
+    }
+    if (cause instanceof TimeoutException) {
+      return new SQLTimeoutException("Query timed out", "57014", cause);
+    }
+    return new SQLException(cause);
+  }
+
+  /**
+   * Asynchronous counterpart of {@link #send(String, LeafQueryTrace, long)}: no thread waits on the
+   * HTTP call. Decoding runs on {@code executor}, or on the HTTP client's callback thread when it
+   * is null.
+   */
+  private void sendAsync(
+      String sql,
+      String token,
+      boolean retryOn401,
+      int retries,
+      Executor executor,
+      LeafQueryTrace trace,
+      CompletableFuture<ResultSet> result,
+      long generation) {
+    LeafRetryPolicy policy = connection.retryPolicy();
+    boolean idempotent = LeafSql.isReadOnly(sql);
+    Attempt attempt =
+        new Attempt(
+            newRequest(sql, token),
+            trace,
+            idempotent ? policy.hedgeDelayMillis(LeafMetrics.driver()) : -1,
+            generation);
+    result.whenComplete(
+        (rs, error) -> {
+          if (result.isCancelled()) attempt.cancel();
+          attempt.release();
+        });
+    attempt.response.whenComplete(
+        (response, error) -> {
+          if (error != null) {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof IOException) {
+              long delay = idempotent ? policy.delayMillis(retries, null) : -1;
+              if (canRetry(trace, delay, generation)) {
+                retryAsync(
+                    delay,
+                    () ->
+                        sendAsync(
+                            sql,
+                            token,
+                            retryOn401,
+                            retries + 1,
+                            executor,
+                            trace,
+                            result,
+                            generation),
+                    result,
+                    generation);
+                return;
+              }
+              cause = ioError((IOException) cause, null);
+            }
+            result.completeExceptionally(cause);
+            return;
           }
-        }
-        columns.addAll(cols);
-        for (JsonNode obj : dataNode) {
-          List<Object> row = new ArrayList<>();
-          for (String c : columns) {
-            JsonNode cell = obj.get(c);
-            row.add(jsonToJava(cell));
+          if (response.code() == 401 && retryOn401) {
+            response.close();
+            // Re-authentication is a blocking call; keep it off the client's callback thread
+            Executor reauth = executor != null ? executor : ForkJoinPool.commonPool();
+            runOn(
+                reauth,
+                result,
+                null,
+                () -> {
+                  String fresh = connection.refreshToken(token);
+                  sendAsync(sql, fresh, false, retries, executor, trace, result, generation);
+                });
+            return;
           }
-          rows.add(row);
-        }
-        return buildRowSet(columns, rows);
+          if (!response.isSuccessful()) {
+            long delay =
+                idempotent && LeafRetryPolicy.isRetryable(response.code())
+                    ? policy.delayMillis(retries, response.header("Retry-After"))
+                    : -1;
+            if (canRetry(trace, delay, generation)) {
+              response.close();
+              retryAsync(
+                  delay,
+                  () ->
+                      sendAsync(
+                          sql, token, retryOn401, retries + 1, executor, trace, result, generation),
+                  result,
+                  generation);
+              return;
+            }
+            try (response) {
+              result.completeExceptionally(httpError(response));
+            } catch (IOException e) {
+              result.completeExceptionally(ioError(e, null));
+            }
+            return;
+          }
+          runOn(
+              executor,
+              result,
+              response,
+              () -> result.complete(capped(toResultSet(sql, response, trace))));
+        });
+  }
+
+  private void retryAsync(
+      long delayMillis, Runnable resend, CompletableFuture<ResultSet> result, long generation) {
+    CompletableFuture<Void> wait = backoff(delayMillis, generation);
+    result.whenComplete((rs, error) -> wait.cancel(false));
+    wait.whenComplete(
+        (ignored, error) -> {
+          if (error != null) {
+            result.completeExceptionally(new SQLException("Query was cancelled", "57014", error));
+          } else if (!result.isDone()) {
+            resend.run();
+          }
+        });
+  }
+
+  /**
+   * Completes after {@code millis} on the driver scheduler; {@link #cancel()} cancels it, which is
+   * how a query waiting to be retried is aborted.
+   */
+  private CompletableFuture<Void> backoff(long millis, long generation) {
+    LeafMetrics.driver().retried();
+    CompletableFuture<Void> wait = new CompletableFuture<>();
+    ScheduledFuture<?> timer =
+        LeafTransport.scheduler()
+            .schedule(() -> wait.complete(null), millis, TimeUnit.MILLISECONDS);
+    wait.whenComplete((ignored, error) -> timer.cancel(false));
+    waits.add(wait);
+    wait.whenComplete((ignored, error) -> waits.remove(wait));
+    // cancel() may have run before the wait was published
+    if (cancelledSince(generation)) wait.cancel(false);
+    return wait;
+  }
+
+  /**
+   * True if the statement was closed, or cancelled after an execution began at {@code generation}.
+   */
+  private boolean cancelledSince(long generation) {
+    return closed || cancels.get() != generation;
+  }
+
+  /** True if a retry after {@code delayMillis} (-1 for none) still fits the query timeout. */
+  private boolean canRetry(LeafQueryTrace trace, long delayMillis, long generation) {
+    if (delayMillis < 0 || cancelledSince(generation)) return false;
+    if (queryTimeoutSeconds <= 0) return true;
+    long budget = TimeUnit.SECONDS.toNanos(queryTimeoutSeconds);
+    return trace.elapsedNanos() + TimeUnit.MILLISECONDS.toNanos(delayMillis) < budget;
+  }
+
+  /**
+   * One try at a query: a call, and with hedging a duplicate sent if the first has not answered
+   * within the hedge delay. {@link #response} completes with the first response to arrive and the
+   * other call is cancelled. It fails with the {@code IOException} of a transient network error, or
+   * with a {@code SQLException} when the calls were cancelled or timed out.
+   */
+  private final class Attempt implements Callback {
+    final CompletableFuture<Response> response = new CompletableFuture<>();
+    private final Request request;
+    private final LeafQueryTrace trace;
+    private final List<Call> calls = new CopyOnWriteArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicReference<Call> winner = new AtomicReference<>();
+    private final long generation;
+    private final long sent = System.nanoTime();
+
+    Attempt(Request request, LeafQueryTrace trace, long hedgeDelayMillis, long generation) {
+      this.request = request;
+      this.trace = trace;
+      this.generation = generation;
+      response.whenComplete(
+          (r, error) -> {
+            for (Call call : calls) {
+              if (call != winner.get()) call.cancel();
+            }
+          });
+      start();
+      if (hedgeDelayMillis >= 0) {
+        ScheduledFuture<?> hedge =
+            LeafTransport.scheduler()
+                .schedule(this::hedge, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        response.whenComplete((r, error) -> hedge.cancel(false));
+      }
+    }
+
+    /** The call whose response won, or null. */
+    Call winner() {
+      return winner.get();
+    }
+
+    /** Aborts every call, including one whose response body is being read. */
+    void cancel() {
+      response.cancel(false);
+      for (Call call : calls) {
+        call.cancel();
       }
+    }
+
+    /** Stops tracking the winning call for {@link #cancel()} once its response is consumed. */
+    void release() {
+      Call call = winner.get();
+      if (call != null) asyncCalls.remove(call);
+    }
+
+    private void start() {
+      Call call = newCall(request);
+      calls.add(call);
+      asyncCalls.add(call);
+      pending.incrementAndGet();
+      // cancel() or completion may have run before the call was published
+      if (cancelledSince(generation) || response.isDone()) call.cancel();
+      call.enqueue(this);
+    }
+
+    private void hedge() {
+      if (response.isDone()) return;
+      LeafMetrics.driver().hedged();
+      start();
+    }
 
-      return buildRowSet(columns, rows);
+    @Override
+    public void onResponse(Call call, Response r) {
+      if (winner.compareAndSet(null, call)) {
+        trace.firstByte(System.nanoTime() - sent);
+        if (response.complete(r)) return;
+      }
+      asyncCalls.remove(call);
+      r.close();
+    }
+
+    @Override
+    public void onFailure(Call call, IOException e) {
+      asyncCalls.remove(call);
+      // A hedge still in flight may yet answer
+      if (pending.decrementAndGet() > 0) return;
+      if (e instanceof InterruptedIOException || call.isCanceled()) {
+        response.completeExceptionally(ioError(e, call));
+      } else {
+        response.completeExceptionally(e);
+      }
+    }
+  }
+
+  private interface AsyncStep {
+    void run() throws SQLException;
+  }
+
+  private static void runOn(
+      Executor executor, CompletableFuture<ResultSet> result, Response response, AsyncStep step) {
+    Runnable task =
+        () -> {
+          try {
+            step.run();
+          } catch (SQLException | RuntimeException e) {
+            if (response != null) response.close();
+            result.completeExceptionally(e);
+          }
+        };
+    if (executor == null) {
+      task.run();
+      return;
+    }
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      if (response != null) response.close();
+      result.completeExceptionally(new SQLException("Executor rejected query task", e));
+    }
+  }
+
+  private ResultSet fromCache(String sql) throws SQLException {
+    LeafResultCache cache = connection.resultCache();
+    if (cache == null) return null;
+    LeafColumnarData cached =
+        cache.get(
+            connection.identity(),
+            sql,
+            connection.jdbcUrl().booleanProperty("exactDecimals", false));
+    return cached == null ? null : cached.cursor(this);
+  }
+
+  /** Decodes a successful response into a result set; the response is consumed or handed off. */
+  private ResultSet toResultSet(String sql, Response response, LeafQueryTrace trace)
+      throws SQLException {
+    LeafJdbcUrl url = connection.jdbcUrl();
+    boolean exactDecimals = url.booleanProperty("exactDecimals", false);
+    LeafDecoder decoder =
+        LeafDecoders.forContentType(response.header("Content-Type"), exactDecimals);
+    if (decoder instanceof LeafJsonDecoder && url.booleanProperty("streaming", false)) {
+      ResultSet streaming = openStreaming(response, exactDecimals);
+      trace.decoded(-1, -1, -1);
+      return streaming;
+    }
+
+    LeafResultData data;
+    try (response) {
+      ResponseBody body = response.body();
+      data =
+          body != null
+              ? decode(decoder, body.byteStream(), trace)
+              : decode(decoder, InputStream.nullInputStream(), trace);
     } catch (IOException e) {
-      throw new SQLException("Failed to parse JSON", e);
-    }
-  }
-
-  private ResultSet buildRowSet(List<String> columns, List<List<Object>> rows) throws SQLException {
-    CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet();
-    RowSetMetaDataImpl md = new RowSetMetaDataImpl();
-    // Fallback: DBeaver doesn't accept ResultSet without columns. If empty, create a generic
-    // column.
-    if (columns == null || columns.isEmpty()) {
-      columns = new ArrayList<>();
-      columns.add("result");
-    }
-    if (rows == null) {
-      rows = new ArrayList<>();
-    }
-    md.setColumnCount(columns.size());
-    // Infer column types from first non-null value per column
-    int[] colTypes = new int[columns.size()];
-    for (int i = 0; i < columns.size(); i++) {
-      colTypes[i] = inferSqlType(findFirstNonNull(rows, i));
-    }
-    for (int i = 0; i < columns.size(); i++) {
-      md.setColumnName(i + 1, columns.get(i));
-      md.setColumnType(i + 1, colTypes[i]);
-      md.setNullable(i + 1, ResultSetMetaData.columnNullable);
-    }
-    crs.setMetaData(md);
-    for (int r = rows.size() - 1; r >= 0; r--) {
-      List<Object> row = rows.get(r);
-      crs.moveToInsertRow();
-      for (int i = 0; i < columns.size(); i++) {
-        crs.updateObject(i + 1, i < row.size() ? row.get(i) : null);
+      throw ioError(e, currentCall);
+    }
+    LeafResultCache cache = connection.resultCache();
+    if (cache != null && data instanceof LeafColumnarData) {
+      cache.put(
+          connection.identity(),
+          sql,
+          exactDecimals,
+          (LeafColumnarData) data,
+          connection
+              .jdbcUrl()
+              .longProperty("resultCacheTtlSeconds", LeafResultCache.DEFAULT_TTL_SECONDS));
+    }
+    return data.open(this);
+  }
+
+  /**
+   * Posts the query and returns the successful response. An HTTP 401 means the token was revoked or
+   * expired early; the connection re-authenticates once and the query is retried. Read-only queries
+   * are also retried after transient failures, and hedged, per the connection's {@link
+   * LeafRetryPolicy}.
+   */
+  private Response send(String sql, LeafQueryTrace trace, long generation)
+      throws IOException, SQLException {
+    LeafRetryPolicy policy = connection.retryPolicy();
+    boolean idempotent = LeafSql.isReadOnly(sql);
+    String token = connection.token();
+    boolean reauthenticated = false;
+    int retries = 0;
+    while (true) {
+      Response response;
+      try {
+        response = execute(newRequest(sql, token), trace, idempotent, generation);
+      } catch (IOException e) {
+        long delay =
+            idempotent && isTransient(e, currentCall) ? policy.delayMillis(retries, null) : -1;
+        if (!canRetry(trace, delay, generation)) throw e;
+        await(backoff(delay, generation));
+        retries++;
+        continue;
+      }
+      if (response.code() == 401 && !reauthenticated) {
+        response.close();
+        token = connection.refreshToken(token);
+        reauthenticated = true;
+        continue;
       }
-      crs.insertRow();
-      crs.moveToCurrentRow();
+      if (response.isSuccessful()) return response;
+      long delay =
+          idempotent && LeafRetryPolicy.isRetryable(response.code())
+              ? policy.delayMillis(retries, response.header("Retry-After"))
+              : -1;
+      if (!canRetry(trace, delay, generation)) {
+        try (Response failed = response) {
+          throw httpError(failed);
+        }
+      }
+      response.close();
+      await(backoff(delay, generation));
+      retries++;
+    }
+  }
+
+  private static boolean isTransient(IOException e, Call call) {
+    return !(e instanceof InterruptedIOException) && (call == null || !call.isCanceled());
+  }
+
+  // Blocks on this thread, or races a hedge on the client's threads when hedging is on
+  private Response execute(
+      Request request, LeafQueryTrace trace, boolean idempotent, long generation)
+      throws IOException, SQLException {
+    long hedgeDelay =
+        idempotent ? connection.retryPolicy().hedgeDelayMillis(LeafMetrics.driver()) : -1;
+    if (hedgeDelay < 0) return executeCall(request, trace, generation);
+    Attempt attempt = new Attempt(request, trace, hedgeDelay, generation);
+    Response response = await(attempt.response);
+    currentCall = attempt.winner();
+    attempt.release();
+    return response;
+  }
+
+  private <T> T await(CompletableFuture<T> pending) throws IOException, SQLException {
+    try {
+      return pending.get();
+    } catch (InterruptedException e) {
+      pending.cancel(false);
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for the query", e);
+    } catch (CancellationException e) {
+      throw new SQLException("Query was cancelled", "57014", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      throw asSqlException(cause);
+    }
+  }
+
+  private Response executeCall(Request request, LeafQueryTrace trace, long generation)
+      throws IOException, SQLException {
+    Call call = newCall(request);
+    currentCall = call;
+    // cancel() may have run between starting the execution and publishing the call
+    if (cancelledSince(generation)) call.cancel();
+    long sent = System.nanoTime();
+    Response response = call.execute();
+    trace.firstByte(System.nanoTime() - sent);
+    return response;
+  }
+
+  /** Creates a call on the connection's current client, bounded by the query timeout if set. */
+  private Call newCall(Request request) {
+    Call call = connection.httpClient().newCall(request);
+    if (queryTimeoutSeconds > 0) {
+      call.timeout().timeout(queryTimeoutSeconds, TimeUnit.SECONDS);
+    }
+    return call;
+  }
+
+  private static SQLException ioError(IOException e, Call call) {
+    // An expired call timeout also marks the call cancelled, so check for it first
+    if (e instanceof InterruptedIOException) {
+      return new SQLTimeoutException("Query timed out", "57014", e);
+    }
+    if (call != null && call.isCanceled()) {
+      return new SQLException("Query was cancelled", "57014", e);
     }
-    crs.beforeFirst();
-    return crs;
+    return new SQLException("I/O error on HTTP call", e);
   }
 
-  private Object findFirstNonNull(List<List<Object>> rows, int columnIndex) {
-    for (List<Object> row : rows) {
-      if (columnIndex < row.size()) {
-        Object v = row.get(columnIndex);
-        if (v != null) return v;
+  private static Request newRequest(String sql, String token) {
+    // Use system property for testing, otherwise use production endpoint
+    String queryBase =
+        System.getProperty(
+            "leaf.query.base", "https://api.withleaf.io/services/pointlake/api/v2/query");
+    HttpUrl base = Objects.requireNonNull(HttpUrl.parse(queryBase));
+    HttpUrl url = base.newBuilder().addQueryParameter("sqlEngine", "SPARK_SQL").build();
+
+    // Create request body with SQL query as plain text
+    MediaType mediaType = MediaType.parse("text/plain; charset=utf-8");
+    RequestBody body = RequestBody.create(sql, mediaType);
+
+    return new Request.Builder()
+        .url(url)
+        .addHeader("Authorization", "Bearer " + token)
+        .addHeader("Content-Type", "text/plain; charset=utf-8")
+        .addHeader("Accept", LeafDecoders.ACCEPT)
+        .post(body)
+        .build();
+  }
+
+  private ResultSet openStreaming(Response response, boolean exactDecimals) throws SQLException {
+    try {
+      ResponseBody responseBody = Objects.requireNonNull(response.body());
+      // The cursor owns the response from here on and closes it when done
+      return LeafStreamingResultSet.open(
+          this,
+          mapper,
+          LeafMetrics.driver().count(responseBody.byteStream()),
+          response,
+          exactDecimals);
+    } catch (SQLException | RuntimeException e) {
+      response.close();
+      throw e;
+    }
+  }
+
+  private static SQLException httpError(Response response) throws IOException {
+    return new SQLException(
+        "HTTP "
+            + response.code()
+            + ": "
+            + (response.body() != null ? response.body().string() : ""));
+  }
+
+  private LeafColumnarBuilder newBuilder() throws SQLException {
+    LeafJdbcUrl url = connection.jdbcUrl();
+    long threshold = url.longProperty("spillThresholdBytes", 0);
+    if (threshold <= 0) {
+      return new LeafColumnarBuilder();
+    }
+    String dir = url.property("spillDirectory");
+    Path directory = dir != null ? Paths.get(dir) : Paths.get(System.getProperty("java.io.tmpdir"));
+    return new LeafColumnarBuilder(threshold, directory, LeafSpillFile.DEFAULT_SEGMENT_BYTES);
+  }
+
+  private LeafResultData decode(LeafDecoder decoder, InputStream body, LeafQueryTrace trace)
+      throws IOException, SQLException {
+    LeafColumnarBuilder builder = newBuilder();
+    LeafMetrics metrics = LeafMetrics.driver();
+    try (LeafMetrics.CountingStream counted = metrics.count(body)) {
+      long started = System.nanoTime();
+      decoder.decode(counted, builder);
+      long decodeNanos = System.nanoTime() - started - counted.readNanos();
+      metrics.decoded(decodeNanos);
+      long sealing = System.nanoTime();
+      long estimated = builder.estimatedBytes();
+      LeafResultData data = builder.finish();
+      metrics.materialized(System.nanoTime() - sealing, estimated);
+      trace.decoded(decodeNanos, builder.rowCount(), counted.bytes());
+      return data;
+    } catch (IOException | SQLException | RuntimeException e) {
+      builder.abort();
+      if (e instanceof com.fasterxml.jackson.core.JsonProcessingException) {
+        throw new SQLException("Failed to parse JSON", e);
       }
+      throw e;
     }
-    return null;
   }
 
-  private int inferSqlType(Object value) {
+  static int inferSqlType(Object value) {
     if (value == null) return Types.VARCHAR;
     if (value instanceof Integer) return Types.INTEGER;
     if (value instanceof Long) return Types.BIGINT;
     if (value instanceof java.math.BigDecimal) return Types.DECIMAL;
     if (value instanceof Boolean) return Types.BOOLEAN;
     if (value instanceof Double || value instanceof Float) return Types.DOUBLE;
+    if (value instanceof java.sql.Timestamp) return Types.TIMESTAMP;
+    if (value instanceof java.sql.Date) return Types.DATE;
+    if (value instanceof java.sql.Time) return Types.TIME;
+    if (value instanceof byte[]) return Types.VARBINARY;
+    if (value instanceof LeafGeometry) return Types.OTHER;
     return Types.VARCHAR;
   }
 
-  private Object jsonToJava(JsonNode node) {
+  static Object jsonToJava(JsonNode node, boolean exactDecimals) {
     if (node == null || node.isNull()) return null;
     if (node.isBoolean()) return node.booleanValue();
     if (node.isInt()) return node.intValue();
     if (node.isLong()) return node.longValue();
-    if (node.isFloat() || node.isDouble() || node.isBigDecimal()) return node.decimalValue();
+    if (node.isFloat() || node.isDouble() || node.isBigDecimal()) {
+      return exactDecimals ? node.decimalValue() : node.doubleValue();
+    }
     if (node.isTextual()) return node.asText();
-    return node.toString();
+    // Containers take the streaming path so buffered GeoJSON geometries decode the same way
+    try (JsonParser parser = node.traverse(LeafTransport.mapper())) {
+      parser.nextToken();
+      return LeafJsonDecoder.readValue(parser, exactDecimals);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   @Override
@@ -214,16 +799,33 @@ final class LeafStatement implements Statement {
     throw new SQLFeatureNotSupportedException();
   }
 
+  /** Closes the statement, aborting its running and in-flight async queries. */
   @Override
   public void close() {
     this.closed = true;
+    cancel();
+    closeLastResultSet();
+    connection.unregister(this);
+  }
+
+  private void closeLastResultSet() {
+    closeQuietly(lastResultSet);
+    lastResultSet = null;
+    closeAll(batchResults);
+    closeAll(keptResults);
+  }
+
+  private static void closeAll(Collection<ResultSet> results) {
+    for (ResultSet rs : results) {
+      closeQuietly(rs);
+    }
+    results.clear();
+  }
+
+  private static void closeQuietly(ResultSet rs) {
     try {
-      if (lastResultSet != null) {
-        lastResultSet.close();
-      }
+      if (rs != null) rs.close();
     } catch (SQLException ignore) {
-    } finally {
-      lastResultSet = null;
     }
   }
 
@@ -237,25 +839,55 @@ final class LeafStatement implements Statement {
 
   @Override
   public int getMaxRows() {
-    return 0;
+    return (int) Math.min(maxRows, Integer.MAX_VALUE);
   }
 
   @Override
-  public void setMaxRows(int max) {}
+  public void setMaxRows(int max) throws SQLException {
+    setLargeMaxRows(max);
+  }
+
+  @Override
+  public long getLargeMaxRows() {
+    return maxRows;
+  }
+
+  @Override
+  public void setLargeMaxRows(long max) throws SQLException {
+    if (max < 0) throw new SQLException("Max rows must be >= 0");
+    this.maxRows = max;
+  }
 
   @Override
   public void setEscapeProcessing(boolean enable) {}
 
   @Override
   public int getQueryTimeout() {
-    return 0;
+    return queryTimeoutSeconds;
   }
 
   @Override
-  public void setQueryTimeout(int seconds) {}
+  public void setQueryTimeout(int seconds) throws SQLException {
+    if (seconds < 0) throw new SQLException("Query timeout must be >= 0");
+    this.queryTimeoutSeconds = seconds;
+  }
 
+  /**
+   * Aborts the running query and any in-flight async queries, including those waiting to be retried
+   * or for an identical query; their sockets are released.
+   */
   @Override
-  public void cancel() {}
+  public void cancel() {
+    cancels.incrementAndGet();
+    Call call = currentCall;
+    if (call != null) call.cancel();
+    for (Call async : asyncCalls) {
+      async.cancel();
+    }
+    for (CompletableFuture<?> wait : waits) {
+      wait.cancel(false);
+    }
+  }
 
   @Override
   public SQLWarning getWarnings() {
@@ -270,7 +902,7 @@ final class LeafStatement implements Statement {
 
   @Override
   public boolean execute(String sql) throws SQLException {
-    this.lastResultSet = executeQuery(sql);
+    executeQuery(sql);
     return true;
   }
 
@@ -301,7 +933,7 @@ final class LeafStatement implements Statement {
 
   @Override
   public boolean getMoreResults() {
-    return false;
+    return getMoreResults(CLOSE_CURRENT_RESULT);
   }
 
   @Override
@@ -313,7 +945,8 @@ final class LeafStatement implements Statement {
   }
 
   @Override
-  public void setFetchSize(int rows) {
+  public void setFetchSize(int rows) throws SQLException {
+    if (rows < 0) throw new SQLException("Fetch size must be >= 0");
     this.fetchSize = rows;
   }
 
@@ -334,25 +967,98 @@ final class LeafStatement implements Statement {
 
   @Override
   public void addBatch(String sql) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    ensureOpen();
+    batch.add(sql);
   }
 
   @Override
-  public void clearBatch() {}
+  public void clearBatch() {
+    batch.clear();
+  }
 
+  /**
+   * Sends every batched query concurrently, at most {@code batchParallelism} at a time, and waits
+   * for all of them. The first result is available from {@link #getResultSet()}, later ones through
+   * {@link #getMoreResults()}.
+   */
   @Override
   public int[] executeBatch() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    ensureOpen();
+    closeLastResultSet();
+    List<String> queries = new ArrayList<>(batch);
+    batch.clear();
+    int parallelism = connection.jdbcUrl().intProperty("batchParallelism", 8);
+    if (parallelism < 1) {
+      throw new SQLException("Invalid value for property 'batchParallelism': " + parallelism);
+    }
+
+    Semaphore permits = new Semaphore(parallelism);
+    List<CompletableFuture<ResultSet>> futures = new ArrayList<>(queries.size());
+    try {
+      for (String sql : queries) {
+        permits.acquire();
+        CompletableFuture<ResultSet> future = executeQueryAsync(sql);
+        future.whenComplete((rs, error) -> permits.release());
+        futures.add(future);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.forEach(f -> f.cancel(true));
+      closeCompleted(futures);
+      throw new SQLException("Interrupted while executing batch", e);
+    }
+
+    int[] counts = new int[queries.size()];
+    SQLException failure = null;
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        batchResults.add(futures.get(i).join());
+        counts[i] = SUCCESS_NO_INFO;
+      } catch (CompletionException | CancellationException e) {
+        counts[i] = EXECUTE_FAILED;
+        if (failure == null) {
+          Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+          failure = cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+        }
+      }
+    }
+    if (failure != null) {
+      closeAll(batchResults);
+      throw new BatchUpdateException(
+          failure.getMessage(), failure.getSQLState(), failure.getErrorCode(), counts, failure);
+    }
+    lastResultSet = batchResults.poll();
+    return counts;
+  }
+
+  private static void closeCompleted(List<CompletableFuture<ResultSet>> futures) {
+    for (CompletableFuture<ResultSet> future : futures) {
+      future.thenAccept(LeafStatement::closeQuietly);
+    }
   }
 
   @Override
   public Connection getConnection() {
-    return connection;
+    Connection reported = reportedConnection;
+    return reported != null ? reported : connection;
+  }
+
+  /** Makes {@link #getConnection()} return {@code logical} instead of the physical connection. */
+  void reportConnectionAs(Connection logical) {
+    reportedConnection = logical;
   }
 
+  /** Moves to the next result of the last {@link #executeBatch()}, in submission order. */
   @Override
   public boolean getMoreResults(int current) {
-    return false;
+    if (current == KEEP_CURRENT_RESULT) {
+      if (lastResultSet != null) keptResults.add(lastResultSet);
+    } else {
+      closeQuietly(lastResultSet);
+      if (current == CLOSE_ALL_RESULTS) closeAll(keptResults);
+    }
+    lastResultSet = batchResults.poll();
+    return lastResultSet != null;
   }
 
   @Override
@@ -403,12 +1109,14 @@ final class LeafStatement implements Statement {
 
   @Override
   public <T> T unwrap(Class<T> iface) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    if (iface.isInstance(this)) return iface.cast(this);
+    if (iface.isInstance(LeafMetrics.driver())) return iface.cast(LeafMetrics.driver());
+    throw new SQLException("Not a wrapper for " + iface.getName());
   }
 
   @Override
   public boolean isWrapperFor(Class<?> iface) {
-    return false;
+    return iface.isInstance(this) || iface.isInstance(LeafMetrics.driver());
   }
 
   private void ensureOpen() throws SQLException {
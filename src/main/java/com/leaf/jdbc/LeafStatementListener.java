@@ -0,0 +1,101 @@
+package com.leaf.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Observes the queries the driver sends to the Leaf API, e.g. for tracing or slow-query logging.
+ *
+ * <p>Listeners are found with {@link java.util.ServiceLoader} (one instance for the whole driver)
+ * or named in the {@code statementListeners} connection property as comma-separated class names
+ * with a public no-argument constructor (one instance per connection). Callbacks run on the thread
+ * doing the work, which for async queries is the HTTP client's or the caller's executor; they
+ * should return quickly. An exception thrown by a listener is logged and otherwise ignored.
+ *
+ * <p>Results served from the result cache are not sent and are not reported.
+ */
+public interface LeafStatementListener {
+
+  /**
+   * Called before the query is sent.
+   *
+   * @param query the query
+   */
+  default void beforeExecute(Query query) {}
+
+  /**
+   * Called when the response headers arrive, once per HTTP attempt.
+   *
+   * @param query the query, with {@link Query#timeToFirstByteNanos()} set
+   */
+  default void onFirstByte(Query query) {}
+
+  /**
+   * Called when the response has been decoded into a result set. For streaming result sets this is
+   * when the cursor is opened, and the row and byte counts are unknown.
+   *
+   * @param query the query, with its decode time, row count and byte count set where known
+   */
+  default void afterDecode(Query query) {}
+
+  /**
+   * Called when the query fails.
+   *
+   * @param query the query, with the timings reached before the failure
+   * @param error the error returned to the caller
+   */
+  default void onError(Query query, SQLException error) {}
+
+  /** A query in flight. Values that are not known yet, or not measured, are -1. */
+  interface Query {
+
+    /**
+     * The SQL sent, after row limits were pushed into it.
+     *
+     * @return the SQL text
+     */
+    String sql();
+
+    /**
+     * The SQL with literals replaced by {@code ?}, comments dropped and keywords lower-cased, so
+     * queries that differ only in their parameters share a fingerprint.
+     *
+     * @return the fingerprint
+     */
+    String fingerprint();
+
+    /**
+     * Time since the query was started.
+     *
+     * @return nanoseconds
+     */
+    long elapsedNanos();
+
+    /**
+     * From sending the request until the response headers arrived.
+     *
+     * @return nanoseconds, or -1
+     */
+    long timeToFirstByteNanos();
+
+    /**
+     * Time spent parsing the response body, excluding the download.
+     *
+     * @return nanoseconds, or -1
+     */
+    long decodeNanos();
+
+    /**
+     * Rows in the decoded result.
+     *
+     * @return the row count, or -1
+     */
+    long rowCount();
+
+    /**
+     * Response body bytes read.
+     *
+     * @return the byte count, or -1
+     */
+    long bytes();
+  }
+}
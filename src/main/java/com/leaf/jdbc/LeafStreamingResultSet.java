@@ -0,0 +1,295 @@
+package com.leaf.jdbc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Forward-only result set that decodes rows straight from the HTTP response body as {@link #next()}
+ * is called, so memory use does not grow with the size of the result.
+ *
+ * <p>Column names and types are fixed when the cursor opens: for the {@code {columns, rows}} shape
+ * they come from {@code columns}, for array-of-objects shapes from the keys of the first object.
+ * Keys that first appear in later objects are ignored.
+ */
+final class LeafStreamingResultSet extends AbstractLeafResultSet {
+  private final AutoCloseable source;
+  private final JsonParser parser;
+  private final LeafResultSetMetaData metaData;
+  private final boolean objectRows;
+  private final boolean exactDecimals;
+  private final LeafJsonDecoder.KeyLayout layout = new LeafJsonDecoder.KeyLayout();
+  private Iterator<JsonNode> bufferedRows;
+  private Object[] current;
+  private Object[] pending;
+  private boolean exhausted;
+
+  private LeafStreamingResultSet(
+      Statement statement,
+      AutoCloseable source,
+      JsonParser parser,
+      List<String> columns,
+      Object[] first,
+      boolean objectRows,
+      Iterator<JsonNode> bufferedRows,
+      boolean exactDecimals) {
+    super(statement);
+    this.exactDecimals = exactDecimals;
+    this.source = source;
+    this.parser = parser;
+    this.objectRows = objectRows;
+    this.bufferedRows = bufferedRows;
+    this.pending = first;
+    this.exhausted = first == null;
+    this.current = new Object[columns.size()];
+
+    boolean generic = columns.isEmpty();
+    String[] names = generic ? new String[] {"result"} : columns.toArray(new String[0]);
+    int[] types = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      types[i] = LeafStatement.inferSqlType(first != null && i < first.length ? first[i] : null);
+    }
+    this.metaData = new LeafResultSetMetaData(names, types);
+    for (int i = 0; i < columns.size(); i++) {
+      layout.add(i, columns.get(i), i);
+    }
+    if (generic) current = new Object[1];
+    if (exhausted) closeSource();
+  }
+
+  /**
+   * Positions a parser over {@code body} at the first row and returns a cursor over the rows. The
+   * {@code source} (typically the HTTP response) is closed when the cursor is closed or exhausted.
+   */
+  static LeafStreamingResultSet open(
+      Statement statement,
+      ObjectMapper mapper,
+      InputStream body,
+      AutoCloseable source,
+      boolean exactDecimals)
+      throws SQLException {
+    JsonParser parser = null;
+    try {
+      parser = mapper.createParser(body);
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY) {
+        return openObjectRows(statement, source, parser, exactDecimals);
+      }
+      if (token == JsonToken.START_OBJECT) {
+        return openWrapped(statement, source, parser, exactDecimals);
+      }
+      // Empty body or scalar root: no rows
+      return new LeafStreamingResultSet(
+          statement, source, parser, new ArrayList<>(), null, false, null, exactDecimals);
+    } catch (IOException | RuntimeException e) {
+      closeQuietly(parser);
+      closeQuietly(source);
+      throw new SQLException("Failed to parse JSON", e);
+    }
+  }
+
+  private static LeafStreamingResultSet openObjectRows(
+      Statement statement, AutoCloseable source, JsonParser parser, boolean exactDecimals)
+      throws IOException {
+    List<String> columns = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    JsonToken token = parser.nextToken();
+    while (token != null && token != JsonToken.END_ARRAY && token != JsonToken.START_OBJECT) {
+      // Non-object elements carry no columns
+      parser.skipChildren();
+      token = parser.nextToken();
+    }
+    if (token == JsonToken.START_OBJECT) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        Object value = LeafJsonDecoder.readValue(parser, exactDecimals);
+        int existing = columns.indexOf(name);
+        if (existing >= 0) {
+          values.set(existing, value);
+        } else {
+          columns.add(name);
+          values.add(value);
+        }
+      }
+      return new LeafStreamingResultSet(
+          statement, source, parser, columns, values.toArray(), true, null, exactDecimals);
+    }
+    return new LeafStreamingResultSet(
+        statement, source, parser, columns, null, true, null, exactDecimals);
+  }
+
+  private static LeafStreamingResultSet openWrapped(
+      Statement statement, AutoCloseable source, JsonParser parser, boolean exactDecimals)
+      throws IOException {
+    List<String> columns = null;
+    JsonNode rowsBeforeColumns = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if (field.equals("data") && value == JsonToken.START_ARRAY) {
+        return openObjectRows(statement, source, parser, exactDecimals);
+      }
+      if (field.equals("columns") && value == JsonToken.START_ARRAY) {
+        columns = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          columns.add(parser.getValueAsString());
+        }
+        if (rowsBeforeColumns != null) {
+          Iterator<JsonNode> rows = rowsBeforeColumns.iterator();
+          Object[] first =
+              rows.hasNext() ? nodeRow(rows.next(), columns.size(), exactDecimals) : null;
+          return new LeafStreamingResultSet(
+              statement, source, parser, columns, first, false, rows, exactDecimals);
+        }
+        continue;
+      }
+      if (field.equals("rows") && value == JsonToken.START_ARRAY) {
+        if (columns == null) {
+          // Rows arrived before their column names; they have to be buffered
+          rowsBeforeColumns = LeafJsonDecoder.readTree(parser, exactDecimals);
+          continue;
+        }
+        Object[] first = null;
+        JsonToken token = parser.nextToken();
+        while (token != null && token != JsonToken.END_ARRAY && token != JsonToken.START_ARRAY) {
+          parser.skipChildren();
+          token = parser.nextToken();
+        }
+        if (token == JsonToken.START_ARRAY) {
+          first = new Object[columns.size()];
+          readArrayRow(parser, first, exactDecimals);
+        }
+        return new LeafStreamingResultSet(
+            statement, source, parser, columns, first, false, null, exactDecimals);
+      }
+      parser.skipChildren();
+    }
+    return new LeafStreamingResultSet(
+        statement, source, parser, new ArrayList<>(), null, false, null, exactDecimals);
+  }
+
+  @Override
+  protected boolean advance() throws SQLException {
+    if (pending != null) {
+      System.arraycopy(pending, 0, current, 0, Math.min(pending.length, current.length));
+      pending = null;
+      return true;
+    }
+    if (exhausted) return false;
+    try {
+      if (bufferedRows != null) {
+        if (bufferedRows.hasNext()) {
+          Object[] row = nodeRow(bufferedRows.next(), current.length, exactDecimals);
+          System.arraycopy(row, 0, current, 0, current.length);
+          return true;
+        }
+        return finish();
+      }
+      JsonToken token = parser.nextToken();
+      while (token != null && token != JsonToken.END_ARRAY) {
+        if (objectRows && token == JsonToken.START_OBJECT) {
+          readObjectRow();
+          return true;
+        }
+        if (!objectRows && token == JsonToken.START_ARRAY) {
+          readArrayRow(parser, current, exactDecimals);
+          return true;
+        }
+        parser.skipChildren();
+        token = parser.nextToken();
+      }
+      return finish();
+    } catch (IOException e) {
+      closeSource();
+      throw new SQLException("Failed to read streamed row", e);
+    }
+  }
+
+  private boolean finish() {
+    exhausted = true;
+    // Hand the connection back to the pool as soon as the last row is read
+    closeSource();
+    return false;
+  }
+
+  private void readObjectRow() throws IOException {
+    Arrays.fill(current, null);
+    int position = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.getCurrentName();
+      int ordinal = layout.ordinal(position, name);
+      if (ordinal < 0) {
+        // Keys first seen after the cursor opened are remembered as ignored
+        layout.add(position, name, -1);
+      }
+      position++;
+      parser.nextToken();
+      if (ordinal < 0) {
+        parser.skipChildren();
+      } else {
+        current[ordinal] = LeafJsonDecoder.readValue(parser, exactDecimals);
+      }
+    }
+  }
+
+  private static void readArrayRow(JsonParser parser, Object[] row, boolean exactDecimals)
+      throws IOException {
+    Arrays.fill(row, null);
+    int i = 0;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (i < row.length) {
+        row[i] = LeafJsonDecoder.readValue(parser, exactDecimals);
+      } else {
+        parser.skipChildren();
+      }
+      i++;
+    }
+  }
+
+  private static Object[] nodeRow(JsonNode node, int width, boolean exactDecimals) {
+    Object[] row = new Object[width];
+    for (int i = 0; i < width; i++) {
+      row[i] = LeafStatement.jsonToJava(node.get(i), exactDecimals);
+    }
+    return row;
+  }
+
+  @Override
+  protected Object value(int columnIndex) throws SQLException {
+    checkColumn(columnIndex, current.length);
+    return current[columnIndex - 1];
+  }
+
+  @Override
+  public LeafResultSetMetaData getMetaData() {
+    return metaData;
+  }
+
+  @Override
+  protected void release() {
+    closeSource();
+  }
+
+  private void closeSource() {
+    closeQuietly(parser);
+    closeQuietly(source);
+  }
+
+  private static void closeQuietly(AutoCloseable closeable) {
+    if (closeable == null) return;
+    try {
+      closeable.close();
+    } catch (Exception ignore) {
+    }
+  }
+}
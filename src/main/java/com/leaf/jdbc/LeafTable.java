@@ -0,0 +1,377 @@
+package com.leaf.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.avatica.util.ByteString;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.TimestampString;
+
+/**
+ * A Leaf table as seen by Calcite. Each scan sends one Spark SQL query that selects only the
+ * projected columns and carries every filter that translates to Spark SQL in its {@code WHERE}
+ * clause; Calcite evaluates the remaining filters, joins and aggregations on the rows returned.
+ */
+final class LeafTable extends AbstractTable implements ProjectableFilterableTable {
+  private final Connection connection;
+  private final LeafCatalog.Table table;
+
+  LeafTable(Connection connection, LeafCatalog.Table table) {
+    this.connection = connection;
+    this.table = table;
+  }
+
+  @Override
+  public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+    RelDataTypeFactory.Builder row = typeFactory.builder();
+    for (LeafCatalog.Column column : table.columns()) {
+      RelDataType type = typeFactory.createSqlType(calciteType(column.sqlType()));
+      row.add(column.name(), typeFactory.createTypeWithNullability(type, true));
+    }
+    return row.build();
+  }
+
+  private static SqlTypeName calciteType(int sqlType) {
+    SqlTypeName name = SqlTypeName.getNameForJdbcType(sqlType);
+    return name == null || name == SqlTypeName.OTHER ? SqlTypeName.ANY : name;
+  }
+
+  @Override
+  public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+    List<LeafCatalog.Column> columns = table.columns();
+    int[] fields = projects != null ? projects : identity(columns.size());
+    StringBuilder sql = new StringBuilder("SELECT ");
+    if (fields.length == 0) {
+      // COUNT(*) and friends need rows but no columns
+      sql.append('1');
+    }
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) sql.append(", ");
+      sql.append(identifier(columns.get(fields[i]).name()));
+    }
+    sql.append(" FROM ")
+        .append(identifier(table.catalog()))
+        .append('.')
+        .append(identifier(table.schema()))
+        .append('.')
+        .append(identifier(table.name()));
+    RexBuilder rexBuilder = new RexBuilder(root.getTypeFactory());
+    List<String> conditions = new ArrayList<>();
+    for (Iterator<RexNode> it = filters.iterator(); it.hasNext(); ) {
+      // Conjuncts that translate are pushed even when others in the same filter do not; Calcite
+      // then re-applies the whole filter to the narrowed rows
+      boolean complete = true;
+      RexNode filter = RexUtil.expandSearch(rexBuilder, null, it.next());
+      for (RexNode conjunct : RelOptUtil.conjunctions(filter)) {
+        String condition = translate(conjunct);
+        if (condition != null) {
+          conditions.add(condition);
+        } else {
+          complete = false;
+        }
+      }
+      if (complete) it.remove();
+    }
+    if (!conditions.isEmpty()) {
+      sql.append(" WHERE ").append(String.join(" AND ", conditions));
+    }
+    SqlTypeName[] types = new SqlTypeName[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      types[i] = calciteType(columns.get(fields[i]).sqlType());
+    }
+    AtomicBoolean cancelFlag = (AtomicBoolean) DataContext.Variable.CANCEL_FLAG.get(root);
+    String query = sql.toString();
+    return new AbstractEnumerable<Object[]>() {
+      @Override
+      public Enumerator<Object[]> enumerator() {
+        return new RowEnumerator(query, types, cancelFlag);
+      }
+    };
+  }
+
+  private static int[] identity(int n) {
+    int[] fields = new int[n];
+    for (int i = 0; i < n; i++) fields[i] = i;
+    return fields;
+  }
+
+  private String column(RexNode node) {
+    if (node.getKind() == SqlKind.CAST) {
+      // Widening casts Calcite adds to line types up; Spark coerces the same way
+      RexNode operand = ((RexCall) node).getOperands().get(0);
+      if (operand.getType().getSqlTypeName().getFamily()
+          != node.getType().getSqlTypeName().getFamily()) {
+        return null;
+      }
+      node = operand;
+    }
+    if (!(node instanceof RexInputRef)) return null;
+    return identifier(table.columns().get(((RexInputRef) node).getIndex()).name());
+  }
+
+  /** Spark SQL for a filter, or null if it has to be evaluated by Calcite. */
+  private String translate(RexNode node) {
+    switch (node.getKind()) {
+      case AND:
+      case OR:
+        {
+          List<String> parts = new ArrayList<>();
+          for (RexNode operand : ((RexCall) node).getOperands()) {
+            String part = translate(operand);
+            if (part == null) return null;
+            parts.add(part);
+          }
+          return "(" + String.join(node.getKind() == SqlKind.AND ? " AND " : " OR ", parts) + ")";
+        }
+      case NOT:
+        {
+          String operand = translate(((RexCall) node).getOperands().get(0));
+          return operand == null ? null : "NOT " + operand;
+        }
+      case IS_NULL:
+      case IS_NOT_NULL:
+        {
+          String column = column(((RexCall) node).getOperands().get(0));
+          if (column == null) return null;
+          return column + (node.getKind() == SqlKind.IS_NULL ? " IS NULL" : " IS NOT NULL");
+        }
+      case EQUALS:
+      case NOT_EQUALS:
+      case LESS_THAN:
+      case LESS_THAN_OR_EQUAL:
+      case GREATER_THAN:
+      case GREATER_THAN_OR_EQUAL:
+      case LIKE:
+        return comparison((RexCall) node);
+      default:
+        return null;
+    }
+  }
+
+  private String comparison(RexCall call) {
+    if (call.getOperands().size() != 2) return null;
+    SqlKind kind = call.getKind();
+    RexNode left = call.getOperands().get(0);
+    RexNode right = call.getOperands().get(1);
+    if (left instanceof RexLiteral && kind != SqlKind.LIKE) {
+      left = call.getOperands().get(1);
+      right = call.getOperands().get(0);
+      kind = kind.reverse();
+    }
+    if (kind == SqlKind.LIKE
+        && right instanceof RexLiteral
+        && String.valueOf(((RexLiteral) right).getValueAs(String.class)).indexOf('\\') >= 0) {
+      // Spark's LIKE treats backslash as an escape, Calcite's does not
+      return null;
+    }
+    String column = column(left);
+    String literal = right instanceof RexLiteral ? literal((RexLiteral) right) : null;
+    if (column == null || literal == null) return null;
+    return column + " " + operator(kind) + " " + literal;
+  }
+
+  private static String operator(SqlKind kind) {
+    switch (kind) {
+      case EQUALS:
+        return "=";
+      case NOT_EQUALS:
+        return "<>";
+      case LESS_THAN:
+        return "<";
+      case LESS_THAN_OR_EQUAL:
+        return "<=";
+      case GREATER_THAN:
+        return ">";
+      case GREATER_THAN_OR_EQUAL:
+        return ">=";
+      default:
+        return kind.sql;
+    }
+  }
+
+  private static String literal(RexLiteral literal) {
+    if (literal.isNull()) return null;
+    Object value;
+    switch (literal.getType().getSqlTypeName()) {
+      case CHAR:
+      case VARCHAR:
+        value = literal.getValueAs(String.class);
+        break;
+      case BOOLEAN:
+        value = literal.getValueAs(Boolean.class);
+        break;
+      case TINYINT:
+      case SMALLINT:
+      case INTEGER:
+        value = literal.getValueAs(Integer.class);
+        break;
+      case BIGINT:
+        value = literal.getValueAs(Long.class);
+        break;
+      case DECIMAL:
+        value = literal.getValueAs(BigDecimal.class);
+        break;
+      case REAL:
+      case FLOAT:
+      case DOUBLE:
+        value = literal.getValueAs(Double.class);
+        break;
+      case DATE:
+        value = LocalDate.ofEpochDay(literal.getValueAs(Integer.class));
+        break;
+      case TIMESTAMP:
+        value =
+            LocalDateTime.parse(
+                literal.getValueAs(TimestampString.class).toString().replace(' ', 'T'));
+        break;
+      default:
+        return null;
+    }
+    try {
+      return LeafSql.literal(value);
+    } catch (SQLException e) {
+      return null;
+    }
+  }
+
+  private static String identifier(String name) {
+    return "`" + name.replace("`", "``") + "`";
+  }
+
+  /**
+   * Runs the scan query on first use, and again after {@link #reset()}, and converts rows to
+   * Calcite's value representation.
+   */
+  private final class RowEnumerator implements Enumerator<Object[]> {
+    private final String sql;
+    private final SqlTypeName[] types;
+    private final AtomicBoolean cancelFlag;
+    private java.sql.Statement statement;
+    private ResultSet rs;
+    private Object[] current;
+
+    RowEnumerator(String sql, SqlTypeName[] types, AtomicBoolean cancelFlag) {
+      this.sql = sql;
+      this.types = types;
+      this.cancelFlag = cancelFlag;
+    }
+
+    @Override
+    public Object[] current() {
+      return current;
+    }
+
+    @Override
+    public boolean moveNext() {
+      try {
+        if (cancelFlag != null && cancelFlag.get()) {
+          close();
+          return false;
+        }
+        if (rs == null) {
+          statement = connection.createStatement();
+          rs = statement.executeQuery(sql);
+        }
+        if (!rs.next()) return false;
+        Object[] row = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+          row[i] = value(rs, i + 1, types[i]);
+        }
+        current = row;
+        return true;
+      } catch (SQLException e) {
+        throw new RuntimeException("Leaf scan failed: " + sql, e);
+      }
+    }
+
+    /** Drops the current scan; the next {@link #moveNext()} runs the query again. */
+    @Override
+    public void reset() {
+      close();
+      current = null;
+    }
+
+    @Override
+    public void close() {
+      // Closing the statement also cancels a streaming response that was not read to the end
+      try {
+        if (statement != null) statement.close();
+      } catch (SQLException ignored) {
+      }
+      statement = null;
+      rs = null;
+    }
+  }
+
+  // Calcite represents DATE as days and TIMESTAMP as milliseconds since the epoch
+  private static Object value(ResultSet rs, int i, SqlTypeName type) throws SQLException {
+    Object value;
+    switch (type) {
+      case BOOLEAN:
+        value = rs.getBoolean(i);
+        break;
+      case TINYINT:
+        value = rs.getByte(i);
+        break;
+      case SMALLINT:
+        value = rs.getShort(i);
+        break;
+      case INTEGER:
+        value = rs.getInt(i);
+        break;
+      case BIGINT:
+        value = rs.getLong(i);
+        break;
+      case REAL:
+        value = rs.getFloat(i);
+        break;
+      case FLOAT:
+      case DOUBLE:
+        value = rs.getDouble(i);
+        break;
+      case DECIMAL:
+        return rs.getBigDecimal(i);
+      case DATE:
+        java.sql.Date date = rs.getDate(i);
+        return date == null ? null : (int) date.toLocalDate().toEpochDay();
+      case TIMESTAMP:
+        Timestamp ts = rs.getTimestamp(i);
+        return ts == null ? null : ts.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+      case VARBINARY:
+      case BINARY:
+        byte[] bytes = rs.getBytes(i);
+        return bytes == null ? null : new ByteString(bytes);
+      case CHAR:
+      case VARCHAR:
+        return rs.getString(i);
+      default:
+        return rs.getObject(i);
+    }
+    return rs.wasNull() ? null : value;
+  }
+}
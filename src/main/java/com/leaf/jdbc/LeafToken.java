@@ -0,0 +1,64 @@
+package com.leaf.jdbc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Base64;
+
+/** An API token together with the expiry decoded from its JWT {@code exp} claim, if any. */
+final class LeafToken {
+  static final long UNKNOWN_EXPIRY = Long.MAX_VALUE;
+
+  private final String value;
+  private final long issuedAtMillis;
+  private final long expiresAtMillis;
+
+  private LeafToken(String value, long issuedAtMillis, long expiresAtMillis) {
+    this.value = value;
+    this.issuedAtMillis = issuedAtMillis;
+    this.expiresAtMillis = expiresAtMillis;
+  }
+
+  static LeafToken of(String value, long nowMillis) {
+    return new LeafToken(value, nowMillis, decodeExpiry(value));
+  }
+
+  /** Reads {@code exp} (seconds since the epoch) from a JWT payload without verifying it. */
+  static long decodeExpiry(String jwt) {
+    String[] parts = jwt.split("\\.");
+    if (parts.length < 2) return UNKNOWN_EXPIRY;
+    try {
+      byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+      JsonNode exp = LeafTransport.mapper().readTree(payload).get("exp");
+      if (exp == null || !exp.canConvertToLong()) return UNKNOWN_EXPIRY;
+      return exp.longValue() * 1000L;
+    } catch (Exception e) {
+      // Opaque (non-JWT) tokens are only refreshed when the API rejects them
+      return UNKNOWN_EXPIRY;
+    }
+  }
+
+  String value() {
+    return value;
+  }
+
+  long expiresAtMillis() {
+    return expiresAtMillis;
+  }
+
+  boolean hasExpiry() {
+    return expiresAtMillis != UNKNOWN_EXPIRY;
+  }
+
+  boolean isExpired(long nowMillis) {
+    return nowMillis >= expiresAtMillis;
+  }
+
+  /**
+   * When to refresh: a tenth of the token's lifetime before it lapses, but at least one minute
+   * early, and never sooner than half way through its life.
+   */
+  long refreshAtMillis() {
+    long lifetime = Math.max(0, expiresAtMillis - issuedAtMillis);
+    long margin = Math.max(60_000L, lifetime / 10);
+    return Math.max(issuedAtMillis + lifetime / 2, expiresAtMillis - margin);
+  }
+}
@@ -0,0 +1,131 @@
+package com.leaf.jdbc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Driver-wide HTTP transport. Every connection and statement shares one dispatcher and, per pool
+ * configuration, one connection pool, so warm (already TLS-negotiated) connections to the Leaf API
+ * are reused across statements instead of being rebuilt for each one.
+ */
+final class LeafTransport {
+  static final int DEFAULT_POOL_MAX_IDLE = 16;
+  static final long DEFAULT_POOL_KEEP_ALIVE_SECONDS = 300;
+  static final int DEFAULT_MAX_REQUESTS_PER_HOST = 64;
+  static final long DEFAULT_CONNECT_TIMEOUT_SECONDS = 30;
+  // Spark SQL over a season of points can legitimately take many minutes
+  static final long DEFAULT_READ_TIMEOUT_SECONDS = 30 * 60;
+  static final long DEFAULT_WRITE_TIMEOUT_SECONDS = 60;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final OkHttpClient BASE = newBaseClient();
+  private static final Map<Settings, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            Thread t = new Thread(r, "leaf-jdbc-scheduler");
+            t.setDaemon(true);
+            return t;
+          });
+  private static final ExecutorService BACKGROUND =
+      Executors.newCachedThreadPool(
+          r -> {
+            Thread t = new Thread(r, "leaf-jdbc-background");
+            t.setDaemon(true);
+            return t;
+          });
+
+  private LeafTransport() {}
+
+  private record Settings(
+      int maxIdle,
+      long keepAliveSeconds,
+      boolean http2,
+      long connectTimeoutSeconds,
+      long readTimeoutSeconds,
+      long writeTimeoutSeconds) {}
+
+  private static OkHttpClient newBaseClient() {
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(256);
+    dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_REQUESTS_PER_HOST);
+    return new OkHttpClient.Builder()
+        .dispatcher(dispatcher)
+        .connectionPool(
+            new ConnectionPool(
+                DEFAULT_POOL_MAX_IDLE, DEFAULT_POOL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS))
+        .connectTimeout(DEFAULT_CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .readTimeout(DEFAULT_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .writeTimeout(DEFAULT_WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .build();
+  }
+
+  /** Shared, thread-safe mapper; configuration must not be changed after startup. */
+  static ObjectMapper mapper() {
+    return MAPPER;
+  }
+
+  /**
+   * Daemon scheduler for driver timers such as token refresh, retry backoff and pool eviction;
+   * tasks must not block long, so blocking work is handed to {@link #background()}.
+   */
+  static ScheduledExecutorService scheduler() {
+    return SCHEDULER;
+  }
+
+  /** Daemon threads for blocking housekeeping, such as logging in again ahead of token expiry. */
+  static ExecutorService background() {
+    return BACKGROUND;
+  }
+
+  /**
+   * Returns the shared client for the pool settings in {@code url}. Clients with the same settings
+   * are the same instance; all of them share one dispatcher.
+   */
+  static OkHttpClient client(LeafJdbcUrl url) throws SQLException {
+    Settings settings =
+        new Settings(
+            url.intProperty("poolMaxIdleConnections", DEFAULT_POOL_MAX_IDLE),
+            url.longProperty("poolKeepAliveSeconds", DEFAULT_POOL_KEEP_ALIVE_SECONDS),
+            url.booleanProperty("http2", true),
+            url.longProperty("connectTimeoutSeconds", DEFAULT_CONNECT_TIMEOUT_SECONDS),
+            url.longProperty("readTimeoutSeconds", DEFAULT_READ_TIMEOUT_SECONDS),
+            url.longProperty("writeTimeoutSeconds", DEFAULT_WRITE_TIMEOUT_SECONDS));
+    if (settings.maxIdle() < 0
+        || settings.keepAliveSeconds() <= 0
+        || settings.connectTimeoutSeconds() < 0
+        || settings.readTimeoutSeconds() < 0
+        || settings.writeTimeoutSeconds() < 0) {
+      throw new SQLException("Invalid connection pool settings: " + settings);
+    }
+    return CLIENTS.computeIfAbsent(settings, LeafTransport::newClient);
+  }
+
+  private static OkHttpClient newClient(Settings settings) {
+    OkHttpClient.Builder builder = BASE.newBuilder();
+    if (settings.maxIdle() != DEFAULT_POOL_MAX_IDLE
+        || settings.keepAliveSeconds() != DEFAULT_POOL_KEEP_ALIVE_SECONDS) {
+      builder.connectionPool(
+          new ConnectionPool(settings.maxIdle(), settings.keepAliveSeconds(), TimeUnit.SECONDS));
+    }
+    if (!settings.http2()) {
+      builder.protocols(List.of(Protocol.HTTP_1_1));
+    }
+    return builder
+        .connectTimeout(settings.connectTimeoutSeconds(), TimeUnit.SECONDS)
+        .readTimeout(settings.readTimeoutSeconds(), TimeUnit.SECONDS)
+        .writeTimeout(settings.writeTimeoutSeconds(), TimeUnit.SECONDS)
+        .build();
+  }
+}
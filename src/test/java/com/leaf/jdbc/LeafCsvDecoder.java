@@ -0,0 +1,37 @@
+package com.leaf.jdbc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+
+/** Plain comma-separated decoder registered through {@code META-INF/services} for the tests. */
+public final class LeafCsvDecoder implements LeafDecoder {
+  @Override
+  public List<String> mediaTypes() {
+    return List.of("text/csv");
+  }
+
+  @Override
+  public void decode(InputStream body, Rows rows) throws IOException, SQLException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    String header = reader.readLine();
+    if (header == null) return;
+    for (String name : header.split(",")) rows.addColumn(name);
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      String[] cells = line.split(",", -1);
+      for (int i = 0; i < cells.length; i++) {
+        if (cells[i].isEmpty()) continue;
+        try {
+          rows.setLong(i, Long.parseLong(cells[i]));
+        } catch (NumberFormatException e) {
+          rows.set(i, cells[i]);
+        }
+      }
+      rows.endRow();
+    }
+  }
+}
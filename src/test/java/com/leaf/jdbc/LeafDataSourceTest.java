@@ -0,0 +1,201 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LeafDataSourceTest {
+  private LeafMockServer server;
+  private LeafDataSource dataSource;
+
+  @BeforeEach
+  void setup() throws Exception {
+    server = new LeafMockServer().install();
+    dataSource = new LeafDataSource();
+    dataSource.setUser("testuser");
+    dataSource.setPassword("testpass");
+  }
+
+  @AfterEach
+  void teardown() {
+    dataSource.close();
+    server.close();
+  }
+
+  @Test
+  void testBorrowedConnectionsAreReusedWithoutLoggingIn() throws Exception {
+    LeafConnection first;
+    try (Connection c = dataSource.getConnection();
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery("SELECT 1")) {
+      assertTrue(rs.next());
+      first = LeafPooledConnection.physical(c);
+    }
+    try (Connection a = dataSource.getConnection();
+        Connection b = dataSource.getConnection()) {
+      // The warm connection is handed out again, and the new one adopts its session
+      assertSame(first, LeafPooledConnection.physical(a));
+      assertNotSame(first, LeafPooledConnection.physical(b));
+      assertTrue(b.isValid(1));
+      assertEquals(2, dataSource.getPoolSize());
+      assertEquals(0, dataSource.getIdleConnections());
+    }
+    assertEquals(2, dataSource.getIdleConnections());
+    assertEquals(1, server.authCount.get());
+  }
+
+  @Test
+  void testClosingReturnsTheConnectionAndClosesItsStatements() throws Exception {
+    Connection c = dataSource.getConnection();
+    Statement s = c.createStatement();
+    c.setNetworkTimeout(null, 5000);
+    c.close();
+    assertTrue(c.isClosed());
+    assertFalse(c.isValid(1));
+    assertTrue(s.isClosed());
+    assertThrows(SQLException.class, c::createStatement);
+
+    try (Connection again = dataSource.getConnection()) {
+      assertFalse(again.isClosed());
+      assertEquals(0, again.getNetworkTimeout());
+    }
+  }
+
+  @Test
+  void testLogicalConnectionIsTheOnlyOneCallersSee() throws Exception {
+    try (Connection c = dataSource.getConnection();
+        Statement s = c.createStatement();
+        PreparedStatement ps = c.prepareStatement("SELECT ?")) {
+      assertSame(c, c.unwrap(Connection.class));
+      assertTrue(c.isWrapperFor(Connection.class));
+      assertSame(c, s.getConnection());
+      assertSame(c, ps.getConnection());
+      assertSame(c, c.getMetaData().getConnection());
+      assertFalse(c.isWrapperFor(LeafConnection.class));
+      assertThrows(SQLException.class, () -> c.unwrap(LeafConnection.class));
+      try (ResultSet rs = s.executeQuery("SELECT 1")) {
+        assertSame(c, rs.getStatement().getConnection());
+      }
+      ps.setInt(1, 1);
+      try (ResultSet rs = ps.executeQuery()) {
+        assertSame(c, rs.getStatement().getConnection());
+      }
+      // Driver extensions are still reachable
+      assertNotNull(c.unwrap(LeafMetrics.class));
+      LeafAsyncStatement async = s.unwrap(LeafAsyncStatement.class);
+      try (ResultSet rs = async.executeQueryAsync("SELECT 1").get()) {
+        assertTrue(rs.next());
+        assertSame(c, rs.getStatement().getConnection());
+      }
+      assertNotNull(LeafSchema.create(c, "leaf", "pointlake"));
+    }
+  }
+
+  @Test
+  void testLoginTimeout() throws Exception {
+    dataSource.setLoginTimeout(1);
+    server.authLatencyMillis = 3000;
+    long started = System.nanoTime();
+    assertThrows(SQLTimeoutException.class, dataSource::getConnection);
+    assertTrue(System.nanoTime() - started < 2_500_000_000L);
+  }
+
+  @Test
+  void testIsValidGivesUpOnASlowLoginAfterItsTimeout() throws Exception {
+    server.tokenTtlSeconds = 2;
+    try (Connection c = dataSource.getConnection()) {
+      assertTrue(c.isValid(1));
+      // The token lapses while its background refresh is still logging in
+      server.authLatencyMillis = 3000;
+      Thread.sleep(2_100);
+      long started = System.nanoTime();
+      assertFalse(c.isValid(1));
+      assertTrue(System.nanoTime() - started < 1_900_000_000L);
+    }
+  }
+
+  @Test
+  void testExhaustedPoolTimesOut() throws Exception {
+    dataSource.setMaxPoolSize(1);
+    dataSource.setConnectionTimeoutMillis(100);
+    try (Connection c = dataSource.getConnection()) {
+      assertThrows(SQLTimeoutException.class, dataSource::getConnection);
+    }
+    try (Connection c = dataSource.getConnection()) {
+      assertFalse(c.isClosed());
+    }
+  }
+
+  @Test
+  void testConnectionsPastTheirLifetimeAreReplaced() throws Exception {
+    dataSource.setMaxLifetimeSeconds(0);
+    LeafConnection first;
+    try (Connection c = dataSource.getConnection()) {
+      first = LeafPooledConnection.physical(c);
+    }
+    try (Connection c = dataSource.getConnection()) {
+      assertNotSame(first, LeafPooledConnection.physical(c));
+    }
+    assertTrue(first.isClosed());
+    assertEquals(1, dataSource.getPoolSize());
+    assertEquals(1, server.authCount.get());
+  }
+
+  @Test
+  void testConcurrentRefreshesShareOneLoginOutsideTheSessionLock() throws Exception {
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+    try (Connection c = dataSource.getConnection()) {
+      LeafSession session = LeafPooledConnection.physical(c).session();
+      String stale = session.token().value();
+      server.authLatencyMillis = 500;
+      List<Future<String>> renewed = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        renewed.add(threads.submit(() -> session.refresh(stale)));
+      }
+      Thread.sleep(100);
+      // The pool can still take the session while its login is in flight
+      long started = System.nanoTime();
+      assertTrue(session.retain());
+      session.release();
+      assertTrue(System.nanoTime() - started < 200_000_000L);
+      for (Future<String> f : renewed) {
+        assertEquals(renewed.get(0).get(), f.get());
+      }
+      assertNotEquals(stale, renewed.get(0).get());
+      assertEquals(2, server.authCount.get());
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  void testPooledConnectionsRefreshTheirSharedSessionOnce() throws Exception {
+    // A 4s token is refreshed half way through its life
+    server.tokenTtlSeconds = 4;
+    try (Connection a = dataSource.getConnection();
+        Connection b = dataSource.getConnection();
+        Connection c = dataSource.getConnection()) {
+      String first = LeafPooledConnection.physical(a).token();
+      assertEquals(1, server.authCount.get());
+      Thread.sleep(2_500);
+      assertEquals(2, server.authCount.get());
+      String renewed = LeafPooledConnection.physical(a).token();
+      assertNotEquals(first, renewed);
+      assertEquals(renewed, LeafPooledConnection.physical(b).token());
+      assertEquals(renewed, LeafPooledConnection.physical(c).token());
+    }
+  }
+}
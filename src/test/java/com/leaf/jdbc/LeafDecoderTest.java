@@ -0,0 +1,212 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.junit.jupiter.api.Test;
+
+public class LeafDecoderTest {
+  private static ResultSet decode(LeafDecoder decoder, byte[] body) throws Exception {
+    LeafColumnarBuilder builder = new LeafColumnarBuilder();
+    decoder.decode(new ByteArrayInputStream(body), builder);
+    return builder.build().cursor(null);
+  }
+
+  /** Two record batches of {id int, name utf8, yield double, ok bool, at timestamp, amt dec}. */
+  static byte[] arrowStream() throws Exception {
+    try (BufferAllocator allocator = new RootAllocator();
+        IntVector id = new IntVector("id", allocator);
+        VarCharVector name = new VarCharVector("name", allocator);
+        Float8Vector yield = new Float8Vector("yield", allocator);
+        BitVector ok = new BitVector("ok", allocator);
+        TimeStampMicroVector at = new TimeStampMicroVector("at", allocator);
+        DecimalVector amount = new DecimalVector("amount", allocator, 10, 2)) {
+      VectorSchemaRoot root = VectorSchemaRoot.of(id, name, yield, ok, at, amount);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (ArrowStreamWriter writer = new ArrowStreamWriter(root, null, out)) {
+        writer.start();
+        for (int batch = 0; batch < 2; batch++) {
+          root.allocateNew();
+          for (int i = 0; i < 3; i++) {
+            int v = batch * 3 + i + 1;
+            id.setSafe(i, v);
+            name.setSafe(i, ("abcdef".charAt(v - 1) + "").getBytes(StandardCharsets.UTF_8));
+            if (v != 2) yield.setSafe(i, v * 1.5);
+            ok.setSafe(i, v % 2);
+            at.setSafe(i, 1_700_000_000_000_000L + v);
+            amount.setSafe(i, new BigDecimal(v + ".25"));
+          }
+          root.setRowCount(3);
+          writer.writeBatch();
+        }
+        writer.end();
+      }
+      return out.toByteArray();
+    }
+  }
+
+  @Test
+  void testArrowStream() throws Exception {
+    try (ResultSet rs = decode(new LeafArrowDecoder(), arrowStream())) {
+      assertEquals(Types.INTEGER, rs.getMetaData().getColumnType(1));
+      assertEquals(Types.DOUBLE, rs.getMetaData().getColumnType(3));
+      assertEquals(Types.TIMESTAMP, rs.getMetaData().getColumnType(5));
+      for (int v = 1; v <= 6; v++) {
+        assertTrue(rs.next());
+        assertEquals(v, rs.getInt("id"));
+        assertEquals("abcdef".substring(v - 1, v), rs.getString("name"));
+        if (v == 2) {
+          assertEquals(0.0, rs.getDouble("yield"));
+          assertTrue(rs.wasNull());
+        } else {
+          assertEquals(v * 1.5, rs.getDouble("yield"));
+        }
+        assertEquals(v % 2 == 1, rs.getBoolean("ok"));
+        Timestamp at = rs.getTimestamp("at");
+        assertEquals(1_700_000_000_000L, at.getTime());
+        assertEquals(v * 1000, at.getNanos() % 1_000_000);
+        assertEquals(new BigDecimal(v + ".25"), rs.getBigDecimal("amount"));
+      }
+      assertFalse(rs.next());
+    }
+  }
+
+  @Test
+  void testTimestampZones() throws Exception {
+    String body =
+        "{\"columns\": [\"a\", \"b\", \"c\", \"d\", \"e\", \"f\"], \"rows\": [[\"2024-01-01T00:00:00Z\","
+            + " \"2024-01-01T00:00:00+00:00\", \"2024-01-01 00:00:00\","
+            + " \"2024-01-01T01:30:00.5+01:00\", \"2024-01-01\", \"12:30:00\"]]}";
+    Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    Instant midnight = Instant.parse("2024-01-01T00:00:00Z");
+    try (ResultSet rs = decode(LeafDecoders.JSON, body.getBytes(StandardCharsets.UTF_8))) {
+      assertTrue(rs.next());
+      assertEquals(midnight, rs.getTimestamp(1).toInstant());
+      assertEquals(midnight, rs.getTimestamp(2).toInstant());
+      assertEquals(Timestamp.valueOf("2024-01-01 00:00:00"), rs.getTimestamp(3));
+      assertEquals(midnight, rs.getTimestamp(3, utc).toInstant());
+      assertEquals(midnight.plusMillis(1_800_500), rs.getTimestamp(4, utc).toInstant());
+      assertEquals(java.sql.Date.valueOf("2024-01-01"), rs.getDate(5));
+      assertEquals(midnight.toEpochMilli(), rs.getDate(5, utc).getTime());
+      assertEquals(java.sql.Time.valueOf("12:30:00"), rs.getTime(6));
+      assertEquals(45_000_000L, rs.getTime(6, utc).getTime());
+    }
+  }
+
+  @Test
+  void testColumnTypesWidenWithLaterValues() throws Exception {
+    String body = "[{\"n\": 1, \"x\": 1, \"m\": 1}, {\"n\": 5000000000, \"x\": 2.5, \"m\": \"a\"}]";
+    try (ResultSet rs = decode(LeafDecoders.JSON, body.getBytes(StandardCharsets.UTF_8))) {
+      assertEquals(Types.BIGINT, rs.getMetaData().getColumnType(1));
+      assertEquals(Types.DOUBLE, rs.getMetaData().getColumnType(2));
+      assertEquals(Types.VARCHAR, rs.getMetaData().getColumnType(3));
+      assertTrue(rs.next());
+      assertEquals(1L, rs.getObject("n"));
+      assertEquals(1.0, rs.getObject("x"));
+      assertEquals("1", rs.getString("m"));
+      assertTrue(rs.next());
+      assertEquals(5_000_000_000L, rs.getLong("n"));
+      assertEquals("a", rs.getString("m"));
+    }
+  }
+
+  @Test
+  void testLargeIntegersMixedWithDoublesKeepTheirValue() throws Exception {
+    long id = (1L << 53) + 1;
+    String body =
+        "[{\"a\": " + id + ", \"b\": 0.5, \"c\": 3}, {\"a\": 0.5, \"b\": " + id + ", \"c\": 0.5}]";
+    try (ResultSet rs = decode(LeafDecoders.JSON, body.getBytes(StandardCharsets.UTF_8))) {
+      assertEquals(Types.DECIMAL, rs.getMetaData().getColumnType(1));
+      assertEquals(Types.DECIMAL, rs.getMetaData().getColumnType(2));
+      // Small integers still widen to primitive doubles
+      assertEquals(Types.DOUBLE, rs.getMetaData().getColumnType(3));
+      assertTrue(rs.next());
+      assertEquals(id, rs.getLong("a"));
+      assertEquals(BigDecimal.valueOf(id), rs.getBigDecimal("a"));
+      assertEquals(0.5, rs.getDouble("b"));
+      assertEquals(3.0, rs.getObject("c"));
+      assertTrue(rs.next());
+      assertEquals(0.5, rs.getDouble("a"));
+      assertEquals(id, rs.getLong("b"));
+    }
+  }
+
+  @Test
+  void testJsonShapes() throws Exception {
+    LeafDecoder json = LeafDecoders.JSON;
+    String wrapped = "{\"rows\": [[1, \"x\"]], \"columns\": [\"n\", \"s\"]}";
+    try (ResultSet rs = decode(json, wrapped.getBytes(StandardCharsets.UTF_8))) {
+      assertTrue(rs.next());
+      assertEquals(1, rs.getInt("n"));
+      assertEquals("x", rs.getString("s"));
+      assertFalse(rs.next());
+    }
+    // Later objects may introduce new keys
+    String objects = "{\"data\": [{\"a\": 1}, {\"a\": 2, \"b\": true}]}";
+    try (ResultSet rs = decode(json, objects.getBytes(StandardCharsets.UTF_8))) {
+      assertEquals(2, rs.getMetaData().getColumnCount());
+      assertTrue(rs.next());
+      assertNull(rs.getObject("b"));
+      assertTrue(rs.next());
+      assertTrue(rs.getBoolean("b"));
+    }
+  }
+
+  @Test
+  void testObjectRowsWithShiftingKeyOrder() throws Exception {
+    String body =
+        "[{\"a\": 1, \"b\": 2}, {\"a\": 3, \"b\": 4}, {\"b\": 6, \"a\": 5},"
+            + " {\"c\": 9, \"a\": 7}, {\"a\": 8, \"b\": 10, \"c\": 11}]";
+    try (ResultSet rs = decode(LeafDecoders.JSON, body.getBytes(StandardCharsets.UTF_8))) {
+      assertEquals(3, rs.getMetaData().getColumnCount());
+      int[][] expected = {{1, 2, 0}, {3, 4, 0}, {5, 6, 0}, {7, 0, 9}, {8, 10, 11}};
+      for (int[] row : expected) {
+        assertTrue(rs.next());
+        for (int i = 0; i < 3; i++) {
+          assertEquals(row[i], rs.getInt(i + 1));
+          assertEquals(row[i] == 0, rs.wasNull());
+        }
+      }
+      assertFalse(rs.next());
+    }
+  }
+
+  @Test
+  void testContentTypeSelection() {
+    assertTrue(
+        LeafDecoders.forContentType("application/vnd.apache.arrow.stream", false)
+            instanceof LeafArrowDecoder);
+    assertTrue(
+        LeafDecoders.forContentType("application/x-ndjson; charset=utf-8", false)
+            instanceof LeafNdjsonDecoder);
+    assertTrue(LeafDecoders.forContentType("text/csv", true) instanceof LeafCsvDecoder);
+    assertTrue(
+        LeafDecoders.ACCEPT.startsWith("text/csv, application/vnd.apache.arrow.stream;q=0.9"));
+    assertSame(LeafDecoders.JSON, LeafDecoders.forContentType("text/plain", false));
+    assertSame(LeafDecoders.JSON, LeafDecoders.forContentType(null, false));
+    assertNotSame(LeafDecoders.JSON, LeafDecoders.forContentType(null, true));
+    assertEquals(
+        List.of("application/json"),
+        LeafDecoders.forContentType("application/json", false).mediaTypes());
+  }
+}
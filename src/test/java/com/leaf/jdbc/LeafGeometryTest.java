@@ -0,0 +1,98 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import org.junit.jupiter.api.Test;
+
+public class LeafGeometryTest {
+  @Test
+  void testWktRoundTrip() {
+    String[] wkts = {
+      "POINT (15.754155568620842 50.31069667390199)",
+      "POINT Z (1 2 3)",
+      "POINT EMPTY",
+      "LINESTRING (0 0, 1 1, 2 0.5)",
+      "POLYGON ((0 0, 4 0, 4 4, 0 0), (1 1, 2 1, 2 2, 1 1))",
+      "MULTIPOINT ((1 2), (3 4))",
+      "MULTILINESTRING ((0 0, 1 1), (2 2, 3 3, 4 4))",
+      "MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5), (5.1 5.1, 5.2 5.1, 5.2 5.2, 5.1 5.1)))"
+    };
+    for (String wkt : wkts) {
+      LeafGeometry g = LeafGeometry.parse(wkt);
+      assertEquals(wkt, g.toWkt());
+      assertEquals(g, LeafGeometry.fromWkb(g.toWkb()), wkt);
+      assertEquals(g, LeafGeometry.parse(g.toGeoJson()), wkt);
+    }
+  }
+
+  @Test
+  void testParsesVariants() {
+    LeafGeometry point = LeafGeometry.parse("POINT (1 2)");
+    // Bare multipoint positions, EWKT SRID prefix and M ordinates
+    assertEquals(
+        LeafGeometry.parse("MULTIPOINT ((1 2), (3 4))"), LeafGeometry.parse("multipoint(1 2,3 4)"));
+    assertEquals(point, LeafGeometry.parse("SRID=4326;POINT(1 2)"));
+    assertEquals(point, LeafGeometry.parse("POINT M (1 2 7)"));
+    // PostGIS EWKB hex with SRID 4326
+    assertEquals(point, LeafGeometry.parse("0101000020E6100000000000000000F03F0000000000000040"));
+    assertEquals(3.0, LeafGeometry.parse("POINT Z (1 2 3)").z(0));
+    assertTrue(Double.isNaN(point.z(0)));
+    assertThrows(IllegalArgumentException.class, () -> LeafGeometry.parse("CIRCLE (1 2)"));
+    assertThrows(IllegalArgumentException.class, () -> LeafGeometry.parse("POINT (1 2"));
+  }
+
+  @Test
+  void testGeoJsonDecodesToPackedGeometry() throws Exception {
+    String body =
+        "[{\"id\": 1, \"geometry\": {\"type\": \"Point\", \"coordinates\": [15.75, 50.31]},"
+            + " \"props\": {\"type\": \"Feature\", \"n\": [1, 2]}},"
+            + " {\"id\": 2, \"geometry\": {\"coordinates\": [[0, 0], [1, 2]],"
+            + " \"type\": \"LineString\"}, \"props\": {\"type\": \"Point\", \"coordinates\":"
+            + " [1, 2], \"bbox\": [1, 2, 1, 2]}},"
+            + " {\"id\": 3, \"geometry\": null, \"props\": {\"type\": \"Point\","
+            + " \"coordinates\": [1, 2, 3, 4]}}]";
+    LeafColumnarBuilder builder = new LeafColumnarBuilder();
+    LeafDecoders.JSON.decode(
+        new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), builder);
+    try (ResultSet rs = builder.build().cursor(null)) {
+      ResultSetMetaData md = rs.getMetaData();
+      assertEquals(Types.OTHER, md.getColumnType(2));
+      assertEquals("GEOMETRY", md.getColumnTypeName(2));
+      assertEquals(String.class.getName(), md.getColumnClassName(2));
+      assertEquals(Types.VARCHAR, md.getColumnType(3));
+      assertTrue(rs.next());
+      LeafGeometry g = rs.getObject("geometry", LeafGeometry.class);
+      assertEquals(LeafGeometry.Type.POINT, g.type());
+      assertEquals(15.75, g.x(0));
+      assertEquals(50.31, g.y(0));
+      // The decoded geometry is the cell value; text and WKB are produced from it on demand
+      assertSame(g, rs.getObject("geometry", LeafGeometry.class));
+      String point = "{\"type\":\"Point\",\"coordinates\":[15.75,50.31]}";
+      assertEquals(point, rs.getString("geometry"));
+      assertEquals(point, rs.getObject("geometry"));
+      assertArrayEquals(g.toWkb(), rs.getBytes("geometry"));
+      assertThrows(SQLException.class, () -> rs.getObject("props", LeafGeometry.class));
+      assertEquals("{\"type\":\"Feature\",\"n\":[1,2]}", rs.getString("props"));
+      assertTrue(rs.next());
+      // Members may come in any order
+      assertEquals(
+          LeafGeometry.parse("LINESTRING (0 0, 1 2)"), rs.getObject(2, LeafGeometry.class));
+      assertEquals("{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,2]]}", rs.getString(2));
+      // Geometries whose text could not be rebuilt keep it
+      assertEquals(
+          "{\"type\":\"Point\",\"coordinates\":[1,2],\"bbox\":[1,2,1,2]}", rs.getString("props"));
+      assertEquals(LeafGeometry.parse("POINT (1 2)"), rs.getObject("props", LeafGeometry.class));
+      assertTrue(rs.next());
+      assertNull(rs.getObject("geometry", LeafGeometry.class));
+      assertNull(rs.getObject("geometry"));
+      assertNull(rs.getBytes("geometry"));
+      assertEquals("{\"type\":\"Point\",\"coordinates\":[1,2,3,4]}", rs.getString("props"));
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class LeafHistogramTest {
+
+  @Test
+  void testBucketsCoverEveryValue() {
+    for (long v : new long[] {0, 1, 3, 4, 7, 8, 1000, 123_456_789L, Long.MAX_VALUE}) {
+      int i = LeafHistogram.index(v);
+      assertTrue(LeafHistogram.lowerBound(i) <= v, "value " + v);
+      long next = LeafHistogram.lowerBound(i + 1);
+      // The bound above the largest values overflows
+      assertTrue(next > v || next < 0, "value " + v);
+    }
+  }
+
+  @Test
+  void testQuantilesWithinBucketError() {
+    LeafHistogram h = new LeafHistogram();
+    for (long ms = 1; ms <= 1000; ms++) {
+      h.record(ms * 1_000_000);
+    }
+    assertEquals(1000, h.count());
+    assertEquals(1_000_000_000L, h.max());
+    assertEquals(500e6, h.quantile(0.50), 500e6 * 0.125);
+    assertEquals(990e6, h.quantile(0.99), 990e6 * 0.125);
+    assertTrue(h.quantile(1.0) <= h.max());
+    h.record(Long.MAX_VALUE);
+    assertTrue(h.quantile(1.0) > 0);
+    h.reset();
+    assertEquals(0, h.count());
+    assertEquals(0, h.quantile(0.5));
+  }
+}
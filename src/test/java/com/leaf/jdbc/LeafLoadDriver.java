@@ -0,0 +1,225 @@
+package com.leaf.jdbc;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs concurrent queries through {@link DriverManager} against a {@link LeafMockServer} and
+ * reports latency percentiles, throughput and heap use. Each of {@code connections} connections
+ * runs {@code statements} statements on their own threads, and each statement runs {@code queries}
+ * queries, reading every cell of the result.
+ *
+ * <pre>
+ * gradle loadTest -PloadArgs="connections=16 statements=4 queries=100 latencyMillis=80 rows=20000"
+ * </pre>
+ *
+ * <p>Server options are {@code latencyMillis}, {@code bandwidth} (bytes per second), {@code rows},
+ * {@code errorRate}, {@code unauthorizedRate} and {@code throttleRate}; any other {@code key=value}
+ * is passed to the connections as a property, e.g. {@code streaming=true}.
+ */
+final class LeafLoadDriver {
+  static final String SQL = "SELECT * FROM leaf.pointlake.points";
+
+  record Report(
+      int queries,
+      int errors,
+      long rows,
+      double seconds,
+      double p50Millis,
+      double p99Millis,
+      double maxMillis,
+      long peakHeapBytes,
+      long gcCount,
+      long gcMillis) {
+
+    double queriesPerSecond() {
+      return (queries - errors) / seconds;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "queries=%d errors=%d rows=%d time=%.2fs throughput=%.1f q/s (%.0f rows/s)%n"
+              + "latency p50=%.1fms p99=%.1fms max=%.1fms%n"
+              + "heap peak=%.1fMB gc=%d (%dms)",
+          queries,
+          errors,
+          rows,
+          seconds,
+          queriesPerSecond(),
+          rows / seconds,
+          p50Millis,
+          p99Millis,
+          maxMillis,
+          peakHeapBytes / (1024.0 * 1024.0),
+          gcCount,
+          gcMillis);
+    }
+  }
+
+  private LeafLoadDriver() {}
+
+  public static void main(String[] args) throws Exception {
+    Properties options = new Properties();
+    for (String arg : args) {
+      int eq = arg.indexOf('=');
+      if (eq <= 0) throw new IllegalArgumentException("Expected key=value: " + arg);
+      options.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+    }
+    try (LeafMockServer server = new LeafMockServer()) {
+      System.out.println(run(server, options));
+    }
+  }
+
+  /** Configures {@code server} from {@code options}, installs it and runs the load. */
+  static Report run(LeafMockServer server, Properties options) throws Exception {
+    Properties props = new Properties();
+    props.setProperty("user", "load");
+    props.setProperty("password", "load");
+    int connections = 8;
+    int statements = 2;
+    int queries = 50;
+    server.payloadRows = 1000;
+    for (String key : options.stringPropertyNames()) {
+      String value = options.getProperty(key);
+      switch (key) {
+        case "connections" -> connections = Integer.parseInt(value);
+        case "statements" -> statements = Integer.parseInt(value);
+        case "queries" -> queries = Integer.parseInt(value);
+        case "latencyMillis" -> server.latencyMillis = Long.parseLong(value);
+        case "bandwidth" -> server.bandwidthBytesPerSecond = Long.parseLong(value);
+        case "rows" -> server.payloadRows = Integer.parseInt(value);
+        case "errorRate" -> server.errorRate = Double.parseDouble(value);
+        case "unauthorizedRate" -> server.unauthorizedRate = Double.parseDouble(value);
+        case "throttleRate" -> server.throttleRate = Double.parseDouble(value);
+        default -> props.setProperty(key, value);
+      }
+    }
+    server.install();
+
+    List<Connection> open = new ArrayList<>();
+    ExecutorService pool = Executors.newFixedThreadPool(connections * statements);
+    try {
+      for (int i = 0; i < connections; i++) {
+        open.add(DriverManager.getConnection("jdbc:leaf:", props));
+      }
+      // Warm the pool and the decode path so the first queries do not skew the percentiles
+      try (Statement s = open.get(0).createStatement();
+          ResultSet rs = s.executeQuery(SQL)) {
+        while (rs.next()) {}
+      } catch (SQLException ignored) {
+      }
+
+      for (MemoryPoolMXBean p : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (p.getType() == MemoryType.HEAP) p.resetPeakUsage();
+      }
+      long[] gcBefore = gc();
+      CountDownLatch start = new CountDownLatch(1);
+      AtomicLong rows = new AtomicLong();
+      List<Future<long[]>> workers = new ArrayList<>();
+      int perStatement = queries;
+      for (Connection connection : open) {
+        for (int s = 0; s < statements; s++) {
+          workers.add(pool.submit(() -> work(connection, perStatement, start, rows)));
+        }
+      }
+      long began = System.nanoTime();
+      start.countDown();
+      List<Long> latencies = new ArrayList<>();
+      int errors = 0;
+      for (Future<long[]> worker : workers) {
+        for (long nanos : worker.get()) {
+          if (nanos < 0) {
+            errors++;
+          } else {
+            latencies.add(nanos);
+          }
+        }
+      }
+      double seconds = (System.nanoTime() - began) / 1e9;
+      long[] gcAfter = gc();
+      long peak = 0;
+      for (MemoryPoolMXBean p : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (p.getType() == MemoryType.HEAP) peak += p.getPeakUsage().getUsed();
+      }
+
+      long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+      Arrays.sort(sorted);
+      return new Report(
+          workers.size() * queries,
+          errors,
+          rows.get(),
+          seconds,
+          percentile(sorted, 0.50),
+          percentile(sorted, 0.99),
+          percentile(sorted, 1.0),
+          peak,
+          gcAfter[0] - gcBefore[0],
+          gcAfter[1] - gcBefore[1]);
+    } finally {
+      pool.shutdownNow();
+      for (Connection c : open) {
+        c.close();
+      }
+    }
+  }
+
+  // Latency of each query in nanoseconds, or -1 for a query that failed
+  private static long[] work(
+      Connection connection, int queries, CountDownLatch start, AtomicLong rows) throws Exception {
+    long[] latencies = new long[queries];
+    start.await();
+    try (Statement statement = connection.createStatement()) {
+      for (int q = 0; q < queries; q++) {
+        long began = System.nanoTime();
+        try (ResultSet rs = statement.executeQuery(SQL)) {
+          int columns = rs.getMetaData().getColumnCount();
+          long n = 0;
+          while (rs.next()) {
+            for (int i = 1; i <= columns; i++) {
+              rs.getObject(i);
+            }
+            n++;
+          }
+          rows.addAndGet(n);
+          latencies[q] = System.nanoTime() - began;
+        } catch (SQLException e) {
+          latencies[q] = -1;
+        }
+      }
+    }
+    return latencies;
+  }
+
+  private static double percentile(long[] sorted, double p) {
+    if (sorted.length == 0) return Double.NaN;
+    int index = (int) Math.ceil(p * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+
+  private static long[] gc() {
+    long count = 0;
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return new long[] {count, millis};
+  }
+}
@@ -0,0 +1,48 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+
+public class LeafLoadDriverTest {
+
+  private static Properties options(String... pairs) {
+    Properties options = new Properties();
+    for (String pair : pairs) {
+      String[] kv = pair.split("=", 2);
+      options.setProperty(kv[0], kv[1]);
+    }
+    return options;
+  }
+
+  @Test
+  void testLoadRunReportsEveryQuery() throws Exception {
+    try (LeafMockServer server = new LeafMockServer()) {
+      LeafLoadDriver.Report report =
+          LeafLoadDriver.run(
+              server,
+              options("connections=2", "statements=2", "queries=5", "rows=100", "latencyMillis=5"));
+      assertEquals(20, report.queries());
+      assertEquals(0, report.errors());
+      assertEquals(2000, report.rows());
+      assertTrue(report.p50Millis() >= 5);
+      assertTrue(report.p99Millis() >= report.p50Millis());
+      assertTrue(report.peakHeapBytes() > 0);
+      // The warm-up query plus the measured ones
+      assertEquals(21, server.queryCount.get());
+    }
+  }
+
+  @Test
+  void testInjectedErrorsAreCounted() throws Exception {
+    try (LeafMockServer server = new LeafMockServer()) {
+      LeafLoadDriver.Report report =
+          LeafLoadDriver.run(
+              server, options("connections=1", "statements=2", "queries=3", "errorRate=1"));
+      assertEquals(6, report.queries());
+      assertEquals(6, report.errors());
+      assertEquals(0, report.rows());
+    }
+  }
+}
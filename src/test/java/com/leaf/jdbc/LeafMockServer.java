@@ -0,0 +1,332 @@
+package com.leaf.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Leaf API. {@code /api/authenticate} issues a new token per login and the
+ * query endpoint answers the Spark SQL posted to it. Responses, latency, bandwidth and injected
+ * faults are set through the fields, which may be changed while queries are running.
+ *
+ * <p>The response to a query is, in order of precedence: rows {@code n} from {@code pagedRows}
+ * honouring a trailing {@code LIMIT/OFFSET}, {@code []} for queries ending in {@code emptySuffix},
+ * the SQL echoed back, a canned response from {@code sqlResponses}, {@code responseJson}, {@code
+ * payloadRows} synthetic pointlake rows, or two WKT points.
+ */
+final class LeafMockServer implements AutoCloseable {
+  static final String QUERY_PATH = "/services/pointlake/api/v2/query";
+  private static final Pattern PAGE = Pattern.compile("LIMIT (\\d+)(?: OFFSET (\\d+))?$");
+
+  volatile int pagedRows = -1;
+  volatile String emptySuffix;
+  volatile boolean echoSql;
+  final Map<String, String> sqlResponses = new ConcurrentHashMap<>();
+  volatile String responseJson;
+  volatile byte[] responseBytes;
+  volatile String responseContentType;
+  volatile int payloadRows = -1;
+
+  /** Delay before each query is answered; queries matching {@code emptySuffix} skip it. */
+  volatile long latencyMillis;
+
+  /** Delay before each login is answered. */
+  volatile long authLatencyMillis;
+
+  /** Response body throughput limit, or 0 for unlimited. */
+  volatile long bandwidthBytesPerSecond;
+
+  /** Fraction of queries answered with HTTP 500. */
+  volatile double errorRate;
+
+  /** Fraction of queries answered with HTTP 401, as when a token is revoked. */
+  volatile double unauthorizedRate;
+
+  /** Fraction of queries answered with HTTP 429 and a {@code Retry-After} header. */
+  volatile double throttleRate;
+
+  volatile int retryAfterSeconds = 1;
+
+  /** The next this many queries are answered with {@code failStatus}. */
+  final AtomicInteger failuresLeft = new AtomicInteger();
+
+  volatile int failStatus = 503;
+
+  /** The next this many queries take {@code slowMillis} more, as on a slow backend node. */
+  final AtomicInteger slowLeft = new AtomicInteger();
+
+  volatile long slowMillis;
+
+  /** When positive, logins issue JWTs that expire after this many seconds. */
+  volatile long tokenTtlSeconds;
+
+  /** A token the query endpoint refuses with HTTP 401. */
+  volatile String rejectedToken;
+
+  final AtomicInteger authCount = new AtomicInteger();
+  final AtomicInteger queryCount = new AtomicInteger();
+  volatile String receivedSql;
+  volatile String receivedAccept;
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private volatile byte[] payload;
+  private volatile int payloadSize = -1;
+
+  LeafMockServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/authenticate", this::handleAuthenticate);
+    server.createContext(QUERY_PATH, this::handleQuery);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  String apiBase() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  /** Points connections opened from now on at this server. */
+  LeafMockServer install() {
+    System.setProperty("leaf.api.base", apiBase());
+    System.setProperty("leaf.query.base", apiBase() + QUERY_PATH);
+    return this;
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+    System.clearProperty("leaf.api.base");
+    System.clearProperty("leaf.query.base");
+  }
+
+  private void handleAuthenticate(HttpExchange exchange) throws IOException {
+    if (!"POST".equals(exchange.getRequestMethod())) {
+      exchange.sendResponseHeaders(405, -1);
+      return;
+    }
+    exchange.getRequestBody().readAllBytes();
+    if (authLatencyMillis > 0) {
+      try {
+        Thread.sleep(authLatencyMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    // Always succeed; each login issues a new token
+    String token = "mock-token-" + authCount.incrementAndGet();
+    if (tokenTtlSeconds > 0) {
+      long exp = System.currentTimeMillis() / 1000 + tokenTtlSeconds;
+      String claims = "{\"sub\":\"" + token + "\",\"exp\":" + exp + "}";
+      token =
+          "e30."
+              + Base64.getUrlEncoder()
+                  .withoutPadding()
+                  .encodeToString(claims.getBytes(StandardCharsets.UTF_8))
+              + ".sig";
+    }
+    String json = "{\"id_token\":\"" + token + "\"}";
+    send(exchange, 200, "application/json", json.getBytes(StandardCharsets.UTF_8), 0);
+  }
+
+  private void handleQuery(HttpExchange exchange) throws IOException {
+    if (!"POST".equals(exchange.getRequestMethod())) {
+      exchange.sendResponseHeaders(405, -1);
+      return;
+    }
+    String query = exchange.getRequestURI().getQuery();
+    if (query == null || !query.contains("sqlEngine=SPARK_SQL")) {
+      exchange.sendResponseHeaders(400, -1);
+      return;
+    }
+    // Any Bearer token is accepted except the rejected one
+    String auth = exchange.getRequestHeaders().getFirst("Authorization");
+    if (auth == null || !auth.startsWith("Bearer ") || auth.equals("Bearer " + rejectedToken)) {
+      exchange.sendResponseHeaders(401, -1);
+      return;
+    }
+    String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+    if (contentType == null || !contentType.contains("text/plain")) {
+      exchange.sendResponseHeaders(400, -1);
+      return;
+    }
+
+    String sql;
+    try (InputStream in = exchange.getRequestBody()) {
+      sql = new String(in.readAllBytes(), StandardCharsets.UTF_8).strip();
+    }
+    receivedSql = sql;
+    receivedAccept = exchange.getRequestHeaders().getFirst("Accept");
+    queryCount.incrementAndGet();
+    if (sql.isEmpty()) {
+      exchange.sendResponseHeaders(400, -1);
+      return;
+    }
+
+    if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+      if (failStatus == 429) {
+        exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+      }
+      exchange.sendResponseHeaders(failStatus, -1);
+      return;
+    }
+    if (slowLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+      try {
+        Thread.sleep(slowMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    boolean empty = emptySuffix != null && sql.endsWith(emptySuffix);
+    if (latencyMillis > 0 && !empty) {
+      try {
+        Thread.sleep(latencyMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    double dice = ThreadLocalRandom.current().nextDouble();
+    if (dice < unauthorizedRate) {
+      exchange.sendResponseHeaders(401, -1);
+      return;
+    }
+    if (dice < unauthorizedRate + throttleRate) {
+      exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+      exchange.sendResponseHeaders(429, -1);
+      return;
+    }
+    if (dice < unauthorizedRate + throttleRate + errorRate) {
+      byte[] error = "{\"title\":\"Internal Server Error\"}".getBytes(StandardCharsets.UTF_8);
+      send(exchange, 500, "application/json", error, 0);
+      return;
+    }
+
+    byte[] bytes = responseBytes;
+    if (bytes == null) {
+      bytes = body(sql, empty);
+    }
+    String type = responseContentType != null ? responseContentType : "application/json";
+    send(exchange, 200, type, bytes, bandwidthBytesPerSecond);
+  }
+
+  private byte[] body(String sql, boolean empty) {
+    if (pagedRows >= 0) return page(sql).getBytes(StandardCharsets.UTF_8);
+    if (empty) return "[]".getBytes(StandardCharsets.UTF_8);
+    if (echoSql) return ("[{\"sql\": \"" + sql + "\"}]").getBytes(StandardCharsets.UTF_8);
+    String canned = sqlResponses.get(sql);
+    if (canned != null) return canned.getBytes(StandardCharsets.UTF_8);
+    if (responseJson != null) return responseJson.getBytes(StandardCharsets.UTF_8);
+    if (payloadRows >= 0) return payload(payloadRows);
+    return ("[\n"
+            + "  {\n"
+            + "    \"geometry\": \"POINT (15.754155568620842 50.31069667390199)\"\n"
+            + "  },\n"
+            + "  {\n"
+            + "    \"geometry\": \"POINT (15.754527717117158 50.3120397150037)\"\n"
+            + "  }\n"
+            + "]")
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  // Serves rows 0..pagedRows-1 honouring a trailing "LIMIT n [OFFSET m]"
+  private String page(String sql) {
+    Matcher m = PAGE.matcher(sql);
+    int offset = 0;
+    int end = pagedRows;
+    if (m.find()) {
+      offset = m.group(2) != null ? Integer.parseInt(m.group(2)) : 0;
+      end = Math.min(pagedRows, offset + Integer.parseInt(m.group(1)));
+    }
+    StringBuilder json = new StringBuilder("[");
+    for (int i = offset; i < end; i++) {
+      if (i > offset) json.append(',');
+      json.append("{\"n\":").append(i).append('}');
+    }
+    return json.append(']').toString();
+  }
+
+  // Synthetic pointlake rows, generated once per size
+  private byte[] payload(int rows) {
+    if (payloadSize != rows) {
+      synchronized (this) {
+        if (payloadSize != rows) {
+          payload = generate(rows);
+          payloadSize = rows;
+        }
+      }
+    }
+    return payload;
+  }
+
+  private static byte[] generate(int rows) {
+    Random random = new Random(rows);
+    StringBuilder json = new StringBuilder(rows * 170 + 2).append('[');
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) json.append(',');
+      double lon = -93.0 + random.nextDouble() * 0.5;
+      double lat = 41.5 + random.nextDouble() * 0.5;
+      json.append("{\"id\":")
+          .append(i)
+          .append(",\"timestamp\":\"2024-09-14 15:02:")
+          .append(10 + i % 50)
+          .append("\",\"operationType\":\"harvested\",\"yield\":")
+          .append(random.nextDouble() * 250)
+          .append(",\"moisture\":")
+          .append(12 + random.nextDouble() * 10)
+          .append(",\"geometry\":\"POINT (")
+          .append(lon)
+          .append(' ')
+          .append(lat)
+          .append(")\"}");
+    }
+    return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void send(
+      HttpExchange exchange, int status, String contentType, byte[] bytes, long bytesPerSecond)
+      throws IOException {
+    exchange.getResponseHeaders().add("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      if (bytesPerSecond <= 0) {
+        os.write(bytes);
+        return;
+      }
+      // Paces writes so the body arrives at the configured rate
+      int chunk = (int) Math.max(1024, Math.min(64 * 1024, bytesPerSecond / 20));
+      long start = System.nanoTime();
+      for (int off = 0; off < bytes.length; off += chunk) {
+        int len = Math.min(chunk, bytes.length - off);
+        os.write(bytes, off, len);
+        os.flush();
+        long due = start + TimeUnit.SECONDS.toNanos(off + len) / bytesPerSecond;
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+          try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+public class LeafPartitionerTest {
+  @Test
+  void testSplitsNumericRange() throws Exception {
+    List<String> parts =
+        LeafPartitioner.split(
+            "SELECT * FROM t WHERE n >= 0 AND n < 100 AND crop = 'corn';", "n", 4);
+    assertEquals(
+        List.of(
+            "SELECT * FROM t WHERE n >= 0 AND n < 100 AND crop = 'corn' AND (n < 25)",
+            "SELECT * FROM t WHERE n >= 0 AND n < 100 AND crop = 'corn' AND (n >= 25 AND n < 50)",
+            "SELECT * FROM t WHERE n >= 0 AND n < 100 AND crop = 'corn' AND (n >= 50 AND n < 75)",
+            "SELECT * FROM t WHERE n >= 0 AND n < 100 AND crop = 'corn' AND (n >= 75)"),
+        parts);
+  }
+
+  @Test
+  void testSplitsTimestampRangeFromHint() throws Exception {
+    List<String> parts =
+        LeafPartitioner.split(
+            "SELECT /*+ LEAF_PARTITION(ts, 2) */ * FROM t "
+                + "WHERE ts BETWEEN TIMESTAMP '2024-01-01' AND TIMESTAMP '2024-01-03'",
+            null,
+            0);
+    assertEquals(2, parts.size());
+    assertEquals(
+        "SELECT  * FROM t WHERE ts BETWEEN TIMESTAMP '2024-01-01' AND TIMESTAMP '2024-01-03'"
+            + " AND (ts < TIMESTAMP '2024-01-02 00:00:00.000000')",
+        parts.get(0));
+    assertTrue(parts.get(1).endsWith("AND (ts >= TIMESTAMP '2024-01-02 00:00:00.000000')"));
+  }
+
+  @Test
+  void testLeavesUnsplittableQueriesAlone() throws Exception {
+    assertNull(LeafPartitioner.split("SELECT * FROM t WHERE n >= 0 AND n < 100", "n", 1));
+    assertNull(LeafPartitioner.split("SELECT * FROM t WHERE n >= 0", "n", 4));
+    assertNull(LeafPartitioner.split("SELECT * FROM t WHERE n >= 0 AND n < 9 OR x = 1", "n", 4));
+    assertNull(LeafPartitioner.split("SELECT count(*) FROM t WHERE n >= 0 AND n < 9", "n", 4));
+    assertNull(LeafPartitioner.split("SELECT * FROM t WHERE n >= 0 AND n < 9 ORDER BY n", "n", 4));
+    assertNull(LeafPartitioner.split("SELECT * FROM t WHERE n >= 0 AND n < 9 LIMIT 5", "n", 4));
+    assertNull(
+        LeafPartitioner.split(
+            "SELECT try_sum(x) FROM t WHERE ts BETWEEN '2024-01-01' AND '2024-02-01'", "ts", 4));
+    assertNull(
+        LeafPartitioner.split("SELECT upper(max(crop)) FROM t WHERE n >= 0 AND n < 9", "n", 4));
+    assertNull(
+        LeafPartitioner.split(
+            "SELECT n, (SELECT max(n) FROM t) FROM t WHERE n >= 0 AND n < 9", "n", 4));
+    assertNotNull(
+        LeafPartitioner.split(
+            "SELECT n, upper(crop) AS c, round(x * 2, 1), 'a' FROM t WHERE n >= 0 AND n < 9",
+            "n",
+            4));
+    // Subqueries may aggregate freely
+    assertNotNull(
+        LeafPartitioner.split(
+            "SELECT * FROM (SELECT n, count(*) c FROM t GROUP BY n) WHERE n > 0 AND n <= 9",
+            "n",
+            4));
+  }
+
+  @Test
+  void testLeavesWindowFunctionsAlone() throws Exception {
+    assertNull(
+        LeafPartitioner.split(
+            "SELECT n, row_number() OVER (ORDER BY ts) FROM t WHERE n >= 0 AND n < 9", "n", 4));
+    assertNull(
+        LeafPartitioner.split(
+            "SELECT /*+ LEAF_PARTITION(n, 4) */ rank() OVER w FROM t WHERE n >= 0 AND n < 9",
+            null,
+            0));
+  }
+
+  @Test
+  void testHintVouchesForUnknownFunctions() throws Exception {
+    String sql = "SELECT /*+ LEAF_PARTITION(n, 2) */ my_udf(x) FROM t WHERE n >= 0 AND n < 9";
+    assertNull(LeafPartitioner.split(LeafPartitioner.stripHint(sql), "n", 2));
+    assertEquals(2, LeafPartitioner.split(sql, null, 0).size());
+    SQLException e =
+        assertThrows(
+            SQLException.class,
+            () ->
+                LeafPartitioner.split(
+                    "SELECT /*+ LEAF_PARTITION(n, 99999999999) */ * FROM t WHERE n > 0 AND n < 9",
+                    null,
+                    0));
+    assertTrue(e.getMessage().contains("99999999999"));
+  }
+
+  @Test
+  void testMergedPartitionsMatchColumnsByLabel() throws Exception {
+    // A streamed empty partition arrives first, and the last one orders and omits columns
+    // differently
+    List<CompletableFuture<ResultSet>> parts =
+        List.of(
+            CompletableFuture.completedFuture(streamed("[]")),
+            CompletableFuture.completedFuture(streamed("[{\"a\": 1, \"b\": \"x\"}]")),
+            CompletableFuture.completedFuture(streamed("[{\"b\": \"y\", \"c\": true}]")));
+    try (ResultSet rs = LeafMergedResultSet.open(null, parts)) {
+      assertEquals(2, rs.getMetaData().getColumnCount());
+      assertEquals("a", rs.getMetaData().getColumnLabel(1));
+      assertTrue(rs.next());
+      assertEquals(1, rs.getInt("a"));
+      assertEquals("x", rs.getString("b"));
+      assertTrue(rs.next());
+      assertNull(rs.getObject("a"));
+      assertEquals("y", rs.getString(2));
+      assertFalse(rs.next());
+    }
+  }
+
+  private static ResultSet streamed(String json) throws Exception {
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    return LeafStreamingResultSet.open(
+        null, LeafTransport.mapper(), new ByteArrayInputStream(body), () -> {}, false);
+  }
+}
@@ -0,0 +1,55 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class LeafResultCacheTest {
+  private static LeafColumnarData rows(int count) throws Exception {
+    LeafColumnarBuilder builder = new LeafColumnarBuilder();
+    builder.addColumn("id");
+    for (int i = 0; i < count; i++) {
+      builder.set(0, (long) i);
+      builder.endRow();
+    }
+    return builder.build();
+  }
+
+  @Test
+  void testNormalizedLookupAndCounters() throws Exception {
+    LeafResultCache cache = new LeafResultCache(1 << 20);
+    cache.put("u", "SELECT id FROM t WHERE name = 'A'", false, rows(3), 60);
+
+    assertNotNull(cache.get("u", "select  id from t where name = 'A' -- comment", false));
+    assertNull(cache.get("u", "select id from t where name = 'a'", false));
+    assertNull(cache.get("other", "SELECT id FROM t WHERE name = 'A'", false));
+    // Results decoded with exact decimals are kept apart
+    assertNull(cache.get("u", "SELECT id FROM t WHERE name = 'A'", true));
+    assertEquals(1, cache.hitCount());
+    assertEquals(3, cache.missCount());
+  }
+
+  @Test
+  void testEvictsLeastRecentlyUsedOverBudget() throws Exception {
+    long entryBytes = rows(1000).estimatedBytes();
+    LeafResultCache cache = new LeafResultCache(entryBytes * 2 + entryBytes / 2);
+    cache.put("u", "q1", false, rows(1000), 60);
+    cache.put("u", "q2", false, rows(1000), 60);
+    assertNotNull(cache.get("u", "q1", false));
+    cache.put("u", "q3", false, rows(1000), 60);
+
+    assertNotNull(cache.get("u", "q1", false));
+    assertNull(cache.get("u", "q2", false));
+    assertNotNull(cache.get("u", "q3", false));
+    assertEquals(1, cache.evictionCount());
+    assertTrue(cache.sizeBytes() <= entryBytes * 2 + entryBytes / 2);
+  }
+
+  @Test
+  void testExpiredEntriesAreNotReturned() throws Exception {
+    LeafResultCache cache = new LeafResultCache(1 << 20);
+    cache.put("u", "q", false, rows(1), 0);
+    assertNull(cache.get("u", "q", false));
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,50 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import org.junit.jupiter.api.Test;
+
+public class LeafRetryPolicyTest {
+
+  @Test
+  void testBackoffGrowsWithJitterUpToTheCap() {
+    LeafRetryPolicy policy = new LeafRetryPolicy(40, 100, 1000, false, 0);
+    for (int i = 0; i < 100; i++) {
+      long first = policy.delayMillis(0, null);
+      assertTrue(first >= 0 && first <= 100, "first " + first);
+      long third = policy.delayMillis(2, null);
+      assertTrue(third >= 0 && third <= 400, "third " + third);
+      long late = policy.delayMillis(39, null);
+      assertTrue(late >= 0 && late <= 1000, "late " + late);
+    }
+    assertEquals(-1, policy.delayMillis(40, null));
+  }
+
+  @Test
+  void testRetryAfterReplacesTheBackoff() {
+    LeafRetryPolicy policy = new LeafRetryPolicy(2, 100, 5000, false, 0);
+    assertEquals(3000, policy.delayMillis(0, "3"));
+    assertEquals(-1, policy.delayMillis(0, "60"));
+    String date =
+        DateTimeFormatter.RFC_1123_DATE_TIME.format(
+            ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(2));
+    long millis = LeafRetryPolicy.retryAfterMillis(date);
+    assertTrue(millis > 0 && millis <= 2000, "date " + millis);
+    assertEquals(-1, LeafRetryPolicy.retryAfterMillis("soon"));
+    assertTrue(LeafRetryPolicy.isRetryable(429));
+    assertTrue(LeafRetryPolicy.isRetryable(503));
+    assertFalse(LeafRetryPolicy.isRetryable(500));
+  }
+
+  @Test
+  void testOnlyReadOnlyStatementsAreIdempotent() {
+    assertTrue(LeafSql.isReadOnly("SELECT * FROM t"));
+    assertTrue(LeafSql.isReadOnly("with x as (select 1) select * from x"));
+    assertTrue(LeafSql.isReadOnly("DESCRIBE TABLE t"));
+    assertFalse(LeafSql.isReadOnly("WITH x AS (SELECT 1) INSERT INTO t SELECT * FROM x"));
+    assertFalse(LeafSql.isReadOnly("INSERT INTO t VALUES (1)"));
+  }
+}
@@ -0,0 +1,69 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Types;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LeafSpillFileTest {
+  @TempDir Path dir;
+
+  @Test
+  void testSpillsAndReadsBackThroughMappedSegments() throws Exception {
+    LeafColumnarBuilder builder = new LeafColumnarBuilder(1, dir, 16 * 1024);
+    int id = builder.addColumn("id");
+    int name = builder.addColumn("name");
+    int rows = 5000;
+    for (int i = 0; i < rows; i++) {
+      builder.set(id, i);
+      builder.set(name, i % 7 == 0 ? null : "row-" + i);
+      if (i == 3000) {
+        builder.addColumn("late");
+      }
+      if (i >= 3000) {
+        builder.set(2, i * 0.5);
+      }
+      builder.endRow();
+    }
+
+    LeafResultData data = builder.finish();
+    assertInstanceOf(LeafSpillFile.class, data);
+    LeafSpillFile file = (LeafSpillFile) data;
+    assertTrue(file.segmentCount() > 1);
+
+    try (ResultSet rs = data.open(null)) {
+      assertEquals(Types.INTEGER, rs.getMetaData().getColumnType(1));
+      assertEquals(Types.DOUBLE, rs.getMetaData().getColumnType(3));
+      for (int i = 0; i < rows; i++) {
+        assertTrue(rs.next());
+        assertEquals(i, rs.getInt("id"));
+        if (i % 7 == 0) {
+          assertNull(rs.getString("name"));
+          assertTrue(rs.wasNull());
+        } else {
+          assertEquals("row-" + i, rs.getString("name"));
+        }
+        if (i >= 3000) {
+          assertEquals(i * 0.5, rs.getDouble("late"));
+        } else {
+          assertNull(rs.getObject("late"));
+        }
+      }
+      assertFalse(rs.next());
+    }
+    assertFalse(Files.exists(file.path()));
+  }
+
+  @Test
+  void testSmallResultsStayInMemory() throws Exception {
+    LeafColumnarBuilder builder = new LeafColumnarBuilder(1 << 20, dir, 16 * 1024);
+    builder.addColumn("id");
+    builder.set(0, 1L);
+    builder.endRow();
+    assertInstanceOf(LeafColumnarData.class, builder.finish());
+  }
+}
@@ -0,0 +1,43 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+public class LeafSqlTemplateTest {
+  @Test
+  void testPlaceholdersOutsideLiteralsAndComments() throws Exception {
+    LeafSqlTemplate t =
+        LeafSqlTemplate.parse(
+            "SELECT '?', `a?` FROM t -- why?\n WHERE x = ? /* or ? */ AND y = \"?\" AND z = ?");
+    assertEquals(2, t.parameterCount());
+    assertEquals(
+        "SELECT '?', `a?` FROM t -- why?\n WHERE x = 1 /* or ? */ AND y = \"?\" AND z = 'b'",
+        t.render(new String[] {"1", "'b'"}));
+  }
+
+  @Test
+  void testUnboundParameterIsRejected() {
+    LeafSqlTemplate t = LeafSqlTemplate.parse("SELECT * FROM t WHERE a = ? AND b = ?");
+    SQLException e = assertThrows(SQLException.class, () -> t.render(new String[] {"1", null}));
+    assertEquals("07001", e.getSQLState());
+  }
+
+  @Test
+  void testLiterals() throws Exception {
+    assertEquals("NULL", LeafSql.literal(null));
+    assertEquals("'it\\'s a \\\\ path'", LeafSql.literal("it's a \\ path"));
+    assertEquals("TRUE", LeafSql.literal(true));
+    assertEquals("42", LeafSql.literal(42));
+    assertEquals("(-7L)", LeafSql.literal(-7L));
+    assertEquals("1.5D", LeafSql.literal(1.5d));
+    assertEquals("CAST('NaN' AS DOUBLE)", LeafSql.literal(Double.NaN));
+    assertEquals("12.50BD", LeafSql.literal(new BigDecimal("12.50")));
+    assertEquals("DATE '2024-03-01'", LeafSql.literal(LocalDate.of(2024, 3, 1)));
+    assertEquals("X'00FF'", LeafSql.literal(new byte[] {0, (byte) 0xFF}));
+    assertThrows(SQLException.class, () -> LeafSql.literal(new Object()));
+  }
+}
@@ -0,0 +1,56 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class LeafSqlTest {
+  @Test
+  void testLimitIsAppendedOrTightened() {
+    assertEquals("SELECT * FROM t LIMIT 200", LeafSql.limit("SELECT * FROM t;\n-- done", 200));
+    assertEquals("select a from t LIMIT 5", LeafSql.limit("select a from t LIMIT 5", 200));
+    assertEquals(
+        "SELECT a FROM t LIMIT 200 OFFSET 10",
+        LeafSql.limit("SELECT a FROM t LIMIT 1000 OFFSET 10", 200));
+    // LIMIT must come before OFFSET
+    assertEquals(
+        "SELECT a FROM t ORDER BY a LIMIT 200 OFFSET 10",
+        LeafSql.limit("SELECT a FROM t ORDER BY a OFFSET 10;", 200));
+    assertEquals(
+        "SELECT * FROM (SELECT a FROM t OFFSET 5) x LIMIT 200",
+        LeafSql.limit("SELECT * FROM (SELECT a FROM t OFFSET 5) x", 200));
+    // LIMIT inside a subquery does not bound the outer query
+    assertEquals(
+        "SELECT * FROM (SELECT a FROM t LIMIT 5000) x LIMIT 200",
+        LeafSql.limit("SELECT * FROM (SELECT a FROM t LIMIT 5000) x", 200));
+    assertEquals("SELECT 'LIMIT 9' LIMIT 3", LeafSql.limit("SELECT 'LIMIT 9'", 3));
+    assertEquals("SHOW TABLES", LeafSql.limit("SHOW TABLES", 3));
+    String insert = "WITH x AS (SELECT * FROM s) INSERT INTO t SELECT * FROM x";
+    assertEquals(insert, LeafSql.limit(insert, 3));
+  }
+
+  @Test
+  void testPaging() {
+    assertTrue(LeafSql.isPageable("SELECT a FROM t ORDER BY a"));
+    assertFalse(LeafSql.isPageable("SELECT a FROM t LIMIT 10"));
+    assertFalse(LeafSql.isPageable("DESCRIBE t"));
+    assertFalse(LeafSql.isPageable("SELECT a FROM t"));
+    assertFalse(LeafSql.isPageable("SELECT a FROM (SELECT a FROM t ORDER BY a) x"));
+    assertFalse(
+        LeafSql.isPageable("WITH x AS (SELECT a FROM s) INSERT INTO t SELECT a FROM x ORDER BY a"));
+    assertEquals(
+        "SELECT a FROM t ORDER BY a LIMIT 50", LeafSql.page("SELECT a FROM t ORDER BY a;", 50, 0));
+    assertEquals("SELECT a FROM t LIMIT 50 OFFSET 100", LeafSql.page("SELECT a FROM t", 50, 100));
+  }
+
+  @Test
+  void testFingerprintReplacesLiterals() {
+    assertEquals(
+        "select `a` from t where id in (?) and name = ? and t2.x > ?",
+        LeafSql.fingerprint(
+            "SELECT `a` FROM t -- ids\n WHERE id IN (1, 2,3) AND name = 'x' AND t2.x > 1.5e3;"));
+    assertEquals(
+        LeafSql.fingerprint("SELECT * FROM t WHERE id IN (4)"),
+        LeafSql.fingerprint("select *   from t where id in (7, 8)"));
+  }
+}
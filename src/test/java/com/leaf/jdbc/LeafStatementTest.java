@@ -2,146 +2,518 @@ package com.leaf.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpServer;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.InetSocketAddress;
-import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Properties;
-import java.util.stream.Collectors;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.QueryProvider;
+import org.apache.calcite.schema.SchemaPlus;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 public class LeafStatementTest {
-  private HttpServer server;
-  private String apiPrefix;
-  private String receivedSql = null;
+  private LeafMockServer server;
 
   @BeforeEach
   void setup() throws Exception {
-    receivedSql = null; // Reset for each test
-    if (server != null) {
-      server.stop(0);
-    }
-    server = HttpServer.create(new InetSocketAddress(0), 0);
-    // Mock authentication endpoint
-    server.createContext("/api/authenticate", this::handleAuthenticate);
-    // Mock query endpoint (correct path without /api/v1)
-    server.createContext("/services/pointlake/api/v2/query", this::handleQuery);
-    server.start();
-    apiPrefix = "http://localhost:" + server.getAddress().getPort();
-    // Set system properties to use mock server
-    System.setProperty("leaf.api.base", apiPrefix);
-    System.setProperty("leaf.query.base", apiPrefix + "/services/pointlake/api/v2/query");
+    server = new LeafMockServer().install();
   }
 
   @AfterEach
   void teardown() {
-    if (server != null) {
-      server.stop(0);
+    server.close();
+  }
+
+  @Test
+  void testQueryArrayFormat() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement();
+        ResultSet rs =
+            s.executeQuery("SELECT geometry FROM leaf.pointlake.points TABLESAMPLE(0.3 PERCENT)")) {
+      assertNotNull(rs);
+      assertTrue(rs.next());
+      assertEquals("POINT (15.754155568620842 50.31069667390199)", rs.getString("geometry"));
+      assertTrue(rs.next());
+      assertEquals("POINT (15.754527717117158 50.3120397150037)", rs.getString("geometry"));
+      assertFalse(rs.next());
     }
-    System.clearProperty("leaf.api.base");
-    System.clearProperty("leaf.query.base");
+    assertNotNull(server.receivedSql);
+    assertEquals(
+        "SELECT geometry FROM leaf.pointlake.points TABLESAMPLE(0.3 PERCENT)",
+        server.receivedSql.trim());
   }
 
-  private void handleAuthenticate(HttpExchange exchange) throws java.io.IOException {
-    if (!"POST".equals(exchange.getRequestMethod())) {
-      exchange.sendResponseHeaders(405, -1);
-      return;
+  @Test
+  void testStreamingArrayFormat() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("streaming", "true");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery("SELECT geometry FROM leaf.pointlake.points")) {
+      assertEquals(1, rs.getMetaData().getColumnCount());
+      assertTrue(rs.next());
+      assertEquals("POINT (15.754155568620842 50.31069667390199)", rs.getString("geometry"));
+      assertTrue(rs.next());
+      assertEquals("POINT (15.754527717117158 50.3120397150037)", rs.getString(1));
+      assertFalse(rs.next());
     }
+  }
 
-    // Return a mock token (always succeed for testing)
-    String json = "{\"id_token\":\"mock-token-12345\"}";
-    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-    exchange.getResponseHeaders().add("Content-Type", "application/json");
-    exchange.sendResponseHeaders(200, bytes.length);
-    try (OutputStream os = exchange.getResponseBody()) {
-      os.write(bytes);
+  @Test
+  void testStreamingColumnsRowsFormat() throws Exception {
+    server.responseJson =
+        "{\"columns\":[\"id\",\"yield\",\"field\"],"
+            + "\"rows\":[[1,12.5,\"north\"],[2,null,\"south\"],[3,9.25,{\"k\":1}]]}";
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("streaming", "true");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery("SELECT id, yield, field FROM leaf.pointlake.points")) {
+      assertEquals(3, rs.getMetaData().getColumnCount());
+      assertTrue(rs.next());
+      assertEquals(1, rs.getInt("id"));
+      assertEquals(12.5, rs.getDouble("yield"));
+      assertEquals("north", rs.getString("field"));
+      assertTrue(rs.next());
+      assertEquals(2L, rs.getLong(1));
+      assertEquals(0d, rs.getDouble(2));
+      assertTrue(rs.wasNull());
+      assertTrue(rs.next());
+      assertEquals("{\"k\":1}", rs.getString("field"));
+      assertFalse(rs.next());
     }
   }
 
-  private void handleQuery(HttpExchange exchange) throws java.io.IOException {
-    // Verify it's a POST request
-    if (!"POST".equals(exchange.getRequestMethod())) {
-      exchange.sendResponseHeaders(405, -1);
-      return;
+  @Test
+  void testStreamingWrappedDataFormat() throws Exception {
+    server.responseJson =
+        "{\"meta\":{\"n\":2},\"data\":[{\"a\":1,\"b\":true},{\"b\":false,\"a\":2}]}";
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("streaming", "true");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery("SELECT a, b FROM t")) {
+      assertTrue(rs.next());
+      assertEquals(1, rs.getInt("a"));
+      assertTrue(rs.getBoolean("b"));
+      assertTrue(rs.next());
+      assertEquals(2, rs.getInt("a"));
+      assertFalse(rs.getBoolean("b"));
+      assertFalse(rs.next());
     }
+  }
+
+  @Test
+  void testColumnarTypedResult() throws Exception {
+    server.responseJson =
+        "{\"columns\":[\"id\",\"ts\",\"valid\",\"yield\",\"name\"],"
+            + "\"rows\":[[1,1700000000000,true,12.5,\"a\"],[2,null,false,null,null]]}";
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
 
-    // Verify sqlEngine query parameter
-    String query = exchange.getRequestURI().getQuery();
-    if (query == null || !query.contains("sqlEngine=SPARK_SQL")) {
-      exchange.sendResponseHeaders(400, -1);
-      return;
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery("SELECT * FROM leaf.pointlake.points")) {
+      java.sql.ResultSetMetaData md = rs.getMetaData();
+      assertEquals(java.sql.Types.INTEGER, md.getColumnType(1));
+      assertEquals(java.sql.Types.BIGINT, md.getColumnType(2));
+      assertEquals(java.sql.Types.BOOLEAN, md.getColumnType(3));
+      assertEquals(java.sql.Types.DOUBLE, md.getColumnType(4));
+      assertEquals(java.sql.Types.VARCHAR, md.getColumnType(5));
+      assertEquals(3, rs.findColumn("VALID"));
+
+      assertTrue(rs.next());
+      assertEquals(1, rs.getInt("id"));
+      assertEquals(Integer.valueOf(1), rs.getObject("id"));
+      assertEquals(1700000000000L, rs.getLong("ts"));
+      assertTrue(rs.getBoolean("valid"));
+      assertEquals(Double.valueOf(12.5), rs.getObject("yield"));
+      assertEquals(new java.math.BigDecimal("12.5"), rs.getBigDecimal("yield"));
+      assertEquals("a", rs.getString("name"));
+
+      assertTrue(rs.next());
+      assertEquals(0L, rs.getLong("ts"));
+      assertTrue(rs.wasNull());
+      assertNull(rs.getString("name"));
+      assertTrue(rs.wasNull());
+      assertFalse(rs.next());
     }
+  }
+
+  @Test
+  void testConnectionsShareHttpClient() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
 
-    // Verify Authorization header (Bearer token) - accept any Bearer token for testing
-    java.util.List<String> authHeaders = exchange.getRequestHeaders().get("Authorization");
-    if (authHeaders == null || authHeaders.isEmpty()) {
-      exchange.sendResponseHeaders(401, -1);
-      return;
+    try (Connection c1 = DriverManager.getConnection("jdbc:leaf:", p);
+        Connection c2 = DriverManager.getConnection("jdbc:leaf:", p)) {
+      assertSame(((LeafConnection) c1).httpClient(), ((LeafConnection) c2).httpClient());
     }
-    String authHeader = authHeaders.get(0);
-    if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-      exchange.sendResponseHeaders(401, -1);
-      return;
+
+    p.setProperty("http2", "false");
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p)) {
+      assertEquals(
+          java.util.List.of(okhttp3.Protocol.HTTP_1_1),
+          ((LeafConnection) c).httpClient().protocols());
     }
+  }
 
-    // Verify Content-Type header
-    java.util.List<String> contentTypeHeaders = exchange.getRequestHeaders().get("Content-Type");
-    if (contentTypeHeaders == null || contentTypeHeaders.isEmpty()) {
-      exchange.sendResponseHeaders(400, -1);
-      return;
+  @Test
+  void testReauthenticatesOnceAfter401() throws Exception {
+    server.rejectedToken = "mock-token-1";
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      try (ResultSet rs = s.executeQuery("SELECT geometry FROM leaf.pointlake.points")) {
+        assertTrue(rs.next());
+      }
+      assertEquals(2, server.authCount.get());
+      assertEquals("mock-token-2", ((LeafConnection) c).token());
+
+      // A later revocation is recovered the same way
+      server.rejectedToken = "mock-token-2";
+      try (ResultSet rs = s.executeQuery("SELECT geometry FROM leaf.pointlake.points")) {
+        assertTrue(rs.next());
+      }
+      assertEquals(3, server.authCount.get());
     }
-    String contentType = contentTypeHeaders.get(0);
-    if (contentType == null || !contentType.contains("text/plain")) {
-      exchange.sendResponseHeaders(400, -1);
-      return;
+  }
+
+  @Test
+  void testResultCacheServesRepeatedQueries() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "cache-user");
+    p.setProperty("password", "testpass");
+    p.setProperty("resultCache", "true");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      ((LeafConnection) c).resultCache().clear();
+      try (ResultSet rs = s.executeQuery("SELECT geometry FROM leaf.pointlake.points LIMIT 2")) {
+        assertTrue(rs.next());
+      }
+      try (ResultSet rs =
+          s.executeQuery("select geometry\n  from leaf.pointlake.points   limit 2;")) {
+        assertTrue(rs.next());
+        assertEquals("POINT (15.754155568620842 50.31069667390199)", rs.getString("geometry"));
+        assertTrue(rs.next());
+        assertFalse(rs.next());
+      }
+      assertEquals(1, server.queryCount.get());
     }
+  }
 
-    // Read SQL from request body (after verifying headers)
-    String sqlQuery;
-    try (BufferedReader reader =
-        new BufferedReader(
-            new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
-      sqlQuery = reader.lines().collect(Collectors.joining("\n"));
+  @Test
+  void testAsyncQueriesFanOut() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    java.util.concurrent.ExecutorService decoder =
+        java.util.concurrent.Executors.newFixedThreadPool(2);
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      assertTrue(s.isWrapperFor(LeafAsyncStatement.class));
+      LeafAsyncStatement async = s.unwrap(LeafAsyncStatement.class);
+      java.util.List<java.util.concurrent.CompletableFuture<ResultSet>> futures =
+          new java.util.ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        String sql = "SELECT geometry FROM leaf.pointlake.points WHERE id = " + i;
+        futures.add(
+            i % 2 == 0 ? async.executeQueryAsync(sql) : async.executeQueryAsync(sql, decoder));
+      }
+      for (java.util.concurrent.CompletableFuture<ResultSet> f : futures) {
+        try (ResultSet rs = f.get(30, java.util.concurrent.TimeUnit.SECONDS)) {
+          assertTrue(rs.next());
+          assertEquals("POINT (15.754155568620842 50.31069667390199)", rs.getString(1));
+        }
+      }
+      assertEquals(20, server.queryCount.get());
+    } finally {
+      decoder.shutdown();
     }
+  }
 
-    // Store received SQL for verification
-    receivedSql = sqlQuery;
+  @Test
+  void testQueryTimeoutAbortsCall() throws Exception {
+    server.latencyMillis = 3000;
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
 
-    // Verify SQL is not empty
-    if (sqlQuery == null || sqlQuery.trim().isEmpty()) {
-      exchange.sendResponseHeaders(400, -1);
-      return;
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      s.setQueryTimeout(1);
+      long start = System.nanoTime();
+      assertThrows(
+          java.sql.SQLTimeoutException.class,
+          () -> s.executeQuery("SELECT geometry FROM leaf.pointlake.points"));
+      assertTrue(System.nanoTime() - start < 2_500_000_000L);
     }
+  }
 
-    // Return direct array of JSON objects (new format)
-    String json =
-        "[\n"
-            + "  {\n"
-            + "    \"geometry\": \"POINT (15.754155568620842 50.31069667390199)\"\n"
-            + "  },\n"
-            + "  {\n"
-            + "    \"geometry\": \"POINT (15.754527717117158 50.3120397150037)\"\n"
-            + "  }\n"
-            + "]";
-    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-    exchange.getResponseHeaders().add("Content-Type", "application/json");
-    exchange.sendResponseHeaders(200, bytes.length);
-    try (OutputStream os = exchange.getResponseBody()) {
-      os.write(bytes);
+  @Test
+  void testCancelAbortsRunningQuery() throws Exception {
+    server.latencyMillis = 5000;
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      java.util.concurrent.ScheduledExecutorService canceller =
+          java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
+      try {
+        canceller.schedule(
+            () -> {
+              try {
+                s.cancel();
+              } catch (java.sql.SQLException e) {
+                throw new RuntimeException(e);
+              }
+            },
+            300,
+            java.util.concurrent.TimeUnit.MILLISECONDS);
+        java.sql.SQLException e =
+            assertThrows(
+                java.sql.SQLException.class,
+                () -> s.executeQuery("SELECT geometry FROM leaf.pointlake.points"));
+        assertEquals("57014", e.getSQLState());
+      } finally {
+        canceller.shutdown();
+      }
     }
   }
 
   @Test
-  void testQueryArrayFormat() throws Exception {
+  void testNetworkTimeoutAndAbort() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+    c.setNetworkTimeout(Runnable::run, 1500);
+    assertEquals(1500, c.getNetworkTimeout());
+    assertEquals(1500, ((LeafConnection) c).httpClient().readTimeoutMillis());
+    Statement s = c.createStatement();
+    c.abort(Runnable::run);
+    assertTrue(c.isClosed());
+    assertTrue(s.isClosed());
+  }
+
+  @Test
+  void testPreparedStatementBindsParameters() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p)) {
+      String sql = "SELECT geometry FROM leaf.pointlake.points WHERE crop = ? AND yield > ?";
+      try (java.sql.PreparedStatement ps = c.prepareStatement(sql)) {
+        ps.setString(1, "o'brien");
+        ps.setDouble(2, 2.5);
+        try (ResultSet rs = ps.executeQuery()) {
+          assertTrue(rs.next());
+        }
+        assertEquals(
+            "SELECT geometry FROM leaf.pointlake.points WHERE crop = 'o\\'brien' AND yield > 2.5D",
+            server.receivedSql);
+
+        ps.setInt(2, 3);
+        ps.executeQuery().close();
+        assertTrue(server.receivedSql.endsWith("yield > 3"));
+
+        ps.clearParameters();
+        assertThrows(java.sql.SQLException.class, ps::executeQuery);
+        assertThrows(java.sql.SQLException.class, () -> ps.executeQuery(sql));
+      }
+      // The parsed template is cached per connection
+      assertSame(((LeafConnection) c).template(sql), ((LeafConnection) c).template(sql));
+    }
+  }
+
+  @Test
+  void testPreparedStatementBindsDateAndTimeInCalendarZone() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    Calendar tokyo = Calendar.getInstance(TimeZone.getTimeZone("Asia/Tokyo"));
+    long instant = Instant.parse("2024-03-01T23:30:15Z").toEpochMilli();
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        PreparedStatement ps = c.prepareStatement("SELECT ? AS d, ? AS t, ? AS ts")) {
+      ps.setDate(1, new Date(instant), utc);
+      ps.setTime(2, new Time(instant), utc);
+      ps.setTimestamp(3, new Timestamp(instant), utc);
+      ps.executeQuery().close();
+      assertEquals(
+          "SELECT DATE '2024-03-01' AS d, '23:30:15' AS t,"
+              + " TIMESTAMP '2024-03-01 23:30:15' AS ts",
+          server.receivedSql);
+
+      ps.setDate(1, new Date(instant), tokyo);
+      ps.setTime(2, new Time(instant), tokyo);
+      ps.setTimestamp(3, new Timestamp(instant), tokyo);
+      ps.executeQuery().close();
+      assertEquals(
+          "SELECT DATE '2024-03-02' AS d, '08:30:15' AS t,"
+              + " TIMESTAMP '2024-03-02 08:30:15' AS ts",
+          server.receivedSql);
+    }
+  }
+
+  @Test
+  void testBatchRunsConcurrentlyInSubmissionOrder() throws Exception {
+    server.echoSql = true;
+    server.latencyMillis = 400;
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("batchParallelism", "4");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      for (int i = 0; i < 4; i++) {
+        s.addBatch("SELECT " + i);
+      }
+      long start = System.nanoTime();
+      int[] counts = s.executeBatch();
+      long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+      assertEquals(4, counts.length);
+      assertTrue(elapsedMillis < 1200, "batch took " + elapsedMillis + "ms");
+      for (int i = 0; i < 4; i++) {
+        if (i > 0) assertTrue(s.getMoreResults());
+        try (ResultSet rs = s.getResultSet()) {
+          assertTrue(rs.next());
+          assertEquals("SELECT " + i, rs.getString("sql"));
+        }
+      }
+      assertFalse(s.getMoreResults());
+      assertNull(s.getResultSet());
+    }
+  }
+
+  @Test
+  void testMaxRowsIsPushedDownAndEnforced() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      s.setMaxRows(1);
+      try (ResultSet rs = s.executeQuery("SELECT geometry FROM leaf.pointlake.points")) {
+        assertEquals("SELECT geometry FROM leaf.pointlake.points LIMIT 1", server.receivedSql);
+        // The mock ignores LIMIT and returns two rows; the cursor still stops at one
+        assertTrue(rs.next());
+        assertFalse(rs.next());
+      }
+    }
+  }
+
+  @Test
+  void testPagedCursorFetchesPagesOnDemand() throws Exception {
+    server.pagedRows = 25;
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("pagedFetch", "true");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      s.setFetchSize(10);
+      try (ResultSet rs = s.executeQuery("SELECT n FROM t ORDER BY n")) {
+        for (int i = 0; i < 25; i++) {
+          assertTrue(rs.next());
+          assertEquals(i, rs.getInt("n"));
+        }
+        assertFalse(rs.next());
+      }
+      // Pages at offsets 0, 10 and 20; the short last page ends the scan
+      assertEquals(3, server.queryCount.get());
+
+      server.queryCount.set(0);
+      s.setMaxRows(12);
+      try (ResultSet rs = s.executeQuery("SELECT n FROM t ORDER BY n")) {
+        int rows = 0;
+        while (rs.next()) rows++;
+        assertEquals(12, rows);
+      }
+      assertEquals("SELECT n FROM t ORDER BY n LIMIT 2 OFFSET 10", server.receivedSql);
+      assertEquals(2, server.queryCount.get());
+    }
+  }
+
+  @Test
+  void testPartitionedScanMergesAllParts() throws Exception {
+    server.echoSql = true;
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("partitionColumn", "n");
+    p.setProperty("partitionCount", "3");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery("SELECT n FROM t WHERE n >= 0 AND n < 30")) {
+      java.util.Set<String> seen = new java.util.HashSet<>();
+      while (rs.next()) {
+        seen.add(rs.getString("sql"));
+      }
+      assertEquals(
+          java.util.Set.of(
+              "SELECT n FROM t WHERE n >= 0 AND n < 30 AND (n < 10)",
+              "SELECT n FROM t WHERE n >= 0 AND n < 30 AND (n >= 10 AND n < 20)",
+              "SELECT n FROM t WHERE n >= 0 AND n < 30 AND (n >= 20)"),
+          seen);
+      assertEquals(3, server.queryCount.get());
+    }
+  }
+
+  @Test
+  void testPartitionedScanTakesColumnsFromNonEmptyPart() throws Exception {
+    server.echoSql = true;
+    server.emptySuffix = "(n < 10)";
+    server.latencyMillis = 200;
     Properties p = new Properties();
     p.setProperty("user", "testuser");
     p.setProperty("password", "testpass");
@@ -149,16 +521,589 @@ public class LeafStatementTest {
     try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
         Statement s = c.createStatement();
         ResultSet rs =
-            s.executeQuery("SELECT geometry FROM leaf.pointlake.points TABLESAMPLE(0.3 PERCENT)")) {
-      assertNotNull(rs);
+            s.executeQuery(
+                "SELECT n FROM t WHERE n BETWEEN 0 AND 20 /*+ LEAF_PARTITION(n, 2) */")) {
+      assertEquals("sql", rs.getMetaData().getColumnName(1));
       assertTrue(rs.next());
-      assertEquals("POINT (15.754155568620842 50.31069667390199)", rs.getString("geometry"));
-      assertTrue(rs.next());
-      assertEquals("POINT (15.754527717117158 50.3120397150037)", rs.getString("geometry"));
+      assertTrue(rs.getString("sql").endsWith("(n >= 10)"));
       assertFalse(rs.next());
     }
-    assertNotNull(receivedSql);
+  }
+
+  @Test
+  void testDecoderFollowsContentType() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      server.responseContentType = "application/x-ndjson";
+      server.responseJson = "{\"id\": 1, \"crop\": \"corn\"}\n{\"id\": 2, \"crop\": \"soy\"}\n";
+      try (ResultSet rs = s.executeQuery("SELECT id, crop FROM t")) {
+        assertEquals(LeafDecoders.ACCEPT, server.receivedAccept);
+        assertTrue(rs.next());
+        assertEquals("corn", rs.getString("crop"));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt("id"));
+        assertFalse(rs.next());
+      }
+
+      server.responseContentType = "application/vnd.apache.arrow.stream";
+      server.responseBytes = LeafDecoderTest.arrowStream();
+      try (ResultSet rs = s.executeQuery("SELECT id, name FROM t")) {
+        assertEquals(java.sql.Types.INTEGER, rs.getMetaData().getColumnType(1));
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("id"));
+        assertEquals("a", rs.getString("name"));
+      }
+    }
+  }
+
+  @Test
+  void testServiceDecoderTakesItsContentType() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      server.responseContentType = "text/csv; charset=utf-8";
+      server.responseJson = "id,crop\n1,corn\n2,\n";
+      try (ResultSet rs = s.executeQuery("SELECT id, crop FROM t")) {
+        assertTrue(server.receivedAccept.startsWith("text/csv, "));
+        assertEquals(java.sql.Types.BIGINT, rs.getMetaData().getColumnType(1));
+        assertTrue(rs.next());
+        assertEquals(1, rs.getLong("id"));
+        assertEquals("corn", rs.getString("crop"));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getLong("id"));
+        assertNull(rs.getString("crop"));
+        assertFalse(rs.next());
+      }
+    }
+  }
+
+  @Test
+  void testWktGeometryDecodesOnAccess() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery("SELECT geometry FROM leaf.pointlake.points")) {
+      assertTrue(rs.next());
+      LeafGeometry g = rs.getObject("geometry", LeafGeometry.class);
+      assertEquals(15.754155568620842, g.x(0));
+      assertEquals(50.31069667390199, g.y(0));
+      // The text value is unchanged
+      assertEquals("POINT (15.754155568620842 50.31069667390199)", rs.getString(1));
+    }
+  }
+
+  @Test
+  void testExactDecimalsProperty() throws Exception {
+    server.responseJson = "[{\"yield\": 12.50, \"n\": 3}, {\"yield\": 0.1, \"n\": 4}]";
+    for (String streaming : new String[] {"false", "true"}) {
+      Properties p = new Properties();
+      p.setProperty("user", "testuser");
+      p.setProperty("password", "testpass");
+      p.setProperty("exactDecimals", "true");
+      p.setProperty("streaming", streaming);
+
+      try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+          Statement s = c.createStatement();
+          ResultSet rs = s.executeQuery("SELECT yield, n FROM t")) {
+        assertEquals(java.sql.Types.DECIMAL, rs.getMetaData().getColumnType(1));
+        assertEquals(java.sql.Types.INTEGER, rs.getMetaData().getColumnType(2));
+        assertTrue(rs.next());
+        assertEquals(new java.math.BigDecimal("12.50"), rs.getObject("yield"));
+        assertTrue(rs.next());
+        assertEquals(0.1, rs.getDouble("yield"));
+      }
+    }
+  }
+
+  private void mockCatalog() {
+    server.sqlResponses.put(
+        "SHOW TABLES IN leaf.pointlake",
+        "[{\"namespace\": \"pointlake\", \"tableName\": \"points\", \"isTemporary\": false},"
+            + " {\"namespace\": \"pointlake\", \"tableName\": \"fields\", \"isTemporary\": false}]");
+    server.sqlResponses.put(
+        "DESCRIBE TABLE leaf.pointlake.points",
+        "[{\"col_name\": \"geometry\", \"data_type\": \"binary\", \"comment\": null},"
+            + " {\"col_name\": \"yield\", \"data_type\": \"double\", \"comment\": null},"
+            + " {\"col_name\": \"\", \"data_type\": \"\", \"comment\": \"\"},"
+            + " {\"col_name\": \"# Partitioning\", \"data_type\": \"\", \"comment\": \"\"}]");
+    server.sqlResponses.put(
+        "DESCRIBE TABLE leaf.pointlake.fields",
+        "[{\"col_name\": \"name\", \"data_type\": \"string\", \"comment\": null},"
+            + " {\"col_name\": \"area\", \"data_type\": \"decimal(10,2)\", \"comment\": null}]");
+  }
+
+  @Test
+  void testDatabaseMetaDataFromCatalog() throws Exception {
+    mockCatalog();
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p)) {
+      java.sql.DatabaseMetaData md = c.getMetaData();
+      assertEquals("`", md.getIdentifierQuoteString());
+      assertEquals("testuser", md.getUserName());
+      try (ResultSet rs = md.getSchemas()) {
+        assertTrue(rs.next());
+        assertEquals("pointlake", rs.getString("TABLE_SCHEM"));
+        assertEquals("leaf", rs.getString("TABLE_CATALOG"));
+        assertFalse(rs.next());
+      }
+      try (ResultSet rs = md.getTables(null, "point%", "%", new String[] {"TABLE"})) {
+        assertTrue(rs.next());
+        assertEquals("fields", rs.getString("TABLE_NAME"));
+        assertTrue(rs.next());
+        assertEquals("points", rs.getString("TABLE_NAME"));
+        assertEquals("TABLE", rs.getString("TABLE_TYPE"));
+        assertFalse(rs.next());
+      }
+      try (ResultSet rs = md.getColumns("leaf", "pointlake", "points", null)) {
+        assertTrue(rs.next());
+        assertEquals("geometry", rs.getString("COLUMN_NAME"));
+        assertEquals(java.sql.Types.VARBINARY, rs.getInt("DATA_TYPE"));
+        assertTrue(rs.next());
+        assertEquals("yield", rs.getString("COLUMN_NAME"));
+        assertEquals("DOUBLE", rs.getString("TYPE_NAME"));
+        assertEquals(2, rs.getInt("ORDINAL_POSITION"));
+        assertFalse(rs.next());
+      }
+      try (ResultSet rs = md.getColumns(null, null, "fi_lds", "ar%")) {
+        assertTrue(rs.next());
+        assertEquals(java.sql.Types.DECIMAL, rs.getInt("DATA_TYPE"));
+        assertFalse(rs.next());
+      }
+      int queries = server.queryCount.get();
+      // Served from the cached snapshot
+      try (ResultSet rs = c.getMetaData().getTables(null, null, null, null)) {
+        assertTrue(rs.next());
+      }
+      assertEquals(queries, server.queryCount.get());
+    }
+  }
+
+  @Test
+  void testCatalogRefreshesInBackground() throws Exception {
+    mockCatalog();
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("metadataTtlSeconds", "0");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p)) {
+      java.sql.DatabaseMetaData md = c.getMetaData();
+      try (ResultSet rs = md.getColumns(null, "pointlake", "points", "%")) {
+        int count = 0;
+        while (rs.next()) count++;
+        assertEquals(2, count);
+      }
+      server.sqlResponses.put(
+          "DESCRIBE TABLE leaf.pointlake.points",
+          "[{\"col_name\": \"geometry\", \"data_type\": \"binary\"},"
+              + " {\"col_name\": \"yield\", \"data_type\": \"double\"},"
+              + " {\"col_name\": \"crop\", \"data_type\": \"string\"}]");
+      // The stale snapshot answers at once while the refresh runs
+      try (ResultSet rs = md.getColumns(null, "pointlake", "points", "crop")) {
+        assertFalse(rs.next());
+      }
+      long deadline = System.currentTimeMillis() + 5000;
+      boolean refreshed = false;
+      while (!refreshed && System.currentTimeMillis() < deadline) {
+        try (ResultSet rs = md.getColumns(null, "pointlake", "points", "crop")) {
+          refreshed = rs.next();
+        }
+        if (!refreshed) Thread.sleep(20);
+      }
+      assertTrue(refreshed);
+    }
+  }
+
+  public static class Crop {
+    public final String field;
+    public final String crop;
+
+    Crop(String field, String crop) {
+      this.field = field;
+      this.crop = crop;
+    }
+  }
+
+  public static class Reference {
+    public final Crop[] crops = {new Crop("north", "corn"), new Crop("south", "soy")};
+  }
+
+  @Test
+  void testCalciteJoinPushesProjectionAndFilter() throws Exception {
+    mockCatalog();
+    server.responseJson =
+        "[{\"name\": \"north\", \"area\": 12.5}, {\"name\": \"south\", \"area\": 30}]";
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    Properties calciteProps = new Properties();
+    calciteProps.setProperty("lex", "JAVA");
+
+    try (Connection leaf = DriverManager.getConnection("jdbc:leaf:", p);
+        Connection calcite = DriverManager.getConnection("jdbc:calcite:", calciteProps)) {
+      SchemaPlus root = calcite.unwrap(CalciteConnection.class).getRootSchema();
+      root.add("pointlake", LeafSchema.create(leaf, "leaf", "pointlake"));
+      root.add("refdata", new ReflectiveSchema(new Reference()));
+      try (Statement s = calcite.createStatement();
+          ResultSet rs =
+              s.executeQuery(
+                  "SELECT f.name, c.crop FROM pointlake.fields f"
+                      + " JOIN refdata.crops c ON f.name = c.field"
+                      + " WHERE f.area > 10 AND f.name <> 'west' ORDER BY f.name")) {
+        assertTrue(rs.next());
+        assertEquals("north", rs.getString(1));
+        assertEquals("corn", rs.getString(2));
+        assertTrue(rs.next());
+        assertEquals("soy", rs.getString(2));
+        assertFalse(rs.next());
+      }
+    }
     assertEquals(
-        "SELECT geometry FROM leaf.pointlake.points TABLESAMPLE(0.3 PERCENT)", receivedSql.trim());
+        "SELECT `name`, `area` FROM `leaf`.`pointlake`.`fields`"
+            + " WHERE `area` > 10 AND `name` <> 'west'",
+        server.receivedSql);
+  }
+
+  @Test
+  void testCalciteScanRunsAgainAfterReset() throws Exception {
+    mockCatalog();
+    server.responseJson = "[{\"name\": \"north\", \"area\": 12.5}]";
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    DataContext context =
+        new DataContext() {
+          @Override
+          public SchemaPlus getRootSchema() {
+            return null;
+          }
+
+          @Override
+          public JavaTypeFactory getTypeFactory() {
+            return new JavaTypeFactoryImpl();
+          }
+
+          @Override
+          public QueryProvider getQueryProvider() {
+            return null;
+          }
+
+          @Override
+          public Object get(String name) {
+            return null;
+          }
+        };
+
+    try (Connection leaf = DriverManager.getConnection("jdbc:leaf:", p)) {
+      LeafTable table = (LeafTable) LeafSchema.create(leaf, "leaf", "pointlake").getTable("fields");
+      try (Enumerator<Object[]> rows = table.scan(context, new ArrayList<>(), null).enumerator()) {
+        int queries = server.queryCount.get();
+        assertTrue(rows.moveNext());
+        assertFalse(rows.moveNext());
+        rows.reset();
+        assertTrue(rows.moveNext());
+        assertEquals("north", rows.current()[0]);
+        assertEquals(queries + 2, server.queryCount.get());
+      }
+    }
+  }
+
+  @Test
+  void testMetricsRecordQueryPhases() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p)) {
+      assertTrue(c.isWrapperFor(LeafMetrics.class));
+      LeafMetrics metrics = c.unwrap(LeafMetrics.class);
+      long queries = metrics.getQueryCount();
+      long bytes = metrics.getBytesReceived();
+      long decodes = metrics.getDecode().getCount();
+      try (Statement s = c.createStatement();
+          ResultSet rs = s.executeQuery("SELECT geometry FROM leaf.pointlake.points")) {
+        assertTrue(rs.next());
+      }
+      s(c).executeQueryAsync("SELECT 1").get().close();
+      assertEquals(queries + 2, metrics.getQueryCount());
+      assertEquals(0, metrics.getInFlightQueries());
+      assertEquals(decodes + 2, metrics.getDecode().getCount());
+      assertTrue(metrics.getBytesReceived() > bytes);
+      assertTrue(metrics.getTimeToFirstByte().getCount() >= 2);
+      assertTrue(metrics.getAuthentication().getCount() >= 1);
+      assertTrue(metrics.getLargestResultBytesEstimated() > 0);
+
+      javax.management.openmbean.CompositeData query =
+          (javax.management.openmbean.CompositeData)
+              java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                  .getAttribute(new javax.management.ObjectName(LeafMetrics.OBJECT_NAME), "Query");
+      assertEquals(metrics.getQueryCount(), (long) (Long) query.get("count"));
+      assertEquals(metrics.getQuery().getMaxMillis(), LeafMetrics.Phase.from(query).getMaxMillis());
+    }
+  }
+
+  private static LeafAsyncStatement s(Connection c) throws Exception {
+    return c.createStatement().unwrap(LeafAsyncStatement.class);
+  }
+
+  /** Records every callback it receives in {@link #EVENTS}. */
+  public static final class RecordingListener implements LeafStatementListener {
+    static final java.util.List<String> EVENTS =
+        java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+
+    @Override
+    public void beforeExecute(Query query) {
+      EVENTS.add("before " + query.fingerprint());
+    }
+
+    @Override
+    public void onFirstByte(Query query) {
+      assertTrue(query.timeToFirstByteNanos() >= 0);
+      EVENTS.add("firstByte");
+    }
+
+    @Override
+    public void afterDecode(Query query) {
+      assertTrue(query.decodeNanos() >= 0);
+      EVENTS.add("decoded rows=" + query.rowCount() + " bytes=" + (query.bytes() > 0));
+    }
+
+    @Override
+    public void onError(Query query, java.sql.SQLException error) {
+      EVENTS.add("error " + error.getMessage().startsWith("HTTP 500"));
+    }
+  }
+
+  @Test
+  void testStatementListenerAndFlightRecorderEvents() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("statementListeners", RecordingListener.class.getName());
+    RecordingListener.EVENTS.clear();
+
+    java.nio.file.Path dump = java.nio.file.Files.createTempFile("leaf", ".jfr");
+    try (jdk.jfr.Recording recording = new jdk.jfr.Recording();
+        Connection c = DriverManager.getConnection("jdbc:leaf:", p)) {
+      recording.enable("com.leaf.jdbc.Query");
+      recording.start();
+      try (Statement s = c.createStatement();
+          ResultSet rs =
+              s.executeQuery("SELECT geometry FROM leaf.pointlake.points WHERE id = 7")) {
+        assertTrue(rs.next());
+      }
+      assertEquals(
+          java.util.List.of(
+              "before select geometry from leaf.pointlake.points where id = ?",
+              "firstByte",
+              "decoded rows=2 bytes=true"),
+          RecordingListener.EVENTS);
+
+      RecordingListener.EVENTS.clear();
+      server.errorRate = 1;
+      assertThrows(
+          java.util.concurrent.ExecutionException.class,
+          () -> s(c).executeQueryAsync("SELECT 1").get());
+      assertEquals(
+          java.util.List.of("before select ?", "firstByte", "error true"),
+          RecordingListener.EVENTS);
+
+      recording.stop();
+      recording.dump(dump);
+      java.util.List<jdk.jfr.consumer.RecordedEvent> events =
+          jdk.jfr.consumer.RecordingFile.readAllEvents(dump);
+      events.sort(java.util.Comparator.comparing(jdk.jfr.consumer.RecordedEvent::getStartTime));
+      assertEquals(2, events.size());
+      assertEquals(
+          "select geometry from leaf.pointlake.points where id = ?",
+          events.get(0).getString("fingerprint"));
+      assertEquals(2, events.get(0).getLong("rows"));
+      assertNull(events.get(0).getString("error"));
+      assertNotNull(events.get(1).getString("error"));
+    } finally {
+      java.nio.file.Files.deleteIfExists(dump);
+    }
+  }
+
+  @Test
+  void testTransientFailuresAreRetried() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("retryBackoffMillis", "1");
+    p.setProperty("retryMaxDelayMillis", "1000");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      long retries = LeafMetrics.driver().getRetryCount();
+      server.failuresLeft.set(2);
+      try (ResultSet rs = s.executeQuery("SELECT 1")) {
+        assertTrue(rs.next());
+      }
+      assertEquals(3, server.queryCount.get());
+      assertEquals(retries + 2, LeafMetrics.driver().getRetryCount());
+
+      // 429 waits as long as Retry-After says, on the async path too
+      server.failStatus = 429;
+      server.retryAfterSeconds = 0;
+      server.failuresLeft.set(1);
+      s(c).executeQueryAsync("SELECT 1").get().close();
+      assertEquals(5, server.queryCount.get());
+
+      // Asking for more than retryMaxDelayMillis gives up at once
+      server.retryAfterSeconds = 5;
+      server.failuresLeft.set(1);
+      java.sql.SQLException e =
+          assertThrows(java.sql.SQLException.class, () -> s.executeQuery("SELECT 1"));
+      assertTrue(e.getMessage().startsWith("HTTP 429"), e.getMessage());
+
+      // Exhausted retries and non-transient errors surface as before
+      server.failStatus = 503;
+      server.failuresLeft.set(3);
+      e = assertThrows(java.sql.SQLException.class, () -> s.executeQuery("SELECT 1"));
+      assertTrue(e.getMessage().startsWith("HTTP 503"), e.getMessage());
+      int sent = server.queryCount.get();
+      server.errorRate = 1;
+      assertThrows(java.sql.SQLException.class, () -> s.executeQuery("SELECT 1"));
+      assertEquals(sent + 1, server.queryCount.get());
+    }
+  }
+
+  @Test
+  void testSlowRequestIsHedged() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("hedging", "true");
+    p.setProperty("hedgeDelayMillis", "50");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s = c.createStatement()) {
+      long hedges = LeafMetrics.driver().getHedgedRequestCount();
+      server.slowMillis = 3000;
+      server.slowLeft.set(1);
+      long started = System.nanoTime();
+      try (ResultSet rs = s.executeQuery("SELECT geometry FROM leaf.pointlake.points")) {
+        assertTrue(rs.next());
+      }
+      assertTrue(System.nanoTime() - started < 2_000_000_000L);
+      assertEquals(2, server.queryCount.get());
+
+      server.slowLeft.set(1);
+      started = System.nanoTime();
+      s(c).executeQueryAsync("SELECT geometry FROM leaf.pointlake.points").get().close();
+      assertTrue(System.nanoTime() - started < 2_000_000_000L);
+      assertEquals(hedges + 2, LeafMetrics.driver().getHedgedRequestCount());
+    }
+  }
+
+  @Test
+  void testIdenticalInFlightQueriesAreCoalesced() throws Exception {
+    server.latencyMillis = 300;
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("coalesceQueries", "true");
+
+    try (Connection c1 = DriverManager.getConnection("jdbc:leaf:", p);
+        Connection c2 = DriverManager.getConnection("jdbc:leaf:", p);
+        Statement s2 = c2.createStatement()) {
+      long coalesced = LeafMetrics.driver().getCoalescedQueryCount();
+      int queries = server.queryCount.get();
+      String sql = "SELECT geometry FROM leaf.pointlake.points";
+      CompletableFuture<ResultSet> leader = s(c1).executeQueryAsync(sql);
+      CompletableFuture<ResultSet> follower =
+          s(c2).executeQueryAsync("select  GEOMETRY from leaf.pointlake.points;");
+      try (ResultSet sync = s2.executeQuery(sql);
+          ResultSet a = leader.get();
+          ResultSet b = follower.get()) {
+        assertNotSame(a, b);
+        assertNotSame(a, sync);
+        assertSame(s2, sync.getStatement());
+        assertTrue(a.next());
+        assertTrue(b.next());
+        assertTrue(sync.next());
+        assertEquals(a.getString("geometry"), b.getString("geometry"));
+        assertEquals(a.getString("geometry"), sync.getString("geometry"));
+      }
+      assertEquals(queries + 1, server.queryCount.get());
+      assertEquals(coalesced + 2, LeafMetrics.driver().getCoalescedQueryCount());
+    }
+  }
+
+  @Test
+  void testQueriesDecodedDifferentlyAreNotCoalesced() throws Exception {
+    server.latencyMillis = 300;
+    server.responseJson = "[{\"yield\": 12.5}]";
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+    p.setProperty("coalesceQueries", "true");
+    Properties exact = new Properties();
+    exact.putAll(p);
+    exact.setProperty("exactDecimals", "true");
+
+    try (Connection c1 = DriverManager.getConnection("jdbc:leaf:", p);
+        Connection c2 = DriverManager.getConnection("jdbc:leaf:", exact)) {
+      int queries = server.queryCount.get();
+      CompletableFuture<ResultSet> a = s(c1).executeQueryAsync("SELECT yield FROM t");
+      CompletableFuture<ResultSet> b = s(c2).executeQueryAsync("SELECT yield FROM t");
+      try (ResultSet doubles = a.get();
+          ResultSet decimals = b.get()) {
+        assertTrue(doubles.next());
+        assertTrue(decimals.next());
+        assertTrue(doubles.getObject(1) instanceof Double);
+        assertTrue(decimals.getObject(1) instanceof java.math.BigDecimal);
+      }
+      assertEquals(queries + 2, server.queryCount.get());
+    }
+  }
+
+  @Test
+  void testQueriesAreNotCoalescedByDefault() throws Exception {
+    server.latencyMillis = 200;
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p)) {
+      String sql = "SELECT geometry FROM leaf.pointlake.points";
+      CompletableFuture<ResultSet> a = s(c).executeQueryAsync(sql);
+      CompletableFuture<ResultSet> b = s(c).executeQueryAsync(sql);
+      a.get().close();
+      b.get().close();
+      assertEquals(2, server.queryCount.get());
+    }
+  }
+
+  @Test
+  void testClosingStatementAbortsInFlightQueries() throws Exception {
+    server.latencyMillis = 5000;
+    Properties p = new Properties();
+    p.setProperty("user", "testuser");
+    p.setProperty("password", "testpass");
+
+    try (Connection c = DriverManager.getConnection("jdbc:leaf:", p)) {
+      LeafAsyncStatement s = s(c);
+      CompletableFuture<ResultSet> pending = s.executeQueryAsync("SELECT 1");
+      long started = System.nanoTime();
+      ((Statement) s).close();
+      ExecutionException e = assertThrows(ExecutionException.class, pending::get);
+      assertTrue(System.nanoTime() - started < 2_000_000_000L);
+      assertEquals("57014", ((SQLException) e.getCause()).getSQLState());
+    }
   }
 }
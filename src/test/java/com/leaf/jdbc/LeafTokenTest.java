@@ -0,0 +1,35 @@
+package com.leaf.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+public class LeafTokenTest {
+  private static String jwt(String payload) {
+    Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+    return enc.encodeToString("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.UTF_8))
+        + "."
+        + enc.encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+        + ".sig";
+  }
+
+  @Test
+  void testDecodesExpiry() {
+    long now = 1_700_000_000_000L;
+    LeafToken token = LeafToken.of(jwt("{\"sub\":\"u\",\"exp\":1700086400}"), now);
+    assertTrue(token.hasExpiry());
+    assertEquals(1_700_086_400_000L, token.expiresAtMillis());
+    // One day lifetime: refresh a tenth of it before expiry
+    assertEquals(1_700_086_400_000L - 8_640_000L, token.refreshAtMillis());
+    assertFalse(token.isExpired(now));
+  }
+
+  @Test
+  void testOpaqueTokenHasNoExpiry() {
+    LeafToken token = LeafToken.of("mock-token-12345", 0L);
+    assertFalse(token.hasExpiry());
+    assertFalse(token.isExpired(System.currentTimeMillis()));
+  }
+}